@@ -0,0 +1,128 @@
+package com.lunaire.benchmarks.payment;
+
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.DailyPaymentRollupRepository;
+import ma.lunaire.paymentservice.mapper.MinorUnits;
+import ma.lunaire.paymentservice.service.impl.PaymentRollups;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refund, ledger and rollup amount arithmetic on minor units, next to the BigDecimal
+ * arithmetic it replaced. The rollup repository answers in memory, so the numbers
+ * exclude the database round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentAmountBenchmark {
+
+    private static final BigDecimal RATE = new BigDecimal("10.85");
+
+    @Param({"MAD", "EUR"})
+    private String currency;
+
+    private Payment payment;
+    private BigDecimal refundRequest;
+    private BigDecimal amount;
+    private BigDecimal refundedAmount;
+    private BigDecimal exchangeRate;
+    private PaymentRollups rollups;
+
+    @Setup
+    public void setUp() {
+        exchangeRate = currency.equals("MAD") ? BigDecimal.ONE : RATE;
+        amount = new BigDecimal("1850.00");
+        refundedAmount = new BigDecimal("555.00");
+        refundRequest = new BigDecimal("333.33");
+
+        payment = Payment.builder()
+                .id(1L)
+                .bookingId(100L)
+                .amountMinor(MinorUnits.toMinor(amount, currency))
+                .baseAmountMinor(MinorUnits.roundToMinor(amount.multiply(exchangeRate), "MAD"))
+                .refundedAmountMinor(MinorUnits.toMinor(refundedAmount, currency))
+                .currency(currency)
+                .exchangeRate(exchangeRate)
+                .status(PaymentStatus.PARTIALLY_REFUNDED)
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .createdAt(LocalDateTime.of(2026, 1, 15, 10, 0))
+                .build();
+
+        rollups = new PaymentRollups(inMemoryRollups(), null, null);
+    }
+
+    /**
+     * Refund validation and the MAD delta it adds to the booking ledger.
+     */
+    @Benchmark
+    public long refund() {
+        long refundMinor = MinorUnits.toMinor(refundRequest, payment.getCurrency());
+        long refundedBefore = payment.getRefundedAmountMinor();
+        long totalRefund = refundedBefore + refundMinor;
+        if (totalRefund > payment.getAmountMinor()) {
+            throw new IllegalStateException("Refund exceeds payment");
+        }
+        return payment.toBaseMinor(totalRefund) - payment.toBaseMinor(refundedBefore);
+    }
+
+    /**
+     * The same refund with BigDecimal amounts and the former centime conversion for Stripe.
+     */
+    @Benchmark
+    public long refundDecimal() {
+        BigDecimal totalRefund = refundedAmount.add(refundRequest);
+        if (totalRefund.compareTo(amount) > 0) {
+            throw new IllegalStateException("Refund exceeds payment");
+        }
+        long stripeAmount = refundRequest.multiply(BigDecimal.valueOf(100)).setScale(0, RoundingMode.HALF_UP).longValue();
+        BigDecimal refundedChange = totalRefund.multiply(exchangeRate).setScale(2, RoundingMode.HALF_UP)
+                .subtract(refundedAmount.multiply(exchangeRate).setScale(2, RoundingMode.HALF_UP));
+        return stripeAmount + refundedChange.unscaledValue().longValue();
+    }
+
+    /**
+     * Moving the payment between two daily rollup buckets.
+     */
+    @Benchmark
+    public Payment rollupRecord() {
+        rollups.record(payment, PaymentStatus.COMPLETED);
+        return payment;
+    }
+
+    /**
+     * Decimal amounts produced for a response at the API edge.
+     */
+    @Benchmark
+    public BigDecimal toResponseAmount() {
+        return MinorUnits.toDecimal(payment.getRefundedAmountMinor(), payment.getCurrency());
+    }
+
+    /**
+     * Rollup repository stub implementing only the in-place increment.
+     */
+    private static DailyPaymentRollupRepository inMemoryRollups() {
+        long[] totals = new long[2];
+        return (DailyPaymentRollupRepository) Proxy.newProxyInstance(
+                DailyPaymentRollupRepository.class.getClassLoader(),
+                new Class<?>[]{DailyPaymentRollupRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("increment")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    totals[0] += (long) args[4];
+                    totals[1] += (long) args[5];
+                    return 1;
+                });
+    }
+}
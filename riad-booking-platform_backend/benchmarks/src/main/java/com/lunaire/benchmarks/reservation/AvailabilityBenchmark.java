@@ -0,0 +1,96 @@
+package com.lunaire.benchmarks.reservation;
+
+import com.code.reservationservice.dao.entity.Reservation;
+import com.code.reservationservice.dao.entity.ReservationStatus;
+import com.code.reservationservice.dao.repository.ReservationRepository;
+import com.code.reservationservice.dto.AvailabilityCheckRequest;
+import com.code.reservationservice.dto.AvailabilityCheckResponse;
+import com.code.reservationservice.mapper.ReservationMapperImpl;
+import com.code.reservationservice.service.impl.ReservationServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Availability decision through ReservationServiceImpl, with the overlap query
+ * answered in memory so the numbers exclude the database round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvailabilityBenchmark {
+
+    private static final Set<ReservationStatus> RELEASED_STATUSES =
+            EnumSet.of(ReservationStatus.CANCELLED, ReservationStatus.EXPIRED, ReservationStatus.NO_SHOW);
+
+    @Param({"100", "1000"})
+    private int existingReservations;
+
+    private ReservationServiceImpl reservationService;
+    private AvailabilityCheckRequest freeRequest;
+    private AvailabilityCheckRequest bookedRequest;
+
+    @Setup
+    public void setUp() {
+        LocalDate baseDate = LocalDate.now().plusDays(1);
+        List<Reservation> reservations = ReservationFixtures.reservations(existingReservations, baseDate);
+
+        reservationService = new ReservationServiceImpl(inMemoryRepository(reservations), new ReservationMapperImpl());
+
+        // Reservation 1 (riad 2) covers baseDate+3 .. baseDate+5; riad 2 is then free far beyond the data set
+        bookedRequest = AvailabilityCheckRequest.builder()
+                .riadId(2L)
+                .checkInDate(baseDate.plusDays(4))
+                .checkOutDate(baseDate.plusDays(6))
+                .build();
+        freeRequest = AvailabilityCheckRequest.builder()
+                .riadId(2L)
+                .checkInDate(baseDate.plusDays(existingReservations * 3L + 10))
+                .checkOutDate(baseDate.plusDays(existingReservations * 3L + 12))
+                .build();
+    }
+
+    @Benchmark
+    public AvailabilityCheckResponse availableDates() {
+        return reservationService.checkAvailability(freeRequest);
+    }
+
+    @Benchmark
+    public AvailabilityCheckResponse bookedDates() {
+        return reservationService.checkAvailability(bookedRequest);
+    }
+
+    /**
+     * Repository stub implementing only isRiadAvailable with the same overlap rule as the JPQL query.
+     */
+    private static ReservationRepository inMemoryRepository(List<Reservation> reservations) {
+        return (ReservationRepository) Proxy.newProxyInstance(
+                ReservationRepository.class.getClassLoader(),
+                new Class<?>[]{ReservationRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("isRiadAvailable")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Long riadId = (Long) args[0];
+                    LocalDate checkIn = (LocalDate) args[1];
+                    LocalDate checkOut = (LocalDate) args[2];
+                    for (Reservation reservation : reservations) {
+                        if (reservation.getRiadId().equals(riadId)
+                                && !RELEASED_STATUSES.contains(reservation.getStatus())
+                                && !reservation.getCheckInDate().isAfter(checkOut)
+                                && !reservation.getCheckOutDate().isBefore(checkIn)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+    }
+}
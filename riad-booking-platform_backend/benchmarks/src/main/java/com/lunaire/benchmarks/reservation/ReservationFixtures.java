@@ -0,0 +1,89 @@
+package com.lunaire.benchmarks.reservation;
+
+import com.code.reservationservice.dao.entity.Reservation;
+import com.code.reservationservice.dao.entity.ReservationStatus;
+import com.code.reservationservice.dto.ReservationResponse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic reservation data shared by the reservation benchmarks.
+ */
+final class ReservationFixtures {
+
+    static final LocalDate BASE_DATE = LocalDate.of(2026, 1, 1);
+
+    private ReservationFixtures() {
+    }
+
+    static Reservation reservation(long id) {
+        return reservation(id, BASE_DATE);
+    }
+
+    static Reservation reservation(long id, LocalDate baseDate) {
+        LocalDate checkIn = baseDate.plusDays(id * 3);
+        return Reservation.builder()
+                .id(id)
+                .reservationNumber("RES-" + String.format("%08d", id))
+                .userId(1000L + id % 50)
+                .riadId(1L + id % 10)
+                .checkInDate(checkIn)
+                .checkOutDate(checkIn.plusDays(2))
+                .numberOfGuests(2)
+                .numberOfRooms(1)
+                .status(id % 7 == 0 ? ReservationStatus.CANCELLED : ReservationStatus.CONFIRMED)
+                .totalPrice(new BigDecimal("1850.00"))
+                .depositAmount(new BigDecimal("555.00"))
+                .currency("MAD")
+                .specialRequests("Late arrival, around 23:00")
+                .guestName("Guest " + id)
+                .guestEmail("guest" + id + "@example.com")
+                .guestPhone("+212600000000")
+                .paymentId("pi_" + id)
+                .createdAt(LocalDateTime.of(2025, 12, 1, 10, 0))
+                .updatedAt(LocalDateTime.of(2025, 12, 1, 10, 5))
+                .version(0L)
+                .build();
+    }
+
+    static List<Reservation> reservations(int count) {
+        return reservations(count, BASE_DATE);
+    }
+
+    static List<Reservation> reservations(int count, LocalDate baseDate) {
+        List<Reservation> reservations = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            reservations.add(reservation(id, baseDate));
+        }
+        return reservations;
+    }
+
+    static ReservationResponse response(long id) {
+        Reservation reservation = reservation(id);
+        return ReservationResponse.builder()
+                .id(reservation.getId())
+                .reservationNumber(reservation.getReservationNumber())
+                .userId(reservation.getUserId())
+                .riadId(reservation.getRiadId())
+                .checkInDate(reservation.getCheckInDate())
+                .checkOutDate(reservation.getCheckOutDate())
+                .numberOfGuests(reservation.getNumberOfGuests())
+                .numberOfRooms(reservation.getNumberOfRooms())
+                .status(reservation.getStatus())
+                .totalPrice(reservation.getTotalPrice())
+                .depositAmount(reservation.getDepositAmount())
+                .currency(reservation.getCurrency())
+                .specialRequests(reservation.getSpecialRequests())
+                .guestName(reservation.getGuestName())
+                .guestEmail(reservation.getGuestEmail())
+                .guestPhone(reservation.getGuestPhone())
+                .paymentId(reservation.getPaymentId())
+                .createdAt(reservation.getCreatedAt())
+                .updatedAt(reservation.getUpdatedAt())
+                .build();
+    }
+}
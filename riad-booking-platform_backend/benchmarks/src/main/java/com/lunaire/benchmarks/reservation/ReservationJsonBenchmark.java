@@ -0,0 +1,62 @@
+package com.lunaire.benchmarks.reservation;
+
+import com.code.reservationservice.dto.ReservationResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the responses returned by the reservation endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationJsonBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private JsonMapper jsonMapper;
+    private ReservationResponse response;
+    private Page<ReservationResponse> page;
+    private PagedModel<ReservationResponse> pagedModel;
+
+    @Setup
+    public void setUp() {
+        jsonMapper = JsonMapper.builder().build();
+        response = ReservationFixtures.response(42);
+
+        List<ReservationResponse> content = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            content.add(ReservationFixtures.response(id));
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, pageSize, Sort.by("createdAt").descending()), 5_000);
+        pagedModel = new PagedModel<>(page);
+    }
+
+    @Benchmark
+    public byte[] reservationResponse() {
+        return jsonMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] page() {
+        return jsonMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] pagedModel() {
+        return jsonMapper.writeValueAsBytes(pagedModel);
+    }
+}
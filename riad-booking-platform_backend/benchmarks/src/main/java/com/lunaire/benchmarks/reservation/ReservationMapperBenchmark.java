@@ -0,0 +1,51 @@
+package com.lunaire.benchmarks.reservation;
+
+import com.code.reservationservice.dao.entity.Reservation;
+import com.code.reservationservice.dto.ReservationResponse;
+import com.code.reservationservice.mapper.ReservationMapper;
+import com.code.reservationservice.mapper.ReservationMapperImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping entities to responses, single and as a full page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationMapperBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ReservationMapper mapper;
+    private Reservation reservation;
+    private List<Reservation> page;
+
+    @Setup
+    public void setUp() {
+        mapper = new ReservationMapperImpl();
+        reservation = ReservationFixtures.reservation(42);
+        page = ReservationFixtures.reservations(pageSize);
+    }
+
+    @Benchmark
+    public ReservationResponse toResponse() {
+        return mapper.toResponse(reservation);
+    }
+
+    @Benchmark
+    public List<ReservationResponse> toResponsePage() {
+        List<ReservationResponse> responses = new ArrayList<>(page.size());
+        for (Reservation entity : page) {
+            responses.add(mapper.toResponse(entity));
+        }
+        return responses;
+    }
+}
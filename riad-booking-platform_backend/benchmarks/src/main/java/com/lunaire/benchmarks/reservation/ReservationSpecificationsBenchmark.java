@@ -0,0 +1,54 @@
+package com.lunaire.benchmarks.reservation;
+
+import com.code.reservationservice.dao.entity.Reservation;
+import com.code.reservationservice.dao.entity.ReservationStatus;
+import com.code.reservationservice.dao.repository.ReservationSpecifications;
+import com.code.reservationservice.dto.ReservationSearchCriteria;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of composing the search specification for sparse and full criteria.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationSpecificationsBenchmark {
+
+    private ReservationSearchCriteria userOnly;
+    private ReservationSearchCriteria allCriteria;
+
+    @Setup
+    public void setUp() {
+        userOnly = ReservationSearchCriteria.builder()
+                .userId(1001L)
+                .build();
+
+        allCriteria = ReservationSearchCriteria.builder()
+                .userId(1001L)
+                .riadId(3L)
+                .status(ReservationStatus.CONFIRMED)
+                .checkInDateFrom(ReservationFixtures.BASE_DATE)
+                .checkInDateTo(ReservationFixtures.BASE_DATE.plusMonths(1))
+                .checkOutDateFrom(ReservationFixtures.BASE_DATE.plusDays(1))
+                .checkOutDateTo(ReservationFixtures.BASE_DATE.plusMonths(2))
+                .guestName("guest")
+                .reservationNumber("RES-00000042")
+                .build();
+    }
+
+    @Benchmark
+    public Specification<Reservation> composeUserOnly() {
+        return ReservationSpecifications.fromCriteria(userOnly);
+    }
+
+    @Benchmark
+    public Specification<Reservation> composeAllCriteria() {
+        return ReservationSpecifications.fromCriteria(allCriteria);
+    }
+}
@@ -0,0 +1,79 @@
+package ma.lunaire.catalogservice.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Caffeine-backed JCache regions for the Hibernate second-level and query caches,
+ * enabled with spring.jpa.properties.hibernate.cache.use_second_level_cache.
+ * Every region is declared here with its own size and TTL; an unknown region fails startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.cache.use_second_level_cache", havingValue = "true")
+@Slf4j
+public class SecondLevelCacheConfig {
+
+    public static final String CATALOG_ITEMS_REGION = "catalog-items";
+
+    @Value("${second-level-cache.catalog-items.max-entries:10000}")
+    private long catalogItemsMaxEntries;
+
+    @Value("${second-level-cache.catalog-items.ttl:30m}")
+    private Duration catalogItemsTtl;
+
+    @Value("${second-level-cache.query-results.max-entries:1000}")
+    private long queryResultsMaxEntries;
+
+    @Value("${second-level-cache.query-results.ttl:10m}")
+    private Duration queryResultsTtl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        createRegion(cacheManager, CATALOG_ITEMS_REGION, catalogItemsMaxEntries, catalogItemsTtl);
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                queryResultsMaxEntries, queryResultsTtl);
+        // Update timestamps must outlive every cached query result, so no bound and no expiry
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, -1, Duration.ZERO);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * A non-positive size or TTL leaves the region unbounded on that axis.
+     */
+    static void createRegion(CacheManager cacheManager, String region, long maxEntries, Duration ttl) {
+        if (cacheManager.getCache(region) != null) {
+            cacheManager.destroyCache(region);
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setMaximumSize(maxEntries > 0 ? OptionalLong.of(maxEntries) : OptionalLong.empty());
+        configuration.setExpireAfterWrite(ttl.isPositive() ? OptionalLong.of(ttl.toNanos()) : OptionalLong.empty());
+        cacheManager.createCache(region, configuration);
+        log.info("Second-level cache region {}: max entries {}, ttl {}", region,
+                maxEntries > 0 ? maxEntries : "unbounded", ttl.isPositive() ? ttl : "none");
+    }
+}
@@ -1,11 +1,14 @@
 package ma.lunaire.catalogservice.repository;
 
+import jakarta.persistence.QueryHint;
 import ma.lunaire.catalogservice.domain.CatalogItem;
 import ma.lunaire.catalogservice.domain.ItemStatus;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -46,6 +49,7 @@ public interface CatalogRepository extends JpaRepository<CatalogItem, Long> {
             @Param("maxPrice") BigDecimal maxPrice,
             Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT DISTINCT c.city FROM CatalogItem c WHERE c.status = 'AVAILABLE' ORDER BY c.city")
     List<String> findAllAvailableCities();
 }
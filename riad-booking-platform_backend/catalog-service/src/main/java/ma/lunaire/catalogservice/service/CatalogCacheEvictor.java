@@ -0,0 +1,40 @@
+package ma.lunaire.catalogservice.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.catalogservice.domain.CatalogItem;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Drops catalog items from the second-level cache after a write commits, so a
+ * put made meanwhile by a read on a lagging replica is not served until its TTL.
+ * A no-op when the second-level cache is disabled.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public void evictItem(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(id);
+                }
+            });
+        } else {
+            evictNow(id);
+        }
+    }
+
+    private void evictNow(Long id) {
+        entityManagerFactory.getCache().evict(CatalogItem.class, id);
+        log.debug("Evicted catalog item {} from the second-level cache", id);
+    }
+}
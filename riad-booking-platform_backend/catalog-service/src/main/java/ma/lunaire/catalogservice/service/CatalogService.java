@@ -24,6 +24,7 @@ import java.util.stream.Collectors;
 public class CatalogService {
 
     private final CatalogRepository catalogRepository;
+    private final CatalogCacheEvictor catalogCacheEvictor;
 
     public CatalogItemResponse createItem(CreateItemRequest request) {
         log.info("Creating new catalog item: {}", request.getName());
@@ -166,6 +167,7 @@ public class CatalogService {
         }
 
         CatalogItem updatedItem = catalogRepository.save(item);
+        catalogCacheEvictor.evictItem(id);
         log.info("Updated catalog item with ID: {}", updatedItem.getId());
 
         return mapToResponse(updatedItem);
@@ -179,6 +181,7 @@ public class CatalogService {
 
         item.setStatus(status);
         CatalogItem updatedItem = catalogRepository.save(item);
+        catalogCacheEvictor.evictItem(id);
 
         return mapToResponse(updatedItem);
     }
@@ -191,6 +194,7 @@ public class CatalogService {
         }
 
         catalogRepository.deleteById(id);
+        catalogCacheEvictor.evictItem(id);
         log.info("Deleted catalog item with ID: {}", id);
     }
 
@@ -0,0 +1,110 @@
+package ma.lunaire.catalogservice.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import ma.lunaire.catalogservice.domain.CatalogItem;
+import ma.lunaire.catalogservice.domain.ItemStatus;
+import ma.lunaire.catalogservice.repository.CatalogRepository;
+import ma.lunaire.catalogservice.service.CatalogCacheEvictor;
+import ma.lunaire.catalogservice.service.CatalogService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.hibernate.autoconfigure.HibernateJpaAutoConfiguration;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.transaction.autoconfigure.TransactionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Second-level cache tests against the in-memory database, on the JPA slice of the
+ * application with the cache enabled.
+ */
+@SpringBootTest(classes = SecondLevelCacheConfigTest.JpaSlice.class, properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class SecondLevelCacheConfigTest {
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = CatalogItem.class)
+    @EnableJpaRepositories(basePackageClasses = CatalogRepository.class)
+    @Import({SecondLevelCacheConfig.class, CatalogService.class, CatalogCacheEvictor.class})
+    static class JpaSlice {
+    }
+
+    @Autowired
+    private CatalogRepository catalogRepository;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+    private Long itemId;
+
+    @BeforeEach
+    void setUp() {
+        itemId = transactionTemplate.execute(status -> catalogRepository.save(CatalogItem.builder()
+                .name("Riad Yasmine")
+                .city("Marrakech")
+                .address("Derb Sidi Bouloukat")
+                .pricePerNight(new BigDecimal("925.00"))
+                .capacity(4)
+                .build()).getId());
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Should serve a catalog item from the second-level cache after the first load")
+    void shouldServeItemFromCache() {
+        assertThat(load(itemId).getName()).isEqualTo("Riad Yasmine");
+        assertThat(load(itemId).getName()).isEqualTo("Riad Yasmine");
+
+        assertThat(statistics.getSecondLevelCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCachePutCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should evict a catalog item once its update commits, then reload the new state")
+    void shouldEvictItemAfterCommit() {
+        load(itemId);
+        assertThat(entityManagerFactory.getCache().contains(CatalogItem.class, itemId)).isTrue();
+
+        catalogService.updateStatus(itemId, ItemStatus.MAINTENANCE);
+
+        assertThat(entityManagerFactory.getCache().contains(CatalogItem.class, itemId)).isFalse();
+        statistics.clear();
+        assertThat(load(itemId).getStatus()).isEqualTo(ItemStatus.MAINTENANCE);
+        assertThat(statistics.getSecondLevelCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isZero();
+    }
+
+    private CatalogItem load(Long id) {
+        return transactionTemplate.execute(status -> catalogRepository.findById(id).orElseThrow());
+    }
+}
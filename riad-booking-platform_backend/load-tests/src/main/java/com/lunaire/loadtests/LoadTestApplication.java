@@ -0,0 +1,83 @@
+package com.lunaire.loadtests;
+
+import com.lunaire.loadtests.funnel.BookingFunnel;
+import com.lunaire.loadtests.funnel.JsonHttpClient;
+import com.lunaire.loadtests.funnel.OpenModelDriver;
+import com.lunaire.loadtests.report.LatencyReport;
+import com.lunaire.loadtests.stub.ElasticsearchStandIn;
+import com.lunaire.loadtests.stub.StripeStandIn;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Booking funnel load test: starts the Stripe and Elasticsearch stand-ins,
+ * optionally the services themselves, drives the open-model workload and
+ * writes per-step latency histograms to the output directory. With
+ * {@code --stand-ins-only=true}, only serves the stand-ins until stopped, for
+ * services started separately.
+ */
+@Slf4j
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromArgs(args);
+        JsonMapper jsonMapper = JsonMapper.builder().build();
+        JsonHttpClient http = new JsonHttpClient(jsonMapper, config.getRequestTimeout());
+        LatencyReport report = new LatencyReport();
+
+        try (StripeStandIn stripe = new StripeStandIn(config.getStripePort(), config.stripeLatencyModel(),
+                     config.stripeFaults(), config.getWebhookSecret(), config.getStripeWebhookUrl(), jsonMapper);
+             ElasticsearchStandIn elasticsearch = new ElasticsearchStandIn(config.getElasticsearchPort(),
+                     config.getElasticsearchLatency(), config.getSearchHits(), jsonMapper);
+             ServiceLauncher launcher = new ServiceLauncher(config, http)) {
+
+            elasticsearch.seedRiads(config.getRiads());
+            stripe.start();
+            elasticsearch.start();
+            if (config.isStandInsOnly()) {
+                log.info("Stand-ins running; start payment-service with the stripe-standin profile "
+                        + "(STRIPE_API_BASE={}, STRIPE_WEBHOOK_SECRET={}) and research-service with ELASTICSEARCH_URIS={}. "
+                        + "Ctrl+C to stop", config.stripeUrl(), config.getWebhookSecret(), config.elasticsearchUrl());
+                new CountDownLatch(1).await();
+                return;
+            }
+            if (config.isLaunchServices()) {
+                launcher.startAll();
+            } else {
+                log.info("Using running services; payment-service needs STRIPE_API_BASE={} and STRIPE_WEBHOOK_SECRET={}, "
+                        + "research-service needs ELASTICSEARCH_URIS={}",
+                        config.stripeUrl(), config.getWebhookSecret(), config.elasticsearchUrl());
+            }
+
+            BookingFunnel funnel = new BookingFunnel(config, http, stripe, report);
+            new OpenModelDriver(config, funnel, report).run();
+        }
+
+        report.printSummary(System.out);
+        report.writeTo(config.getOutputDir(), jsonMapper, settings(config));
+        log.info("Histograms and summary written to {}", config.getOutputDir().toAbsolutePath());
+    }
+
+    private static Map<String, Object> settings(LoadTestConfig config) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("rate", config.getRate());
+        settings.put("arrivals", config.isPoissonArrivals() ? "poisson" : "constant");
+        settings.put("duration", config.getDuration().toString());
+        settings.put("warmup", config.getWarmup().toString());
+        settings.put("maxInFlight", config.getMaxInFlight());
+        settings.put("riads", config.getRiads());
+        settings.put("users", config.getUsers());
+        settings.put("virtualThreads", config.isVirtualThreads());
+        settings.put("stripeLatencyMs", config.getStripeLatency().toMillis());
+        settings.put("stripeLatencyDistribution", config.getStripeLatencyDistribution());
+        settings.put("stripeErrorRate", config.getStripeErrorRate());
+        settings.put("stripeRateLimitRate", config.getStripeRateLimitRate());
+        settings.put("stripeDeclineRate", config.getStripeDeclineRate());
+        settings.put("elasticsearchLatencyMs", config.getElasticsearchLatency().toMillis());
+        return settings;
+    }
+}
@@ -0,0 +1,165 @@
+package com.lunaire.loadtests;
+
+import com.lunaire.loadtests.stub.LatencyDistribution;
+import com.lunaire.loadtests.stub.StripeStandIn;
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load test settings, parsed from {@code --key=value} command line arguments.
+ */
+@Value
+@Builder
+public class LoadTestConfig {
+
+    // Open-model workload
+    @Builder.Default double rate = 20.0;
+    @Builder.Default Duration duration = Duration.ofMinutes(2);
+    @Builder.Default Duration warmup = Duration.ofSeconds(30);
+    @Builder.Default boolean poissonArrivals = true;
+    @Builder.Default int maxInFlight = 2_000;
+    @Builder.Default Duration requestTimeout = Duration.ofSeconds(30);
+
+    // Data shape
+    @Builder.Default int riads = 200;
+    @Builder.Default int users = 500;
+    @Builder.Default int horizonDays = 365;
+
+    // Services under test; with standInsOnly, only the stand-ins run until stopped
+    @Builder.Default boolean standInsOnly = false;
+    @Builder.Default boolean launchServices = true;
+    @Builder.Default Path servicesDir = Path.of(".");
+    @Builder.Default String serviceJvmArgs = "";
+    @Builder.Default boolean virtualThreads = false;
+    @Builder.Default String reservationUrl = "http://localhost:18083";
+    @Builder.Default String paymentUrl = "http://localhost:18084";
+    @Builder.Default String researchUrl = "http://localhost:18085";
+    // Payment outcomes reach reservation-service over RabbitMQ; the funnel waits for CONFIRMED
+    @Builder.Default boolean asyncOutcomes = false;
+    @Builder.Default Duration confirmationTimeout = Duration.ofSeconds(10);
+
+    // Stand-ins
+    @Builder.Default int stripePort = 12111;
+    @Builder.Default Duration stripeLatency = Duration.ofMillis(120);
+    @Builder.Default String stripeLatencyDistribution = "uniform";
+    @Builder.Default double stripeErrorRate = 0.0;
+    @Builder.Default double stripeRateLimitRate = 0.0;
+    @Builder.Default double stripeDeclineRate = 0.0;
+    @Builder.Default String webhookSecret = "whsec_loadtest";
+    @Builder.Default String stripeWebhookUrl = "";
+    @Builder.Default int elasticsearchPort = 19200;
+    @Builder.Default Duration elasticsearchLatency = Duration.ofMillis(10);
+    @Builder.Default int searchHits = 20;
+
+    @Builder.Default Path outputDir = Path.of("target", "load-test");
+
+    private static final Set<String> KEYS = Set.of(
+            "rate", "duration", "warmup", "arrivals", "max-in-flight", "request-timeout",
+            "riads", "users", "horizon-days",
+            "stand-ins-only", "launch-services", "services-dir", "service-jvm-args", "virtual-threads",
+            "reservation-url", "payment-url", "research-url", "async-outcomes", "confirmation-timeout",
+            "stripe-port", "stripe-latency-ms", "stripe-latency-distribution", "stripe-error-rate",
+            "stripe-rate-limit-rate", "stripe-decline-rate", "webhook-secret", "stripe-webhook-url",
+            "elasticsearch-port", "elasticsearch-latency-ms", "search-hits",
+            "output-dir");
+
+    public String stripeUrl() {
+        return "http://localhost:" + stripePort;
+    }
+
+    public String elasticsearchUrl() {
+        return "http://localhost:" + elasticsearchPort;
+    }
+
+    public LatencyDistribution stripeLatencyModel() {
+        return LatencyDistribution.of(stripeLatencyDistribution, stripeLatency);
+    }
+
+    public StripeStandIn.Faults stripeFaults() {
+        return new StripeStandIn.Faults(stripeErrorRate, stripeRateLimitRate, stripeDeclineRate);
+    }
+
+    /**
+     * Parse {@code --key=value} arguments; durations use ISO-8601 (PT5M).
+     */
+    public static LoadTestConfig fromArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown option --" + key + ", expected one of " + KEYS);
+            }
+            values.put(key, arg.substring(arg.indexOf('=') + 1));
+        }
+
+        LoadTestConfigBuilder builder = LoadTestConfig.builder();
+        values.forEach((key, value) -> {
+            switch (key) {
+                case "rate" -> builder.rate(Double.parseDouble(value));
+                case "duration" -> builder.duration(Duration.parse(value));
+                case "warmup" -> builder.warmup(Duration.parse(value));
+                case "arrivals" -> builder.poissonArrivals(parseArrivals(value));
+                case "max-in-flight" -> builder.maxInFlight(Integer.parseInt(value));
+                case "request-timeout" -> builder.requestTimeout(Duration.parse(value));
+                case "riads" -> builder.riads(Integer.parseInt(value));
+                case "users" -> builder.users(Integer.parseInt(value));
+                case "horizon-days" -> builder.horizonDays(Integer.parseInt(value));
+                case "stand-ins-only" -> builder.standInsOnly(Boolean.parseBoolean(value));
+                case "launch-services" -> builder.launchServices(Boolean.parseBoolean(value));
+                case "services-dir" -> builder.servicesDir(Path.of(value));
+                case "service-jvm-args" -> builder.serviceJvmArgs(value);
+                case "virtual-threads" -> builder.virtualThreads(Boolean.parseBoolean(value));
+                case "reservation-url" -> builder.reservationUrl(value);
+                case "payment-url" -> builder.paymentUrl(value);
+                case "research-url" -> builder.researchUrl(value);
+                case "async-outcomes" -> builder.asyncOutcomes(Boolean.parseBoolean(value));
+                case "confirmation-timeout" -> builder.confirmationTimeout(Duration.parse(value));
+                case "stripe-port" -> builder.stripePort(Integer.parseInt(value));
+                case "stripe-latency-ms" -> builder.stripeLatency(Duration.ofMillis(Long.parseLong(value)));
+                case "stripe-latency-distribution" -> builder.stripeLatencyDistribution(value);
+                case "stripe-error-rate" -> builder.stripeErrorRate(parseRate(key, value));
+                case "stripe-rate-limit-rate" -> builder.stripeRateLimitRate(parseRate(key, value));
+                case "stripe-decline-rate" -> builder.stripeDeclineRate(parseRate(key, value));
+                case "webhook-secret" -> builder.webhookSecret(value);
+                case "stripe-webhook-url" -> builder.stripeWebhookUrl(value);
+                case "elasticsearch-port" -> builder.elasticsearchPort(Integer.parseInt(value));
+                case "elasticsearch-latency-ms" -> builder.elasticsearchLatency(Duration.ofMillis(Long.parseLong(value)));
+                case "search-hits" -> builder.searchHits(Integer.parseInt(value));
+                case "output-dir" -> builder.outputDir(Path.of(value));
+                default -> throw new IllegalStateException(key);
+            }
+        });
+
+        LoadTestConfig config = builder.build();
+        if (config.getRate() <= 0) {
+            throw new IllegalArgumentException("--rate must be greater than 0");
+        }
+        config.stripeLatencyModel();
+        return config;
+    }
+
+    private static double parseRate(String key, String value) {
+        double rate = Double.parseDouble(value);
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("--" + key + " must be between 0 and 1");
+        }
+        return rate;
+    }
+
+    private static boolean parseArrivals(String value) {
+        return switch (value) {
+            case "poisson" -> true;
+            case "constant" -> false;
+            default -> throw new IllegalArgumentException("--arrivals must be poisson or constant");
+        };
+    }
+}
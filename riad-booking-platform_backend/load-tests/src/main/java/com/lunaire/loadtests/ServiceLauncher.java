@@ -0,0 +1,124 @@
+package com.lunaire.loadtests;
+
+import com.lunaire.loadtests.funnel.JsonHttpClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Starts reservation, payment and research services as child JVMs wired to
+ * the stand-ins, and stops them when the run ends.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class ServiceLauncher implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final LoadTestConfig config;
+    private final JsonHttpClient http;
+    private final List<Process> processes = new ArrayList<>();
+
+    public void startAll() throws IOException, InterruptedException {
+        // SQL logging is on by default in these services and would dominate the profile
+        Map<String, String> common = Map.of(
+                "VIRTUAL_THREADS_ENABLED", String.valueOf(config.isVirtualThreads()),
+                "SPRING_JPA_SHOW_SQL", "false",
+                "LOGGING_LEVEL_ORG_HIBERNATE_SQL", "WARN",
+                "LOGGING_LEVEL_COM_CODE_RESERVATIONSERVICE", "INFO",
+                "LOGGING_LEVEL_MA_LUNAIRE_PAYMENTSERVICE", "INFO");
+
+        // Async outcomes go through the docker-compose RabbitMQ, which must already be running
+        String outcomes = String.valueOf(config.isAsyncOutcomes());
+        start("reservation-service", config.getReservationUrl(), common, Map.of(
+                "PAYMENT_OUTCOMES_ENABLED", outcomes));
+        start("payment-service", config.getPaymentUrl(), common, Map.of(
+                "SPRING_PROFILES_ACTIVE", "stripe-standin",
+                "STRIPE_API_BASE", config.stripeUrl(),
+                "STRIPE_WEBHOOK_SECRET", config.getWebhookSecret(),
+                "PAYMENTS_OUTBOX_TRANSPORT", config.isAsyncOutcomes() ? "rabbit" : "none"));
+        start("research-service", config.getResearchUrl(), common, Map.of(
+                "ELASTICSEARCH_URIS", config.elasticsearchUrl()));
+
+        for (String url : List.of(config.getReservationUrl(), config.getPaymentUrl(), config.getResearchUrl())) {
+            awaitReady(url);
+        }
+    }
+
+    @Override
+    public void close() {
+        processes.forEach(Process::destroy);
+        for (Process process : processes) {
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private void start(String service, String url, Map<String, String> common, Map<String, String> env)
+            throws IOException {
+        Path jar = findBootJar(config.getServicesDir().resolve(service).resolve("target"));
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (!config.getServiceJvmArgs().isBlank()) {
+            command.addAll(Arrays.asList(config.getServiceJvmArgs().trim().split("\\s+")));
+        }
+        command.add("-jar");
+        command.add(jar.toString());
+
+        Files.createDirectories(config.getOutputDir());
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(config.getOutputDir().resolve(service + ".log").toFile());
+        builder.environment().putAll(common);
+        builder.environment().putAll(env);
+        builder.environment().put("SERVER_PORT", String.valueOf(URI.create(url).getPort()));
+
+        log.info("Starting {} from {} on {}", service, jar, url);
+        processes.add(builder.start());
+    }
+
+    private void awaitReady(String url) throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (http.probe(url + "/actuator/info") != 200) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(url + " not ready after " + STARTUP_TIMEOUT
+                        + ", see logs in " + config.getOutputDir());
+            }
+            Thread.sleep(500);
+        }
+        log.info("{} is ready", url);
+    }
+
+    /**
+     * The repackaged Boot jar: {@code *-exec.jar} when the service keeps a plain main artifact.
+     */
+    static Path findBootJar(Path targetDir) throws IOException {
+        if (!Files.isDirectory(targetDir)) {
+            throw new IllegalStateException("No " + targetDir + ", build the services first (mvn package -DskipTests)");
+        }
+        try (Stream<Path> files = Files.list(targetDir)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .filter(file -> !file.getFileName().toString().endsWith("-plain.jar"))
+                    .filter(file -> !file.getFileName().toString().endsWith("-sources.jar"))
+                    .min(Comparator.comparingInt(file -> file.getFileName().toString().endsWith("-exec.jar") ? 0 : 1))
+                    .orElseThrow(() -> new IllegalStateException("No jar in " + targetDir));
+        }
+    }
+}
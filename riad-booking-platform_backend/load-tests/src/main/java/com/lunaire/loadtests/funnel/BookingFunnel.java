@@ -0,0 +1,192 @@
+package com.lunaire.loadtests.funnel;
+
+import com.lunaire.loadtests.LoadTestConfig;
+import com.lunaire.loadtests.report.LatencyReport;
+import com.lunaire.loadtests.report.LatencyReport.Outcome;
+import com.lunaire.loadtests.stub.StripeStandIn;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * One guest going through search, availability, reservation, payment,
+ * webhook and reservation confirmation, timing each step. The funnel posts the
+ * webhook itself only when the Stripe stand-in does not emit them, and with async
+ * outcomes waits for reservation-service to confirm the reservation.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class BookingFunnel {
+
+    private static final BigDecimal NIGHTLY_PRICE = new BigDecimal("925.00");
+    private static final Duration CONFIRMATION_POLL_INTERVAL = Duration.ofMillis(50);
+
+    private final LoadTestConfig config;
+    private final JsonHttpClient http;
+    private final StripeStandIn stripe;
+    private final LatencyReport report;
+
+    /**
+     * Run the funnel for an arrival scheduled at {@code scheduledNanos} (System.nanoTime()).
+     */
+    public void run(long scheduledNanos) {
+        Outcome outcome;
+        try {
+            outcome = book();
+        } catch (StepFailedException e) {
+            log.debug("Funnel failed: {}", e.getMessage());
+            outcome = Outcome.FAILED;
+        } catch (RuntimeException e) {
+            log.warn("Funnel aborted: {}", e.toString());
+            outcome = Outcome.FAILED;
+        }
+        report.recordOutcome(outcome, System.nanoTime() - scheduledNanos);
+    }
+
+    private Outcome book() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = 1 + random.nextInt(config.getUsers());
+        long riadId = 1 + random.nextInt(config.getRiads());
+        int guests = 1 + random.nextInt(4);
+        int nights = 1 + random.nextInt(5);
+        LocalDate checkIn = LocalDate.now().plusDays(1 + random.nextInt(config.getHorizonDays()));
+        LocalDate checkOut = checkIn.plusDays(nights);
+        String reservations = config.getReservationUrl() + "/api/v1/reservations";
+
+        timed(FunnelStep.SEARCH, () -> http.post(config.getResearchUrl() + "/api/search", Map.of(
+                "ville", "Marrakech",
+                "personnes", guests,
+                "dateDebut", checkIn.toString(),
+                "dateFin", checkOut.toString())));
+
+        JsonNode availability = timed(FunnelStep.AVAILABILITY, () -> http.post(reservations + "/check-availability", Map.of(
+                "riadId", riadId,
+                "checkInDate", checkIn.toString(),
+                "checkOutDate", checkOut.toString())));
+        if (!availability.path("available").asBoolean()) {
+            return Outcome.UNAVAILABLE;
+        }
+
+        BigDecimal totalPrice = NIGHTLY_PRICE.multiply(BigDecimal.valueOf(nights));
+        Map<String, Object> reservationRequest = new LinkedHashMap<>();
+        reservationRequest.put("userId", userId);
+        reservationRequest.put("riadId", riadId);
+        reservationRequest.put("checkInDate", checkIn.toString());
+        reservationRequest.put("checkOutDate", checkOut.toString());
+        reservationRequest.put("numberOfGuests", guests);
+        reservationRequest.put("numberOfRooms", 1);
+        reservationRequest.put("totalPrice", totalPrice);
+        reservationRequest.put("currency", "MAD");
+        reservationRequest.put("guestName", "Guest " + userId);
+        reservationRequest.put("guestEmail", email(userId));
+
+        JsonNode reservation;
+        try {
+            reservation = timed(FunnelStep.CREATE_RESERVATION, () -> http.post(reservations, reservationRequest));
+        } catch (StepFailedException e) {
+            // Another guest took the same dates between the check and the create
+            if (e.getStatus() == 409) {
+                return Outcome.UNAVAILABLE;
+            }
+            throw e;
+        }
+        long reservationId = reservation.path("id").asLong();
+
+        Map<String, Object> paymentRequest = new LinkedHashMap<>();
+        paymentRequest.put("bookingId", reservationId);
+        paymentRequest.put("userId", userId);
+        paymentRequest.put("amount", totalPrice);
+        paymentRequest.put("currency", "MAD");
+        paymentRequest.put("paymentMethod", "CREDIT_CARD");
+        paymentRequest.put("stripePaymentMethodId", "pm_card_visa");
+        paymentRequest.put("customerEmail", email(userId));
+        paymentRequest.put("customerName", "Guest " + userId);
+
+        JsonNode payment = timed(FunnelStep.CREATE_PAYMENT, () -> http.post(config.getPaymentUrl() + "/api/payments", paymentRequest));
+        long paymentId = payment.path("id").asLong();
+        String paymentIntentId = payment.path("stripePaymentIntentId").asString();
+
+        timed(FunnelStep.CONFIRM_PAYMENT, () -> http.post(config.getPaymentUrl() + "/api/payments/" + paymentId + "/confirm", Map.of()));
+
+        // The stand-in already delivered payment_intent.succeeded when it posts webhooks itself
+        if (!stripe.emitsWebhooks()) {
+            List<String> event = stripe.signedEvent("payment_intent.succeeded", paymentIntentId);
+            timed(FunnelStep.WEBHOOK, () -> http.post(config.getPaymentUrl() + "/api/webhooks/stripe",
+                    event.get(0), "Stripe-Signature", event.get(1)));
+        }
+
+        String reservationUrl = reservations + "/" + reservationId;
+        timed(FunnelStep.CONFIRM_RESERVATION, () -> config.isAsyncOutcomes()
+                ? awaitConfirmed(reservationUrl, paymentId)
+                : confirm(reservationUrl, paymentId));
+        return Outcome.BOOKED;
+    }
+
+    private JsonNode confirm(String reservationUrl, long paymentId) {
+        http.patch(reservationUrl + "/payment?paymentId=" + paymentId);
+        return http.post(reservationUrl + "/confirm", Map.of());
+    }
+
+    /**
+     * With async outcomes, reservation-service confirms the reservation when the payment
+     * outcome arrives; confirming it here as well would race the consumer. Poll until it is
+     * CONFIRMED, and confirm it ourselves only once the timeout has passed.
+     */
+    private JsonNode awaitConfirmed(String reservationUrl, long paymentId) {
+        long deadline = System.nanoTime() + config.getConfirmationTimeout().toNanos();
+        while (System.nanoTime() < deadline) {
+            JsonNode reservation = http.get(reservationUrl);
+            if (isConfirmed(reservation)) {
+                return reservation;
+            }
+            try {
+                Thread.sleep(CONFIRMATION_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StepFailedException("Interrupted", 0);
+            }
+        }
+
+        log.debug("Reservation {} not confirmed after {}, confirming it directly", reservationUrl,
+                config.getConfirmationTimeout());
+        try {
+            return confirm(reservationUrl, paymentId);
+        } catch (StepFailedException e) {
+            // The outcome may still have landed between the last poll and the confirm
+            JsonNode reservation = http.get(reservationUrl);
+            if (isConfirmed(reservation)) {
+                return reservation;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isConfirmed(JsonNode reservation) {
+        return "CONFIRMED".equals(reservation.path("status").asString());
+    }
+
+    private JsonNode timed(FunnelStep step, Supplier<JsonNode> call) {
+        long start = System.nanoTime();
+        try {
+            JsonNode result = call.get();
+            report.recordStep(step, System.nanoTime() - start);
+            return result;
+        } catch (StepFailedException e) {
+            report.recordStepError(step);
+            throw e;
+        }
+    }
+
+    private static String email(long userId) {
+        return "guest" + userId + "@loadtest.example.com";
+    }
+}
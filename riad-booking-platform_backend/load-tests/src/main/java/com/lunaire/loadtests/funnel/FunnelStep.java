@@ -0,0 +1,24 @@
+package com.lunaire.loadtests.funnel;
+
+/**
+ * Steps of the booking funnel, in the order a guest goes through them.
+ */
+public enum FunnelStep {
+    SEARCH("search"),
+    AVAILABILITY("availability"),
+    CREATE_RESERVATION("create-reservation"),
+    CREATE_PAYMENT("create-payment"),
+    CONFIRM_PAYMENT("confirm-payment"),
+    WEBHOOK("webhook"),
+    CONFIRM_RESERVATION("confirm-reservation");
+
+    private final String label;
+
+    FunnelStep(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,98 @@
+package com.lunaire.loadtests.funnel;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.NullNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Thin JSON-over-HTTP client used by the funnel; non-2xx answers raise {@link StepFailedException}.
+ */
+public class JsonHttpClient {
+
+    private final HttpClient httpClient;
+    private final JsonMapper jsonMapper;
+    private final Duration requestTimeout;
+
+    public JsonHttpClient(JsonMapper jsonMapper, Duration requestTimeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.jsonMapper = jsonMapper;
+        this.requestTimeout = requestTimeout;
+    }
+
+    public JsonNode post(String url, Object body) {
+        return send(request(url).POST(bodyOf(body)).header("Content-Type", "application/json"));
+    }
+
+    public JsonNode post(String url, String body, String headerName, String headerValue) {
+        return send(request(url)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .header(headerName, headerValue));
+    }
+
+    public JsonNode patch(String url) {
+        return send(request(url).method("PATCH", HttpRequest.BodyPublishers.noBody()));
+    }
+
+    public JsonNode get(String url) {
+        return send(request(url).GET());
+    }
+
+    /**
+     * Status code only, for readiness probes; connection failures count as 0.
+     */
+    public int probe(String url) {
+        try {
+            return httpClient.send(request(url).GET().build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher bodyOf(Object body) {
+        return HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(body));
+    }
+
+    private JsonNode send(HttpRequest.Builder builder) {
+        HttpRequest request = builder.build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new StepFailedException(request.method() + " " + request.uri() + ": " + e.getMessage(), 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StepFailedException("Interrupted", 0);
+        }
+
+        if (response.statusCode() / 100 != 2) {
+            throw new StepFailedException(
+                    request.method() + " " + request.uri() + " -> " + response.statusCode() + ": " + response.body(),
+                    response.statusCode());
+        }
+        // Webhook endpoint answers plain text, only JSON bodies are parsed
+        String body = response.body();
+        return body.startsWith("{") || body.startsWith("[") ? jsonMapper.readTree(body) : NullNode.getInstance();
+    }
+}
@@ -0,0 +1,100 @@
+package com.lunaire.loadtests.funnel;
+
+import com.lunaire.loadtests.LoadTestConfig;
+import com.lunaire.loadtests.report.LatencyReport;
+import com.lunaire.loadtests.report.LatencyReport.Outcome;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load: arrivals follow the configured rate whatever the system's
+ * response time, each on its own virtual thread. When max-in-flight is reached
+ * the arrival is dropped and counted instead of delaying the schedule.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class OpenModelDriver {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final LoadTestConfig config;
+    private final BookingFunnel funnel;
+    private final LatencyReport report;
+
+    public void run() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.getMaxInFlight());
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getRate();
+
+        long start = System.nanoTime();
+        long measureFrom = start + config.getWarmup().toNanos();
+        long end = measureFrom + config.getDuration().toNanos();
+        long nextProgress = start + PROGRESS_INTERVAL_NANOS;
+        boolean measuring = false;
+        long arrivals = 0;
+
+        log.info("Driving {} arrivals/s ({}) for {} after {} warm-up",
+                config.getRate(), config.isPoissonArrivals() ? "poisson" : "constant",
+                config.getDuration(), config.getWarmup());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long scheduled = start;
+            while (scheduled < end) {
+                waitUntil(scheduled);
+
+                if (!measuring && scheduled >= measureFrom) {
+                    report.startMeasuring();
+                    measuring = true;
+                    log.info("Warm-up done, measuring");
+                }
+
+                long arrival = scheduled;
+                if (inFlight.tryAcquire()) {
+                    executor.submit(() -> {
+                        try {
+                            funnel.run(arrival);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } else {
+                    report.recordOutcome(Outcome.DROPPED, 0);
+                }
+                arrivals++;
+
+                if (scheduled >= nextProgress) {
+                    log.info("{} arrivals, {} in flight, {} booked",
+                            arrivals, config.getMaxInFlight() - inFlight.availablePermits(), report.count(Outcome.BOOKED));
+                    nextProgress += PROGRESS_INTERVAL_NANOS;
+                }
+                scheduled += nextInterval(meanIntervalNanos);
+            }
+            log.info("Arrivals finished, waiting for {} in-flight funnels",
+                    config.getMaxInFlight() - inFlight.availablePermits());
+        }
+    }
+
+    private long nextInterval(double meanIntervalNanos) {
+        if (!config.isPoissonArrivals()) {
+            return Math.round(meanIntervalNanos);
+        }
+        // Exponential inter-arrival times give a Poisson arrival process
+        return Math.round(-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos);
+    }
+
+    private static void waitUntil(long deadlineNanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
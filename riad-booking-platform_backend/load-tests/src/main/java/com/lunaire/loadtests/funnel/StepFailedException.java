@@ -0,0 +1,18 @@
+package com.lunaire.loadtests.funnel;
+
+import lombok.Getter;
+
+/**
+ * A funnel step answered with a non-2xx status or could not be sent.
+ */
+@Getter
+public class StepFailedException extends RuntimeException {
+
+    /** HTTP status, 0 when no response was received. */
+    private final int status;
+
+    public StepFailedException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,168 @@
+package com.lunaire.loadtests.report;
+
+import com.lunaire.loadtests.funnel.FunnelStep;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms (microseconds) per funnel step plus end-to-end, with
+ * funnel outcome counters. Nothing is recorded until {@link #startMeasuring()}
+ * so warm-up traffic is excluded.
+ */
+public class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final Map<String, Double> PERCENTILES = Map.of(
+            "p50Ms", 50.0, "p90Ms", 90.0, "p99Ms", 99.0, "p999Ms", 99.9);
+
+    private final Map<FunnelStep, Histogram> stepLatencies = new EnumMap<>(FunnelStep.class);
+    private final Map<FunnelStep, LongAdder> stepErrors = new EnumMap<>(FunnelStep.class);
+    private final Histogram endToEnd = newHistogram();
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+    private volatile boolean measuring;
+    private volatile long measuringSinceNanos;
+
+    /**
+     * How a single funnel run ended.
+     */
+    public enum Outcome {
+        /** Reservation confirmed after payment. */
+        BOOKED,
+        /** Availability check or create said the riad is taken. */
+        UNAVAILABLE,
+        /** A step failed. */
+        FAILED,
+        /** Arrival skipped because max-in-flight was reached. */
+        DROPPED
+    }
+
+    public LatencyReport() {
+        for (FunnelStep step : FunnelStep.values()) {
+            stepLatencies.put(step, newHistogram());
+            stepErrors.put(step, new LongAdder());
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+    }
+
+    public void startMeasuring() {
+        measuringSinceNanos = System.nanoTime();
+        measuring = true;
+    }
+
+    public void recordStep(FunnelStep step, long nanos) {
+        if (measuring) {
+            stepLatencies.get(step).recordValue(toMicros(nanos));
+        }
+    }
+
+    public void recordStepError(FunnelStep step) {
+        if (measuring) {
+            stepErrors.get(step).increment();
+        }
+    }
+
+    /**
+     * End-to-end time is taken from the scheduled arrival, so queueing delay is included.
+     */
+    public void recordOutcome(Outcome outcome, long endToEndNanos) {
+        if (measuring) {
+            outcomes.get(outcome).increment();
+            if (outcome == Outcome.BOOKED) {
+                endToEnd.recordValue(toMicros(endToEndNanos));
+            }
+        }
+    }
+
+    public long count(Outcome outcome) {
+        return outcomes.get(outcome).sum();
+    }
+
+    public void printSummary(PrintStream out) {
+        double seconds = Math.max(1, System.nanoTime() - measuringSinceNanos) / 1e9;
+        out.printf("%n%-20s %8s %7s %9s %9s %9s %9s %9s%n",
+                "step", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        stepLatencies.forEach((step, histogram) ->
+                printRow(out, step.label(), histogram, stepErrors.get(step).sum()));
+        printRow(out, "funnel (booked)", endToEnd, 0);
+
+        out.printf("%nOutcomes over %.0f s:", seconds);
+        outcomes.forEach((outcome, count) -> out.printf(" %s=%d", outcome.name().toLowerCase(), count.sum()));
+        out.printf("%nBooked throughput: %.1f/s%n", count(Outcome.BOOKED) / seconds);
+    }
+
+    /**
+     * Write {@code summary.json} and one HdrHistogram percentile distribution per step (values in ms).
+     */
+    public void writeTo(Path directory, JsonMapper jsonMapper, Map<String, Object> settings) throws IOException {
+        Files.createDirectories(directory);
+
+        Map<String, Object> steps = new LinkedHashMap<>();
+        stepLatencies.forEach((step, histogram) -> {
+            steps.put(step.label(), summarize(histogram, stepErrors.get(step).sum()));
+            writeDistribution(directory.resolve(step.label() + ".hgrm"), histogram);
+        });
+        steps.put("funnel", summarize(endToEnd, 0));
+        writeDistribution(directory.resolve("funnel.hgrm"), endToEnd);
+
+        Map<String, Long> outcomeCounts = new LinkedHashMap<>();
+        outcomes.forEach((outcome, count) -> outcomeCounts.put(outcome.name().toLowerCase(), count.sum()));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("settings", settings);
+        summary.put("outcomes", outcomeCounts);
+        summary.put("latencies", steps);
+        jsonMapper.writer().withDefaultPrettyPrinter().writeValue(directory.resolve("summary.json").toFile(), summary);
+    }
+
+    static Map<String, Object> summarize(Histogram histogram, long errors) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("count", histogram.getTotalCount());
+        row.put("errors", errors);
+        PERCENTILES.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .forEach(entry -> row.put(entry.getKey(), histogram.getValueAtPercentile(entry.getValue()) / 1000.0));
+        row.put("maxMs", histogram.getMaxValue() / 1000.0);
+        row.put("meanMs", histogram.getMean() / 1000.0);
+        return row;
+    }
+
+    private static void printRow(PrintStream out, String label, Histogram histogram, long errors) {
+        out.printf("%-20s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", label,
+                histogram.getTotalCount(), errors,
+                histogram.getValueAtPercentile(50.0) / 1000.0,
+                histogram.getValueAtPercentile(90.0) / 1000.0,
+                histogram.getValueAtPercentile(99.0) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write " + file, e);
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static Histogram newHistogram() {
+        return new ConcurrentHistogram(1, HIGHEST_TRACKABLE_MICROS, 3);
+    }
+}
@@ -0,0 +1,148 @@
+package com.lunaire.loadtests.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Elasticsearch stand-in for research-service: index management, document
+ * writes and {@code _search}. Queries are not evaluated; a search returns up to
+ * {@code searchHits} stored riads from a random offset, which keeps response
+ * sizes realistic for load purposes.
+ */
+public class ElasticsearchStandIn extends StandInServer {
+
+    private static final List<String> QUARTIERS = List.of("Medina", "Gueliz", "Kasbah", "Mellah", "Hivernage");
+    private static final List<String> EQUIPEMENTS = List.of("wifi", "piscine", "clim", "hammam", "terrasse");
+
+    private final int searchHits;
+    private final Map<String, Boolean> indices = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> documents = new ConcurrentHashMap<>();
+
+    public ElasticsearchStandIn(int port, Duration latency, int searchHits, JsonMapper jsonMapper) {
+        super("Elasticsearch", port, latency, jsonMapper);
+        this.searchHits = searchHits;
+    }
+
+    /**
+     * Seed {@code count} riads with ids 1..count, matching the riadIds the funnel books.
+     */
+    public void seedRiads(int count) {
+        LocalDate today = LocalDate.now();
+        for (int i = 1; i <= count; i++) {
+            Map<String, Object> riad = new LinkedHashMap<>();
+            riad.put("id", String.valueOf(i));
+            riad.put("nom", "Riad " + i);
+            riad.put("description", "Riad traditionnel avec patio et terrasse");
+            riad.put("ville", "Marrakech");
+            riad.put("quartier", QUARTIERS.get(i % QUARTIERS.size()));
+            riad.put("capacite", 2 + i % 7);
+            riad.put("prixParNuit", 600.0 + (i % 20) * 75);
+            riad.put("equipements", EQUIPEMENTS.subList(0, 1 + i % EQUIPEMENTS.size()));
+            riad.put("disponibleDe", today.toString());
+            riad.put("disponibleA", today.plusYears(2).toString());
+            documents.put(riad.get("id").toString(), riad);
+        }
+        indices.put("riads", true);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("X-Elastic-Product", "Elasticsearch");
+
+        String method = exchange.getRequestMethod();
+        String[] segments = exchange.getRequestURI().getPath().substring(1).split("/");
+        String index = segments[0];
+
+        if (index.isEmpty()) {
+            sendJson(exchange, 200, Map.of(
+                    "name", "stand-in", "cluster_name", "load-test", "cluster_uuid", "stand-in",
+                    "version", Map.of("number", "9.0.0", "build_flavor", "default",
+                            "lucene_version", "10.1.0", "minimum_wire_compatibility_version", "8.18.0",
+                            "minimum_index_compatibility_version", "8.0.0"),
+                    "tagline", "You Know, for Search"));
+            return;
+        }
+
+        if (segments.length == 1) {
+            switch (method) {
+                case "HEAD" -> sendEmpty(exchange, indices.containsKey(index) ? 200 : 404);
+                case "PUT" -> {
+                    indices.put(index, true);
+                    sendJson(exchange, 200, Map.of("acknowledged", true, "shards_acknowledged", true, "index", index));
+                }
+                default -> sendEmpty(exchange, 405);
+            }
+            return;
+        }
+
+        switch (segments[1]) {
+            case "_mapping" -> sendJson(exchange, 200, Map.of("acknowledged", true));
+            case "_refresh" -> sendJson(exchange, 200, Map.of("_shards", shards()));
+            case "_search" -> sendJson(exchange, 200, search(index, readBody(exchange)));
+            case "_doc" -> sendJson(exchange, 201, indexDocument(index, segments[2], readBody(exchange)));
+            default -> sendJson(exchange, 404, Map.of("error", Map.of(
+                    "type", "resource_not_found_exception", "reason", "Unsupported path"), "status", 404));
+        }
+    }
+
+    private Map<String, Object> search(String index, String requestBody) {
+        JsonNode request = requestBody.isBlank() ? null : jsonMapper.readTree(requestBody);
+        int size = request != null && request.has("size") ? request.get("size").asInt() : 10;
+        int limit = Math.min(Math.min(size, searchHits), documents.size());
+
+        List<Map<String, Object>> stored = new ArrayList<>(documents.values());
+        int offset = stored.isEmpty() ? 0 : ThreadLocalRandom.current().nextInt(stored.size());
+        List<Map<String, Object>> hits = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            Map<String, Object> source = stored.get((offset + i) % stored.size());
+            Map<String, Object> hit = new LinkedHashMap<>();
+            hit.put("_index", index);
+            hit.put("_id", source.get("id"));
+            hit.put("_score", 1.0);
+            hit.put("_source", source);
+            hits.add(hit);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("took", 1);
+        response.put("timed_out", false);
+        response.put("_shards", Map.of("total", 1, "successful", 1, "skipped", 0, "failed", 0));
+        response.put("hits", Map.of(
+                "total", Map.of("value", documents.size(), "relation", "eq"),
+                "max_score", 1.0,
+                "hits", hits));
+        return response;
+    }
+
+    private Map<String, Object> indexDocument(String index, String id, String body) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> source = jsonMapper.readValue(body, Map.class);
+        source.put("id", id);
+        boolean created = documents.put(id, source) == null;
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("_index", index);
+        response.put("_id", id);
+        response.put("_version", 1);
+        response.put("result", created ? "created" : "updated");
+        response.put("_shards", shards());
+        response.put("_seq_no", 0);
+        response.put("_primary_term", 1);
+        return response;
+    }
+
+    private static Map<String, Object> shards() {
+        return Map.of("total", 1, "successful", 1, "failed", 0);
+    }
+}
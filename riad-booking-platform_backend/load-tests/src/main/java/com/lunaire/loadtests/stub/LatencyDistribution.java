@@ -0,0 +1,65 @@
+package com.lunaire.loadtests.stub;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.random.RandomGenerator;
+
+/**
+ * Simulated response latency of a stand-in, in milliseconds, around a typical value.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * Spread of the lognormal distribution: p99 is about 4x the median.
+     */
+    double LOGNORMAL_SIGMA = 0.6;
+
+    long sampleMillis(RandomGenerator random);
+
+    /**
+     * Always the typical value.
+     */
+    static LatencyDistribution fixed(Duration latency) {
+        long millis = latency.toMillis();
+        return random -> millis;
+    }
+
+    /**
+     * Uniform between 50% and 150% of the typical value.
+     */
+    static LatencyDistribution uniform(Duration latency) {
+        long millis = latency.toMillis();
+        return random -> millis > 0 ? random.nextLong(millis / 2, millis * 3 / 2 + 1) : 0;
+    }
+
+    /**
+     * Exponential with the typical value as mean, as for queueing behind other requests.
+     */
+    static LatencyDistribution exponential(Duration latency) {
+        long millis = latency.toMillis();
+        return random -> Math.round(random.nextExponential() * millis);
+    }
+
+    /**
+     * Lognormal with the typical value as median: mostly close to it, with a long tail.
+     */
+    static LatencyDistribution lognormal(Duration latency) {
+        long millis = latency.toMillis();
+        return random -> Math.round(millis * Math.exp(LOGNORMAL_SIGMA * random.nextGaussian()));
+    }
+
+    /**
+     * Distribution by name: fixed, uniform, exponential or lognormal.
+     */
+    static LatencyDistribution of(String name, Duration latency) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "fixed" -> fixed(latency);
+            case "uniform" -> uniform(latency);
+            case "exponential" -> exponential(latency);
+            case "lognormal" -> lognormal(latency);
+            default -> throw new IllegalArgumentException(
+                    "Latency distribution must be fixed, uniform, exponential or lognormal, not " + name);
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package com.lunaire.loadtests.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process HTTP stand-in for a third-party API, served on virtual threads
+ * with a simulated latency drawn from a {@link LatencyDistribution}.
+ */
+@Slf4j
+public abstract class StandInServer implements AutoCloseable {
+
+    protected final JsonMapper jsonMapper;
+    private final String name;
+    private final int port;
+    private final LatencyDistribution latency;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * With a latency of 50% to 150% of the given value.
+     */
+    protected StandInServer(String name, int port, Duration latency, JsonMapper jsonMapper) {
+        this(name, port, LatencyDistribution.uniform(latency), jsonMapper);
+    }
+
+    protected StandInServer(String name, int port, LatencyDistribution latency, JsonMapper jsonMapper) {
+        this.name = name;
+        this.port = port;
+        this.latency = latency;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                simulateLatency();
+                handle(exchange);
+            } catch (Exception e) {
+                log.error("{} stand-in failed on {} {}: {}", name,
+                        exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+                sendJson(exchange, 500, Map.of("error", Map.of("message", String.valueOf(e.getMessage()))));
+            }
+        });
+        server.start();
+        log.info("{} stand-in listening on port {}", name, port);
+    }
+
+    /**
+     * Bound port, useful when started on port 0.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    protected abstract void handle(HttpExchange exchange) throws IOException;
+
+    protected void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = jsonMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    protected void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    protected static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode {@code a=1&b[c]=2} keeping bracketed keys flat, as Stripe's form encoding sends them.
+     */
+    protected static Map<String, String> parseForm(String encoded) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return params;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private void simulateLatency() throws InterruptedException {
+        long millis = latency.sampleMillis(ThreadLocalRandom.current());
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.lunaire.loadtests.stub;
+
+import com.stripe.Stripe;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stripe API stand-in covering the calls payment-service makes (customers,
+ * PaymentIntents and their list, charges, refunds) and the signed webhooks Stripe sends back.
+ * {@link Faults} injects Stripe 500 api_errors, 429 rate limits and card declines.
+ * With a webhook URL, confirmations, cancellations and refunds also post their
+ * signed event there, like Stripe does.
+ */
+@Slf4j
+public class StripeStandIn extends StandInServer {
+
+    private final String webhookSecret;
+    private final String webhookUrl;
+    private final Faults faults;
+    private final HttpClient webhookClient;
+
+    private final Map<String, Map<String, Object>> customersByEmail = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> customers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> paymentIntents = new ConcurrentHashMap<>();
+    /**
+     * PaymentIntent ids in creation order, which lists walk newest first like Stripe.
+     */
+    private final ConcurrentLinkedDeque<String> paymentIntentOrder = new ConcurrentLinkedDeque<>();
+    private final Map<String, Map<String, Object>> charges = new ConcurrentHashMap<>();
+
+    /**
+     * Share of requests answered with each simulated failure, from 0 to 1. Declines
+     * only apply to confirmations.
+     */
+    public record Faults(double errorRate, double rateLimitRate, double declineRate) {
+
+        public static final Faults NONE = new Faults(0.0, 0.0, 0.0);
+    }
+
+    /**
+     * @param webhookUrl where to post webhook events, or null to only build them with {@link #signedEvent}
+     */
+    public StripeStandIn(int port, LatencyDistribution latency, Faults faults, String webhookSecret,
+                         String webhookUrl, JsonMapper jsonMapper) {
+        super("Stripe", port, latency, jsonMapper);
+        this.faults = faults;
+        this.webhookSecret = webhookSecret;
+        this.webhookUrl = webhookUrl == null || webhookUrl.isBlank() ? null : webhookUrl;
+        this.webhookClient = this.webhookUrl == null ? null : HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> params = "GET".equals(method)
+                ? parseForm(exchange.getRequestURI().getRawQuery())
+                : parseForm(readBody(exchange));
+
+        if (happens(faults.errorRate())) {
+            sendJson(exchange, 500, Map.of("error", Map.of(
+                    "type", "api_error", "message", "Simulated Stripe outage")));
+            return;
+        }
+        if (happens(faults.rateLimitRate())) {
+            sendJson(exchange, 429, Map.of("error", Map.of(
+                    "type", "rate_limit_error", "code", "rate_limit", "message", "Simulated Stripe rate limit")));
+            return;
+        }
+
+        String[] segments = path.substring(1).split("/");
+        if (segments.length < 2) {
+            sendJson(exchange, 404, Map.of("error", Map.of(
+                    "type", "invalid_request_error", "message", "No such resource: " + path)));
+            return;
+        }
+        Object body = switch (method + " " + segments.length + " " + segments[1]) {
+            case "GET 3 customers" -> "search".equals(segments[2])
+                    ? searchCustomers(params)
+                    : customers.get(segments[2]);
+            case "POST 2 customers" -> createCustomer(params);
+            case "GET 2 payment_intents" -> listPaymentIntents(params);
+            case "POST 2 payment_intents" -> createPaymentIntent(params);
+            case "GET 3 payment_intents" -> expand(paymentIntents.get(segments[2]), params);
+            case "POST 4 payment_intents" -> "confirm".equals(segments[3])
+                    ? confirmPaymentIntent(segments[2], params)
+                    : cancelPaymentIntent(segments[2]);
+            case "GET 3 charges" -> charges.get(segments[2]);
+            case "POST 2 refunds" -> createRefund(params);
+            default -> null;
+        };
+
+        if (body == null) {
+            sendJson(exchange, 404, Map.of("error", Map.of(
+                    "type", "invalid_request_error", "message", "No such resource: " + path)));
+            return;
+        }
+        if (body instanceof StripeError error) {
+            sendJson(exchange, error.status(), Map.of("error", error.body()));
+            return;
+        }
+        sendJson(exchange, 200, body);
+    }
+
+    /**
+     * Whether confirmations, cancellations and refunds post their own webhook events.
+     */
+    public boolean emitsWebhooks() {
+        return webhookUrl != null;
+    }
+
+    /**
+     * Build and sign the event Stripe would send for a PaymentIntent, as {@code [payload, Stripe-Signature]}.
+     */
+    public List<String> signedEvent(String type, String paymentIntentId) {
+        return signedEvent(type, paymentIntents.get(paymentIntentId));
+    }
+
+    private List<String> signedEvent(String type, Map<String, Object> object) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", "evt_" + shortId());
+        event.put("object", "event");
+        event.put("api_version", Stripe.API_VERSION);
+        event.put("created", Instant.now().getEpochSecond());
+        event.put("type", type);
+        event.put("livemode", false);
+        event.put("pending_webhooks", 1);
+        event.put("data", Map.of("object", object));
+
+        String payload = jsonMapper.writeValueAsString(event);
+        long timestamp = Instant.now().getEpochSecond();
+        return List.of(payload, "t=" + timestamp + ",v1=" + hmacSha256(timestamp + "." + payload));
+    }
+
+    private Map<String, Object> searchCustomers(Map<String, String> params) {
+        // query is email:'someone@example.com'
+        String query = params.getOrDefault("query", "");
+        String email = query.substring(query.indexOf('\'') + 1, query.lastIndexOf('\''));
+        Map<String, Object> customer = customersByEmail.get(email);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("object", "search_result");
+        result.put("url", "/v1/customers/search");
+        result.put("has_more", false);
+        result.put("data", customer == null ? List.of() : List.of(customer));
+        return result;
+    }
+
+    private Map<String, Object> createCustomer(Map<String, String> params) {
+        Map<String, Object> customer = new LinkedHashMap<>();
+        customer.put("id", "cus_" + shortId());
+        customer.put("object", "customer");
+        customer.put("email", params.get("email"));
+        customer.put("name", params.get("name"));
+        customer.put("created", Instant.now().getEpochSecond());
+        customer.put("livemode", false);
+        customer.put("metadata", metadata(params));
+        Map<String, Object> existing = customersByEmail.putIfAbsent(params.get("email"), customer);
+        if (existing != null) {
+            return existing;
+        }
+        customers.put((String) customer.get("id"), customer);
+        return customer;
+    }
+
+    private Map<String, Object> createPaymentIntent(Map<String, String> params) {
+        String id = "pi_" + shortId();
+        Map<String, Object> intent = new ConcurrentHashMap<>();
+        intent.put("id", id);
+        intent.put("object", "payment_intent");
+        intent.put("amount", Long.parseLong(params.get("amount")));
+        intent.put("currency", params.get("currency"));
+        intent.put("client_secret", id + "_secret_" + shortId());
+        intent.put("capture_method", "automatic");
+        intent.put("confirmation_method", "automatic");
+        intent.put("created", Instant.now().getEpochSecond());
+        intent.put("livemode", false);
+        intent.put("metadata", metadata(params));
+        putIfPresent(intent, "customer", params.get("customer"));
+        putIfPresent(intent, "payment_method", params.get("payment_method"));
+        putIfPresent(intent, "description", params.get("description"));
+        intent.put("status", intent.containsKey("payment_method") ? "requires_confirmation" : "requires_payment_method");
+        paymentIntents.put(id, intent);
+        paymentIntentOrder.addLast(id);
+        return expand(intent, params);
+    }
+
+    /**
+     * A page of PaymentIntents, newest first, filtered on {@code created[gte]} and
+     * {@code created[lt]} and continuing after {@code starting_after}.
+     */
+    private Map<String, Object> listPaymentIntents(Map<String, String> params) {
+        long createdFrom = Long.parseLong(params.getOrDefault("created[gte]", "0"));
+        long createdTo = Long.parseLong(params.getOrDefault("created[lt]", String.valueOf(Long.MAX_VALUE)));
+        int limit = Math.clamp(Long.parseLong(params.getOrDefault("limit", "10")), 1, 100);
+        String startingAfter = params.get("starting_after");
+        boolean expandCharge = params.containsValue("data.latest_charge");
+
+        List<Map<String, Object>> page = new ArrayList<>(limit);
+        boolean hasMore = false;
+        boolean started = startingAfter == null;
+        for (Iterator<String> ids = paymentIntentOrder.descendingIterator(); ids.hasNext(); ) {
+            String id = ids.next();
+            if (!started) {
+                started = id.equals(startingAfter);
+                continue;
+            }
+            Map<String, Object> intent = paymentIntents.get(id);
+            long created = (Long) intent.get("created");
+            if (created < createdFrom || created >= createdTo) {
+                continue;
+            }
+            if (page.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            page.add(expandCharge ? expand(intent, Map.of("expand[0]", "latest_charge")) : intent);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("object", "list");
+        result.put("url", "/v1/payment_intents");
+        result.put("has_more", hasMore);
+        result.put("data", page);
+        return result;
+    }
+
+    private Object confirmPaymentIntent(String id, Map<String, String> params) {
+        Map<String, Object> intent = paymentIntents.get(id);
+        if (intent == null) {
+            return null;
+        }
+        putIfPresent(intent, "payment_method", params.get("payment_method"));
+
+        if (happens(faults.declineRate())) {
+            // Stripe answers 402 and leaves the PaymentIntent waiting for another payment method
+            Map<String, Object> declined = new LinkedHashMap<>();
+            declined.put("type", "card_error");
+            declined.put("code", "card_declined");
+            declined.put("decline_code", "generic_decline");
+            declined.put("message", "Your card was declined.");
+            intent.put("last_payment_error", declined);
+            intent.put("status", "requires_payment_method");
+            emit("payment_intent.payment_failed", intent);
+
+            Map<String, Object> error = new LinkedHashMap<>(declined);
+            error.put("payment_intent", intent);
+            return new StripeError(402, error);
+        }
+
+        Map<String, Object> charge = new ConcurrentHashMap<>();
+        String chargeId = "ch_" + shortId();
+        charge.put("id", chargeId);
+        charge.put("object", "charge");
+        charge.put("amount", intent.get("amount"));
+        charge.put("amount_refunded", 0L);
+        charge.put("currency", intent.get("currency"));
+        charge.put("paid", true);
+        charge.put("refunded", false);
+        charge.put("status", "succeeded");
+        charge.put("payment_intent", id);
+        charge.put("receipt_url", "https://pay.stripe.com/receipts/standin/" + chargeId);
+        charge.put("payment_method_details", Map.of("type", "card", "card", Map.of(
+                "brand", "visa", "last4", "4242", "exp_month", 12, "exp_year", 2030, "country", "MA")));
+        charges.put(chargeId, charge);
+
+        intent.remove("last_payment_error");
+        intent.put("latest_charge", chargeId);
+        intent.put("status", "succeeded");
+        emit("payment_intent.succeeded", intent);
+        return expand(intent, params);
+    }
+
+    private Map<String, Object> cancelPaymentIntent(String id) {
+        Map<String, Object> intent = paymentIntents.get(id);
+        if (intent != null) {
+            intent.put("status", "canceled");
+            intent.put("cancellation_reason", "requested_by_customer");
+            emit("payment_intent.canceled", intent);
+        }
+        return intent;
+    }
+
+    private Object createRefund(Map<String, String> params) {
+        Map<String, Object> intent = paymentIntents.get(params.get("payment_intent"));
+        if (intent == null) {
+            return null;
+        }
+        Object chargeId = intent.get("latest_charge");
+        Map<String, Object> charge = chargeId != null ? charges.get((String) chargeId) : null;
+        if (charge == null) {
+            return new StripeError(400, Map.of("type", "invalid_request_error",
+                    "message", "PaymentIntent " + intent.get("id") + " has no successful charge to refund"));
+        }
+
+        long amount;
+        synchronized (charge) {
+            long charged = (Long) charge.get("amount");
+            long refunded = (Long) charge.get("amount_refunded");
+            amount = params.containsKey("amount") ? Long.parseLong(params.get("amount")) : charged - refunded;
+            if (amount <= 0 || refunded + amount > charged) {
+                return new StripeError(400, Map.of("type", "invalid_request_error", "code", "charge_already_refunded",
+                        "message", "Refund amount exceeds the remaining " + (charged - refunded)));
+            }
+            charge.put("amount_refunded", refunded + amount);
+            charge.put("refunded", refunded + amount == charged);
+            emit("charge.refunded", charge);
+        }
+
+        Map<String, Object> refund = new LinkedHashMap<>();
+        refund.put("id", "re_" + shortId());
+        refund.put("object", "refund");
+        refund.put("amount", amount);
+        refund.put("currency", intent.get("currency"));
+        refund.put("payment_intent", intent.get("id"));
+        refund.put("charge", intent.get("latest_charge"));
+        refund.put("status", "succeeded");
+        refund.put("created", Instant.now().getEpochSecond());
+        return refund;
+    }
+
+    /**
+     * Inline the latest charge when the caller asked for {@code expand[]=latest_charge}.
+     */
+    private Map<String, Object> expand(Map<String, Object> intent, Map<String, String> params) {
+        if (intent == null || !params.containsValue("latest_charge") || intent.get("latest_charge") == null) {
+            return intent;
+        }
+        Map<String, Object> expanded = new LinkedHashMap<>(intent);
+        expanded.put("latest_charge", charges.get((String) intent.get("latest_charge")));
+        return expanded;
+    }
+
+    /**
+     * Post the signed event to the webhook URL in the background, as Stripe does after
+     * answering the request; delivery failures are only logged.
+     */
+    private void emit(String type, Map<String, Object> object) {
+        if (webhookUrl == null) {
+            return;
+        }
+        List<String> signed = signedEvent(type, Map.copyOf(object));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(webhookUrl))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .header("Stripe-Signature", signed.get(1))
+                .POST(HttpRequest.BodyPublishers.ofString(signed.get(0)))
+                .build();
+        webhookClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    if (failure != null) {
+                        log.warn("Could not deliver {} to {}: {}", type, webhookUrl, failure.getMessage());
+                    } else if (response.statusCode() >= 300) {
+                        log.warn("Webhook endpoint answered {} to {}", response.statusCode(), type);
+                    }
+                });
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (webhookClient != null) {
+            webhookClient.close();
+        }
+    }
+
+    private static boolean happens(double rate) {
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private static Map<String, String> metadata(Map<String, String> params) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        params.forEach((key, value) -> {
+            if (key.startsWith("metadata[")) {
+                metadata.put(key.substring("metadata[".length(), key.length() - 1), value);
+            }
+        });
+        return metadata;
+    }
+
+    private static void putIfPresent(Map<String, Object> target, String key, String value) {
+        if (value != null && !value.isEmpty()) {
+            target.put(key, value);
+        }
+    }
+
+    private String hmacSha256(String message) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(message.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    private static String shortId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 24);
+    }
+
+    private record StripeError(int status, Map<String, Object> body) {
+    }
+}
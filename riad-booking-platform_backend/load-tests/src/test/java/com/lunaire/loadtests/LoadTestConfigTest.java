@@ -0,0 +1,73 @@
+package com.lunaire.loadtests;
+
+import com.lunaire.loadtests.stub.StripeStandIn;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for LoadTestConfig argument parsing.
+ */
+class LoadTestConfigTest {
+
+    @Test
+    @DisplayName("Should keep defaults when no argument is given")
+    void shouldKeepDefaults() {
+        LoadTestConfig config = LoadTestConfig.fromArgs(new String[0]);
+
+        assertThat(config.getRate()).isEqualTo(20.0);
+        assertThat(config.isPoissonArrivals()).isTrue();
+        assertThat(config.isLaunchServices()).isTrue();
+        assertThat(config.isAsyncOutcomes()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should parse rate, durations and arrival model")
+    void shouldParseArguments() {
+        LoadTestConfig config = LoadTestConfig.fromArgs(new String[]{
+                "--rate=150", "--duration=PT10M", "--arrivals=constant", "--stripe-latency-ms=300",
+                "--async-outcomes=true", "--confirmation-timeout=PT30S"});
+
+        assertThat(config.getRate()).isEqualTo(150.0);
+        assertThat(config.getDuration()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(config.isPoissonArrivals()).isFalse();
+        assertThat(config.getStripeLatency()).isEqualTo(Duration.ofMillis(300));
+        assertThat(config.isAsyncOutcomes()).isTrue();
+        assertThat(config.getConfirmationTimeout()).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("Should parse the Stripe stand-in latency model and faults")
+    void shouldParseStandInOptions() {
+        LoadTestConfig config = LoadTestConfig.fromArgs(new String[]{
+                "--stand-ins-only=true", "--stripe-latency-distribution=lognormal", "--stripe-decline-rate=0.05",
+                "--stripe-rate-limit-rate=0.01", "--stripe-webhook-url=http://localhost:8084/api/webhooks/stripe"});
+
+        assertThat(config.isStandInsOnly()).isTrue();
+        assertThat(config.getStripeLatencyDistribution()).isEqualTo("lognormal");
+        assertThat(config.stripeFaults()).isEqualTo(new StripeStandIn.Faults(0.0, 0.01, 0.05));
+        assertThat(config.getStripeWebhookUrl()).endsWith("/api/webhooks/stripe");
+    }
+
+    @Test
+    @DisplayName("Should reject rates outside 0..1 and unknown latency distributions")
+    void shouldRejectInvalidStandInOptions() {
+        assertThatThrownBy(() -> LoadTestConfig.fromArgs(new String[]{"--stripe-error-rate=5"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("between 0 and 1");
+        assertThatThrownBy(() -> LoadTestConfig.fromArgs(new String[]{"--stripe-latency-distribution=gamma"}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should reject unknown options")
+    void shouldRejectUnknownOptions() {
+        assertThatThrownBy(() -> LoadTestConfig.fromArgs(new String[]{"--ratee=5"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("--ratee");
+    }
+}
@@ -0,0 +1,52 @@
+package com.lunaire.loadtests.report;
+
+import com.lunaire.loadtests.funnel.FunnelStep;
+import com.lunaire.loadtests.report.LatencyReport.Outcome;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for LatencyReport.
+ */
+class LatencyReportTest {
+
+    @Test
+    @DisplayName("Should ignore samples recorded during warm-up")
+    void shouldIgnoreWarmupSamples() {
+        LatencyReport report = new LatencyReport();
+
+        report.recordOutcome(Outcome.BOOKED, TimeUnit.MILLISECONDS.toNanos(100));
+        report.startMeasuring();
+        report.recordOutcome(Outcome.BOOKED, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(report.count(Outcome.BOOKED)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should write summary and per-step histograms")
+    void shouldWriteSummaryAndHistograms(@TempDir Path directory) throws Exception {
+        JsonMapper jsonMapper = JsonMapper.builder().build();
+        LatencyReport report = new LatencyReport();
+        report.startMeasuring();
+        report.recordStep(FunnelStep.SEARCH, TimeUnit.MILLISECONDS.toNanos(12));
+        report.recordStepError(FunnelStep.CREATE_PAYMENT);
+
+        report.writeTo(directory, jsonMapper, Map.of("rate", 10.0));
+
+        JsonNode summary = jsonMapper.readTree(directory.resolve("summary.json").toFile());
+        assertThat(summary.path("latencies").path("search").path("count").asLong()).isEqualTo(1);
+        assertThat(summary.path("latencies").path("search").path("p50Ms").asDouble()).isBetween(11.9, 12.1);
+        assertThat(summary.path("latencies").path("create-payment").path("errors").asLong()).isEqualTo(1);
+        assertThat(Files.exists(directory.resolve("search.hgrm"))).isTrue();
+    }
+}
@@ -0,0 +1,60 @@
+package com.lunaire.loadtests.stub;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for the simulated latency distributions.
+ */
+class LatencyDistributionTest {
+
+    private static final Duration LATENCY = Duration.ofMillis(100);
+
+    @Test
+    @DisplayName("Should keep uniform samples between half and one and a half times the latency")
+    void shouldBoundUniformSamples() {
+        long[] samples = sample(LatencyDistribution.of("uniform", LATENCY));
+
+        assertThat(LongStream.of(samples).allMatch(millis -> millis >= 50 && millis <= 150)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should center exponential samples on the latency")
+    void shouldCenterExponentialOnMean() {
+        long[] samples = sample(LatencyDistribution.of("exponential", LATENCY));
+
+        assertThat(LongStream.of(samples).average().orElseThrow()).isCloseTo(100.0, within(5.0));
+    }
+
+    @Test
+    @DisplayName("Should center lognormal samples on the latency with a long tail")
+    void shouldGiveLognormalLongTail() {
+        long[] samples = sample(LatencyDistribution.of("LogNormal", LATENCY));
+        Arrays.sort(samples);
+
+        assertThat(samples[samples.length / 2]).isBetween(95L, 105L);
+        assertThat(samples[samples.length * 99 / 100]).isGreaterThan(300L);
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown distribution")
+    void shouldRejectUnknownDistribution() {
+        assertThatThrownBy(() -> LatencyDistribution.of("gamma", LATENCY))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("gamma");
+    }
+
+    private static long[] sample(LatencyDistribution distribution) {
+        SplittableRandom random = new SplittableRandom(42);
+        return LongStream.range(0, 20_000).map(i -> distribution.sampleMillis(random)).toArray();
+    }
+}
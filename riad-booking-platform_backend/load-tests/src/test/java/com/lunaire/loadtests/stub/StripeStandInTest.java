@@ -0,0 +1,272 @@
+package com.lunaire.loadtests.stub;
+
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
+import com.stripe.exception.CardException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.model.Charge;
+import com.stripe.model.Customer;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeCollection;
+import com.stripe.model.StripeSearchResult;
+import com.stripe.net.Webhook;
+import com.stripe.param.CustomerCreateParams;
+import com.stripe.param.CustomerSearchParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentListParams;
+import com.stripe.param.RefundCreateParams;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the stand-in against the real Stripe SDK used by payment-service.
+ */
+class StripeStandInTest {
+
+    private static final String WEBHOOK_SECRET = "whsec_test";
+
+    private static StripeStandIn stripe;
+
+    @BeforeAll
+    static void startStandIn() throws Exception {
+        stripe = standIn(StripeStandIn.Faults.NONE, null);
+        stripe.start();
+        Stripe.apiKey = "sk_test_standin";
+        Stripe.overrideApiBase("http://localhost:" + stripe.port());
+    }
+
+    @AfterAll
+    static void stopStandIn() {
+        stripe.close();
+        Stripe.overrideApiBase(Stripe.LIVE_API_BASE);
+    }
+
+    @Test
+    @DisplayName("Should create and confirm a PaymentIntent through the Stripe SDK")
+    void shouldCreateAndConfirmPaymentIntent() throws Exception {
+        PaymentIntent created = PaymentIntent.create(PaymentIntentCreateParams.builder()
+                .setAmount(92500L)
+                .setCurrency("mad")
+                .setPaymentMethod("pm_card_visa")
+                .putMetadata("bookingId", "42")
+                .build());
+
+        assertThat(created.getStatus()).isEqualTo("requires_confirmation");
+        assertThat(created.getMetadata()).containsEntry("bookingId", "42");
+
+        PaymentIntent confirmed = PaymentIntent.retrieve(created.getId()).confirm();
+        Charge charge = Charge.retrieve(confirmed.getLatestCharge());
+
+        assertThat(confirmed.getStatus()).isEqualTo("succeeded");
+        assertThat(charge.getPaymentIntent()).isEqualTo(created.getId());
+        assertThat(charge.getPaymentMethodDetails().getCard().getLast4()).isEqualTo("4242");
+    }
+
+    @Test
+    @DisplayName("Should sign webhook events that the SDK verifies and deserializes")
+    void shouldSignVerifiableWebhookEvents() throws Exception {
+        PaymentIntent created = PaymentIntent.create(PaymentIntentCreateParams.builder()
+                .setAmount(1000L)
+                .setCurrency("mad")
+                .build());
+
+        List<String> signed = stripe.signedEvent("payment_intent.succeeded", created.getId());
+        Event event = Webhook.constructEvent(signed.get(0), signed.get(1), WEBHOOK_SECRET);
+
+        assertThat(event.getType()).isEqualTo("payment_intent.succeeded");
+        assertThat(event.getDataObjectDeserializer().getObject())
+                .hasValueSatisfying(object -> assertThat(((PaymentIntent) object).getId()).isEqualTo(created.getId()));
+    }
+
+    @Test
+    @DisplayName("Should page through PaymentIntents newest first within the created window")
+    void shouldListPaymentIntentsByPage() throws Exception {
+        try (StripeStandIn listing = standIn(StripeStandIn.Faults.NONE, null)) {
+            listing.start();
+            StripeClient client = client(listing);
+            List<String> createdIds = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                createdIds.add(client.paymentIntents().create(PaymentIntentCreateParams.builder()
+                        .setAmount(1000L + i)
+                        .setCurrency("mad")
+                        .build()).getId());
+            }
+            long now = Instant.now().getEpochSecond();
+            PaymentIntentListParams.Created window = PaymentIntentListParams.Created.builder()
+                    .setGte(now - 60)
+                    .setLt(now + 60)
+                    .build();
+
+            StripeCollection<PaymentIntent> first = client.paymentIntents().list(PaymentIntentListParams.builder()
+                    .setCreated(window)
+                    .setLimit(3L)
+                    .build());
+            StripeCollection<PaymentIntent> second = client.paymentIntents().list(PaymentIntentListParams.builder()
+                    .setCreated(window)
+                    .setLimit(3L)
+                    .setStartingAfter(first.getData().getLast().getId())
+                    .build());
+            StripeCollection<PaymentIntent> later = client.paymentIntents().list(PaymentIntentListParams.builder()
+                    .setCreated(PaymentIntentListParams.Created.builder().setGte(now + 60).build())
+                    .build());
+
+            assertThat(first.getData()).extracting(PaymentIntent::getId)
+                    .containsExactly(createdIds.get(4), createdIds.get(3), createdIds.get(2));
+            assertThat(first.getHasMore()).isTrue();
+            assertThat(second.getData()).extracting(PaymentIntent::getId)
+                    .containsExactly(createdIds.get(1), createdIds.get(0));
+            assertThat(second.getHasMore()).isFalse();
+            assertThat(later.getData()).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Should search customers by email and retrieve them by id")
+    void shouldSearchAndRetrieveCustomers() throws Exception {
+        try (StripeStandIn customers = standIn(StripeStandIn.Faults.NONE, null)) {
+            customers.start();
+            StripeClient client = client(customers);
+            Customer created = client.customers().create(CustomerCreateParams.builder()
+                    .setEmail("guest@example.com")
+                    .setName("Guest")
+                    .build());
+
+            StripeSearchResult<Customer> found = client.customers().search(CustomerSearchParams.builder()
+                    .setQuery("email:'guest@example.com'")
+                    .build());
+            StripeSearchResult<Customer> missing = client.customers().search(CustomerSearchParams.builder()
+                    .setQuery("email:'nobody@example.com'")
+                    .build());
+            Customer retrieved = client.customers().retrieve(created.getId());
+
+            assertThat(found.getData()).extracting(Customer::getId).containsExactly(created.getId());
+            assertThat(missing.getData()).isEmpty();
+            assertThat(retrieved.getEmail()).isEqualTo("guest@example.com");
+            assertThatThrownBy(() -> client.customers().retrieve("cus_unknown"))
+                    .isInstanceOf(InvalidRequestException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Should decline confirmations at the configured rate")
+    void shouldDeclineConfirmations() throws Exception {
+        try (StripeStandIn declining = standIn(new StripeStandIn.Faults(0.0, 0.0, 1.0), null)) {
+            declining.start();
+            StripeClient client = client(declining);
+            PaymentIntent created = client.paymentIntents().create(PaymentIntentCreateParams.builder()
+                    .setAmount(1000L)
+                    .setCurrency("mad")
+                    .setPaymentMethod("pm_card_visa")
+                    .build());
+
+            assertThatThrownBy(() -> client.paymentIntents().confirm(created.getId()))
+                    .isInstanceOfSatisfying(CardException.class, e -> assertThat(e.getCode()).isEqualTo("card_declined"));
+            PaymentIntent retrieved = client.paymentIntents().retrieve(created.getId());
+            assertThat(retrieved.getStatus()).isEqualTo("requires_payment_method");
+            assertThat(retrieved.getLastPaymentError().getMessage()).isEqualTo("Your card was declined.");
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer 429 at the configured rate")
+    void shouldRateLimit() throws Exception {
+        try (StripeStandIn limited = standIn(new StripeStandIn.Faults(0.0, 1.0, 0.0), null)) {
+            limited.start();
+
+            assertThatThrownBy(() -> client(limited).paymentIntents().create(PaymentIntentCreateParams.builder()
+                    .setAmount(1000L)
+                    .setCurrency("mad")
+                    .build()))
+                    .isInstanceOf(RateLimitException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Should track refunds on the charge and post signed webhooks for them")
+    void shouldPostWebhooks() throws Exception {
+        BlockingQueue<List<String>> received = new LinkedBlockingQueue<>();
+        HttpServer receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.createContext("/api/webhooks/stripe", exchange -> {
+            try (exchange) {
+                received.add(List.of(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8),
+                        exchange.getRequestHeaders().getFirst("Stripe-Signature")));
+                exchange.sendResponseHeaders(200, -1);
+            }
+        });
+        receiver.start();
+        String webhookUrl = "http://localhost:" + receiver.getAddress().getPort() + "/api/webhooks/stripe";
+
+        try (StripeStandIn emitting = standIn(StripeStandIn.Faults.NONE, webhookUrl)) {
+            emitting.start();
+            StripeClient client = client(emitting);
+            PaymentIntent created = client.paymentIntents().create(PaymentIntentCreateParams.builder()
+                    .setAmount(1000L)
+                    .setCurrency("mad")
+                    .setPaymentMethod("pm_card_visa")
+                    .build());
+            client.paymentIntents().confirm(created.getId());
+            client.refunds().create(RefundCreateParams.builder()
+                    .setPaymentIntent(created.getId())
+                    .setAmount(400L)
+                    .build());
+
+            assertThatThrownBy(() -> client.refunds().create(RefundCreateParams.builder()
+                    .setPaymentIntent(created.getId())
+                    .setAmount(700L)
+                    .build()))
+                    .isInstanceOf(InvalidRequestException.class);
+
+            Map<String, Event> events = new HashMap<>();
+            for (int i = 0; i < 2; i++) {
+                List<String> delivery = received.poll(5, TimeUnit.SECONDS);
+                assertThat(delivery).isNotNull();
+                Event event = Webhook.constructEvent(delivery.get(0), delivery.get(1), WEBHOOK_SECRET);
+                events.put(event.getType(), event);
+            }
+            assertThat(events).containsOnlyKeys("payment_intent.succeeded", "charge.refunded");
+            assertThat(events.get("charge.refunded").getDataObjectDeserializer().getObject())
+                    .hasValueSatisfying(object -> {
+                        Charge charge = (Charge) object;
+                        assertThat(charge.getPaymentIntent()).isEqualTo(created.getId());
+                        assertThat(charge.getAmountRefunded()).isEqualTo(400L);
+                        assertThat(charge.getRefunded()).isFalse();
+                    });
+        } finally {
+            receiver.stop(0);
+        }
+    }
+
+    private static StripeStandIn standIn(StripeStandIn.Faults faults, String webhookUrl) {
+        return new StripeStandIn(0, LatencyDistribution.fixed(Duration.ZERO), faults, WEBHOOK_SECRET, webhookUrl,
+                JsonMapper.builder().build());
+    }
+
+    private static StripeClient client(StripeStandIn standIn) {
+        return StripeClient.builder()
+                .setApiKey("sk_test_standin")
+                .setApiBase("http://localhost:" + standIn.port())
+                .setMaxNetworkRetries(0)
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+package ma.lunaire.paymentservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.mapper.MinorUnits;
+import ma.lunaire.paymentservice.service.impl.ExchangeRates;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.jpa.autoconfigure.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-off conversion of an existing payments table from decimal amounts to minor units.
+ * <p>
+ * Payments used to store {@code amount NUMERIC(10,2) NOT NULL} and {@code refunded_amount
+ * NUMERIC(10,2)}. ddl-auto=update never drops those columns, so Hibernate's inserts would
+ * fail on the NOT NULL {@code amount}, and it cannot add the NOT NULL minor-unit columns to a
+ * table that has rows. This therefore runs before the EntityManagerFactory is built and,
+ * while {@code amount} still exists, performs the equivalent of:
+ * <pre>
+ * ALTER TABLE payments ADD COLUMN amount_minor BIGINT;           -- and base_amount_minor,
+ * ALTER TABLE payments ADD COLUMN exchange_rate NUMERIC(19, 8);  -- refunded_amount_minor
+ * UPDATE payments SET ... WHERE id = ?;                          -- per row, see below
+ * ALTER TABLE payments ALTER COLUMN amount_minor SET NOT NULL;   -- all three
+ * ALTER TABLE payments DROP COLUMN refunded_amount;
+ * ALTER TABLE payments DROP COLUMN amount;
+ * </pre>
+ * Each row is converted with {@link MinorUnits#toMinor} in its own currency, and its MAD
+ * amount is taken at its stored exchange rate, or at the current rate (then stored) for rows
+ * created before rates were kept. Every step checks the schema or the row first, so a run
+ * interrupted half-way resumes on the next start, and a database that never had the
+ * decimal columns is left alone. Booking summaries and daily rollups are derived from
+ * payments and are not migrated.
+ */
+@Component
+@Slf4j
+public class MinorUnitsMigration implements InitializingBean {
+
+    static final String TABLE = "payments";
+    private static final int BATCH_SIZE = 500;
+    private static final List<String> MINOR_UNIT_COLUMNS =
+            List.of("amount_minor", "base_amount_minor", "refunded_amount_minor");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExchangeRates exchangeRates;
+
+    public MinorUnitsMigration(DataSource dataSource, ExchangeRates exchangeRates) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.exchangeRates = exchangeRates;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        migrate();
+    }
+
+    /**
+     * Convert the payments table if it still has the decimal amount column.
+     *
+     * @return number of rows converted
+     */
+    public int migrate() {
+        Set<String> columns = columns();
+        if (!columns.contains("amount")) {
+            return 0;
+        }
+        log.info("Converting payments from decimal amounts to minor units");
+        for (String column : MINOR_UNIT_COLUMNS) {
+            addColumnIfMissing(columns, column, "BIGINT");
+        }
+        addColumnIfMissing(columns, "exchange_rate", "NUMERIC(19, 8)");
+        boolean hasRefundedAmount = columns.contains("refunded_amount");
+
+        int converted = 0;
+        long afterId = 0;
+        List<Map<String, Object>> rows;
+        do {
+            rows = jdbcTemplate.queryForList(
+                    "SELECT id, amount, " + (hasRefundedAmount ? "refunded_amount" : "NULL AS refunded_amount")
+                            + ", currency, exchange_rate FROM " + TABLE
+                            + " WHERE amount_minor IS NULL AND id > ? ORDER BY id LIMIT " + BATCH_SIZE,
+                    afterId);
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                updates.add(convert(row));
+                afterId = ((Number) row.get("id")).longValue();
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE " + TABLE + " SET amount_minor = ?, base_amount_minor = ?, "
+                        + "refunded_amount_minor = ?, exchange_rate = ? WHERE id = ?", updates);
+            }
+            converted += updates.size();
+        } while (rows.size() == BATCH_SIZE);
+
+        for (String column : MINOR_UNIT_COLUMNS) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN " + column + " SET NOT NULL");
+        }
+        if (hasRefundedAmount) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP COLUMN refunded_amount");
+        }
+        // Dropped last: its presence is what marks the migration as unfinished
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP COLUMN amount");
+        log.info("Converted {} payments to minor units", converted);
+        return converted;
+    }
+
+    private Object[] convert(Map<String, Object> row) {
+        Object id = row.get("id");
+        String currency = (String) row.get("currency");
+        BigDecimal amount = (BigDecimal) row.get("amount");
+        BigDecimal refundedAmount = (BigDecimal) row.get("refunded_amount");
+        BigDecimal rate = (BigDecimal) row.get("exchange_rate");
+        if (rate == null) {
+            rate = exchangeRates.find(currency).orElseThrow(() -> new IllegalStateException(
+                    "No exchange rate for currency " + currency + " of payment " + id
+                            + "; add it to the rates before migrating"));
+        }
+        return new Object[]{
+                MinorUnits.toMinor(amount, currency),
+                MinorUnits.roundToMinor(amount.multiply(rate), ExchangeRates.BASE_CURRENCY),
+                refundedAmount != null ? MinorUnits.toMinor(refundedAmount, currency) : 0L,
+                rate,
+                id
+        };
+    }
+
+    private void addColumnIfMissing(Set<String> columns, String column, String type) {
+        if (columns.add(column)) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    /**
+     * Lower-cased column names of the payments table in the current schema, empty if it does not exist.
+     */
+    private Set<String> columns() {
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Set<String> columns = new HashSet<>();
+            // Unquoted names are stored upper-case by H2 and lower-case by PostgreSQL
+            for (String table : Set.of(TABLE, TABLE.toUpperCase(Locale.ROOT))) {
+                try (ResultSet resultSet = metaData.getColumns(
+                        connection.getCatalog(), connection.getSchema(), table, null)) {
+                    while (resultSet.next()) {
+                        columns.add(resultSet.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            return columns;
+        });
+    }
+
+    /**
+     * Builds the EntityManagerFactory, and with it Hibernate's schema update, after the migration.
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnMigration() {
+            super(MinorUnitsMigration.class);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ma.lunaire.paymentservice.config;
+
+import ma.lunaire.paymentservice.messaging.RabbitPaymentOutcomeTransport;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Declares the durable exchange payment outcomes are published to when they go
+ * through RabbitMQ, together with reservation-service's queue and binding. Declaring
+ * them here too means outcomes published before reservation-service first starts are
+ * queued rather than dropped as unroutable; the declarations match reservation-service's.
+ */
+@Configuration
+@ConditionalOnProperty(name = "payments.outbox.transport", havingValue = "rabbit")
+public class PaymentOutcomeMessagingConfig {
+
+    @Bean
+    public TopicExchange paymentsExchange(@Value("${payments.outbox.exchange:payments}") String exchange) {
+        return new TopicExchange(exchange, true, false);
+    }
+
+    @Bean
+    public Queue reservationPaymentOutcomesQueue(
+            @Value("${payments.outbox.reservation-queue:reservation.payment-outcomes}") String queue) {
+        return new Queue(queue, true);
+    }
+
+    @Bean
+    public Binding reservationPaymentOutcomesBinding(Queue reservationPaymentOutcomesQueue, TopicExchange paymentsExchange) {
+        return BindingBuilder.bind(reservationPaymentOutcomesQueue).to(paymentsExchange)
+                .with(RabbitPaymentOutcomeTransport.ROUTING_KEY);
+    }
+}
@@ -0,0 +1,34 @@
+package ma.lunaire.paymentservice.config;
+
+/**
+ * Per-request read-your-writes scope: once a request has run a read-write
+ * transaction, its later read-only transactions stay on the primary.
+ */
+public final class ReadYourWritesContext {
+
+    private static final ThreadLocal<Boolean> WROTE = new ThreadLocal<>();
+
+    private ReadYourWritesContext() {
+    }
+
+    public static void begin() {
+        WROTE.set(Boolean.FALSE);
+    }
+
+    public static void end() {
+        WROTE.remove();
+    }
+
+    /**
+     * Record a write; ignored outside a request scope (schedulers, startup).
+     */
+    static void markWrite() {
+        if (WROTE.get() != null) {
+            WROTE.set(Boolean.TRUE);
+        }
+    }
+
+    static boolean hasWritten() {
+        return Boolean.TRUE.equals(WROTE.get());
+    }
+}
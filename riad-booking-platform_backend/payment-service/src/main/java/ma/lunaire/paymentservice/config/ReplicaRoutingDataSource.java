@@ -0,0 +1,61 @@
+package ma.lunaire.paymentservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas (round robin) and everything
+ * else to the primary. Must be wrapped in a LazyConnectionDataSourceProxy so the
+ * connection is fetched after the transaction's read-only flag is set.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final boolean readYourWrites;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, boolean readYourWrites) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWrites = readYourWrites;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (HikariDataSource replica : this.replicas) {
+            targets.put(replica.getPoolName(), replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (!readOnly) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWritesContext.markWrite();
+            }
+            return PRIMARY;
+        }
+        if (replicas.isEmpty() || (readYourWrites && ReadYourWritesContext.hasWritten())) {
+            return PRIMARY;
+        }
+        int index = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        return replicas.get(index).getPoolName();
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+}
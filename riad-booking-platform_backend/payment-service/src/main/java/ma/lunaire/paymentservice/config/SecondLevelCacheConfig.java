@@ -0,0 +1,68 @@
+package ma.lunaire.paymentservice.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Caffeine-backed JCache regions for the Hibernate second-level cache, enabled with
+ * spring.jpa.properties.hibernate.cache.use_second_level_cache. Only payment-number
+ * natural-id resolutions are cached; an undeclared region fails startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.cache.use_second_level_cache", havingValue = "true")
+@Slf4j
+public class SecondLevelCacheConfig {
+
+    public static final String PAYMENT_NATURAL_IDS_REGION = "payment-natural-ids";
+
+    @Value("${second-level-cache.payment-natural-ids.max-entries:50000}")
+    private long naturalIdsMaxEntries;
+
+    @Value("${second-level-cache.payment-natural-ids.ttl:1h}")
+    private Duration naturalIdsTtl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        createRegion(cacheManager, PAYMENT_NATURAL_IDS_REGION, naturalIdsMaxEntries, naturalIdsTtl);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * A non-positive size or TTL leaves the region unbounded on that axis.
+     */
+    static void createRegion(CacheManager cacheManager, String region, long maxEntries, Duration ttl) {
+        if (cacheManager.getCache(region) != null) {
+            cacheManager.destroyCache(region);
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setMaximumSize(maxEntries > 0 ? OptionalLong.of(maxEntries) : OptionalLong.empty());
+        configuration.setExpireAfterWrite(ttl.isPositive() ? OptionalLong.of(ttl.toNanos()) : OptionalLong.empty());
+        cacheManager.createCache(region, configuration);
+        log.info("Second-level cache region {}: max entries {}, ttl {}", region,
+                maxEntries > 0 ? maxEntries : "unbounded", ttl.isPositive() ? ttl : "none");
+    }
+}
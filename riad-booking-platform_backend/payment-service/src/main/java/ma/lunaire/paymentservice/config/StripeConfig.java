@@ -1,11 +1,14 @@
 package ma.lunaire.paymentservice.config;
 
 import com.stripe.Stripe;
+import com.stripe.StripeClient;
 import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
 /**
  * Stripe configuration - initializes Stripe API with the secret key.
@@ -24,10 +27,43 @@ public class StripeConfig {
     @Value("${stripe.webhook.secret}")
     private String webhookSecret;
 
+    @Value("${stripe.api.base:}")
+    private String apiBase;
+
+    @Value("${stripe.resilience.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${stripe.resilience.timeout-ms.default:10000}")
+    private int readTimeoutMs;
+
     @PostConstruct
     public void init() {
         Stripe.apiKey = secretKey;
+        if (StringUtils.hasText(apiBase)) {
+            // Local stand-in (stripe-standin profile, load tests); empty means api.stripe.com
+            if (secretKey.startsWith("sk_live_")) {
+                throw new IllegalStateException("Refusing to send a live Stripe key to " + apiBase);
+            }
+            Stripe.overrideApiBase(apiBase);
+            log.info("Stripe API base overridden to {}", apiBase);
+        }
         log.info("Stripe API initialized successfully");
     }
+
+    /**
+     * Client for the service-style API, which confirms or cancels a PaymentIntent by id
+     * without retrieving it first.
+     */
+    @Bean
+    public StripeClient stripeClient() {
+        StripeClient.StripeClientBuilder builder = StripeClient.builder()
+                .setApiKey(secretKey)
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs);
+        if (StringUtils.hasText(apiBase)) {
+            builder.setApiBase(apiBase);
+        }
+        return builder.build();
+    }
 }
 
@@ -7,11 +7,13 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -27,11 +29,13 @@ public class PaymentController {
     /**
      * Create a new payment with Stripe.
      * Returns a client secret for frontend to complete payment.
+     * Retries carrying the same Idempotency-Key get the first payment back.
      */
     @PostMapping
     public ResponseEntity<PaymentResponse> createPayment(
-            @Valid @RequestBody CreatePaymentRequest request) {
-        PaymentResponse response = paymentService.createPayment(request);
+            @Valid @RequestBody CreatePaymentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        PaymentResponse response = paymentService.createPayment(request, idempotencyKey);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
@@ -53,6 +57,15 @@ public class PaymentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get the status and refund history of a payment, oldest first.
+     */
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<PaymentEventResponse>> getPaymentHistory(@PathVariable Long id) {
+        List<PaymentEventResponse> history = paymentService.getPaymentHistory(id);
+        return ResponseEntity.ok(history);
+    }
+
     /**
      * Get payment by payment number.
      */
@@ -125,6 +138,19 @@ public class PaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    /**
+     * Search payments with criteria using a cursor instead of page numbers,
+     * so deep pages cost the same as the first one.
+     */
+    @PostMapping("/search/scroll")
+    public ResponseEntity<PaymentCursorPage> scrollPayments(
+            @RequestBody PaymentSearchCriteria criteria,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        PaymentCursorPage page = paymentService.scrollPayments(criteria, cursor, size);
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * Cancel a payment.
      */
@@ -173,4 +199,36 @@ public class PaymentController {
         boolean hasPayment = paymentService.hasCompletedPayment(bookingId);
         return ResponseEntity.ok(hasPayment);
     }
+
+    /**
+     * Get completed flag and total paid for several bookings in one call.
+     */
+    @PostMapping("/booking/status")
+    public ResponseEntity<List<BookingPaymentStatus>> getBookingPaymentStatuses(
+            @Valid @RequestBody BookingPaymentStatusRequest request) {
+        List<BookingPaymentStatus> statuses = paymentService.getBookingPaymentStatuses(request.getBookingIds());
+        return ResponseEntity.ok(statuses);
+    }
+
+    /**
+     * Get payment count and sum per currency, status and method for a date range, from the daily rollups.
+     */
+    @GetMapping("/reports/volume")
+    public ResponseEntity<List<PaymentVolume>> getPaymentVolume(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        List<PaymentVolume> volume = paymentService.getPaymentVolume(from, to);
+        return ResponseEntity.ok(volume);
+    }
+
+    /**
+     * Rebuild the daily rollups of a date range from the payments.
+     */
+    @PostMapping("/reports/volume/backfill")
+    public ResponseEntity<Integer> backfillPaymentRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int days = paymentService.backfillPaymentRollups(from, to);
+        return ResponseEntity.ok(days);
+    }
 }
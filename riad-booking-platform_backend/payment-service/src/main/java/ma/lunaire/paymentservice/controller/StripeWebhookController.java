@@ -1,8 +1,14 @@
 package ma.lunaire.paymentservice.controller;
 
-import ma.lunaire.paymentservice.service.PaymentService;
+import jakarta.validation.Valid;
+import ma.lunaire.paymentservice.dto.WebhookReplayRequest;
+import ma.lunaire.paymentservice.dto.WebhookReplayResult;
+import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.service.WebhookEventService;
+import ma.lunaire.paymentservice.service.impl.WebhookReplayer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,7 +21,8 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class StripeWebhookController {
 
-    private final PaymentService paymentService;
+    private final WebhookEventService webhookEventService;
+    private final WebhookReplayer webhookReplayer;
 
     /**
      * Handle Stripe webhook events.
@@ -28,21 +35,36 @@ public class StripeWebhookController {
      * - payment_intent.payment_failed
      * - payment_intent.canceled
      * - charge.refunded
+     *
+     * The event is acknowledged once verified and stored; payments are updated asynchronously.
+     * A storage failure answers 500 so that Stripe retries the delivery.
      */
     @PostMapping("/stripe")
     public ResponseEntity<String> handleStripeWebhook(
             @RequestBody String payload,
             @RequestHeader("Stripe-Signature") String sigHeader) {
 
-        log.info("Received Stripe webhook");
+        log.debug("Received Stripe webhook");
 
         try {
-            paymentService.handleStripeWebhook(payload, sigHeader);
-            return ResponseEntity.ok("Webhook processed successfully");
-        } catch (Exception e) {
-            log.error("Webhook processing failed: {}", e.getMessage());
+            boolean accepted = webhookEventService.ingest(payload, sigHeader);
+            return ResponseEntity.ok(accepted ? "Webhook received" : "Duplicate webhook ignored");
+        } catch (PaymentProcessingException e) {
+            log.error("Webhook rejected: {}", e.getMessage());
             return ResponseEntity.badRequest().body("Webhook processing failed: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Webhook could not be stored: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Webhook could not be stored");
         }
     }
-}
 
+    /**
+     * Replay stored events, or an export file from the replay directory, through the
+     * payment handlers. Resumes from the checkpoint of a replay ID that ran before.
+     */
+    @PostMapping("/stripe/replay")
+    public ResponseEntity<WebhookReplayResult> replayStripeEvents(@Valid @RequestBody WebhookReplayRequest request) {
+        WebhookReplayResult result = webhookReplayer.replay(request);
+        return ResponseEntity.ok(result);
+    }
+}
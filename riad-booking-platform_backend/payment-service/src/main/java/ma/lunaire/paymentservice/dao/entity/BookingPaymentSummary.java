@@ -0,0 +1,53 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-booking payment totals, kept up to date in the transaction of every payment
+ * status change so checkout reads are a primary-key lookup instead of an aggregate.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "booking_payment_summaries")
+public class BookingPaymentSummary {
+
+    @Id
+    private Long bookingId;
+
+    /**
+     * Sum of the amounts of the booking's COMPLETED payments, in MAD centimes.
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private long totalPaidMinor = 0;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int completedPayments = 0;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private long totalRefundedMinor = 0;
+
+    /**
+     * The payment that changed most recently, and its status.
+     */
+    private Long latestPaymentId;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus latestStatus;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    @Version
+    private Long version;
+}
@@ -0,0 +1,67 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Number and sum of the payments created on one day, per currency, status and method.
+ * Kept up to date on every payment status change so reports sum a few rows per day
+ * instead of loading payments.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "daily_payment_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_daily_payment_rollup", columnNames = {"paymentDate", "currency", "status", "paymentMethod"})
+})
+public class DailyPaymentRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Day the payments were created, so a payment stays on the same day as its status changes.
+     */
+    @Column(nullable = false)
+    private LocalDate paymentDate;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentMethod paymentMethod;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private long paymentCount = 0;
+
+    /**
+     * Sum of the amounts in minor units of the currency.
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private long totalAmountMinor = 0;
+
+    /**
+     * Sum of the amounts in minor units of MAD, each at the rate of its own payment.
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private long totalBaseAmountMinor = 0;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,9 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+/**
+ * State of a payment creation claimed by an Idempotency-Key.
+ */
+public enum IdempotencyKeyStatus {
+    IN_PROGRESS,    // Claimed by a request that has not committed yet
+    COMPLETED       // Payment created; replays return it
+}
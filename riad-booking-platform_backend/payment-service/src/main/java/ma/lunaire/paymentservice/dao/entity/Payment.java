@@ -2,10 +2,14 @@ package ma.lunaire.paymentservice.dao.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ma.lunaire.paymentservice.config.SecondLevelCacheConfig;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -20,17 +24,22 @@ import java.util.UUID;
 @Entity
 @Table(name = "payments", indexes = {
     @Index(name = "idx_booking_id", columnList = "bookingId"),
-    @Index(name = "idx_user_id", columnList = "userId"),
-    @Index(name = "idx_status", columnList = "status"),
+    // Searches filter on these and page on (createdAt, id)
+    @Index(name = "idx_user_id_created_at", columnList = "userId, createdAt, id"),
+    @Index(name = "idx_status_created_at", columnList = "status, createdAt, id"),
+    @Index(name = "idx_payment_method_created_at", columnList = "paymentMethod, createdAt, id"),
+    @Index(name = "idx_created_at", columnList = "createdAt, id"),
     @Index(name = "idx_transaction_id", columnList = "transactionId"),
     @Index(name = "idx_stripe_payment_intent_id", columnList = "stripePaymentIntentId")
 })
+@NaturalIdCache(region = SecondLevelCacheConfig.PAYMENT_NATURAL_IDS_REGION)
 public class Payment {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @NaturalId
     @Column(nullable = false, unique = true)
     private String paymentNumber;
 
@@ -40,13 +49,29 @@ public class Payment {
     @Column(nullable = false)
     private Long userId;
 
-    @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal amount;
+    /**
+     * Amount in minor units of the currency (centimes for MAD), as Stripe counts it.
+     * Replaces the former decimal amount column; see {@link ma.lunaire.paymentservice.config.MinorUnitsMigration}.
+     */
+    @Column(nullable = false)
+    private long amountMinor;
 
     @Column(length = 3)
     @Builder.Default
     private String currency = "MAD";
 
+    /**
+     * MAD per unit of the payment currency, fixed when the payment is created.
+     */
+    @Column(precision = 19, scale = 8)
+    private BigDecimal exchangeRate;
+
+    /**
+     * Amount in MAD centimes at the exchange rate fixed when the payment was created.
+     */
+    @Column(nullable = false)
+    private long baseAmountMinor;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     @Builder.Default
@@ -62,8 +87,9 @@ public class Payment {
     @Column(length = 500)
     private String description;
 
-    @Column(precision = 10, scale = 2)
-    private BigDecimal refundedAmount;
+    @Column(nullable = false)
+    @Builder.Default
+    private long refundedAmountMinor = 0;
 
     private String failureReason;
 
@@ -93,6 +119,13 @@ public class Payment {
 
     private String stripeRefundId;
 
+    /**
+     * Creation time, in epoch seconds, of the latest Stripe event applied to this payment,
+     * so that an older event delivered late or replayed cannot undo a newer one. Changes made
+     * through the API are guarded by {@link PaymentStatus#canMoveTo} instead.
+     */
+    private Long stripeEventCreated;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -103,6 +136,19 @@ public class Payment {
     @Version
     private Long version;
 
+    /**
+     * Status and refunded amount as last recorded by the PaymentChangeRecorder, to compute deltas.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private PaymentStatus lastRecordedStatus;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long lastRecordedRefundedMinor;
+
     /**
      * Auto-generate payment number before persisting.
      */
@@ -112,4 +158,52 @@ public class Payment {
             this.paymentNumber = "PAY-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
         }
     }
+
+    @PostLoad
+    void markRecordedOnLoad() {
+        markRecorded();
+    }
+
+    /**
+     * Status last recorded for this payment, null if never recorded.
+     */
+    public PaymentStatus getRecordedStatus() {
+        return lastRecordedStatus;
+    }
+
+    /**
+     * Refunded amount, in minor units, last recorded for this payment.
+     */
+    public long getRecordedRefundedMinor() {
+        return lastRecordedRefundedMinor;
+    }
+
+    /**
+     * MAD centimes of part of this payment's amount, in proportion to the base amount
+     * fixed at creation, so that a full refund takes exactly the base amount back.
+     */
+    public long toBaseMinor(long minor) {
+        if (baseAmountMinor == amountMinor || amountMinor == 0) {
+            return minor;
+        }
+        try {
+            long product = Math.multiplyExact(minor, baseAmountMinor);
+            long quotient = product / amountMinor;
+            long remainder = product % amountMinor;
+            return Math.abs(remainder) * 2 >= Math.abs(amountMinor) ? quotient + Long.signum(product) : quotient;
+        } catch (ArithmeticException e) {
+            // Only amounts in the hundreds of millions overflow
+            return BigDecimal.valueOf(minor).multiply(BigDecimal.valueOf(baseAmountMinor))
+                    .divide(BigDecimal.valueOf(amountMinor), 0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+    }
+
+    /**
+     * Note the current status and refunded amount as recorded.
+     */
+    public void markRecorded() {
+        this.lastRecordedStatus = status;
+        this.lastRecordedRefundedMinor = refundedAmountMinor;
+    }
 }
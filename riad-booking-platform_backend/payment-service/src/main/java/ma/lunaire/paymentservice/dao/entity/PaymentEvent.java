@@ -0,0 +1,66 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the append-only payment event log. Events are only ever inserted,
+ * so they never contend with each other; a payment's history is one range scan
+ * of the (paymentId, id) index.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Immutable
+@Table(name = "payment_events", indexes = {
+    @Index(name = "idx_payment_event_payment", columnList = "paymentId, id")
+})
+public class PaymentEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long paymentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentEventType type;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus previousStatus;
+
+    /**
+     * Status of the payment after the event.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    @Column(length = 3)
+    private String currency;
+
+    /**
+     * Payment amount for CREATED, the refunded difference for REFUNDED, in minor units.
+     */
+    private Long amountMinor;
+
+    /**
+     * Total refunded after the event, in minor units.
+     */
+    @Column(nullable = false)
+    private long refundedAmountMinor;
+
+    private String reason;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,14 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+/**
+ * Kind of change recorded in the payment event log.
+ */
+public enum PaymentEventType {
+    CREATED,        // Payment row created with its initial status
+    REOPENED,       // Back to PENDING, awaiting a new payment attempt
+    PROCESSING,     // Stripe is processing the payment
+    COMPLETED,      // Payment succeeded
+    FAILED,         // Payment attempt failed
+    CANCELLED,      // Payment cancelled or expired
+    REFUNDED        // Refunded amount changed; the event carries the difference
+}
@@ -0,0 +1,57 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency-Key of a payment creation request and the payment it produced.
+ * The key is the primary key, so only one request can claim it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "payment_idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_created_at", columnList = "createdAt")
+})
+public class PaymentIdempotencyKey {
+
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+
+    /**
+     * SHA-256 of the request, to reject a key reused for a different payment.
+     */
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private IdempotencyKeyStatus status = IdempotencyKeyStatus.IN_PROGRESS;
+
+    /**
+     * A claim still IN_PROGRESS after this time was abandoned and can be taken over.
+     */
+    private LocalDateTime lockedUntil;
+
+    private Long paymentId;
+
+    private boolean requiresAction;
+
+    @Column(length = 2048)
+    private String nextActionUrl;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @Version
+    private Long version;
+}
@@ -10,5 +10,20 @@ public enum PaymentStatus {
     FAILED,         // Payment failed
     REFUNDED,       // Payment has been refunded
     PARTIALLY_REFUNDED, // Payment partially refunded
-    CANCELLED       // Payment was cancelled
+    CANCELLED;      // Payment was cancelled
+
+    /**
+     * Whether a payment in this status can still move to the given one. Succeeded,
+     * refunded and cancelled PaymentIntents never go back, so a change that would move
+     * such a payment back comes from a late or replayed event and is stale.
+     */
+    public boolean canMoveTo(PaymentStatus next) {
+        return switch (this) {
+            case PENDING, PROCESSING, FAILED -> true;
+            case COMPLETED -> next == COMPLETED || next == PARTIALLY_REFUNDED || next == REFUNDED;
+            case PARTIALLY_REFUNDED -> next == PARTIALLY_REFUNDED || next == REFUNDED;
+            case REFUNDED -> next == REFUNDED;
+            case CANCELLED -> next == CANCELLED;
+        };
+    }
 }
@@ -0,0 +1,69 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A status or refund change reported by a Stripe webhook, appended instead of updating
+ * the payment row. Appends never contend with each other or with API updates of the
+ * payment; the compactor folds them into the payment in id order and deletes them.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Immutable
+@Table(name = "payment_updates", indexes = {
+    @Index(name = "idx_payment_update_payment", columnList = "paymentId, id")
+})
+public class PaymentUpdate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long paymentId;
+
+    /**
+     * The Stripe event that reported the change, and its type.
+     */
+    private String stripeEventId;
+
+    private String stripeEventType;
+
+    /**
+     * Creation time of the Stripe event, in epoch seconds.
+     */
+    private Long stripeEventCreated;
+
+    /**
+     * Status the payment moves to.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    /**
+     * Total refunded according to Stripe, in minor units; null when the change is not a refund.
+     */
+    private Long refundedAmountMinor;
+
+    private String failureReason;
+
+    private String receiptUrl;
+
+    @Column(length = 4)
+    private String cardLastFour;
+
+    private String cardBrand;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,44 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease of a scheduled job, or of one id-range partition of it, held by one replica
+ * at a time.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease {
+
+    /**
+     * Job name, followed by {@code #partition} for a partition lease.
+     */
+    @Id
+    private String name;
+
+    /**
+     * Replica that took the lease last.
+     */
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime lockedAt;
+
+    /**
+     * Other replicas may take the lease from then on.
+     */
+    @Column(nullable = false)
+    private LocalDateTime leasedUntil;
+
+    @Version
+    private Long version;
+}
@@ -0,0 +1,71 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * Raw Stripe webhook event, stored before it is handled so delivery can be
+ * acknowledged immediately. The Stripe event id is unique, which drops duplicate deliveries.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "stripe_webhook_events", indexes = {
+    @Index(name = "idx_webhook_status_next_attempt", columnList = "status, nextAttemptAt"),
+    @Index(name = "idx_webhook_ordering_key", columnList = "orderingKey")
+})
+public class StripeWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String eventId;
+
+    @Column(nullable = false)
+    private String type;
+
+    /**
+     * PaymentIntent the event applies to; events sharing it are handled in arrival order.
+     */
+    @Column(nullable = false)
+    private String orderingKey;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private WebhookEventStatus status = WebhookEventStatus.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    /**
+     * Earliest time the recovery poller may pick the event up.
+     */
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime processedAt;
+
+    @Version
+    private Long version;
+}
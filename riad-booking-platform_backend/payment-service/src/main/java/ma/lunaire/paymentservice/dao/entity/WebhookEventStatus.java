@@ -0,0 +1,10 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+/**
+ * Processing state of a stored Stripe webhook event.
+ */
+public enum WebhookEventStatus {
+    PENDING,        // Stored, waiting for a worker (or for its retry time)
+    PROCESSED,      // Handler committed
+    FAILED          // Gave up after the maximum number of attempts
+}
@@ -0,0 +1,50 @@
+package ma.lunaire.paymentservice.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a named webhook replay, saved after every replayed chunk so an
+ * interrupted replay resumes where it stopped.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "webhook_replay_checkpoints")
+public class WebhookReplayCheckpoint {
+
+    @Id
+    private String replayId;
+
+    /**
+     * Where the events come from: the stored events or an export file.
+     */
+    @Column(nullable = false)
+    private String source;
+
+    /**
+     * Last position (stored event id or file line) of the last fully replayed chunk.
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Long position = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long replayed = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean completed = false;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Version
+    private Long version;
+}
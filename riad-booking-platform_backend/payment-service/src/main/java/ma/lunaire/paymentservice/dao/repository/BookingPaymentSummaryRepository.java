@@ -0,0 +1,42 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import jakarta.persistence.LockModeType;
+import ma.lunaire.paymentservice.dao.entity.BookingPaymentSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for per-booking payment summaries.
+ */
+@Repository
+public interface BookingPaymentSummaryRepository extends JpaRepository<BookingPaymentSummary, Long> {
+
+    /**
+     * Load a summary with a row lock, serializing concurrent payment changes of one booking.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BookingPaymentSummary s WHERE s.bookingId = :bookingId")
+    Optional<BookingPaymentSummary> findForUpdate(@Param("bookingId") Long bookingId);
+
+    /**
+     * Insert a summary unless the booking already has one, in the caller's transaction.
+     * A concurrent insert for the same booking waits for the other transaction instead
+     * of failing, and then leaves its row alone.
+     *
+     * @return 1 if the row was inserted, 0 if it already existed
+     */
+    @Modifying
+    @Query("INSERT INTO BookingPaymentSummary (bookingId, totalPaidMinor, completedPayments, totalRefundedMinor, version) " +
+           "VALUES (:bookingId, :totalPaidMinor, :completedPayments, :totalRefundedMinor, 0) " +
+           "ON CONFLICT DO NOTHING")
+    int insertIfAbsent(@Param("bookingId") Long bookingId,
+                       @Param("totalPaidMinor") long totalPaidMinor,
+                       @Param("completedPayments") int completedPayments,
+                       @Param("totalRefundedMinor") long totalRefundedMinor);
+}
@@ -0,0 +1,89 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.DailyPaymentRollup;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for daily payment rollups.
+ */
+@Repository
+public interface DailyPaymentRollupRepository extends JpaRepository<DailyPaymentRollup, Long> {
+
+    /**
+     * Add to a rollup row in place, without reading it first.
+     *
+     * @return number of rows updated, 0 when the row does not exist yet
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DailyPaymentRollup r SET r.paymentCount = r.paymentCount + :count, " +
+           "r.totalAmountMinor = r.totalAmountMinor + :amountMinor, " +
+           "r.totalBaseAmountMinor = r.totalBaseAmountMinor + :baseAmountMinor, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.paymentDate = :paymentDate AND r.currency = :currency AND r.status = :status AND r.paymentMethod = :paymentMethod")
+    int increment(@Param("paymentDate") LocalDate paymentDate,
+                  @Param("currency") String currency,
+                  @Param("status") PaymentStatus status,
+                  @Param("paymentMethod") PaymentMethod paymentMethod,
+                  @Param("count") long count,
+                  @Param("amountMinor") long amountMinor,
+                  @Param("baseAmountMinor") long baseAmountMinor);
+
+    /**
+     * Insert an empty rollup row unless it exists, in the caller's transaction. A concurrent
+     * insert of the same row waits for the other transaction instead of failing.
+     *
+     * @return 1 if the row was inserted, 0 if it already existed
+     */
+    @Modifying
+    @Query("INSERT INTO DailyPaymentRollup (paymentDate, currency, status, paymentMethod, paymentCount, " +
+           "totalAmountMinor, totalBaseAmountMinor) " +
+           "VALUES (:paymentDate, :currency, :status, :paymentMethod, 0, 0, 0) ON CONFLICT DO NOTHING")
+    int insertIfAbsent(@Param("paymentDate") LocalDate paymentDate,
+                       @Param("currency") String currency,
+                       @Param("status") PaymentStatus status,
+                       @Param("paymentMethod") PaymentMethod paymentMethod);
+
+    /**
+     * Delete the rollups of one day before it is rebuilt.
+     */
+    @Modifying
+    @Query("DELETE FROM DailyPaymentRollup r WHERE r.paymentDate = :paymentDate")
+    int deleteByPaymentDate(@Param("paymentDate") LocalDate paymentDate);
+
+    /**
+     * Sum the rollups of a date range, inclusive, per currency, status and method.
+     */
+    @Query("SELECT r.currency AS currency, r.status AS status, r.paymentMethod AS paymentMethod, " +
+           "SUM(r.paymentCount) AS paymentCount, SUM(r.totalAmountMinor) AS totalAmountMinor, " +
+           "SUM(r.totalBaseAmountMinor) AS totalBaseAmountMinor " +
+           "FROM DailyPaymentRollup r WHERE r.paymentDate >= :from AND r.paymentDate <= :to " +
+           "GROUP BY r.currency, r.status, r.paymentMethod " +
+           "ORDER BY r.currency, r.status, r.paymentMethod")
+    List<VolumeTotal> sumBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Projection of a payment count and sum per currency, status and method.
+     */
+    interface VolumeTotal {
+
+        String getCurrency();
+
+        PaymentStatus getStatus();
+
+        PaymentMethod getPaymentMethod();
+
+        Long getPaymentCount();
+
+        Long getTotalAmountMinor();
+
+        Long getTotalBaseAmountMinor();
+    }
+}
@@ -0,0 +1,19 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.PaymentEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the append-only payment event log.
+ */
+@Repository
+public interface PaymentEventRepository extends JpaRepository<PaymentEvent, Long> {
+
+    /**
+     * A payment's events in the order they were appended.
+     */
+    List<PaymentEvent> findByPaymentIdOrderByIdAsc(Long paymentId);
+}
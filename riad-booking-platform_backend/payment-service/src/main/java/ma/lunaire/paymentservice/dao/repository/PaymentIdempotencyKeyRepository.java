@@ -0,0 +1,43 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.PaymentIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository for payment creation idempotency keys.
+ */
+@Repository
+public interface PaymentIdempotencyKeyRepository extends JpaRepository<PaymentIdempotencyKey, String> {
+
+    /**
+     * Take over a claim whose request died before completing it.
+     *
+     * @return 1 if the claim was taken over, 0 if it completed or is still held
+     */
+    @Modifying
+    @Query("UPDATE PaymentIdempotencyKey k SET k.lockedUntil = :lockedUntil, k.version = k.version + 1 " +
+           "WHERE k.idempotencyKey = :key AND k.status = 'IN_PROGRESS' AND k.lockedUntil < :now")
+    int takeOverAbandoned(@Param("key") String key,
+                          @Param("now") LocalDateTime now,
+                          @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    /**
+     * Release a claim whose request failed, so a retry can run.
+     */
+    @Modifying
+    @Query("DELETE FROM PaymentIdempotencyKey k WHERE k.idempotencyKey = :key AND k.status = 'IN_PROGRESS'")
+    int releaseClaim(@Param("key") String key);
+
+    /**
+     * Delete keys older than the replay window.
+     */
+    @Modifying
+    @Query("DELETE FROM PaymentIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,16 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.Payment;
+
+import java.util.Optional;
+
+/**
+ * Lookup by the Payment natural id, served from the natural-id cache when it is enabled.
+ */
+public interface PaymentNaturalIdRepository {
+
+    /**
+     * Find payment by its unique payment number.
+     */
+    Optional<Payment> findByPaymentNumber(String paymentNumber);
+}
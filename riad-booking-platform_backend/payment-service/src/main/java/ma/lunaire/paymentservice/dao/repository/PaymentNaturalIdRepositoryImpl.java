@@ -0,0 +1,25 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+/**
+ * Resolves the payment number through Hibernate's natural-id API rather than a derived
+ * query, which bypasses the second-level cache.
+ */
+@RequiredArgsConstructor
+public class PaymentNaturalIdRepositoryImpl implements PaymentNaturalIdRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<Payment> findByPaymentNumber(String paymentNumber) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Payment.class)
+                .loadOptional(paymentNumber);
+    }
+}
@@ -0,0 +1,20 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.PaymentOutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for payment outcomes waiting to be published.
+ */
+@Repository
+public interface PaymentOutboxRepository extends JpaRepository<PaymentOutboxMessage, Long> {
+
+    /**
+     * Oldest outcomes first.
+     */
+    List<PaymentOutboxMessage> findByOrderByIdAsc(Pageable pageable);
+}
@@ -1,17 +1,19 @@
 package ma.lunaire.paymentservice.dao.repository;
 
+import jakarta.persistence.LockModeType;
 import ma.lunaire.paymentservice.dao.entity.Payment;
 import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,12 +21,15 @@ import java.util.Optional;
  * Repository for Payment entity with custom query methods.
  */
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpecificationExecutor<Payment> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpecificationExecutor<Payment>,
+        PaymentNaturalIdRepository {
 
     /**
-     * Find payment by its unique payment number.
+     * Load a payment with a row lock, serializing its refunds across replicas.
      */
-    Optional<Payment> findByPaymentNumber(String paymentNumber);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.id = :id")
+    Optional<Payment> findForUpdate(@Param("id") Long id);
 
     /**
      * Find payment by transaction ID.
@@ -36,6 +41,11 @@ public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpec
      */
     Optional<Payment> findByStripePaymentIntentId(String stripePaymentIntentId);
 
+    /**
+     * Find the payments of several Stripe PaymentIntents.
+     */
+    List<Payment> findByStripePaymentIntentIdIn(Collection<String> stripePaymentIntentIds);
+
     /**
      * Find all payments for a specific booking.
      */
@@ -57,16 +67,40 @@ public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpec
     Page<Payment> findByUserIdAndStatus(Long userId, PaymentStatus status, Pageable pageable);
 
     /**
-     * Calculate total amount paid for a booking.
+     * Calculate total amount paid for a booking, in MAD centimes at each payment's own rate.
+     */
+    @Query("SELECT COALESCE(SUM(p.baseAmountMinor), 0) FROM Payment p " +
+           "WHERE p.bookingId = :bookingId AND p.status = 'COMPLETED'")
+    long getTotalPaidMinorByBookingId(@Param("bookingId") Long bookingId);
+
+    /**
+     * Sum the completed payments of several bookings in MAD centimes in one grouped query.
+     * Bookings without a completed payment are absent from the result.
+     */
+    @Query("SELECT p.bookingId AS bookingId, COALESCE(SUM(p.baseAmountMinor), 0) AS totalPaidMinor FROM Payment p " +
+           "WHERE p.bookingId IN :bookingIds AND p.status = 'COMPLETED' GROUP BY p.bookingId")
+    List<BookingPaidTotal> getTotalPaidMinorByBookingIds(@Param("bookingIds") Collection<Long> bookingIds);
+
+    /**
+     * Count payments of a booking with a status.
+     */
+    long countByBookingIdAndStatus(Long bookingId, PaymentStatus status);
+
+    /**
+     * Find pending payments older than given date, one page after the given id and up to the last one.
      */
-    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.bookingId = :bookingId AND p.status = 'COMPLETED'")
-    BigDecimal getTotalPaidAmountByBookingId(@Param("bookingId") Long bookingId);
+    @Query("SELECT p FROM Payment p WHERE p.status = 'PENDING' AND p.createdAt < :expirationDate " +
+           "AND p.id > :afterId AND p.id <= :lastId ORDER BY p.id")
+    List<Payment> findPendingPaymentsOlderThan(@Param("expirationDate") LocalDateTime expirationDate,
+                                               @Param("afterId") Long afterId,
+                                               @Param("lastId") Long lastId,
+                                               Pageable pageable);
 
     /**
-     * Find pending payments older than given date.
+     * Highest payment id, 0 when there are no payments.
      */
-    @Query("SELECT p FROM Payment p WHERE p.status = 'PENDING' AND p.createdAt < :expirationDate")
-    List<Payment> findPendingPaymentsOlderThan(@Param("expirationDate") LocalDateTime expirationDate);
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Payment p")
+    long findLastId();
 
     /**
      * Count payments by status.
@@ -82,9 +116,30 @@ public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpec
             @Param("endDate") LocalDateTime endDate
     );
 
+    /**
+     * Count and sum the payments created in [start, end) per currency, status and method.
+     */
+    @Query("SELECT COALESCE(p.currency, 'MAD') AS currency, p.status AS status, p.paymentMethod AS paymentMethod, " +
+           "COUNT(p) AS paymentCount, COALESCE(SUM(p.amountMinor), 0) AS totalAmountMinor, " +
+           "COALESCE(SUM(p.baseAmountMinor), 0) AS totalBaseAmountMinor " +
+           "FROM Payment p WHERE p.createdAt >= :start AND p.createdAt < :end " +
+           "GROUP BY COALESCE(p.currency, 'MAD'), p.status, p.paymentMethod")
+    List<DailyPaymentRollupRepository.VolumeTotal> sumVolumeCreatedBetween(@Param("start") LocalDateTime start,
+                                                                           @Param("end") LocalDateTime end);
+
     /**
      * Check if booking has any completed payment.
      */
     boolean existsByBookingIdAndStatus(Long bookingId, PaymentStatus status);
+
+    /**
+     * Projection of the completed total of one booking.
+     */
+    interface BookingPaidTotal {
+
+        Long getBookingId();
+
+        Long getTotalPaidMinor();
+    }
 }
 
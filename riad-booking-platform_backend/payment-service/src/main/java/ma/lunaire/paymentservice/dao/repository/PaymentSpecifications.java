@@ -0,0 +1,88 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dto.PaymentSearchCriteria;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JPA Specifications for dynamic Payment queries.
+ */
+public class PaymentSpecifications {
+
+    /**
+     * Keyset order for payment searches, matching the (..., createdAt, id) indexes.
+     */
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    public static Specification<Payment> hasUserId(Long userId) {
+        return (root, query, criteriaBuilder) ->
+                userId == null ? null : criteriaBuilder.equal(root.get("userId"), userId);
+    }
+
+    public static Specification<Payment> hasBookingId(Long bookingId) {
+        return (root, query, criteriaBuilder) ->
+                bookingId == null ? null : criteriaBuilder.equal(root.get("bookingId"), bookingId);
+    }
+
+    public static Specification<Payment> hasStatus(PaymentStatus status) {
+        return (root, query, criteriaBuilder) ->
+                status == null ? null : criteriaBuilder.equal(root.get("status"), status);
+    }
+
+    public static Specification<Payment> hasPaymentMethod(PaymentMethod paymentMethod) {
+        return (root, query, criteriaBuilder) ->
+                paymentMethod == null ? null : criteriaBuilder.equal(root.get("paymentMethod"), paymentMethod);
+    }
+
+    public static Specification<Payment> createdBetween(LocalDateTime from, LocalDateTime to) {
+        return (root, query, criteriaBuilder) -> {
+            if (from == null && to == null) return null;
+            if (from == null) return criteriaBuilder.lessThanOrEqualTo(root.get("createdAt"), to);
+            if (to == null) return criteriaBuilder.greaterThanOrEqualTo(root.get("createdAt"), from);
+            return criteriaBuilder.between(root.get("createdAt"), from, to);
+        };
+    }
+
+    public static Specification<Payment> hasPaymentNumber(String paymentNumber) {
+        return (root, query, criteriaBuilder) ->
+                paymentNumber == null || paymentNumber.isEmpty() ? null :
+                        criteriaBuilder.equal(root.get("paymentNumber"), paymentNumber);
+    }
+
+    public static Specification<Payment> hasTransactionId(String transactionId) {
+        return (root, query, criteriaBuilder) ->
+                transactionId == null || transactionId.isEmpty() ? null :
+                        criteriaBuilder.equal(root.get("transactionId"), transactionId);
+    }
+
+    /**
+     * Payments after the given one in {@link #NEWEST_FIRST} order.
+     */
+    public static Specification<Payment> olderThan(LocalDateTime createdAt, Long id) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.or(
+                criteriaBuilder.lessThan(root.get("createdAt"), createdAt),
+                criteriaBuilder.and(
+                        criteriaBuilder.equal(root.get("createdAt"), createdAt),
+                        criteriaBuilder.lessThan(root.get("id"), id)));
+    }
+
+    /**
+     * Compose the specification for a search request, skipping empty criteria.
+     */
+    public static Specification<Payment> fromCriteria(PaymentSearchCriteria criteria) {
+        return Specification.allOf(List.of(
+                hasUserId(criteria.getUserId()),
+                hasBookingId(criteria.getBookingId()),
+                hasStatus(criteria.getStatus()),
+                hasPaymentMethod(criteria.getPaymentMethod()),
+                createdBetween(criteria.getCreatedFrom(), criteria.getCreatedTo()),
+                hasPaymentNumber(criteria.getPaymentNumber()),
+                hasTransactionId(criteria.getTransactionId())));
+    }
+}
@@ -0,0 +1,27 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.PaymentUpdate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for payment updates waiting to be compacted into their payments.
+ */
+@Repository
+public interface PaymentUpdateRepository extends JpaRepository<PaymentUpdate, Long> {
+
+    /**
+     * A payment's pending updates in the order they were appended.
+     */
+    List<PaymentUpdate> findByPaymentIdOrderByIdAsc(Long paymentId);
+
+    /**
+     * Payments with pending updates, the one waiting longest first.
+     */
+    @Query("SELECT u.paymentId FROM PaymentUpdate u GROUP BY u.paymentId ORDER BY MIN(u.id)")
+    List<Long> findPendingPaymentIds(Pageable pageable);
+}
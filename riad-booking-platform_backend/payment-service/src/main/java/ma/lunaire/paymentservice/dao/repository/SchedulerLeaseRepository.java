@@ -0,0 +1,42 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository for scheduled job leases.
+ */
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    /**
+     * Take a lease that has expired, whoever held it.
+     *
+     * @return 1 if the lease was taken, 0 if it is held or does not exist yet
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.owner = :owner, l.lockedAt = :now, l.leasedUntil = :leasedUntil, " +
+           "l.version = l.version + 1 WHERE l.name = :name AND l.leasedUntil <= :now")
+    int acquire(@Param("name") String name,
+                @Param("owner") String owner,
+                @Param("now") LocalDateTime now,
+                @Param("leasedUntil") LocalDateTime leasedUntil);
+
+    /**
+     * Move the end of a lease still held by the owner, to extend or release it.
+     *
+     * @return 1 if the owner still held the lease, 0 if another replica took it
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.leasedUntil = :leasedUntil, l.version = l.version + 1 " +
+           "WHERE l.name = :name AND l.owner = :owner")
+    int extend(@Param("name") String name,
+               @Param("owner") String owner,
+               @Param("leasedUntil") LocalDateTime leasedUntil);
+}
@@ -0,0 +1,19 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.StripeCustomer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for the local Stripe customer mapping.
+ */
+@Repository
+public interface StripeCustomerRepository extends JpaRepository<StripeCustomer, Long> {
+
+    /**
+     * Find the Stripe customer registered for a normalized email.
+     */
+    Optional<StripeCustomer> findByEmail(String email);
+}
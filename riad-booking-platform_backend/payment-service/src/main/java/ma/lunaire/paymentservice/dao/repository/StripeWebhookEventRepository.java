@@ -0,0 +1,48 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.StripeWebhookEvent;
+import ma.lunaire.paymentservice.dao.entity.WebhookEventStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for stored Stripe webhook events.
+ */
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, Long> {
+
+    /**
+     * Check whether a Stripe event was already received.
+     */
+    boolean existsByEventId(String eventId);
+
+    /**
+     * Count events by status (backlog gauge).
+     */
+    long countByStatus(WebhookEventStatus status);
+
+    /**
+     * Pending events whose retry time has come, oldest first.
+     */
+    @Query("SELECT e FROM StripeWebhookEvent e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<StripeWebhookEvent> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Stored events of any status received in a time range, after a replay position, in arrival order.
+     */
+    @Query("SELECT e FROM StripeWebhookEvent e WHERE e.id > :afterId "
+            + "AND e.receivedAt >= :from AND e.receivedAt < :to ORDER BY e.id")
+    List<StripeWebhookEvent> findForReplay(@Param("afterId") Long afterId, @Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to, Pageable pageable);
+
+    /**
+     * Check whether an earlier event for the same PaymentIntent is still pending.
+     */
+    boolean existsByOrderingKeyAndStatusAndIdLessThan(String orderingKey, WebhookEventStatus status, Long id);
+}
@@ -0,0 +1,12 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.WebhookReplayCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for webhook replay checkpoints.
+ */
+@Repository
+public interface WebhookReplayCheckpointRepository extends JpaRepository<WebhookReplayCheckpoint, String> {
+}
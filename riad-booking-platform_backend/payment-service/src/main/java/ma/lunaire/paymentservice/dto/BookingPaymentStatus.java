@@ -0,0 +1,22 @@
+package ma.lunaire.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for the payment state of one booking.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookingPaymentStatus {
+
+    private Long bookingId;
+    private boolean completed;
+    private BigDecimal totalPaid;
+}
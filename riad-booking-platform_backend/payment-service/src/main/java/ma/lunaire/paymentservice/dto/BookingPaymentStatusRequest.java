@@ -0,0 +1,25 @@
+package ma.lunaire.paymentservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a batch payment-status lookup over several bookings.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookingPaymentStatusRequest {
+
+    @NotEmpty(message = "At least one booking ID is required")
+    @Size(max = 200, message = "At most 200 booking IDs can be looked up at once")
+    private List<@NotNull(message = "Booking ID is required") Long> bookingIds;
+}
@@ -0,0 +1,23 @@
+package ma.lunaire.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for one page of a keyset-paginated payment search.
+ * Pass {@code nextCursor} back to fetch the following page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentCursorPage {
+
+    private List<PaymentResponse> content;
+    private String nextCursor;
+    private boolean hasNext;
+}
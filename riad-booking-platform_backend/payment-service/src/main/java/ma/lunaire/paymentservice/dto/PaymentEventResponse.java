@@ -0,0 +1,32 @@
+package ma.lunaire.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.lunaire.paymentservice.dao.entity.PaymentEventType;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for one entry of a payment's history.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentEventResponse {
+
+    private Long id;
+    private Long paymentId;
+    private PaymentEventType type;
+    private PaymentStatus previousStatus;
+    private PaymentStatus status;
+    private String currency;
+    private BigDecimal amount;
+    private BigDecimal refundedAmount;
+    private String reason;
+    private LocalDateTime createdAt;
+}
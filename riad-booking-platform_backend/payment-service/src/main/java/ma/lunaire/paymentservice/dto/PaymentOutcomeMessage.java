@@ -0,0 +1,29 @@
+package ma.lunaire.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Payment outcome published to other services. Delivered at least once, so
+ * consumers must apply it idempotently.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentOutcomeMessage {
+
+    private Long eventId;
+    private Long paymentId;
+    private Long bookingId;
+    private PaymentStatus status;
+    private BigDecimal amount;
+    private String currency;
+    private LocalDateTime occurredAt;
+}
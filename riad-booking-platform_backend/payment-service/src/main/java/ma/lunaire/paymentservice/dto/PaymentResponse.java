@@ -25,6 +25,7 @@ public class PaymentResponse {
     private Long userId;
     private BigDecimal amount;
     private String currency;
+    private BigDecimal exchangeRate;       // MAD per unit of currency, fixed at creation
     private PaymentStatus status;
     private PaymentMethod paymentMethod;
     private String transactionId;
@@ -0,0 +1,27 @@
+package ma.lunaire.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for the number and sum of payments of one currency, status and method over a date range.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentVolume {
+
+    private String currency;
+    private PaymentStatus status;
+    private PaymentMethod paymentMethod;
+    private long paymentCount;
+    private BigDecimal totalAmount;
+    private BigDecimal baseAmount;         // totalAmount in MAD, each payment at its own rate
+}
@@ -0,0 +1,35 @@
+package ma.lunaire.paymentservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a webhook replay request. Without a file, the stored events received
+ * between {@code from} and {@code to} are replayed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookReplayRequest {
+
+    /**
+     * Name of the replay; running it again resumes from its checkpoint.
+     */
+    @NotBlank(message = "Replay ID is required")
+    private String replayId;
+
+    /**
+     * Export file in the replay directory, one Stripe event per line, oldest first.
+     */
+    private String file;
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+}
@@ -0,0 +1,26 @@
+package ma.lunaire.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the outcome of a webhook replay run.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookReplayResult {
+
+    private String replayId;
+    private String source;
+    private long resumedFrom;
+    private long position;
+    private long replayed;
+    private long failed;
+    private boolean completed;
+    private long elapsedMs;
+    private double eventsPerSecond;
+}
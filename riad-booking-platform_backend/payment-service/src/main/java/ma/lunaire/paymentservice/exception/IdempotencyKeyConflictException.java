@@ -0,0 +1,12 @@
+package ma.lunaire.paymentservice.exception;
+
+/**
+ * Exception thrown when an Idempotency-Key is still being processed by another
+ * request or was already used for a different request.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package ma.lunaire.paymentservice.exception;
+
+/**
+ * Exception thrown when a refund cannot be queued behind the refunds already
+ * running for the same payment.
+ */
+public class RefundInProgressException extends RuntimeException {
+
+    public RefundInProgressException(String message) {
+        super(message);
+    }
+}
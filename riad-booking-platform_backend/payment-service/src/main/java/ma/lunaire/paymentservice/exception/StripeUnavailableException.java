@@ -0,0 +1,12 @@
+package ma.lunaire.paymentservice.exception;
+
+/**
+ * Exception thrown without calling Stripe when its circuit breaker is open or the
+ * concurrent call limit is reached.
+ */
+public class StripeUnavailableException extends PaymentProcessingException {
+
+    public StripeUnavailableException(String message) {
+        super(message);
+    }
+}
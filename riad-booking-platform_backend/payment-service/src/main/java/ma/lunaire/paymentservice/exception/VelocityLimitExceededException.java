@@ -0,0 +1,18 @@
+package ma.lunaire.paymentservice.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when too many payments were attempted for the same user, email
+ * or payment method within the velocity window.
+ */
+@Getter
+public class VelocityLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public VelocityLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,65 @@
+package ma.lunaire.paymentservice.mapper;
+
+import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Locale;
+
+/**
+ * Conversions between the decimal amounts of the API and the long minor units that
+ * payments are stored and computed in, as Stripe counts them. The exponent is the
+ * currency's ISO 4217 number of decimals: 2 for MAD, EUR or USD, 0 for JPY, 3 for TND.
+ * <p>
+ * Payments stored with decimal amounts are converted on startup by
+ * {@link ma.lunaire.paymentservice.config.MinorUnitsMigration}, row by row in each row's currency.
+ */
+public final class MinorUnits {
+
+    private static final int DEFAULT_EXPONENT = 2;
+
+    private MinorUnits() {
+    }
+
+    /**
+     * Number of decimals of a currency; MAD's when the currency is missing or unknown.
+     */
+    public static int exponent(String currency) {
+        if (currency == null) {
+            return DEFAULT_EXPONENT;
+        }
+        try {
+            int digits = Currency.getInstance(currency.toUpperCase(Locale.ROOT)).getDefaultFractionDigits();
+            return digits >= 0 ? digits : DEFAULT_EXPONENT;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_EXPONENT;
+        }
+    }
+
+    /**
+     * Exact minor units of an amount given by a client; rejects more decimals than the currency has.
+     */
+    public static long toMinor(BigDecimal amount, String currency) {
+        try {
+            return amount.movePointRight(exponent(currency)).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new InvalidPaymentOperationException(
+                    "Amount " + amount.toPlainString() + " is not a valid " + (currency != null ? currency : "MAD") + " amount");
+        }
+    }
+
+    /**
+     * Minor units of a computed amount, such as a converted one, rounded half up.
+     */
+    public static long roundToMinor(BigDecimal amount, String currency) {
+        return amount.movePointRight(exponent(currency)).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Decimal amount of some minor units, null for null.
+     */
+    public static BigDecimal toDecimal(Long minor, String currency) {
+        return minor != null ? BigDecimal.valueOf(minor, exponent(currency)) : null;
+    }
+}
@@ -1,16 +1,20 @@
 package ma.lunaire.paymentservice.mapper;
 
 import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentEvent;
 import ma.lunaire.paymentservice.dto.CreatePaymentRequest;
+import ma.lunaire.paymentservice.dto.PaymentEventResponse;
 import ma.lunaire.paymentservice.dto.PaymentResponse;
 import org.mapstruct.*;
 
 /**
- * MapStruct mapper for converting between Payment entity and DTOs.
+ * MapStruct mapper for converting between Payment entity and DTOs. Amounts are
+ * minor units in the entities and decimals in the DTOs.
  */
 @Mapper(
     componentModel = "spring",
-    unmappedTargetPolicy = ReportingPolicy.IGNORE
+    unmappedTargetPolicy = ReportingPolicy.IGNORE,
+    imports = MinorUnits.class
 )
 public interface PaymentMapper {
 
@@ -30,11 +34,14 @@ public interface PaymentMapper {
     @Mapping(target = "version", ignore = true)
     @Mapping(target = "paidAt", ignore = true)
     @Mapping(target = "refundedAt", ignore = true)
-    @Mapping(target = "refundedAmount", ignore = true)
+    @Mapping(target = "amountMinor", ignore = true)
+    @Mapping(target = "baseAmountMinor", ignore = true)
+    @Mapping(target = "refundedAmountMinor", ignore = true)
     @Mapping(target = "failureReason", ignore = true)
     @Mapping(target = "gatewayResponse", ignore = true)
     @Mapping(target = "cardLastFour", ignore = true)
     @Mapping(target = "cardBrand", ignore = true)
+    @Mapping(target = "exchangeRate", ignore = true)
     Payment toEntity(CreatePaymentRequest request);
 
     /**
@@ -44,5 +51,16 @@ public interface PaymentMapper {
     @Mapping(target = "receiptUrl", source = "stripeReceiptUrl")
     @Mapping(target = "requiresAction", ignore = true)
     @Mapping(target = "nextActionUrl", ignore = true)
+    @Mapping(target = "amount", expression = "java(MinorUnits.toDecimal(payment.getAmountMinor(), payment.getCurrency()))")
+    @Mapping(target = "refundedAmount",
+            expression = "java(MinorUnits.toDecimal(payment.getRefundedAmountMinor(), payment.getCurrency()))")
     PaymentResponse toResponse(Payment payment);
+
+    /**
+     * Convert a payment event to its history DTO.
+     */
+    @Mapping(target = "amount", expression = "java(MinorUnits.toDecimal(event.getAmountMinor(), event.getCurrency()))")
+    @Mapping(target = "refundedAmount",
+            expression = "java(MinorUnits.toDecimal(event.getRefundedAmountMinor(), event.getCurrency()))")
+    PaymentEventResponse toEventResponse(PaymentEvent event);
 }
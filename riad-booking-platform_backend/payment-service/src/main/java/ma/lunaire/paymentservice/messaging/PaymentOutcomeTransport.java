@@ -0,0 +1,16 @@
+package ma.lunaire.paymentservice.messaging;
+
+import ma.lunaire.paymentservice.dto.PaymentOutcomeMessage;
+
+import java.util.List;
+
+/**
+ * Carries batches of payment outcomes to other services.
+ */
+public interface PaymentOutcomeTransport {
+
+    /**
+     * Deliver the batch, throwing if it may not have been delivered.
+     */
+    void send(List<PaymentOutcomeMessage> batch);
+}
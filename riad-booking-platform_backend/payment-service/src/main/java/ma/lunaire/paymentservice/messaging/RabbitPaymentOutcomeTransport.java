@@ -0,0 +1,72 @@
+package ma.lunaire.paymentservice.messaging;
+
+import lombok.RequiredArgsConstructor;
+import ma.lunaire.paymentservice.dto.PaymentOutcomeMessage;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes each batch as one persistent JSON array message to the payment outcomes
+ * exchange, routed by {@code payment.outcomes}. A batch only counts as sent once the
+ * broker confirms it and has routed it to a queue: the message is published mandatory
+ * with a correlated publisher confirm, and a nack, a return or no confirm within the
+ * timeout fails the send so the outbox keeps the batch.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.outbox.transport", havingValue = "rabbit")
+@RequiredArgsConstructor
+public class RabbitPaymentOutcomeTransport implements PaymentOutcomeTransport {
+
+    public static final String ROUTING_KEY = "payment.outcomes";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final JsonMapper jsonMapper;
+
+    @Value("${payments.outbox.exchange:payments}")
+    private String exchange;
+
+    @Value("${payments.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Override
+    public void send(List<PaymentOutcomeMessage> batch) {
+        Message message = MessageBuilder.withBody(jsonMapper.writeValueAsBytes(batch))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .build();
+        CorrelationData correlation = new CorrelationData();
+        rabbitTemplate.send(exchange, ROUTING_KEY, message, correlation);
+
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted waiting for the confirm of " + batch.size() + " payment outcomes", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("No broker confirm for " + batch.size() + " payment outcomes within "
+                    + confirmTimeoutMs + " ms", e);
+        }
+        if (!confirm.ack()) {
+            throw new AmqpException("Broker rejected " + batch.size() + " payment outcomes: " + confirm.reason());
+        }
+        ReturnedMessage returned = correlation.getReturned();
+        if (returned != null) {
+            throw new AmqpException("Payment outcomes were not routed to any queue: "
+                    + returned.getReplyCode() + " " + returned.getReplyText());
+        }
+    }
+}
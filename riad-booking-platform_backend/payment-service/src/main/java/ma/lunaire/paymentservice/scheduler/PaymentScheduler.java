@@ -1,14 +1,26 @@
 package ma.lunaire.paymentservice.scheduler;
 
 import ma.lunaire.paymentservice.service.PaymentService;
+import ma.lunaire.paymentservice.service.WebhookEventService;
+import ma.lunaire.paymentservice.service.impl.ExchangeRates;
+import ma.lunaire.paymentservice.service.impl.PaymentCompactor;
+import ma.lunaire.paymentservice.service.impl.PaymentIdempotency;
+import ma.lunaire.paymentservice.service.impl.PaymentOutbox;
+import ma.lunaire.paymentservice.service.impl.PaymentReconciler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Scheduler for payment-related background tasks.
+ * Scheduler for payment-related background tasks. Tasks on the shared tables run under
+ * {@link SchedulerLeases}, so each run happens on one replica or is shared out by id
+ * range; the exchange rates refresh on every replica, as each has its own cache.
  */
 @Component
 @EnableScheduling
@@ -16,21 +28,133 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class PaymentScheduler {
 
+    /**
+     * Other replicas skip an hourly job for this long after one of them started it.
+     */
+    private static final Duration HOURLY_HOLD = Duration.ofMinutes(50);
+
     private final PaymentService paymentService;
+    private final WebhookEventService webhookEventService;
+    private final PaymentReconciler paymentReconciler;
+    private final PaymentIdempotency paymentIdempotency;
+    private final ExchangeRates exchangeRates;
+    private final PaymentOutbox paymentOutbox;
+    private final PaymentCompactor paymentCompactor;
+    private final SchedulerLeases schedulerLeases;
+
+    @Value("${scheduler.leases.expiry-partitions:4}")
+    private int expiryPartitions;
+
+    @Value("${payments.reconciliation.interval-ms:900000}")
+    private long reconciliationIntervalMs;
 
     /**
      * Expire pending payments every hour.
      * Payments that have been pending for more than 24 hours are cancelled.
+     * Replicas firing together each take id-range partitions of the sweep.
      */
     @Scheduled(cron = "0 0 * * * *") // Every hour
     public void expirePendingPayments() {
         log.info("Running scheduled task: Expire pending payments");
         try {
-            int expiredCount = paymentService.expirePendingPayments(24);
-            log.info("Expired {} pending payments", expiredCount);
+            AtomicInteger expiredCount = new AtomicInteger();
+            int partitions = schedulerLeases.runPartitioned("payments.expiry", paymentService.getLastPaymentId(),
+                    expiryPartitions, HOURLY_HOLD, range -> expiredCount.addAndGet(
+                            paymentService.expirePendingPayments(24, range.fromId(), range.toId())));
+            log.info("Expired {} pending payments in {} partitions", expiredCount.get(), partitions);
         } catch (Exception e) {
             log.error("Error during payment expiration task", e);
         }
     }
-}
 
+    /**
+     * Queue stored Stripe webhook events that missed their lane or are due for a retry,
+     * on one replica at a time.
+     */
+    @Scheduled(fixedDelayString = "${stripe.webhook.recovery-interval-ms:15000}")
+    public void recoverWebhookEvents() {
+        try {
+            schedulerLeases.runExclusively("stripe.webhook.recovery", Duration.ZERO, () -> {
+                int queued = webhookEventService.recoverPending();
+                if (queued > 0) {
+                    log.info("Queued {} stored Stripe webhook events", queued);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error during webhook recovery task", e);
+        }
+    }
+
+    /**
+     * Publish stored payment outcomes to reservation-service, on one replica at a time
+     * so that they are not sent twice.
+     */
+    @Scheduled(fixedDelayString = "${payments.outbox.poll-interval-ms:500}")
+    public void publishPaymentOutcomes() {
+        try {
+            schedulerLeases.runExclusively("payments.outbox", Duration.ZERO, paymentOutbox::publishPending);
+        } catch (Exception e) {
+            log.error("Error during payment outcome publishing task", e);
+        }
+    }
+
+    /**
+     * Fold the payment updates appended by webhooks into their payments. Safe on several
+     * replicas, as each payment is compacted under its row lock; the lease only saves them
+     * from queueing on the same rows.
+     */
+    @Scheduled(fixedDelayString = "${payments.compaction.interval-ms:1000}")
+    public void compactPaymentUpdates() {
+        try {
+            schedulerLeases.runExclusively("payments.compaction", Duration.ZERO, paymentCompactor::compactPending);
+        } catch (Exception e) {
+            log.error("Error during payment compaction task", e);
+        }
+    }
+
+    /**
+     * Reconcile recent payments with Stripe in case webhooks were lost.
+     */
+    @Scheduled(fixedDelayString = "${payments.reconciliation.interval-ms:900000}",
+            initialDelayString = "${payments.reconciliation.interval-ms:900000}")
+    public void reconcileWithStripe() {
+        try {
+            // Replicas started at different times fire at different times, so hold for most of the interval
+            Duration hold = Duration.ofMillis(reconciliationIntervalMs * 3 / 4);
+            schedulerLeases.runExclusively("payments.reconciliation", hold, () -> {
+                int updated = paymentReconciler.reconcileRecent();
+                if (updated > 0) {
+                    log.info("Reconciliation updated {} payments from Stripe", updated);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error during Stripe reconciliation task", e);
+        }
+    }
+
+    /**
+     * Delete payment Idempotency-Keys past their replay window.
+     */
+    @Scheduled(cron = "0 30 * * * *") // Every hour
+    public void purgeIdempotencyKeys() {
+        try {
+            schedulerLeases.runExclusively("payments.idempotency-purge", HOURLY_HOLD, () -> {
+                int purged = paymentIdempotency.purgeExpired();
+                if (purged > 0) {
+                    log.info("Purged {} expired payment Idempotency-Keys", purged);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error during Idempotency-Key purge task", e);
+        }
+    }
+
+    /**
+     * Reload the exchange rates from their provider.
+     */
+    @Scheduled(fixedDelayString = "${payments.fx.refresh-interval-ms:3600000}",
+            initialDelayString = "${payments.fx.refresh-interval-ms:3600000}")
+    public void refreshExchangeRates() {
+        exchangeRates.refresh();
+    }
+}
@@ -0,0 +1,15 @@
+package ma.lunaire.paymentservice.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Source of exchange rates, loaded in full on each refresh.
+ */
+public interface ExchangeRateProvider {
+
+    /**
+     * Current rates by ISO currency code, as the amount of MAD one unit of the currency is worth.
+     */
+    Map<String, BigDecimal> loadRates();
+}
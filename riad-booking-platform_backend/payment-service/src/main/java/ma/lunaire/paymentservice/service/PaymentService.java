@@ -1,10 +1,13 @@
 package ma.lunaire.paymentservice.service;
 
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
 import ma.lunaire.paymentservice.dto.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -18,6 +21,12 @@ public interface PaymentService {
      */
     PaymentResponse createPayment(CreatePaymentRequest request);
 
+    /**
+     * Create a payment at most once per Idempotency-Key. A repeated key returns the
+     * payment created by the first request without calling Stripe; null creates unconditionally.
+     */
+    PaymentResponse createPayment(CreatePaymentRequest request, String idempotencyKey);
+
     /**
      * Confirm a payment after frontend completion.
      */
@@ -58,23 +67,35 @@ public interface PaymentService {
      */
     List<PaymentResponse> getPaymentsByBookingId(Long bookingId);
 
+    /**
+     * Get the status and refund history of a payment, oldest first.
+     */
+    List<PaymentEventResponse> getPaymentHistory(Long id);
+
     /**
      * Search payments with criteria.
      */
     Page<PaymentResponse> searchPayments(PaymentSearchCriteria criteria, Pageable pageable);
 
+    /**
+     * Search payments with criteria, newest first, using keyset pagination.
+     * Pass a null cursor for the first page and the returned nextCursor afterwards.
+     */
+    PaymentCursorPage scrollPayments(PaymentSearchCriteria criteria, String cursor, int size);
+
     /**
      * Cancel a payment (cancels Stripe PaymentIntent).
      */
     PaymentResponse cancelPayment(Long id, String reason);
 
     /**
-     * Refund a payment (full or partial) via Stripe.
+     * Refund a payment (full or partial) via Stripe. Refunds of the same payment
+     * run one at a time.
      */
     PaymentResponse refundPayment(Long id, RefundRequest request);
 
     /**
-     * Get total paid amount for a booking.
+     * Get total paid amount for a booking, in MAD.
      */
     BigDecimal getTotalPaidAmountByBookingId(Long bookingId);
 
@@ -83,15 +104,51 @@ public interface PaymentService {
      */
     boolean hasCompletedPayment(Long bookingId);
 
+    /**
+     * Bring the local payments of a page of Stripe PaymentIntents in line with Stripe,
+     * updating only the payments whose status or refunds diverge.
+     *
+     * @return number of payments updated
+     */
+    int reconcilePaymentIntents(List<PaymentIntent> paymentIntents);
+
+    /**
+     * Completed flag and total paid of several bookings, in request order.
+     */
+    List<BookingPaymentStatus> getBookingPaymentStatuses(List<Long> bookingIds);
+
+    /**
+     * Number and sum of the payments created in a date range, inclusive,
+     * per currency, status and method, with each sum also in MAD at the current rate.
+     */
+    List<PaymentVolume> getPaymentVolume(LocalDate from, LocalDate to);
+
+    /**
+     * Rebuild the daily payment rollups of a date range, inclusive, from the payments.
+     *
+     * @return number of days rebuilt
+     */
+    int backfillPaymentRollups(LocalDate from, LocalDate to);
+
     /**
      * Expire pending payments older than specified hours.
      */
     int expirePendingPayments(int hours);
 
     /**
-     * Handle Stripe webhook event.
+     * Expire pending payments older than specified hours, among ids {@code fromId} to {@code toId}.
+     */
+    int expirePendingPayments(int hours, long fromId, long toId);
+
+    /**
+     * Highest payment id, 0 when there are no payments.
+     */
+    long getLastPaymentId();
+
+    /**
+     * Apply a verified Stripe webhook event to the matching payment.
      */
-    void handleStripeWebhook(String payload, String sigHeader);
+    void handleStripeEvent(Event event);
 
     /**
      * Sync payment status with Stripe.
@@ -1,10 +1,10 @@
 package ma.lunaire.paymentservice.service;
 
-import com.stripe.model.Customer;
+import com.stripe.model.Charge;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
+import com.stripe.model.StripeCollection;
 
-import java.math.BigDecimal;
 import java.util.Map;
 
 /**
@@ -21,6 +21,7 @@ public interface StripeService {
      * @param paymentMethodId Optional payment method ID
      * @param description Payment description
      * @param metadata    Additional metadata
+     * @param idempotencyKey Optional key; Stripe returns the first result for repeated keys
      * @return Created PaymentIntent
      */
     PaymentIntent createPaymentIntent(
@@ -29,11 +30,12 @@ public interface StripeService {
             String customerId,
             String paymentMethodId,
             String description,
-            Map<String, String> metadata
+            Map<String, String> metadata,
+            String idempotencyKey
     );
 
     /**
-     * Confirm a PaymentIntent.
+     * Confirm a PaymentIntent. The latest charge comes back expanded.
      *
      * @param paymentIntentId The ID of the PaymentIntent to confirm
      * @param paymentMethodId Optional payment method ID
@@ -50,7 +52,7 @@ public interface StripeService {
     PaymentIntent cancelPaymentIntent(String paymentIntentId);
 
     /**
-     * Retrieve a PaymentIntent.
+     * Retrieve a PaymentIntent with its latest charge expanded.
      *
      * @param paymentIntentId The ID of the PaymentIntent
      * @return PaymentIntent
@@ -58,39 +60,43 @@ public interface StripeService {
     PaymentIntent retrievePaymentIntent(String paymentIntentId);
 
     /**
-     * Create a refund for a PaymentIntent.
+     * List one page of PaymentIntents created in a time window, newest first,
+     * with their latest charges expanded.
      *
-     * @param paymentIntentId The ID of the PaymentIntent to refund
-     * @param amount          Amount to refund in smallest currency unit (null for full refund)
-     * @param reason          Reason for refund
-     * @return Created Refund
+     * @param createdFrom   Window start, inclusive, in epoch seconds
+     * @param createdTo     Window end, exclusive, in epoch seconds
+     * @param startingAfter ID of the last PaymentIntent of the previous page, or null
+     * @return Page of up to 100 PaymentIntents
      */
-    Refund createRefund(String paymentIntentId, Long amount, String reason);
+    StripeCollection<PaymentIntent> listPaymentIntents(long createdFrom, long createdTo, String startingAfter);
 
     /**
-     * Create or retrieve a Stripe customer.
+     * Retrieve a Charge, for PaymentIntents whose latest charge was not expanded.
      *
-     * @param email Customer email
-     * @param name  Customer name
-     * @param metadata Additional metadata
-     * @return Customer
+     * @param chargeId The ID of the Charge
+     * @return Charge
      */
-    Customer createOrRetrieveCustomer(String email, String name, Map<String, String> metadata);
+    Charge retrieveCharge(String chargeId);
 
     /**
-     * Convert amount from BigDecimal to Stripe's smallest unit (centimes).
+     * Create a refund for a PaymentIntent.
      *
-     * @param amount BigDecimal amount
-     * @return Amount in smallest currency unit
+     * @param paymentIntentId The ID of the PaymentIntent to refund
+     * @param amount          Amount to refund in smallest currency unit (null for full refund)
+     * @param reason          Reason for refund
+     * @param idempotencyKey  Optional key; Stripe returns the first refund for repeated keys
+     * @return Created Refund
      */
-    Long convertToStripeAmount(BigDecimal amount);
+    Refund createRefund(String paymentIntentId, Long amount, String reason, String idempotencyKey);
 
     /**
-     * Convert Stripe amount back to BigDecimal.
+     * Get the Stripe customer ID for an email, creating the customer on first use.
+     * Known emails are answered locally without calling Stripe.
      *
-     * @param stripeAmount Amount in smallest currency unit
-     * @return BigDecimal amount
+     * @param email Customer email
+     * @param name  Customer name
+     * @param metadata Additional metadata
+     * @return Stripe customer ID
      */
-    BigDecimal convertFromStripeAmount(Long stripeAmount);
+    String getOrCreateCustomerId(String email, String name, Map<String, String> metadata);
 }
-
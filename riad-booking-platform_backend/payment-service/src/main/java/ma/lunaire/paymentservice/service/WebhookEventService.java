@@ -0,0 +1,20 @@
+package ma.lunaire.paymentservice.service;
+
+/**
+ * Fast-ack ingestion of Stripe webhooks: events are verified and stored, then
+ * handled asynchronously by per-PaymentIntent worker lanes.
+ */
+public interface WebhookEventService {
+
+    /**
+     * Verify the signature, store the event and queue it for processing.
+     * Returns false when the event was already received.
+     */
+    boolean ingest(String payload, String sigHeader);
+
+    /**
+     * Queue stored events that are due (not queued yet, lane was full, retry time reached
+     * or left over from a restart). Returns the number queued.
+     */
+    int recoverPending();
+}
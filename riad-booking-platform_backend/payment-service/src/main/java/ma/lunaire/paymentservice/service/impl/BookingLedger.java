@@ -0,0 +1,166 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.BookingPaymentSummary;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.BookingPaymentSummaryRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Per-booking payment totals in MAD centimes. Every payment status or refund change is applied as a
+ * delta to the booking's summary row in the caller's transaction; reads are a
+ * primary-key lookup behind a short-lived in-memory cache.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookingLedger {
+
+    private final BookingPaymentSummaryRepository summaryRepository;
+    private final PaymentRepository paymentRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payments.ledger.cache-size:10000}")
+    private long cacheSize;
+
+    @Value("${payments.ledger.cache-ttl-ms:5000}")
+    private long cacheTtlMs;
+
+    private Cache<Long, Totals> totals;
+
+    @PostConstruct
+    public void init() {
+        // Other instances update the same rows, so entries only live for a few seconds
+        totals = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, totals, "booking-ledger");
+    }
+
+    /**
+     * Apply the payment's change from {@code before} and {@code refundedBefore} to its
+     * booking's summary. Must run in the transaction that saves the payment.
+     */
+    public void record(Payment payment, PaymentStatus before, long refundedBefore) {
+        long refunded = payment.getRefundedAmountMinor();
+        BookingPaymentSummary summary = lockSummary(payment, before, refundedBefore);
+        long baseAmount = payment.getBaseAmountMinor();
+        if (before == PaymentStatus.COMPLETED) {
+            summary.setTotalPaidMinor(summary.getTotalPaidMinor() - baseAmount);
+            summary.setCompletedPayments(summary.getCompletedPayments() - 1);
+        }
+        if (payment.getStatus() == PaymentStatus.COMPLETED) {
+            summary.setTotalPaidMinor(summary.getTotalPaidMinor() + baseAmount);
+            summary.setCompletedPayments(summary.getCompletedPayments() + 1);
+        }
+        long refundedChange = payment.toBaseMinor(refunded) - payment.toBaseMinor(refundedBefore);
+        summary.setTotalRefundedMinor(summary.getTotalRefundedMinor() + refundedChange);
+        summary.setLatestPaymentId(payment.getId());
+        summary.setLatestStatus(payment.getStatus());
+
+        Totals updated = Totals.of(summary);
+        Long bookingId = summary.getBookingId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    totals.put(bookingId, updated);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sum of the booking's COMPLETED payment amounts, in MAD centimes.
+     */
+    public long totalPaidMinor(Long bookingId) {
+        Totals cached = totals(bookingId);
+        return cached != null ? cached.totalPaidMinor() : paymentRepository.getTotalPaidMinorByBookingId(bookingId);
+    }
+
+    /**
+     * Whether the booking has at least one COMPLETED payment.
+     */
+    public boolean hasCompletedPayment(Long bookingId) {
+        Totals cached = totals(bookingId);
+        return cached != null
+                ? cached.completedPayments() > 0
+                : paymentRepository.existsByBookingIdAndStatus(bookingId, PaymentStatus.COMPLETED);
+    }
+
+    /**
+     * Totals from memory or the summary row; null for bookings whose payments all
+     * predate the ledger, which fall back to the aggregate queries.
+     */
+    private Totals totals(Long bookingId) {
+        Totals cached = totals.getIfPresent(bookingId);
+        if (cached != null) {
+            return cached;
+        }
+        Totals stored = summaryRepository.findById(bookingId).map(Totals::of).orElse(null);
+        if (stored != null) {
+            totals.put(bookingId, stored);
+        }
+        return stored;
+    }
+
+    private BookingPaymentSummary lockSummary(Payment payment, PaymentStatus before, long refundedBefore) {
+        Long bookingId = payment.getBookingId();
+        return summaryRepository.findForUpdate(bookingId).orElseGet(() -> {
+            createSummary(payment, before, refundedBefore);
+            return summaryRepository.findForUpdate(bookingId).orElseThrow();
+        });
+    }
+
+    /**
+     * Insert the booking's first summary row in the caller's transaction, so no second
+     * connection is held while the caller's one waits. The row starts from the booking's
+     * payments as they were before the change being recorded, with the same arithmetic
+     * as the deltas: the other payments as read, and this one at {@code before}.
+     */
+    private void createSummary(Payment changed, PaymentStatus before, long refundedBefore) {
+        Long bookingId = changed.getBookingId();
+        long totalPaid = 0;
+        int completedPayments = 0;
+        long totalRefunded = changed.toBaseMinor(refundedBefore);
+        if (before == PaymentStatus.COMPLETED) {
+            totalPaid += changed.getBaseAmountMinor();
+            completedPayments++;
+        }
+        for (Payment payment : paymentRepository.findByBookingId(bookingId)) {
+            if (payment.getId().equals(changed.getId())) {
+                continue;
+            }
+            if (payment.getStatus() == PaymentStatus.COMPLETED) {
+                totalPaid += payment.getBaseAmountMinor();
+                completedPayments++;
+            }
+            totalRefunded += payment.toBaseMinor(payment.getRefundedAmountMinor());
+        }
+        if (summaryRepository.insertIfAbsent(bookingId, totalPaid, completedPayments, totalRefunded) == 0) {
+            log.debug("Summary for booking {} created concurrently", bookingId);
+        }
+    }
+
+    record Totals(long totalPaidMinor, int completedPayments) {
+
+        static Totals of(BookingPaymentSummary summary) {
+            return new Totals(summary.getTotalPaidMinor(), summary.getCompletedPayments());
+        }
+    }
+}
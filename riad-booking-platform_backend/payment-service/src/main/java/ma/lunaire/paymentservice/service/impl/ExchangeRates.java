@@ -0,0 +1,111 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
+import ma.lunaire.paymentservice.service.ExchangeRateProvider;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Exchange rates to MAD held as an immutable snapshot. A refresh loads the whole table
+ * from the provider and swaps the snapshot in one volatile write, so conversions only
+ * read a map and never lock or call out. A failed refresh keeps the previous snapshot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExchangeRates {
+
+    public static final String BASE_CURRENCY = "MAD";
+
+    private final ExchangeRateProvider exchangeRateProvider;
+    private final MeterRegistry meterRegistry;
+
+    private volatile Snapshot snapshot = Snapshot.of(Map.of(), Instant.EPOCH);
+    private Counter refreshFailures;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("payments.fx.snapshot.age", this, rates -> Duration.between(
+                        rates.snapshot.loadedAt(), Instant.now()).toSeconds())
+                .description("Seconds since the exchange rates were last refreshed")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        refreshFailures = Counter.builder("payments.fx.refresh.failures")
+                .description("Exchange rate refreshes that kept the previous rates")
+                .register(meterRegistry);
+        refresh();
+    }
+
+    /**
+     * Load the rates from the provider and swap them in.
+     */
+    public void refresh() {
+        try {
+            Snapshot loaded = Snapshot.of(exchangeRateProvider.loadRates(), Instant.now());
+            snapshot = loaded;
+            log.info("Loaded exchange rates for {} currencies", loaded.ratesToBase().size());
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            log.error("Failed to refresh exchange rates, keeping those of {}: {}",
+                    snapshot.loadedAt(), e.getMessage());
+        }
+    }
+
+    /**
+     * Amount of MAD one unit of the currency is worth; null stands for MAD.
+     */
+    public BigDecimal rateToBase(String currency) {
+        return find(currency).orElseThrow(() -> new InvalidPaymentOperationException(
+                "Unsupported currency: " + currency));
+    }
+
+    /**
+     * Rate of the currency if it is in the current snapshot.
+     */
+    public Optional<BigDecimal> find(String currency) {
+        return Optional.ofNullable(snapshot.ratesToBase().get(normalize(currency)));
+    }
+
+    /**
+     * Amount in MAD at the current rate, empty if the currency has no rate.
+     */
+    public Optional<BigDecimal> toBase(BigDecimal amount, String currency) {
+        return find(currency).map(rate -> amount.multiply(rate).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    private static String normalize(String currency) {
+        return currency != null ? currency.toUpperCase(Locale.ROOT) : BASE_CURRENCY;
+    }
+
+    /**
+     * Immutable rate table. MAD is always present at 1, whatever the provider returns.
+     */
+    record Snapshot(Map<String, BigDecimal> ratesToBase, Instant loadedAt) {
+
+        static Snapshot of(Map<String, BigDecimal> rates, Instant loadedAt) {
+            Map<String, BigDecimal> normalized = new HashMap<>();
+            rates.forEach((currency, rate) -> {
+                if (rate == null || rate.signum() <= 0) {
+                    throw new IllegalArgumentException("Invalid exchange rate for " + currency + ": " + rate);
+                }
+                normalized.put(normalize(currency), rate);
+            });
+            normalized.put(BASE_CURRENCY, BigDecimal.ONE);
+            return new Snapshot(Map.copyOf(normalized), loadedAt);
+        }
+    }
+}
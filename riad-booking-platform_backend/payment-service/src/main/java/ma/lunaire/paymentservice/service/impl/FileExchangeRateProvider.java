@@ -0,0 +1,48 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import ma.lunaire.paymentservice.service.ExchangeRateProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Exchange rates read from a properties file of {@code CODE=rate} lines, the local
+ * stand-in for a market data provider. The file is re-read on every refresh.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.fx.provider", havingValue = "file", matchIfMissing = true)
+@RequiredArgsConstructor
+public class FileExchangeRateProvider implements ExchangeRateProvider {
+
+    private final ResourceLoader resourceLoader;
+
+    @Value("${payments.fx.rates-location:classpath:fx-rates.properties}")
+    private String ratesLocation;
+
+    @Override
+    public Map<String, BigDecimal> loadRates() {
+        Resource resource = resourceLoader.getResource(ratesLocation);
+        Properties properties = new Properties();
+        try (InputStream in = resource.getInputStream()) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read exchange rates from " + ratesLocation, e);
+        }
+
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (String currency : properties.stringPropertyNames()) {
+            rates.put(currency, new BigDecimal(properties.getProperty(currency).trim()));
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,40 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Passes every payment status or refund change to the stores derived from it: the
+ * booking ledger, the daily payment rollups, the payment event log and, for payment
+ * outcomes, the outbox. Each store is called on its own, in the transaction that saves
+ * the payment, with the status and refunded amount the payment had when last recorded.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentChangeRecorder {
+
+    private final BookingLedger bookingLedger;
+    private final PaymentRollups paymentRollups;
+    private final PaymentEventLog paymentEventLog;
+    private final PaymentOutbox paymentOutbox;
+
+    /**
+     * Record the payment's change since it was last recorded; saving a payment twice
+     * records its change once. Must run in the transaction that saves the payment.
+     */
+    public void record(Payment payment) {
+        PaymentStatus before = payment.getRecordedStatus();
+        long refundedBefore = payment.getRecordedRefundedMinor();
+        if (before != null && before == payment.getStatus() && refundedBefore == payment.getRefundedAmountMinor()) {
+            return;
+        }
+
+        bookingLedger.record(payment, before, refundedBefore);
+        paymentRollups.record(payment, before);
+        paymentEventLog.append(payment, before, refundedBefore);
+        paymentOutbox.record(payment, before);
+        payment.markRecorded();
+    }
+}
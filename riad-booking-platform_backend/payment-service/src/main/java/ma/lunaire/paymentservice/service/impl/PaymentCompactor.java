@@ -0,0 +1,170 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.entity.PaymentUpdate;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentUpdateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the payment row as a compacted snapshot of the status and refund changes
+ * reported by Stripe webhooks. Webhooks only append a {@link PaymentUpdate}; the
+ * compactor periodically locks each payment with pending updates, applies them in the
+ * order they were appended, records each change like any other payment save, and
+ * deletes them. Webhooks and API calls therefore no longer race on the payment's
+ * version: only the compactor and the API update the row, and both hold it briefly.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentCompactor {
+
+    private final PaymentUpdateRepository updateRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentChangeRecorder paymentChangeRecorder;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payments.compaction.batch-size:100}")
+    private int batchSize;
+
+    private TransactionTemplate transaction;
+    private Counter appliedCounter;
+    private Counter ignoredCounter;
+
+    @PostConstruct
+    public void init() {
+        transaction = new TransactionTemplate(transactionManager);
+        appliedCounter = Counter.builder("payments.compaction.updates")
+                .description("Webhook payment updates compacted into their payments")
+                .tag("outcome", "applied")
+                .register(meterRegistry);
+        ignoredCounter = Counter.builder("payments.compaction.updates")
+                .description("Webhook payment updates compacted into their payments")
+                .tag("outcome", "ignored")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Append a change for the compactor. Runs in the caller's transaction and only inserts.
+     */
+    public void append(PaymentUpdate update) {
+        updateRepository.save(update);
+        log.debug("Appended {} update of payment {} from {}", update.getStatus(), update.getPaymentId(),
+                update.getStripeEventId());
+    }
+
+    /**
+     * Compact the payments waiting longest, each in its own transaction, so one payment
+     * that fails keeps its updates for the next run without holding up the others.
+     * Returns the number of payments compacted.
+     */
+    public int compactPending() {
+        int compacted = 0;
+        for (Long paymentId : updateRepository.findPendingPaymentIds(PageRequest.of(0, batchSize))) {
+            try {
+                transaction.executeWithoutResult(status -> compact(paymentId));
+                compacted++;
+            } catch (RuntimeException e) {
+                log.error("Failed to compact updates of payment {}: {}", paymentId, e.getMessage());
+            }
+        }
+        return compacted;
+    }
+
+    private void compact(Long paymentId) {
+        paymentRepository.findForUpdate(paymentId).ifPresentOrElse(this::compact, () -> {
+            log.warn("Dropping updates of missing payment {}", paymentId);
+            updateRepository.deleteAllByIdInBatch(updateRepository.findByPaymentIdOrderByIdAsc(paymentId).stream()
+                    .map(PaymentUpdate::getId)
+                    .toList());
+        });
+    }
+
+    /**
+     * Apply the payment's pending updates and delete them. The caller must hold the
+     * payment's row lock, as a concurrent compaction of the same payment would otherwise
+     * apply them twice. Returns the number of updates applied.
+     */
+    public int compact(Payment payment) {
+        List<PaymentUpdate> updates = updateRepository.findByPaymentIdOrderByIdAsc(payment.getId());
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        int applied = 0;
+        for (PaymentUpdate update : updates) {
+            if (apply(payment, update)) {
+                // Record each step, so the event log and the outbox see every change
+                paymentRepository.save(payment);
+                paymentChangeRecorder.record(payment);
+                applied++;
+                appliedCounter.increment();
+            } else {
+                ignoredCounter.increment();
+            }
+        }
+        updateRepository.deleteAllByIdInBatch(updates.stream().map(PaymentUpdate::getId).toList());
+        log.debug("Compacted {} of {} updates into payment {}", applied, updates.size(), payment.getPaymentNumber());
+        return applied;
+    }
+
+    /**
+     * Apply one update unless it is stale: reported by an event created before the latest
+     * one applied, or moving the payment to a status it cannot go back to. Stripe does not
+     * guarantee delivery order, and replays resend events that newer ones, or API calls,
+     * have since superseded.
+     */
+    private static boolean apply(Payment payment, PaymentUpdate update) {
+        Long created = update.getStripeEventCreated();
+        Long latest = payment.getStripeEventCreated();
+        if (created != null && latest != null && created < latest) {
+            log.info("Ignoring {} {} for payment {}: older than the latest event applied",
+                    update.getStripeEventType(), update.getStripeEventId(), payment.getPaymentNumber());
+            return false;
+        }
+        if (!payment.getStatus().canMoveTo(update.getStatus())) {
+            log.info("Ignoring {} {} for payment {}: cannot move from {} to {}", update.getStripeEventType(),
+                    update.getStripeEventId(), payment.getPaymentNumber(), payment.getStatus(), update.getStatus());
+            return false;
+        }
+
+        payment.setStatus(update.getStatus());
+        if (update.getStatus() == PaymentStatus.COMPLETED && payment.getPaidAt() == null) {
+            payment.setPaidAt(LocalDateTime.now());
+        }
+        if (update.getFailureReason() != null) {
+            payment.setFailureReason(update.getFailureReason());
+        }
+        if (update.getReceiptUrl() != null) {
+            payment.setStripeReceiptUrl(update.getReceiptUrl());
+        }
+        if (update.getCardLastFour() != null) {
+            payment.setCardLastFour(update.getCardLastFour());
+            payment.setCardBrand(update.getCardBrand());
+        }
+        // Refunds only add up: a late event never lowers the refunded amount
+        if (update.getRefundedAmountMinor() != null && update.getRefundedAmountMinor() > payment.getRefundedAmountMinor()) {
+            payment.setRefundedAmountMinor(update.getRefundedAmountMinor());
+            payment.setRefundedAt(LocalDateTime.now());
+        }
+        if (created != null) {
+            payment.setStripeEventCreated(created);
+        }
+        log.info("Updated payment {} to {} from {}", payment.getPaymentNumber(), payment.getStatus(),
+                update.getStripeEventType());
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentEvent;
+import ma.lunaire.paymentservice.dao.entity.PaymentEventType;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.PaymentEventRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends an event for every payment status or refund change, so the history that
+ * the payment row overwrites is kept. Runs in the transaction that saves the payment.
+ * Changes reported by Stripe webhooks reach the payment through the
+ * {@link PaymentCompactor}, which records each one here in the order it applies them.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentEventLog {
+
+    private final PaymentEventRepository eventRepository;
+
+    /**
+     * Append the event describing the payment's change since the given previous state,
+     * with a null previous status for a new payment.
+     */
+    public void append(Payment payment, PaymentStatus previousStatus, long previousRefundedMinor) {
+        long refunded = payment.getRefundedAmountMinor();
+        long refundedChange = refunded - previousRefundedMinor;
+        PaymentEventType type = eventType(payment.getStatus(), previousStatus, refundedChange);
+
+        eventRepository.save(PaymentEvent.builder()
+                .paymentId(payment.getId())
+                .type(type)
+                .previousStatus(previousStatus)
+                .status(payment.getStatus())
+                .currency(payment.getCurrency())
+                .amountMinor(switch (type) {
+                    case CREATED -> payment.getAmountMinor();
+                    case REFUNDED -> refundedChange;
+                    default -> null;
+                })
+                .refundedAmountMinor(refunded)
+                .reason(type == PaymentEventType.FAILED || type == PaymentEventType.CANCELLED
+                        ? payment.getFailureReason() : null)
+                .build());
+    }
+
+    private static PaymentEventType eventType(PaymentStatus status, PaymentStatus previousStatus,
+                                              long refundedChange) {
+        if (previousStatus == null) {
+            return PaymentEventType.CREATED;
+        }
+        if (refundedChange != 0) {
+            return PaymentEventType.REFUNDED;
+        }
+        return switch (status) {
+            case PENDING -> PaymentEventType.REOPENED;
+            case PROCESSING -> PaymentEventType.PROCESSING;
+            case COMPLETED -> PaymentEventType.COMPLETED;
+            case FAILED -> PaymentEventType.FAILED;
+            case CANCELLED -> PaymentEventType.CANCELLED;
+            case REFUNDED, PARTIALLY_REFUNDED -> PaymentEventType.REFUNDED;
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import io.github.resilience4j.micrometer.tagged.TaggedRateLimiterMetrics;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.service.StripeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Expires stale PENDING payments one batch at a time. Stripe cancellations of a batch
+ * fan out on virtual threads, bounded by a concurrency limit and a global
+ * requests-per-second rate, then each cancelled payment's status update is committed
+ * on its own, so a payment changed concurrently does not hold back the rest of the batch.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentExpiryPipeline {
+
+    private final PaymentRepository paymentRepository;
+    private final StripeService stripeService;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentChangeRecorder paymentChangeRecorder;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payments.expiry.batch-size:100}")
+    private int batchSize;
+
+    @Value("${payments.expiry.concurrency:16}")
+    private int concurrency;
+
+    @Value("${payments.expiry.stripe-requests-per-second:20}")
+    private int requestsPerSecond;
+
+    private RateLimiter rateLimiter;
+    private Counter expiredCounter;
+    private Counter stripeErrorCounter;
+    private Counter skippedCounter;
+    private Timer runTimer;
+
+    @PostConstruct
+    public void init() {
+        RateLimiterRegistry rateLimiters = RateLimiterRegistry.of(RateLimiterConfig.custom()
+                .limitForPeriod(requestsPerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofMinutes(1))
+                .build());
+        rateLimiter = rateLimiters.rateLimiter("stripe-payment-expiry");
+        TaggedRateLimiterMetrics.ofRateLimiterRegistry(rateLimiters).bindTo(meterRegistry);
+
+        expiredCounter = outcomeCounter("expired");
+        stripeErrorCounter = outcomeCounter("stripe_error");
+        skippedCounter = outcomeCounter("skipped");
+        runTimer = Timer.builder("payments.expiry.run")
+                .description("Duration of a stale payment expiry run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cancel PENDING payments created before the cutoff, returning how many were expired.
+     * Payments whose Stripe cancellation fails stay PENDING for the next run.
+     */
+    public int expire(LocalDateTime cutoff, String reason) {
+        return expire(cutoff, reason, 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #expire(LocalDateTime, String)} for the payments with ids from
+     * {@code fromId} to {@code toId}, so that replicas can share a sweep.
+     */
+    public int expire(LocalDateTime cutoff, String reason, long fromId, long toId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Semaphore permits = new Semaphore(concurrency);
+        int expiredCount = 0;
+        long afterId = fromId - 1;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Payment> batch;
+            do {
+                batch = paymentRepository.findPendingPaymentsOlderThan(cutoff, afterId, toId, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                afterId = batch.getLast().getId();
+                expiredCount += markExpired(cancelAtStripe(batch, executor, permits), reason);
+            } while (batch.size() == batchSize && !Thread.currentThread().isInterrupted());
+        } finally {
+            sample.stop(runTimer);
+        }
+        return expiredCount;
+    }
+
+    private List<Long> cancelAtStripe(List<Payment> batch, ExecutorService executor, Semaphore permits) {
+        List<Future<Long>> cancellations = new ArrayList<>(batch.size());
+        for (Payment payment : batch) {
+            permits.acquireUninterruptibly();
+            cancellations.add(executor.submit(() -> {
+                try {
+                    return cancel(payment);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        List<Long> cancelled = new ArrayList<>(batch.size());
+        for (int i = 0; i < cancellations.size(); i++) {
+            try {
+                cancelled.add(cancellations.get(i).get());
+            } catch (ExecutionException e) {
+                stripeErrorCounter.increment();
+                log.error("Failed to expire payment {}: {}", batch.get(i).getId(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return cancelled;
+    }
+
+    private Long cancel(Payment payment) {
+        if (payment.getStripePaymentIntentId() != null) {
+            RateLimiter.waitForPermission(rateLimiter);
+            stripeService.cancelPaymentIntent(payment.getStripePaymentIntentId());
+        }
+        return payment.getId();
+    }
+
+    private int markExpired(List<Long> paymentIds, String reason) {
+        int expired = 0;
+        for (Long paymentId : paymentIds) {
+            if (markExpired(paymentId, reason)) {
+                expired++;
+            }
+        }
+        expiredCounter.increment(expired);
+        skippedCounter.increment(paymentIds.size() - expired);
+        return expired;
+    }
+
+    /**
+     * Commit one cancelled payment's status update. A payment that was settled or changed
+     * while Stripe was being called is left as it is; if it is still PENDING, the next run
+     * cancels it again, which Stripe answers as already cancelled.
+     */
+    private boolean markExpired(Long paymentId, String reason) {
+        try {
+            Boolean expired = transactionTemplate.execute(status -> {
+                Payment payment = paymentRepository.findById(paymentId).orElse(null);
+                // A webhook may have settled the payment while Stripe was being called
+                if (payment == null || payment.getStatus() != PaymentStatus.PENDING) {
+                    return false;
+                }
+                payment.setStatus(PaymentStatus.CANCELLED);
+                payment.setFailureReason(reason);
+                paymentChangeRecorder.record(payment);
+                return true;
+            });
+            return Boolean.TRUE.equals(expired);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Payment {} changed concurrently, left for the next run: {}", paymentId, e.getMessage());
+            return false;
+        }
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("payments.expiry.payments")
+                .description("Stale payments processed by the expiry pipeline")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
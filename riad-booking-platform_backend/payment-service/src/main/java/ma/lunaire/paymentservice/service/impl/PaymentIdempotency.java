@@ -0,0 +1,246 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.IdempotencyKeyStatus;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentIdempotencyKey;
+import ma.lunaire.paymentservice.dao.repository.PaymentIdempotencyKeyRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.dto.CreatePaymentRequest;
+import ma.lunaire.paymentservice.dto.PaymentResponse;
+import ma.lunaire.paymentservice.exception.IdempotencyKeyConflictException;
+import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
+import ma.lunaire.paymentservice.exception.PaymentNotFoundException;
+import ma.lunaire.paymentservice.mapper.PaymentMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key handling for payment creation. Duplicates arriving on this instance
+ * while the first request runs wait for its result; across instances the key's row
+ * is claimed in its own transaction, and completed keys are replayed from the stored
+ * payment without calling Stripe.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentIdempotency {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final PaymentIdempotencyKeyRepository keyRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentMapper paymentMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${payments.idempotency.lock-timeout-ms:60000}")
+    private long lockTimeoutMs;
+
+    @Value("${payments.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private TransactionTemplate newTransaction;
+
+    @PostConstruct
+    public void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Create the payment once per key. The creation must call {@link #complete} in the
+     * transaction that saves the payment.
+     */
+    public PaymentResponse execute(String key, CreatePaymentRequest request, Supplier<PaymentResponse> creation) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidPaymentOperationException(
+                    "Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(request);
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            checkSameRequest(running.requestHash(), requestHash);
+            return await(running.response());
+        }
+
+        try {
+            PaymentResponse response = claim(key, requestHash)
+                    .map(this::replay)
+                    .orElseGet(() -> createOnce(key, creation));
+            mine.response().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.response().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Record the created payment against its key. Runs in the payment's transaction,
+     * so the key completes exactly when the payment commits.
+     */
+    public void complete(String key, PaymentResponse response) {
+        PaymentIdempotencyKey claimed = keyRepository.findById(key)
+                .orElseThrow(() -> new IllegalStateException("Idempotency-Key " + key + " is not claimed"));
+        claimed.setStatus(IdempotencyKeyStatus.COMPLETED);
+        claimed.setPaymentId(response.getId());
+        claimed.setRequiresAction(response.isRequiresAction());
+        claimed.setNextActionUrl(response.getNextActionUrl());
+        claimed.setLockedUntil(null);
+    }
+
+    /**
+     * Delete keys past the replay window.
+     */
+    public int purgeExpired() {
+        return newTransaction.execute(status ->
+                keyRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours)));
+    }
+
+    /**
+     * Claim the key for this request, or return the completed claim to replay.
+     */
+    private Optional<PaymentIdempotencyKey> claim(String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lockedUntil = now.plus(Duration.ofMillis(lockTimeoutMs));
+        try {
+            newTransaction.executeWithoutResult(status -> keyRepository.saveAndFlush(PaymentIdempotencyKey.builder()
+                    .idempotencyKey(key)
+                    .requestHash(requestHash)
+                    .lockedUntil(lockedUntil)
+                    .build()));
+            return Optional.empty();
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Idempotency-Key {} already claimed", key);
+        }
+
+        PaymentIdempotencyKey existing = keyRepository.findById(key)
+                .orElseThrow(() -> new IdempotencyKeyConflictException(
+                        "A request with this Idempotency-Key is in progress, retry later"));
+        checkSameRequest(existing.getRequestHash(), requestHash);
+        if (existing.getStatus() == IdempotencyKeyStatus.COMPLETED) {
+            return Optional.of(existing);
+        }
+
+        Integer takenOver = newTransaction.execute(status -> keyRepository.takeOverAbandoned(key, now, lockedUntil));
+        if (takenOver == null || takenOver == 0) {
+            throw new IdempotencyKeyConflictException("A request with this Idempotency-Key is in progress, retry later");
+        }
+        log.warn("Took over abandoned Idempotency-Key {}", key);
+        return Optional.empty();
+    }
+
+    private PaymentResponse createOnce(String key, Supplier<PaymentResponse> creation) {
+        try {
+            return creation.get();
+        } catch (RuntimeException e) {
+            // Nothing was committed: let a retry with the same key run again
+            newTransaction.execute(status -> keyRepository.releaseClaim(key));
+            throw e;
+        }
+    }
+
+    private PaymentResponse replay(PaymentIdempotencyKey completed) {
+        log.info("Replaying payment {} for Idempotency-Key {}", completed.getPaymentId(), completed.getIdempotencyKey());
+        Payment payment = paymentRepository.findById(completed.getPaymentId())
+                .orElseThrow(() -> new PaymentNotFoundException(completed.getPaymentId()));
+        PaymentResponse response = paymentMapper.toResponse(payment);
+        response.setRequiresAction(completed.isRequiresAction());
+        response.setNextActionUrl(completed.getNextActionUrl());
+        return response;
+    }
+
+    private static void checkSameRequest(String claimedHash, String requestHash) {
+        if (!claimedHash.equals(requestHash)) {
+            throw new IdempotencyKeyConflictException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private static PaymentResponse await(CompletableFuture<PaymentResponse> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            throw new IdempotencyKeyConflictException("A request with this Idempotency-Key was cancelled, retry");
+        }
+    }
+
+    private static String hash(CreatePaymentRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalForm(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * The request's fields in a fixed order, each length-prefixed, with the values that
+     * mean the same payment written the same way: 100.0 and 100.00, or an email in any case.
+     * Does not depend on the DTO's toString, so adding or reordering fields there does not
+     * turn retries of an in-flight request into conflicts.
+     */
+    static String canonicalForm(CreatePaymentRequest request) {
+        StringBuilder form = new StringBuilder();
+        appendField(form, "bookingId", request.getBookingId());
+        appendField(form, "userId", request.getUserId());
+        appendField(form, "amount", request.getAmount() != null
+                ? request.getAmount().stripTrailingZeros().toPlainString() : null);
+        appendField(form, "currency", request.getCurrency() != null
+                ? request.getCurrency().trim().toUpperCase(Locale.ROOT) : null);
+        appendField(form, "paymentMethod", request.getPaymentMethod());
+        appendField(form, "description", request.getDescription());
+        appendField(form, "stripePaymentMethodId", request.getStripePaymentMethodId());
+        appendField(form, "stripeCustomerId", request.getStripeCustomerId());
+        appendField(form, "customerEmail", request.getCustomerEmail() != null
+                ? StripeCustomerCache.normalize(request.getCustomerEmail()) : null);
+        appendField(form, "customerName", request.getCustomerName());
+        appendField(form, "returnUrl", request.getReturnUrl());
+        return form.toString();
+    }
+
+    private static void appendField(StringBuilder form, String name, Object value) {
+        form.append(name).append(':');
+        if (value == null) {
+            form.append('-');
+        } else {
+            String text = value.toString();
+            form.append(text.length()).append(':').append(text);
+        }
+        form.append('\n');
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<PaymentResponse> response) {
+    }
+}
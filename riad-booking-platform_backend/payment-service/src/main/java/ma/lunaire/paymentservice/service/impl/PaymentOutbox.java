@@ -0,0 +1,119 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentOutboxMessage;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.PaymentOutboxRepository;
+import ma.lunaire.paymentservice.dto.PaymentOutcomeMessage;
+import ma.lunaire.paymentservice.mapper.MinorUnits;
+import ma.lunaire.paymentservice.messaging.PaymentOutcomeTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Transactional outbox of payment outcomes. Outcomes are stored with the payment change
+ * that produced them and published in batches afterwards, so reservation-service learns
+ * about every committed outcome without a call on the checkout path. Without a transport
+ * ({@code payments.outbox.transport=none}) outcomes stay stored until one is configured.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentOutbox {
+
+    private static final Set<PaymentStatus> OUTCOMES =
+            EnumSet.of(PaymentStatus.COMPLETED, PaymentStatus.FAILED, PaymentStatus.CANCELLED);
+
+    private final PaymentOutboxRepository outboxRepository;
+    private final Optional<PaymentOutcomeTransport> paymentOutcomeTransport;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payments.outbox.batch-size:100}")
+    private int batchSize;
+
+    private Counter publishedCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    public void init() {
+        publishedCounter = Counter.builder("payments.outbox.published")
+                .description("Payment outcomes published to other services")
+                .register(meterRegistry);
+        batchTimer = Timer.builder("payments.outbox.batch")
+                .description("Duration of publishing one batch of payment outcomes")
+                .register(meterRegistry);
+        if (paymentOutcomeTransport.isEmpty()) {
+            log.warn("No payment outcome transport configured, outcomes are kept in the outbox until one is");
+        }
+    }
+
+    /**
+     * Store an outcome if the payment just reached one. Must run in the transaction that
+     * saves the payment.
+     */
+    public void record(Payment payment, PaymentStatus previousStatus) {
+        if (payment.getStatus() == previousStatus || !OUTCOMES.contains(payment.getStatus())) {
+            return;
+        }
+        outboxRepository.save(PaymentOutboxMessage.builder()
+                .paymentId(payment.getId())
+                .bookingId(payment.getBookingId())
+                .status(payment.getStatus())
+                .amountMinor(payment.getAmountMinor())
+                .currency(payment.getCurrency())
+                .build());
+    }
+
+    /**
+     * Publish the stored outcomes oldest first, one batch at a time, deleting each batch
+     * once the transport confirms it. A batch that fails stays stored for the next run.
+     * Returns the number of outcomes published, 0 without a transport.
+     */
+    public int publishPending() {
+        if (paymentOutcomeTransport.isEmpty()) {
+            return 0;
+        }
+        PaymentOutcomeTransport transport = paymentOutcomeTransport.get();
+        int published = 0;
+        while (true) {
+            List<PaymentOutboxMessage> batch = outboxRepository.findByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return published;
+            }
+            List<PaymentOutcomeMessage> outcomes = batch.stream().map(PaymentOutbox::toMessage).toList();
+            batchTimer.record(() -> transport.send(outcomes));
+            outboxRepository.deleteAllByIdInBatch(batch.stream().map(PaymentOutboxMessage::getId).toList());
+
+            published += batch.size();
+            publishedCounter.increment(batch.size());
+            log.debug("Published {} payment outcomes", batch.size());
+            if (batch.size() < batchSize) {
+                return published;
+            }
+        }
+    }
+
+    private static PaymentOutcomeMessage toMessage(PaymentOutboxMessage stored) {
+        return PaymentOutcomeMessage.builder()
+                .eventId(stored.getId())
+                .paymentId(stored.getPaymentId())
+                .bookingId(stored.getBookingId())
+                .status(stored.getStatus())
+                .amount(MinorUnits.toDecimal(stored.getAmountMinor(), stored.getCurrency()))
+                .currency(stored.getCurrency())
+                .occurredAt(stored.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeCollection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.service.PaymentService;
+import ma.lunaire.paymentservice.service.StripeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reconciles local payments with Stripe for PaymentIntents whose webhooks were lost.
+ * Pages through Stripe's PaymentIntent list for a created-time window, 100 per call,
+ * and hands each page to the payment service, which updates only diverging rows.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentReconciler {
+
+    private final StripeService stripeService;
+    private final PaymentService paymentService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payments.reconciliation.window-minutes:180}")
+    private long windowMinutes;
+
+    private Counter updatedCounter;
+    private Counter unchangedCounter;
+    private Counter pageCounter;
+    private Timer runTimer;
+
+    @PostConstruct
+    public void init() {
+        updatedCounter = outcomeCounter("updated");
+        unchangedCounter = outcomeCounter("unchanged");
+        pageCounter = Counter.builder("payments.reconciliation.pages")
+                .description("PaymentIntent list pages fetched from Stripe")
+                .register(meterRegistry);
+        runTimer = Timer.builder("payments.reconciliation.run")
+                .description("Duration of a Stripe reconciliation run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reconcile PaymentIntents created during the configured window up to now.
+     */
+    public int reconcileRecent() {
+        Instant now = Instant.now();
+        return reconcile(now.minus(Duration.ofMinutes(windowMinutes)), now);
+    }
+
+    /**
+     * Reconcile PaymentIntents created in [from, to), returning how many payments were updated.
+     * A page whose payments change concurrently is skipped; the next run picks it up again.
+     */
+    public int reconcile(Instant from, Instant to) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int pages = 0;
+        int checked = 0;
+        int updated = 0;
+        String startingAfter = null;
+
+        try {
+            StripeCollection<PaymentIntent> page;
+            do {
+                page = stripeService.listPaymentIntents(from.getEpochSecond(), to.getEpochSecond(), startingAfter);
+                pageCounter.increment();
+                pages++;
+
+                List<PaymentIntent> paymentIntents = page.getData();
+                if (paymentIntents == null || paymentIntents.isEmpty()) {
+                    break;
+                }
+                checked += paymentIntents.size();
+                startingAfter = paymentIntents.getLast().getId();
+
+                int pageUpdated = reconcilePage(paymentIntents);
+                updated += pageUpdated;
+                updatedCounter.increment(pageUpdated);
+                unchangedCounter.increment(paymentIntents.size() - pageUpdated);
+            } while (Boolean.TRUE.equals(page.getHasMore()) && !Thread.currentThread().isInterrupted());
+        } finally {
+            sample.stop(runTimer);
+        }
+
+        log.info("Reconciled {} Stripe PaymentIntents in {} pages, updated {} payments", checked, pages, updated);
+        return updated;
+    }
+
+    private int reconcilePage(List<PaymentIntent> paymentIntents) {
+        try {
+            return paymentService.reconcilePaymentIntents(paymentIntents);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Reconciliation page of {} PaymentIntents changed concurrently, left for the next run: {}",
+                    paymentIntents.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("payments.reconciliation.intents")
+                .description("Stripe PaymentIntents checked by reconciliation")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
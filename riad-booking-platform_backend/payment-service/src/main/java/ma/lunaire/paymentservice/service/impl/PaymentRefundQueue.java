@@ -0,0 +1,116 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.exception.RefundInProgressException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs refunds of one payment one after the other in arrival order, while refunds of
+ * different payments proceed in parallel. Each refund runs on its caller's thread
+ * once the refunds queued before it have committed, so it reads the refunded amount
+ * they left and calls Stripe only if the refund still fits.
+ * <p>
+ * This only orders refunds within this instance, without tying up a connection per
+ * waiting refund. Across replicas the refund itself locks the payment row before
+ * calling Stripe.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentRefundQueue {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payments.refunds.max-queued-per-payment:10}")
+    private int maxQueuedPerPayment;
+
+    @Value("${payments.refunds.queue-timeout-ms:30000}")
+    private long queueTimeoutMs;
+
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private Timer waitTimer;
+    private Timer refundTimer;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("payments.refunds.queue.depth", waiting, AtomicInteger::get)
+                .description("Refunds waiting for an earlier refund of the same payment")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("payments.refunds.queue.wait")
+                .description("Time a refund waited behind earlier refunds of the same payment")
+                .register(meterRegistry);
+        refundTimer = Timer.builder("payments.refunds.execution")
+                .description("Duration of a refund once it reached the head of its payment's queue")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run the refund after the refunds already queued for the payment. The refund must
+     * commit its own transaction before returning.
+     */
+    public <T> T submit(Long paymentId, Supplier<T> refund) {
+        Lane lane = lanes.compute(paymentId, (id, existing) -> {
+            Lane joined = existing != null ? existing : new Lane();
+            joined.queued.incrementAndGet();
+            return joined;
+        });
+        try {
+            if (lane.queued.get() > maxQueuedPerPayment) {
+                throw new RefundInProgressException(
+                        "Too many refunds of payment " + paymentId + " are in progress, retry later");
+            }
+            acquire(paymentId, lane);
+            try {
+                return refundTimer.record(refund);
+            } finally {
+                lane.lock.unlock();
+            }
+        } finally {
+            lanes.computeIfPresent(paymentId, (id, joined) ->
+                    joined.queued.decrementAndGet() == 0 ? null : joined);
+        }
+    }
+
+    private void acquire(Long paymentId, Lane lane) {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            if (!lane.lock.tryLock(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Refund of payment {} timed out behind earlier refunds", paymentId);
+                throw new RefundInProgressException(
+                        "A refund of payment " + paymentId + " is still in progress, retry later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RefundInProgressException("Interrupted while waiting to refund payment " + paymentId);
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Queue of one payment: a fair lock hands the turn over in arrival order, and the
+     * count of refunds holding or waiting for it lets the last one remove the lane.
+     * The count only changes inside the map's compute functions, so a lane is never
+     * removed while another refund joins it.
+     */
+    private static final class Lane {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final AtomicInteger queued = new AtomicInteger();
+    }
+}
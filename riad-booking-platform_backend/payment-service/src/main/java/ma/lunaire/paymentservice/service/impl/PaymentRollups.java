@@ -0,0 +1,158 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.DailyPaymentRollup;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.DailyPaymentRollupRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Daily payment count and amount per currency, status and method. A status change
+ * moves the payment from its previous bucket to its new one with in-place updates in
+ * the caller's transaction; the backfill rebuilds whole days from the payments table.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentRollups {
+
+    private static final String DEFAULT_CURRENCY = "MAD";
+
+    private final DailyPaymentRollupRepository rollupRepository;
+    private final PaymentRepository paymentRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${payments.rollups.backfill-concurrency:4}")
+    private int backfillConcurrency;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    public void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Move the payment from the bucket of its previous status, null for a new payment,
+     * to the bucket of its current status. Must run in the transaction that saves the payment.
+     */
+    public void record(Payment payment, PaymentStatus previousStatus) {
+        if (previousStatus == payment.getStatus()) {
+            return;
+        }
+        LocalDate paymentDate = payment.getCreatedAt() != null
+                ? payment.getCreatedAt().toLocalDate() : LocalDate.now();
+        if (previousStatus != null) {
+            add(bucket(paymentDate, payment, previousStatus), -1, -payment.getAmountMinor(), -payment.getBaseAmountMinor());
+        }
+        add(bucket(paymentDate, payment, payment.getStatus()), 1, payment.getAmountMinor(), payment.getBaseAmountMinor());
+    }
+
+    /**
+     * Rebuild the rollups of every day in [from, to] from the payments table, several days
+     * in parallel and each day in its own transaction. Returns the number of days rebuilt.
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        List<LocalDate> days = from.datesUntil(to.plusDays(1)).toList();
+        Semaphore permits = new Semaphore(backfillConcurrency);
+        List<Future<?>> rebuilds = new ArrayList<>(days.size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (LocalDate day : days) {
+                permits.acquireUninterruptibly();
+                rebuilds.add(executor.submit(() -> {
+                    try {
+                        rebuildDay(day);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            int rebuilt = 0;
+            for (int i = 0; i < rebuilds.size(); i++) {
+                try {
+                    rebuilds.get(i).get();
+                    rebuilt++;
+                } catch (ExecutionException e) {
+                    log.error("Failed to rebuild payment rollups of {}: {}", days.get(i), e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            log.info("Rebuilt payment rollups of {} of {} days from {} to {}", rebuilt, days.size(), from, to);
+            return rebuilt;
+        }
+    }
+
+    private void rebuildDay(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        transaction.executeWithoutResult(status -> {
+            rollupRepository.deleteByPaymentDate(day);
+            rollupRepository.flush();
+            for (DailyPaymentRollupRepository.VolumeTotal total
+                    : paymentRepository.sumVolumeCreatedBetween(start, start.plusDays(1))) {
+                rollupRepository.save(DailyPaymentRollup.builder()
+                        .paymentDate(day)
+                        .currency(total.getCurrency())
+                        .status(total.getStatus())
+                        .paymentMethod(total.getPaymentMethod())
+                        .paymentCount(total.getPaymentCount())
+                        .totalAmountMinor(total.getTotalAmountMinor())
+                        .totalBaseAmountMinor(total.getTotalBaseAmountMinor())
+                        .build());
+            }
+        });
+    }
+
+    private void add(DailyPaymentRollup bucket, long count, long amountMinor, long baseAmountMinor) {
+        if (increment(bucket, count, amountMinor, baseAmountMinor) == 0) {
+            createBucket(bucket);
+            increment(bucket, count, amountMinor, baseAmountMinor);
+        }
+    }
+
+    private int increment(DailyPaymentRollup bucket, long count, long amountMinor, long baseAmountMinor) {
+        return rollupRepository.increment(bucket.getPaymentDate(), bucket.getCurrency(), bucket.getStatus(),
+                bucket.getPaymentMethod(), count, amountMinor, baseAmountMinor);
+    }
+
+    /**
+     * Insert an empty row in the caller's transaction, so no second connection is held
+     * while the caller's one waits.
+     */
+    private void createBucket(DailyPaymentRollup bucket) {
+        if (rollupRepository.insertIfAbsent(bucket.getPaymentDate(), bucket.getCurrency(), bucket.getStatus(),
+                bucket.getPaymentMethod()) == 0) {
+            log.debug("Rollup bucket {} {} {} {} created concurrently", bucket.getPaymentDate(),
+                    bucket.getCurrency(), bucket.getStatus(), bucket.getPaymentMethod());
+        }
+    }
+
+    private static DailyPaymentRollup bucket(LocalDate paymentDate, Payment payment, PaymentStatus status) {
+        return DailyPaymentRollup.builder()
+                .paymentDate(paymentDate)
+                .currency(payment.getCurrency() != null ? payment.getCurrency() : DEFAULT_CURRENCY)
+                .status(status)
+                .paymentMethod(payment.getPaymentMethod())
+                .build();
+    }
+}
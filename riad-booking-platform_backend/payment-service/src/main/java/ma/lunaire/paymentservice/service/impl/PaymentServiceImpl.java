@@ -1,16 +1,17 @@
 package ma.lunaire.paymentservice.service.impl;
 
-import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.*;
-import com.stripe.net.Webhook;
-import ma.lunaire.paymentservice.config.StripeConfig;
 import ma.lunaire.paymentservice.dao.entity.Payment;
 import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.entity.PaymentUpdate;
+import ma.lunaire.paymentservice.dao.repository.DailyPaymentRollupRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentEventRepository;
 import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentSpecifications;
 import ma.lunaire.paymentservice.dto.*;
 import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
 import ma.lunaire.paymentservice.exception.PaymentNotFoundException;
-import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.mapper.MinorUnits;
 import ma.lunaire.paymentservice.mapper.PaymentMapper;
 import ma.lunaire.paymentservice.service.PaymentService;
 import ma.lunaire.paymentservice.service.StripeService;
@@ -18,14 +19,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -37,28 +46,60 @@ import java.util.stream.Collectors;
 @Transactional
 public class PaymentServiceImpl implements PaymentService {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+
     private final PaymentRepository paymentRepository;
     private final PaymentMapper paymentMapper;
     private final StripeService stripeService;
-    private final StripeConfig stripeConfig;
+    private final PaymentExpiryPipeline paymentExpiryPipeline;
+    private final BookingLedger bookingLedger;
+    private final PaymentChangeRecorder paymentChangeRecorder;
+    private final PaymentCompactor paymentCompactor;
+    private final PaymentRollups paymentRollups;
+    private final DailyPaymentRollupRepository rollupRepository;
+    private final PaymentIdempotency paymentIdempotency;
+    private final PaymentEventRepository paymentEventRepository;
+    private final PaymentRefundQueue paymentRefundQueue;
+    private final PaymentVelocityLimiter paymentVelocityLimiter;
+    private final ExchangeRates exchangeRates;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public PaymentResponse createPayment(CreatePaymentRequest request) {
+        return create(request, null);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PaymentResponse createPayment(CreatePaymentRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return transactionTemplate.execute(status -> create(request, null));
+        }
+        return paymentIdempotency.execute(idempotencyKey, request, () -> transactionTemplate.execute(status -> {
+            PaymentResponse response = create(request, idempotencyKey);
+            paymentIdempotency.complete(idempotencyKey, response);
+            return response;
+        }));
+    }
+
+    private PaymentResponse create(CreatePaymentRequest request, String idempotencyKey) {
         log.info("Creating Stripe payment for booking {} by user {}", request.getBookingId(), request.getUserId());
+        paymentVelocityLimiter.check(request);
+        BigDecimal exchangeRate = exchangeRates.rateToBase(request.getCurrency());
+        long amountMinor = MinorUnits.toMinor(request.getAmount(), request.getCurrency());
 
-        // Create or retrieve Stripe customer if email provided
+        // Resolve the Stripe customer if email provided (local lookup for repeat guests)
         String stripeCustomerId = request.getStripeCustomerId();
         if (stripeCustomerId == null && request.getCustomerEmail() != null) {
             Map<String, String> customerMetadata = new HashMap<>();
             customerMetadata.put("userId", request.getUserId().toString());
             customerMetadata.put("bookingId", request.getBookingId().toString());
 
-            Customer customer = stripeService.createOrRetrieveCustomer(
+            stripeCustomerId = stripeService.getOrCreateCustomerId(
                     request.getCustomerEmail(),
                     request.getCustomerName(),
                     customerMetadata
             );
-            stripeCustomerId = customer.getId();
         }
 
         // Prepare metadata for Stripe
@@ -66,22 +107,24 @@ public class PaymentServiceImpl implements PaymentService {
         metadata.put("bookingId", request.getBookingId().toString());
         metadata.put("userId", request.getUserId().toString());
 
-        // Convert amount to Stripe format (centimes)
-        Long stripeAmount = stripeService.convertToStripeAmount(request.getAmount());
-
-        // Create PaymentIntent with Stripe
+        // Create PaymentIntent with Stripe, which counts in minor units too
         PaymentIntent paymentIntent = stripeService.createPaymentIntent(
-                stripeAmount,
+                amountMinor,
                 request.getCurrency(),
                 stripeCustomerId,
                 request.getStripePaymentMethodId(),
                 request.getDescription() != null ? request.getDescription() :
                         "Payment for booking #" + request.getBookingId(),
-                metadata
+                metadata,
+                idempotencyKey
         );
 
         // Create local payment record
         Payment payment = paymentMapper.toEntity(request);
+        payment.setAmountMinor(amountMinor);
+        payment.setExchangeRate(exchangeRate);
+        payment.setBaseAmountMinor(MinorUnits.roundToMinor(
+                request.getAmount().multiply(exchangeRate), ExchangeRates.BASE_CURRENCY));
         payment.setStripePaymentIntentId(paymentIntent.getId());
         payment.setStripeClientSecret(paymentIntent.getClientSecret());
         payment.setStripeCustomerId(stripeCustomerId);
@@ -91,7 +134,7 @@ public class PaymentServiceImpl implements PaymentService {
         // Set status based on PaymentIntent status
         payment.setStatus(mapStripeStatusToPaymentStatus(paymentIntent.getStatus()));
 
-        Payment savedPayment = paymentRepository.save(payment);
+        Payment savedPayment = savePayment(payment);
 
         log.info("Created payment with number: {}, Stripe PI: {}",
                 savedPayment.getPaymentNumber(), paymentIntent.getId());
@@ -117,7 +160,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         // Update local payment record
         updatePaymentFromStripe(payment, paymentIntent);
-        Payment updatedPayment = paymentRepository.save(payment);
+        Payment updatedPayment = savePayment(payment);
 
         log.info("Confirmed payment: {}, Status: {}", id, updatedPayment.getStatus());
         return buildPaymentResponse(updatedPayment, paymentIntent);
@@ -177,17 +220,49 @@ public class PaymentServiceImpl implements PaymentService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<PaymentEventResponse> getPaymentHistory(Long id) {
+        if (!paymentRepository.existsById(id)) {
+            throw new PaymentNotFoundException(id);
+        }
+        return paymentEventRepository.findByPaymentIdOrderByIdAsc(id).stream()
+                .map(paymentMapper::toEventResponse)
+                .toList();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<PaymentResponse> searchPayments(PaymentSearchCriteria criteria, Pageable pageable) {
-        if (criteria.getUserId() != null && criteria.getStatus() != null) {
-            return paymentRepository.findByUserIdAndStatus(criteria.getUserId(), criteria.getStatus(), pageable)
-                    .map(paymentMapper::toResponse);
-        } else if (criteria.getUserId() != null) {
-            return paymentRepository.findByUserId(criteria.getUserId(), pageable)
-                    .map(paymentMapper::toResponse);
+        return paymentRepository.findAll(PaymentSpecifications.fromCriteria(criteria), pageable)
+                .map(paymentMapper::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentCursorPage scrollPayments(PaymentSearchCriteria criteria, String cursor, int size) {
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new InvalidPaymentOperationException("Page size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+
+        Specification<Payment> spec = PaymentSpecifications.fromCriteria(criteria);
+        if (cursor != null && !cursor.isEmpty()) {
+            spec = spec.and(decodeCursor(cursor));
         }
-        return paymentRepository.findAll(pageable).map(paymentMapper::toResponse);
+
+        // One extra row tells whether another page exists, without a count query
+        List<Payment> payments = paymentRepository.findBy(spec, query -> query
+                .sortBy(PaymentSpecifications.NEWEST_FIRST)
+                .limit(size + 1)
+                .all());
+
+        boolean hasNext = payments.size() > size;
+        List<Payment> content = hasNext ? payments.subList(0, size) : payments;
+        return PaymentCursorPage.builder()
+                .content(content.stream().map(paymentMapper::toResponse).toList())
+                .nextCursor(hasNext ? encodeCursor(content.getLast()) : null)
+                .hasNext(hasNext)
+                .build();
     }
 
     @Override
@@ -208,114 +283,161 @@ public class PaymentServiceImpl implements PaymentService {
 
         payment.setStatus(PaymentStatus.CANCELLED);
         payment.setFailureReason(reason);
-        Payment cancelledPayment = paymentRepository.save(payment);
+        Payment cancelledPayment = savePayment(payment);
 
         log.info("Cancelled payment with id: {}", id);
         return paymentMapper.toResponse(cancelledPayment);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PaymentResponse refundPayment(Long id, RefundRequest request) {
+        // Each refund commits before the next refund of the payment reads the refunded amount
+        return paymentRefundQueue.submit(id, () -> transactionTemplate.execute(status -> refund(id, request)));
+    }
+
+    private PaymentResponse refund(Long id, RefundRequest request) {
         log.info("Refunding payment with id: {}, amount: {}", id, request.getAmount());
 
-        Payment payment = findPaymentById(id);
+        // The row lock holds refunds of this payment on other replicas until this one commits
+        Payment payment = paymentRepository.findForUpdate(id)
+                .orElseThrow(() -> new PaymentNotFoundException(id));
+        // Refunds made elsewhere may still be pending webhook updates: count them first
+        paymentCompactor.compact(payment);
 
-        if (payment.getStatus() != PaymentStatus.COMPLETED) {
+        if (payment.getStatus() != PaymentStatus.COMPLETED && payment.getStatus() != PaymentStatus.PARTIALLY_REFUNDED) {
             throw new InvalidPaymentOperationException(
-                    "Can only refund COMPLETED payments. Current status: " + payment.getStatus());
+                    "Can only refund COMPLETED payments or refund PARTIALLY_REFUNDED ones further. Current status: "
+                            + payment.getStatus());
         }
 
         if (payment.getStripePaymentIntentId() == null) {
             throw new InvalidPaymentOperationException("Payment has no associated Stripe PaymentIntent");
         }
 
-        BigDecimal currentRefunded = payment.getRefundedAmount() != null ?
-                payment.getRefundedAmount() : BigDecimal.ZERO;
-        BigDecimal totalRefund = currentRefunded.add(request.getAmount());
+        long refundMinor = MinorUnits.toMinor(request.getAmount(), payment.getCurrency());
+        long totalRefund = payment.getRefundedAmountMinor() + refundMinor;
 
-        if (totalRefund.compareTo(payment.getAmount()) > 0) {
+        if (totalRefund > payment.getAmountMinor()) {
             throw new InvalidPaymentOperationException(
-                    "Total refund amount cannot exceed payment amount. Requested: " + totalRefund +
-                    ", Max: " + payment.getAmount());
+                    "Total refund amount cannot exceed payment amount. Requested: "
+                            + MinorUnits.toDecimal(totalRefund, payment.getCurrency())
+                            + ", Max: " + MinorUnits.toDecimal(payment.getAmountMinor(), payment.getCurrency()));
         }
 
-        // Create refund with Stripe
-        Long stripeRefundAmount = stripeService.convertToStripeAmount(request.getAmount());
+        // Create refund with Stripe. The key names this refund of the payment from its current
+        // refunded amount: if the refund went through but the save did not commit, the retry
+        // reads the same amount and gets the same refund back instead of a second one
         Refund refund = stripeService.createRefund(
                 payment.getStripePaymentIntentId(),
-                stripeRefundAmount,
-                request.getReason()
+                refundMinor,
+                request.getReason(),
+                "refund-" + payment.getPaymentNumber() + "-" + payment.getRefundedAmountMinor() + "-" + refundMinor
         );
 
-        payment.setRefundedAmount(totalRefund);
+        payment.setRefundedAmountMinor(totalRefund);
         payment.setRefundedAt(LocalDateTime.now());
         payment.setStripeRefundId(refund.getId());
 
-        if (totalRefund.compareTo(payment.getAmount()) == 0) {
+        if (totalRefund == payment.getAmountMinor()) {
             payment.setStatus(PaymentStatus.REFUNDED);
         } else {
             payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
         }
 
-        Payment refundedPayment = paymentRepository.save(payment);
+        Payment refundedPayment = savePayment(payment);
 
         log.info("Refunded payment with id: {}, Stripe Refund: {}, total refunded: {}",
-                id, refund.getId(), totalRefund);
+                id, refund.getId(), MinorUnits.toDecimal(totalRefund, payment.getCurrency()));
         return paymentMapper.toResponse(refundedPayment);
     }
 
     @Override
     @Transactional(readOnly = true)
     public BigDecimal getTotalPaidAmountByBookingId(Long bookingId) {
-        return paymentRepository.getTotalPaidAmountByBookingId(bookingId);
+        return MinorUnits.toDecimal(bookingLedger.totalPaidMinor(bookingId), ExchangeRates.BASE_CURRENCY);
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean hasCompletedPayment(Long bookingId) {
-        return paymentRepository.existsByBookingIdAndStatus(bookingId, PaymentStatus.COMPLETED);
+        return bookingLedger.hasCompletedPayment(bookingId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookingPaymentStatus> getBookingPaymentStatuses(List<Long> bookingIds) {
+        List<Long> distinctIds = bookingIds.stream().distinct().toList();
+        Map<Long, Long> totals = paymentRepository.getTotalPaidMinorByBookingIds(distinctIds).stream()
+                .collect(Collectors.toMap(PaymentRepository.BookingPaidTotal::getBookingId,
+                        PaymentRepository.BookingPaidTotal::getTotalPaidMinor));
+
+        return distinctIds.stream()
+                .map(bookingId -> BookingPaymentStatus.builder()
+                        .bookingId(bookingId)
+                        .completed(totals.containsKey(bookingId))
+                        .totalPaid(MinorUnits.toDecimal(totals.getOrDefault(bookingId, 0L), ExchangeRates.BASE_CURRENCY))
+                        .build())
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PaymentVolume> getPaymentVolume(LocalDate from, LocalDate to) {
+        validateDateRange(from, to);
+        return rollupRepository.sumBetween(from, to).stream()
+                .map(total -> {
+                    BigDecimal totalAmount = MinorUnits.toDecimal(total.getTotalAmountMinor(), total.getCurrency());
+                    return PaymentVolume.builder()
+                            .currency(total.getCurrency())
+                            .status(total.getStatus())
+                            .paymentMethod(total.getPaymentMethod())
+                            .paymentCount(total.getPaymentCount())
+                            .totalAmount(totalAmount)
+                            .baseAmount(MinorUnits.toDecimal(total.getTotalBaseAmountMinor(), ExchangeRates.BASE_CURRENCY))
+                            .build();
+                })
+                .toList();
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int backfillPaymentRollups(LocalDate from, LocalDate to) {
+        validateDateRange(from, to);
+        log.info("Rebuilding payment rollups from {} to {}", from, to);
+        return paymentRollups.backfill(from, to);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public int expirePendingPayments(int hours) {
-        log.info("Expiring pending payments older than {} hours", hours);
+        return expirePendingPayments(hours, 1, Long.MAX_VALUE);
+    }
 
-        LocalDateTime expirationDate = LocalDateTime.now().minusHours(hours);
-        List<Payment> pendingPayments = paymentRepository.findPendingPaymentsOlderThan(expirationDate);
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int expirePendingPayments(int hours, long fromId, long toId) {
+        log.info("Expiring pending payments older than {} hours with ids {} to {}", hours, fromId, toId);
 
-        int expiredCount = 0;
-        for (Payment payment : pendingPayments) {
-            try {
-                // Cancel with Stripe
-                if (payment.getStripePaymentIntentId() != null) {
-                    stripeService.cancelPaymentIntent(payment.getStripePaymentIntentId());
-                }
-                payment.setStatus(PaymentStatus.CANCELLED);
-                payment.setFailureReason("Payment expired - not completed within " + hours + " hours");
-                paymentRepository.save(payment);
-                expiredCount++;
-            } catch (Exception e) {
-                log.error("Failed to expire payment {}: {}", payment.getId(), e.getMessage());
-            }
-        }
+        // Stripe calls run outside any transaction, updates are committed per batch
+        int expiredCount = paymentExpiryPipeline.expire(
+                LocalDateTime.now().minusHours(hours),
+                "Payment expired - not completed within " + hours + " hours",
+                fromId, toId);
 
         log.info("Expired {} pending payments", expiredCount);
         return expiredCount;
     }
 
     @Override
-    public void handleStripeWebhook(String payload, String sigHeader) {
-        log.info("Processing Stripe webhook");
-
-        Event event;
-        try {
-            event = Webhook.constructEvent(payload, sigHeader, stripeConfig.getWebhookSecret());
-        } catch (SignatureVerificationException e) {
-            log.error("Webhook signature verification failed: {}", e.getMessage());
-            throw new PaymentProcessingException("Invalid webhook signature", e);
-        }
+    @Transactional(readOnly = true)
+    public long getLastPaymentId() {
+        return paymentRepository.findLastId();
+    }
 
-        log.info("Received Stripe event: {}", event.getType());
+    @Override
+    public void handleStripeEvent(Event event) {
+        log.info("Handling Stripe event {}: {}", event.getId(), event.getType());
 
         EventDataObjectDeserializer dataObjectDeserializer = event.getDataObjectDeserializer();
         StripeObject stripeObject = dataObjectDeserializer.getObject().orElse(null);
@@ -327,16 +449,16 @@ public class PaymentServiceImpl implements PaymentService {
 
         switch (event.getType()) {
             case "payment_intent.succeeded":
-                handlePaymentIntentSucceeded((PaymentIntent) stripeObject);
+                handlePaymentIntentSucceeded(event, (PaymentIntent) stripeObject);
                 break;
             case "payment_intent.payment_failed":
-                handlePaymentIntentFailed((PaymentIntent) stripeObject);
+                handlePaymentIntentFailed(event, (PaymentIntent) stripeObject);
                 break;
             case "payment_intent.canceled":
-                handlePaymentIntentCanceled((PaymentIntent) stripeObject);
+                handlePaymentIntentCanceled(event, (PaymentIntent) stripeObject);
                 break;
             case "charge.refunded":
-                handleChargeRefunded((Charge) stripeObject);
+                handleChargeRefunded(event, (Charge) stripeObject);
                 break;
             default:
                 log.info("Unhandled event type: {}", event.getType());
@@ -355,14 +477,65 @@ public class PaymentServiceImpl implements PaymentService {
 
         PaymentIntent paymentIntent = stripeService.retrievePaymentIntent(payment.getStripePaymentIntentId());
         updatePaymentFromStripe(payment, paymentIntent);
-        Payment updatedPayment = paymentRepository.save(payment);
+        Payment updatedPayment = savePayment(payment);
 
         log.info("Synced payment {}, Status: {}", id, updatedPayment.getStatus());
         return paymentMapper.toResponse(updatedPayment);
     }
 
+    @Override
+    public int reconcilePaymentIntents(List<PaymentIntent> paymentIntents) {
+        // Hash join of the Stripe page against the local rows of the same PaymentIntents
+        Map<String, PaymentIntent> intentsById = paymentIntents.stream()
+                .collect(Collectors.toMap(PaymentIntent::getId, Function.identity(), (first, second) -> first));
+
+        int updated = 0;
+        for (Payment payment : paymentRepository.findByStripePaymentIntentIdIn(intentsById.keySet())) {
+            PaymentStatus before = payment.getStatus();
+            if (reconcileWithStripe(payment, intentsById.get(payment.getStripePaymentIntentId()))) {
+                savePayment(payment);
+                updated++;
+                log.info("Reconciled payment {} with Stripe: {} -> {}",
+                        payment.getPaymentNumber(), before, payment.getStatus());
+            }
+        }
+        return updated;
+    }
+
     // Private helper methods
 
+    /**
+     * Save a payment and record its change in the same transaction.
+     */
+    private Payment savePayment(Payment payment) {
+        Payment saved = paymentRepository.save(payment);
+        paymentChangeRecorder.record(saved);
+        return saved;
+    }
+
+    private static String encodeCursor(Payment payment) {
+        String position = payment.getCreatedAt() + "|" + payment.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Specification<Payment> decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf('|');
+            return PaymentSpecifications.olderThan(
+                    LocalDateTime.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidPaymentOperationException("Invalid search cursor");
+        }
+    }
+
+    private static void validateDateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new InvalidPaymentOperationException("Date range must have a start on or before its end");
+        }
+    }
+
     private Payment findPaymentById(Long id) {
         return paymentRepository.findById(id)
                 .orElseThrow(() -> new PaymentNotFoundException(id));
@@ -378,31 +551,92 @@ public class PaymentServiceImpl implements PaymentService {
         };
     }
 
-    private void updatePaymentFromStripe(Payment payment, PaymentIntent paymentIntent) {
-        payment.setStatus(mapStripeStatusToPaymentStatus(paymentIntent.getStatus()));
+    /**
+     * Apply the PaymentIntent's status and charge details, unless the status would move
+     * the payment back (a refunded payment to COMPLETED, for instance). Returns whether
+     * the payment was updated.
+     */
+    private boolean updatePaymentFromStripe(Payment payment, PaymentIntent paymentIntent) {
+        PaymentStatus stripeStatus = mapStripeStatusToPaymentStatus(paymentIntent.getStatus());
+        if (!payment.getStatus().canMoveTo(stripeStatus)) {
+            log.info("Keeping payment {} {}: PaymentIntent {} is {}", payment.getPaymentNumber(),
+                    payment.getStatus(), paymentIntent.getId(), paymentIntent.getStatus());
+            return false;
+        }
+        payment.setStatus(stripeStatus);
 
         if ("succeeded".equals(paymentIntent.getStatus())) {
-            payment.setPaidAt(LocalDateTime.now());
-
-            // Get charge details if available
-            if (paymentIntent.getLatestCharge() != null) {
-                try {
-                    Charge charge = Charge.retrieve(paymentIntent.getLatestCharge());
-                    payment.setStripeReceiptUrl(charge.getReceiptUrl());
-
-                    // Get card details
-                    if (charge.getPaymentMethodDetails() != null &&
-                        charge.getPaymentMethodDetails().getCard() != null) {
-                        payment.setCardLastFour(charge.getPaymentMethodDetails().getCard().getLast4());
-                        payment.setCardBrand(charge.getPaymentMethodDetails().getCard().getBrand());
-                    }
-                } catch (Exception e) {
-                    log.warn("Failed to retrieve charge details: {}", e.getMessage());
+            if (payment.getPaidAt() == null) {
+                payment.setPaidAt(LocalDateTime.now());
+            }
+
+            Charge charge = latestCharge(payment, paymentIntent);
+            if (charge != null) {
+                payment.setStripeReceiptUrl(charge.getReceiptUrl());
+
+                // Get card details
+                if (charge.getPaymentMethodDetails() != null &&
+                    charge.getPaymentMethodDetails().getCard() != null) {
+                    payment.setCardLastFour(charge.getPaymentMethodDetails().getCard().getLast4());
+                    payment.setCardBrand(charge.getPaymentMethodDetails().getCard().getBrand());
                 }
             }
         } else if ("canceled".equals(paymentIntent.getStatus())) {
             payment.setFailureReason(paymentIntent.getCancellationReason());
         }
+        return true;
+    }
+
+    /**
+     * The latest charge as expanded by confirm/retrieve. Webhook payloads only carry its id:
+     * it is fetched only when the charge details were not already recorded at confirmation.
+     */
+    private Charge latestCharge(Payment payment, PaymentIntent paymentIntent) {
+        if (paymentIntent.getLatestChargeObject() != null) {
+            return paymentIntent.getLatestChargeObject();
+        }
+        if (paymentIntent.getLatestCharge() == null || payment.getStripeReceiptUrl() != null) {
+            return null;
+        }
+        try {
+            return stripeService.retrieveCharge(paymentIntent.getLatestCharge());
+        } catch (Exception e) {
+            log.warn("Failed to retrieve charge details: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Apply the PaymentIntent to a payment whose state diverges from it.
+     * Returns false, leaving the payment untouched, when both agree.
+     */
+    private boolean reconcileWithStripe(Payment payment, PaymentIntent paymentIntent) {
+        PaymentStatus stripeStatus = mapStripeStatusToPaymentStatus(paymentIntent.getStatus());
+        Charge charge = paymentIntent.getLatestChargeObject();
+
+        if (stripeStatus == PaymentStatus.COMPLETED && charge != null
+                && charge.getAmountRefunded() != null && charge.getAmountRefunded() > 0) {
+            if (payment.getRefundedAmountMinor() == charge.getAmountRefunded()) {
+                return false;
+            }
+            if (payment.getStatus() != PaymentStatus.REFUNDED && payment.getStatus() != PaymentStatus.PARTIALLY_REFUNDED) {
+                updatePaymentFromStripe(payment, paymentIntent);
+            }
+            payment.setRefundedAmountMinor(charge.getAmountRefunded());
+            payment.setRefundedAt(LocalDateTime.now());
+            payment.setStatus(Boolean.TRUE.equals(charge.getRefunded())
+                    ? PaymentStatus.REFUNDED : PaymentStatus.PARTIALLY_REFUNDED);
+            return true;
+        }
+
+        // Stripe goes back to requires_payment_method after a failed attempt, so a local
+        // FAILED payment is not stale; refunds keep the PaymentIntent succeeded
+        if (stripeStatus == PaymentStatus.PENDING || stripeStatus == payment.getStatus()
+                || (stripeStatus == PaymentStatus.COMPLETED && (payment.getStatus() == PaymentStatus.REFUNDED
+                        || payment.getStatus() == PaymentStatus.PARTIALLY_REFUNDED))) {
+            return false;
+        }
+        return updatePaymentFromStripe(payment, paymentIntent);
     }
 
     private PaymentResponse buildPaymentResponse(Payment payment, PaymentIntent paymentIntent) {
@@ -419,62 +653,67 @@ public class PaymentServiceImpl implements PaymentService {
         return response;
     }
 
-    private void handlePaymentIntentSucceeded(PaymentIntent paymentIntent) {
+    /**
+     * Append the change a webhook event reports for the payment of its PaymentIntent. The
+     * payment row is left alone: the compactor applies the change, in order with the other
+     * events of the payment and unless it is stale.
+     */
+    private void appendUpdate(Event event, String paymentIntentId, PaymentStatus target,
+                              BiConsumer<Payment, PaymentUpdate.PaymentUpdateBuilder> details) {
+        paymentRepository.findByStripePaymentIntentId(paymentIntentId).ifPresent(payment -> {
+            PaymentUpdate.PaymentUpdateBuilder update = PaymentUpdate.builder()
+                    .paymentId(payment.getId())
+                    .stripeEventId(event.getId())
+                    .stripeEventType(event.getType())
+                    .stripeEventCreated(event.getCreated())
+                    .status(target);
+            details.accept(payment, update);
+            paymentCompactor.append(update.build());
+        });
+    }
+
+    private void handlePaymentIntentSucceeded(Event event, PaymentIntent paymentIntent) {
         log.info("Handling payment_intent.succeeded for: {}", paymentIntent.getId());
 
-        paymentRepository.findByStripePaymentIntentId(paymentIntent.getId())
-                .ifPresent(payment -> {
-                    updatePaymentFromStripe(payment, paymentIntent);
-                    paymentRepository.save(payment);
-                    log.info("Updated payment {} to COMPLETED", payment.getPaymentNumber());
-                });
+        appendUpdate(event, paymentIntent.getId(), PaymentStatus.COMPLETED, (payment, update) -> {
+            Charge charge = latestCharge(payment, paymentIntent);
+            if (charge != null) {
+                update.receiptUrl(charge.getReceiptUrl());
+                if (charge.getPaymentMethodDetails() != null &&
+                    charge.getPaymentMethodDetails().getCard() != null) {
+                    update.cardLastFour(charge.getPaymentMethodDetails().getCard().getLast4());
+                    update.cardBrand(charge.getPaymentMethodDetails().getCard().getBrand());
+                }
+            }
+        });
     }
 
-    private void handlePaymentIntentFailed(PaymentIntent paymentIntent) {
+    private void handlePaymentIntentFailed(Event event, PaymentIntent paymentIntent) {
         log.info("Handling payment_intent.payment_failed for: {}", paymentIntent.getId());
 
-        paymentRepository.findByStripePaymentIntentId(paymentIntent.getId())
-                .ifPresent(payment -> {
-                    payment.setStatus(PaymentStatus.FAILED);
-                    if (paymentIntent.getLastPaymentError() != null) {
-                        payment.setFailureReason(paymentIntent.getLastPaymentError().getMessage());
-                    }
-                    paymentRepository.save(payment);
-                    log.info("Updated payment {} to FAILED", payment.getPaymentNumber());
-                });
+        appendUpdate(event, paymentIntent.getId(), PaymentStatus.FAILED, (payment, update) -> {
+            if (paymentIntent.getLastPaymentError() != null) {
+                update.failureReason(paymentIntent.getLastPaymentError().getMessage());
+            }
+        });
     }
 
-    private void handlePaymentIntentCanceled(PaymentIntent paymentIntent) {
+    private void handlePaymentIntentCanceled(Event event, PaymentIntent paymentIntent) {
         log.info("Handling payment_intent.canceled for: {}", paymentIntent.getId());
 
-        paymentRepository.findByStripePaymentIntentId(paymentIntent.getId())
-                .ifPresent(payment -> {
-                    payment.setStatus(PaymentStatus.CANCELLED);
-                    payment.setFailureReason(paymentIntent.getCancellationReason());
-                    paymentRepository.save(payment);
-                    log.info("Updated payment {} to CANCELLED", payment.getPaymentNumber());
-                });
+        appendUpdate(event, paymentIntent.getId(), PaymentStatus.CANCELLED,
+                (payment, update) -> update.failureReason(paymentIntent.getCancellationReason()));
     }
 
-    private void handleChargeRefunded(Charge charge) {
+    private void handleChargeRefunded(Event event, Charge charge) {
         log.info("Handling charge.refunded for: {}", charge.getId());
 
-        if (charge.getPaymentIntent() != null) {
-            paymentRepository.findByStripePaymentIntentId(charge.getPaymentIntent())
-                    .ifPresent(payment -> {
-                        BigDecimal refundedAmount = stripeService.convertFromStripeAmount(charge.getAmountRefunded());
-                        payment.setRefundedAmount(refundedAmount);
-                        payment.setRefundedAt(LocalDateTime.now());
-
-                        if (charge.getRefunded()) {
-                            payment.setStatus(PaymentStatus.REFUNDED);
-                        } else {
-                            payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
-                        }
-
-                        paymentRepository.save(payment);
-                        log.info("Updated payment {} refund status", payment.getPaymentNumber());
-                    });
+        if (charge.getPaymentIntent() == null) {
+            return;
         }
+        PaymentStatus target = Boolean.TRUE.equals(charge.getRefunded())
+                ? PaymentStatus.REFUNDED : PaymentStatus.PARTIALLY_REFUNDED;
+        appendUpdate(event, charge.getPaymentIntent(), target,
+                (payment, update) -> update.refundedAmountMinor(charge.getAmountRefunded()));
     }
 }
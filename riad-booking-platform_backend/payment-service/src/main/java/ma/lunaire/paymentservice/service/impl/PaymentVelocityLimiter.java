@@ -0,0 +1,155 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dto.CreatePaymentRequest;
+import ma.lunaire.paymentservice.exception.VelocityLimitExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding-window counts of payment attempts per user, per customer email and per
+ * Stripe payment method, checked before payment creation calls Stripe. Counters are
+ * lock-free and kept in a bounded cache that drops keys idle for a whole window.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentVelocityLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payments.velocity.window-seconds:600}")
+    private long windowSeconds;
+
+    @Value("${payments.velocity.max-per-user:10}")
+    private int maxPerUser;
+
+    @Value("${payments.velocity.max-per-email:10}")
+    private int maxPerEmail;
+
+    @Value("${payments.velocity.max-per-payment-method:5}")
+    private int maxPerPaymentMethod;
+
+    @Value("${payments.velocity.max-tracked-keys:100000}")
+    private long maxTrackedKeys;
+
+    private Clock clock = Clock.systemUTC();
+    private final Map<Dimension, Counter> rejections = new EnumMap<>(Dimension.class);
+    private Cache<VelocityKey, SlidingWindow> windows;
+    private long slotMillis;
+
+    @PostConstruct
+    public void init() {
+        slotMillis = Math.max(1, Duration.ofSeconds(windowSeconds).toMillis() / SlidingWindow.SLOTS);
+        windows = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfterAccess(Duration.ofSeconds(windowSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, windows, "payment-velocity");
+        for (Dimension dimension : Dimension.values()) {
+            rejections.put(dimension, Counter.builder("payments.velocity.rejected")
+                    .description("Payment attempts rejected by the velocity limits")
+                    .tag("dimension", dimension.tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Count the attempt against each of its keys and reject it if any key went over its
+     * limit. Rejected attempts count too, so a client that keeps retrying stays blocked.
+     */
+    public void check(CreatePaymentRequest request) {
+        long now = clock.millis();
+        boolean userExceeded = exceeded(Dimension.USER, String.valueOf(request.getUserId()), maxPerUser, now);
+        boolean emailExceeded = request.getCustomerEmail() != null && exceeded(Dimension.EMAIL,
+                StripeCustomerCache.normalize(request.getCustomerEmail()), maxPerEmail, now);
+        boolean methodExceeded = request.getStripePaymentMethodId() != null && exceeded(Dimension.PAYMENT_METHOD,
+                request.getStripePaymentMethodId(), maxPerPaymentMethod, now);
+
+        if (userExceeded || emailExceeded || methodExceeded) {
+            log.warn("Velocity limit hit for user {} (user: {}, email: {}, payment method: {})",
+                    request.getUserId(), userExceeded, emailExceeded, methodExceeded);
+            throw new VelocityLimitExceededException("Too many payment attempts, retry later",
+                    Math.max(1, slotMillis / 1000));
+        }
+    }
+
+    private boolean exceeded(Dimension dimension, String value, int limit, long now) {
+        if (limit <= 0) {
+            return false;
+        }
+        SlidingWindow window = windows.get(new VelocityKey(dimension, value), key -> new SlidingWindow());
+        if (window.increment(now / slotMillis) <= limit) {
+            return false;
+        }
+        rejections.get(dimension).increment();
+        return true;
+    }
+
+    private enum Dimension {
+        USER("user"),
+        EMAIL("email"),
+        PAYMENT_METHOD("payment_method");
+
+        private final String tag;
+
+        Dimension(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private record VelocityKey(Dimension dimension, String value) {
+    }
+
+    /**
+     * Ring of per-slot counts covering one window. Each slot packs the slot number it
+     * counts for in its high bits and the count in its low bits, so a slot is moved to a
+     * new slot number and counted in a single compare-and-set.
+     */
+    static final class SlidingWindow {
+
+        static final int SLOTS = 10;
+        private static final int COUNT_BITS = 24;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+        private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+
+        /**
+         * Count one attempt in the given slot and return the attempts of the last window.
+         */
+        long increment(long slot) {
+            int index = (int) (slot % SLOTS);
+            long current;
+            long next;
+            do {
+                current = slots.get(index);
+                long count = (current >>> COUNT_BITS) == slot ? current & COUNT_MASK : 0;
+                next = (slot << COUNT_BITS) | Math.min(count + 1, COUNT_MASK);
+            } while (!slots.compareAndSet(index, current, next));
+
+            // The own slot's count comes from the swap, so concurrent attempts see distinct totals
+            long total = next & COUNT_MASK;
+            for (int i = 0; i < SLOTS; i++) {
+                long value = slots.get(i);
+                if (i != index && slot - (value >>> COUNT_BITS) < SLOTS) {
+                    total += value & COUNT_MASK;
+                }
+            }
+            return total;
+        }
+    }
+}
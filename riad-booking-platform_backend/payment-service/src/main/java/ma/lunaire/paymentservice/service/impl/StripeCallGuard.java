@@ -0,0 +1,154 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.RequestOptions;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.exception.StripeUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead, per-operation read timeouts and circuit breaker shared by all Stripe API calls.
+ * When Stripe degrades, payment requests fail fast with {@link StripeUnavailableException}
+ * instead of holding every request thread.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StripeCallGuard {
+
+    static final String NAME = "stripe";
+    public static final String TIMEOUT_PREFIX = "stripe.resilience.timeout-ms.";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.resilience.max-concurrent-calls:50}")
+    private int maxConcurrentCalls;
+
+    @Value("${stripe.resilience.max-wait-ms:100}")
+    private long maxWaitMs;
+
+    @Value("${stripe.resilience.timeout-ms.default:10000}")
+    private int defaultTimeoutMs;
+
+    @Value("${stripe.resilience.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${stripe.resilience.window-size:20}")
+    private int windowSize;
+
+    @Value("${stripe.resilience.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${stripe.resilience.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    @Value("${stripe.resilience.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    private final Map<String, RequestOptions> requestOptions = new ConcurrentHashMap<>();
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+
+    @PostConstruct
+    public void init() {
+        CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(Duration.ofMillis(openDurationMs))
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .recordException(StripeCallGuard::isOutage)
+                .build());
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ofMillis(maxWaitMs))
+                .build());
+
+        circuitBreaker = circuitBreakers.circuitBreaker(NAME);
+        bulkhead = bulkheads.bulkhead(NAME);
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Stripe circuit breaker {}", event.getStateTransition()));
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+    }
+
+    /**
+     * Run one Stripe call with the operation's read timeout, or fail fast when Stripe is
+     * known to be down or already has the maximum number of calls in flight.
+     */
+    public <T> T execute(String operation, StripeCall<T> call) throws StripeException {
+        if (!bulkhead.tryAcquirePermission()) {
+            throw new StripeUnavailableException("Payment provider is busy, please retry shortly");
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                throw new StripeUnavailableException("Payment provider is temporarily unavailable, please retry shortly");
+            }
+            long start = System.nanoTime();
+            try {
+                T result = call.execute(requestOptions(operation));
+                circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (StripeException | RuntimeException e) {
+                circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+                throw e;
+            }
+        } finally {
+            bulkhead.onComplete();
+        }
+    }
+
+    /**
+     * Current circuit breaker state.
+     */
+    public CircuitBreaker.State state() {
+        return circuitBreaker.getState();
+    }
+
+    private RequestOptions requestOptions(String operation) {
+        return requestOptions.computeIfAbsent(operation, op -> RequestOptions.builder()
+                .setReadTimeout(environment.getProperty(TIMEOUT_PREFIX + op, Integer.class, defaultTimeoutMs))
+                .build());
+    }
+
+    /**
+     * Network failures, timeouts, Stripe server errors and rate limiting open the breaker;
+     * declined cards and invalid requests mean Stripe is answering normally.
+     */
+    static boolean isOutage(Throwable e) {
+        if (e instanceof ApiConnectionException || e instanceof ApiException || e instanceof RateLimitException) {
+            return true;
+        }
+        return e instanceof StripeException stripeException
+                && stripeException.getStatusCode() != null
+                && stripeException.getStatusCode() >= 500;
+    }
+
+    @FunctionalInterface
+    public interface StripeCall<T> {
+        T execute(RequestOptions options) throws StripeException;
+    }
+}
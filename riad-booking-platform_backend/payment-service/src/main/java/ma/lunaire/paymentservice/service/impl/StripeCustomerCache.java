@@ -0,0 +1,79 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.StripeCustomer;
+import ma.lunaire.paymentservice.dao.repository.StripeCustomerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Email to Stripe customer id mapping: an in-memory cache in front of the
+ * stripe_customers table. A mapping never changes once written.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StripeCustomerCache {
+
+    private final StripeCustomerRepository stripeCustomerRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.customers.cache-size:10000}")
+    private long cacheSize;
+
+    private Cache<String, String> customerIds;
+
+    @PostConstruct
+    public void init() {
+        customerIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, customerIds, "stripe-customers");
+    }
+
+    /**
+     * Stripe customer id registered for the email, from memory or the local table.
+     */
+    public Optional<String> find(String email) {
+        String key = normalize(email);
+        String cached = customerIds.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<String> stored = stripeCustomerRepository.findByEmail(key).map(StripeCustomer::getStripeCustomerId);
+        stored.ifPresent(customerId -> customerIds.put(key, customerId));
+        return stored;
+    }
+
+    /**
+     * Register a mapping in its own transaction, so it is kept even if the payment that
+     * created the customer rolls back. Throws DataIntegrityViolationException if the
+     * email was registered concurrently.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void remember(String email, String stripeCustomerId) {
+        String key = normalize(email);
+        stripeCustomerRepository.saveAndFlush(StripeCustomer.builder()
+                .email(key)
+                .stripeCustomerId(stripeCustomerId)
+                .build());
+        customerIds.put(key, stripeCustomerId);
+        log.debug("Registered Stripe customer {} for {}", stripeCustomerId, key);
+    }
+
+    static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
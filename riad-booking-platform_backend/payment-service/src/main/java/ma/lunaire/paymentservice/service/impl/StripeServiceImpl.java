@@ -1,21 +1,30 @@
 package ma.lunaire.paymentservice.service.impl;
 
+import com.stripe.StripeClient;
+import com.stripe.exception.InvalidRequestException;
 import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
 import com.stripe.model.Customer;
-import com.stripe.model.CustomerSearchResult;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
+import com.stripe.model.StripeCollection;
+import com.stripe.model.StripeSearchResult;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.exception.StripeUnavailableException;
 import ma.lunaire.paymentservice.service.StripeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Implementation of StripeService for real Stripe API operations.
@@ -25,6 +34,21 @@ import java.util.Map;
 @Slf4j
 public class StripeServiceImpl implements StripeService {
 
+    /**
+     * Expanding the latest charge returns receipt and card details with the PaymentIntent.
+     */
+    private static final String EXPAND_LATEST_CHARGE = "latest_charge";
+
+    private static final long LIST_PAGE_SIZE = 100;
+
+    private final StripeClient stripeClient;
+    private final StripeCallGuard stripeCallGuard;
+    private final StripeCustomerCache stripeCustomerCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.customers.search-fallback:true}")
+    private boolean customerSearchFallback;
+
     @Override
     public PaymentIntent createPaymentIntent(
             Long amount,
@@ -32,7 +56,8 @@ public class StripeServiceImpl implements StripeService {
             String customerId,
             String paymentMethodId,
             String description,
-            Map<String, String> metadata
+            Map<String, String> metadata,
+            String idempotencyKey
     ) {
         try {
             log.info("Creating PaymentIntent for amount: {} {}", amount, currency);
@@ -59,7 +84,9 @@ public class StripeServiceImpl implements StripeService {
                 paramsBuilder.putAllMetadata(metadata);
             }
 
-            PaymentIntent paymentIntent = PaymentIntent.create(paramsBuilder.build());
+            PaymentIntent paymentIntent = timed("payment_intent.create",
+                    options -> stripeClient.paymentIntents().create(paramsBuilder.build(),
+                            withIdempotencyKey(options, idempotencyKey)));
 
             log.info("Created PaymentIntent: {}", paymentIntent.getId());
             return paymentIntent;
@@ -75,15 +102,15 @@ public class StripeServiceImpl implements StripeService {
         try {
             log.info("Confirming PaymentIntent: {}", paymentIntentId);
 
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-
-            PaymentIntentConfirmParams.Builder paramsBuilder = PaymentIntentConfirmParams.builder();
+            PaymentIntentConfirmParams.Builder paramsBuilder = PaymentIntentConfirmParams.builder()
+                    .addExpand(EXPAND_LATEST_CHARGE);
 
             if (paymentMethodId != null && !paymentMethodId.isEmpty()) {
                 paramsBuilder.setPaymentMethod(paymentMethodId);
             }
 
-            PaymentIntent confirmedIntent = paymentIntent.confirm(paramsBuilder.build());
+            PaymentIntent confirmedIntent = timed("payment_intent.confirm",
+                    options -> stripeClient.paymentIntents().confirm(paymentIntentId, paramsBuilder.build(), options));
 
             log.info("Confirmed PaymentIntent: {}, Status: {}", confirmedIntent.getId(), confirmedIntent.getStatus());
             return confirmedIntent;
@@ -99,12 +126,21 @@ public class StripeServiceImpl implements StripeService {
         try {
             log.info("Cancelling PaymentIntent: {}", paymentIntentId);
 
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-            PaymentIntent cancelledIntent = paymentIntent.cancel();
+            PaymentIntent cancelledIntent = timed("payment_intent.cancel",
+                    options -> stripeClient.paymentIntents().cancel(paymentIntentId, options));
 
             log.info("Cancelled PaymentIntent: {}", cancelledIntent.getId());
             return cancelledIntent;
 
+        } catch (InvalidRequestException e) {
+            // Cancelling twice, e.g. an expiry retried after its commit failed, is not an error
+            PaymentIntent current = e.getStripeError() != null ? e.getStripeError().getPaymentIntent() : null;
+            if (current != null && "canceled".equals(current.getStatus())) {
+                log.info("PaymentIntent {} was already cancelled", paymentIntentId);
+                return current;
+            }
+            log.error("Failed to cancel PaymentIntent: {}", e.getMessage());
+            throw new PaymentProcessingException("Failed to cancel payment: " + e.getMessage(), e);
         } catch (StripeException e) {
             log.error("Failed to cancel PaymentIntent: {}", e.getMessage());
             throw new PaymentProcessingException("Failed to cancel payment: " + e.getMessage(), e);
@@ -114,7 +150,11 @@ public class StripeServiceImpl implements StripeService {
     @Override
     public PaymentIntent retrievePaymentIntent(String paymentIntentId) {
         try {
-            return PaymentIntent.retrieve(paymentIntentId);
+            PaymentIntentRetrieveParams params = PaymentIntentRetrieveParams.builder()
+                    .addExpand(EXPAND_LATEST_CHARGE)
+                    .build();
+            return timed("payment_intent.retrieve",
+                    options -> stripeClient.paymentIntents().retrieve(paymentIntentId, params, options));
         } catch (StripeException e) {
             log.error("Failed to retrieve PaymentIntent: {}", e.getMessage());
             throw new PaymentProcessingException("Failed to retrieve payment: " + e.getMessage(), e);
@@ -122,7 +162,40 @@ public class StripeServiceImpl implements StripeService {
     }
 
     @Override
-    public Refund createRefund(String paymentIntentId, Long amount, String reason) {
+    public StripeCollection<PaymentIntent> listPaymentIntents(long createdFrom, long createdTo, String startingAfter) {
+        try {
+            PaymentIntentListParams.Builder paramsBuilder = PaymentIntentListParams.builder()
+                    .setCreated(PaymentIntentListParams.Created.builder()
+                            .setGte(createdFrom)
+                            .setLt(createdTo)
+                            .build())
+                    .setLimit(LIST_PAGE_SIZE)
+                    .addExpand("data." + EXPAND_LATEST_CHARGE);
+
+            if (startingAfter != null) {
+                paramsBuilder.setStartingAfter(startingAfter);
+            }
+
+            return timed("payment_intent.list",
+                    options -> stripeClient.paymentIntents().list(paramsBuilder.build(), options));
+        } catch (StripeException e) {
+            log.error("Failed to list PaymentIntents: {}", e.getMessage());
+            throw new PaymentProcessingException("Failed to list payments: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Charge retrieveCharge(String chargeId) {
+        try {
+            return timed("charge.retrieve", options -> stripeClient.charges().retrieve(chargeId, options));
+        } catch (StripeException e) {
+            log.error("Failed to retrieve Charge: {}", e.getMessage());
+            throw new PaymentProcessingException("Failed to retrieve charge: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Refund createRefund(String paymentIntentId, Long amount, String reason, String idempotencyKey) {
         try {
             log.info("Creating refund for PaymentIntent: {}, amount: {}", paymentIntentId, amount);
 
@@ -144,7 +217,8 @@ public class StripeServiceImpl implements StripeService {
                 }
             }
 
-            Refund refund = Refund.create(paramsBuilder.build());
+            Refund refund = timed("refund.create", options -> stripeClient.refunds().create(paramsBuilder.build(),
+                    withIdempotencyKey(options, idempotencyKey)));
 
             log.info("Created Refund: {}", refund.getId());
             return refund;
@@ -156,58 +230,98 @@ public class StripeServiceImpl implements StripeService {
     }
 
     @Override
-    public Customer createOrRetrieveCustomer(String email, String name, Map<String, String> metadata) {
-        try {
-            // First, try to find existing customer by email
-            CustomerSearchParams searchParams = CustomerSearchParams.builder()
-                    .setQuery("email:'" + email + "'")
-                    .build();
+    public String getOrCreateCustomerId(String email, String name, Map<String, String> metadata) {
+        Optional<String> known = stripeCustomerCache.find(email);
+        if (known.isPresent()) {
+            return known.get();
+        }
 
-            CustomerSearchResult searchResult = Customer.search(searchParams);
+        try {
+            // Customers created before the local mapping existed are only known to Stripe
+            String customerId = customerSearchFallback ? searchCustomerId(email) : null;
+            if (customerId == null) {
+                customerId = createCustomer(email, name, metadata).getId();
+            }
 
-            if (!searchResult.getData().isEmpty()) {
-                log.info("Found existing customer for email: {}", email);
-                return searchResult.getData().get(0);
+            try {
+                stripeCustomerCache.remember(email, customerId);
+            } catch (DataIntegrityViolationException e) {
+                // Another payment for the same email registered its customer first
+                String registered = stripeCustomerCache.find(email).orElse(customerId);
+                if (!registered.equals(customerId)) {
+                    log.warn("Concurrent customer creation for {}: keeping {}, {} is unused", email, registered, customerId);
+                }
+                return registered;
             }
+            return customerId;
 
-            // Create new customer
-            log.info("Creating new customer for email: {}", email);
+        } catch (StripeException e) {
+            log.error("Failed to create/retrieve customer: {}", e.getMessage());
+            throw new PaymentProcessingException("Failed to process customer: " + e.getMessage(), e);
+        }
+    }
 
-            CustomerCreateParams.Builder paramsBuilder = CustomerCreateParams.builder()
-                    .setEmail(email);
+    private String searchCustomerId(String email) throws StripeException {
+        CustomerSearchParams searchParams = CustomerSearchParams.builder()
+                .setQuery("email:'" + email + "'")
+                .build();
 
-            if (name != null && !name.isEmpty()) {
-                paramsBuilder.setName(name);
-            }
+        StripeSearchResult<Customer> searchResult = timed("customer.search",
+                options -> stripeClient.customers().search(searchParams, options));
 
-            if (metadata != null && !metadata.isEmpty()) {
-                paramsBuilder.putAllMetadata(metadata);
-            }
+        if (!searchResult.getData().isEmpty()) {
+            log.info("Found existing customer for email: {}", email);
+            return searchResult.getData().get(0).getId();
+        }
+        return null;
+    }
 
-            Customer customer = Customer.create(paramsBuilder.build());
+    private Customer createCustomer(String email, String name, Map<String, String> metadata) throws StripeException {
+        log.info("Creating new customer for email: {}", email);
 
-            log.info("Created customer: {}", customer.getId());
-            return customer;
+        CustomerCreateParams.Builder paramsBuilder = CustomerCreateParams.builder()
+                .setEmail(email);
 
-        } catch (StripeException e) {
-            log.error("Failed to create/retrieve customer: {}", e.getMessage());
-            throw new PaymentProcessingException("Failed to process customer: " + e.getMessage(), e);
+        if (name != null && !name.isEmpty()) {
+            paramsBuilder.setName(name);
         }
+
+        if (metadata != null && !metadata.isEmpty()) {
+            paramsBuilder.putAllMetadata(metadata);
+        }
+
+        Customer customer = timed("customer.create", options -> stripeClient.customers().create(paramsBuilder.build(), options));
+
+        log.info("Created customer: {}", customer.getId());
+        return customer;
     }
 
-    @Override
-    public Long convertToStripeAmount(BigDecimal amount) {
-        // Stripe uses smallest currency unit (centimes for MAD)
-        // 1 MAD = 100 centimes
-        return amount.multiply(BigDecimal.valueOf(100))
-                .setScale(0, RoundingMode.HALF_UP)
-                .longValue();
+    private static RequestOptions withIdempotencyKey(RequestOptions options, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return options;
+        }
+        return options.toBuilderFullCopy().setIdempotencyKey(idempotencyKey).build();
     }
 
-    @Override
-    public BigDecimal convertFromStripeAmount(Long stripeAmount) {
-        return BigDecimal.valueOf(stripeAmount)
-                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+    /**
+     * Run one Stripe API call through the guard, recording its latency as {@code stripe.api.calls}.
+     */
+    private <T> T timed(String operation, StripeCallGuard.StripeCall<T> call) throws StripeException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = stripeCallGuard.execute(operation, call);
+            outcome = "success";
+            return result;
+        } catch (StripeUnavailableException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("stripe.api.calls")
+                    .description("Latency of individual Stripe API calls")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
     }
 }
-
@@ -0,0 +1,98 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of single-threaded worker lanes. Events are routed by PaymentIntent,
+ * so events for one intent run one after the other in arrival order while different
+ * intents proceed in parallel. A full lane rejects the event, which stays stored for
+ * the recovery poller.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookEventDispatcher {
+
+    private final WebhookEventProcessor webhookEventProcessor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.webhook.workers:4}")
+    private int workers;
+
+    @Value("${stripe.webhook.lane-capacity:1000}")
+    private int laneCapacity;
+
+    private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            lanes.add(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(laneCapacity),
+                    Thread.ofPlatform().name("stripe-webhook-" + i).factory()));
+        }
+        Gauge.builder("stripe.webhook.queue.depth", inFlight, Set::size)
+                .description("Webhook events queued or running in the worker lanes")
+                .register(meterRegistry);
+        log.info("Stripe webhook dispatcher started with {} lanes of {} events", workers, laneCapacity);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        lanes.forEach(ThreadPoolExecutor::shutdown);
+        for (ThreadPoolExecutor lane : lanes) {
+            // Whatever is left stays PENDING in the database and is recovered on restart
+            if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                lane.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Queue an event on its lane. Returns false if it was already queued or the lane is full.
+     */
+    public boolean dispatch(Long eventId, String orderingKey) {
+        if (!inFlight.add(eventId)) {
+            return false;
+        }
+        try {
+            lanes.get(Math.floorMod(orderingKey.hashCode(), lanes.size())).execute(() -> run(eventId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(eventId);
+            log.warn("Webhook lane for {} is full, event {} left for the recovery poller", orderingKey, eventId);
+            return false;
+        }
+    }
+
+    private void run(Long eventId) {
+        try {
+            webhookEventProcessor.process(eventId);
+        } catch (Exception e) {
+            try {
+                webhookEventProcessor.recordFailure(eventId, e);
+            } catch (Exception recordError) {
+                log.error("Could not record failure of webhook event {}: {}", eventId, recordError.getMessage());
+            }
+        } finally {
+            inFlight.remove(eventId);
+        }
+    }
+}
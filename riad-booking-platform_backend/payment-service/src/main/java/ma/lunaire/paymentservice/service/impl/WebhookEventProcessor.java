@@ -0,0 +1,135 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.StripeWebhookEvent;
+import ma.lunaire.paymentservice.dao.entity.WebhookEventStatus;
+import ma.lunaire.paymentservice.dao.repository.StripeWebhookEventRepository;
+import ma.lunaire.paymentservice.service.PaymentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Runs the payment handler for one stored event. The payment update it appends and
+ * the PROCESSED mark commit in the same transaction, and the event's version stops a
+ * second worker (or instance) from appending it twice.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookEventProcessor {
+
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final PaymentService paymentService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.webhook.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    @Value("${stripe.webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    /**
+     * What happened to an event handed to {@link #process(Long)}.
+     */
+    public enum Outcome {
+        PROCESSED,
+        /** An earlier event for the same PaymentIntent is still pending. */
+        DEFERRED,
+        /** Already processed, failed for good or no longer stored. */
+        SKIPPED
+    }
+
+    @Transactional
+    public Outcome process(Long eventId) {
+        StripeWebhookEvent stored = webhookEventRepository.findById(eventId).orElse(null);
+        if (stored == null || stored.getStatus() != WebhookEventStatus.PENDING) {
+            return Outcome.SKIPPED;
+        }
+
+        if (webhookEventRepository.existsByOrderingKeyAndStatusAndIdLessThan(
+                stored.getOrderingKey(), WebhookEventStatus.PENDING, eventId)) {
+            stored.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(retryDelayMs)));
+            meterRegistry.counter("stripe.webhook.events", "outcome", "deferred").increment();
+            log.debug("Deferring event {}, an earlier event for {} is pending", stored.getEventId(), stored.getOrderingKey());
+            return Outcome.DEFERRED;
+        }
+
+        Event event = ApiResource.GSON.fromJson(stored.getPayload(), Event.class);
+        paymentService.handleStripeEvent(event);
+
+        LocalDateTime now = LocalDateTime.now();
+        stored.setStatus(WebhookEventStatus.PROCESSED);
+        stored.setProcessedAt(now);
+        stored.setAttempts(stored.getAttempts() + 1);
+        stored.setLastError(null);
+
+        meterRegistry.counter("stripe.webhook.events", "outcome", "processed").increment();
+        Timer.builder("stripe.webhook.lag")
+                .description("Time from webhook receipt to committed processing")
+                .register(meterRegistry)
+                .record(Duration.between(stored.getReceivedAt(), now));
+        return Outcome.PROCESSED;
+    }
+
+    /**
+     * Apply a stored event again whatever its status, for a replay after an outage.
+     * A pending or failed event counts as processed once it has been applied.
+     */
+    @Transactional
+    public void replay(Long eventId) {
+        StripeWebhookEvent stored = webhookEventRepository.findById(eventId).orElse(null);
+        if (stored == null) {
+            return;
+        }
+
+        paymentService.handleStripeEvent(ApiResource.GSON.fromJson(stored.getPayload(), Event.class));
+
+        if (stored.getStatus() != WebhookEventStatus.PROCESSED) {
+            stored.setStatus(WebhookEventStatus.PROCESSED);
+            stored.setProcessedAt(LocalDateTime.now());
+            stored.setLastError(null);
+        }
+    }
+
+    /**
+     * Record a failed attempt: retry later with exponential backoff, or give up after max-attempts.
+     */
+    @Transactional
+    public void recordFailure(Long eventId, Exception error) {
+        StripeWebhookEvent stored = webhookEventRepository.findById(eventId).orElse(null);
+        if (stored == null || stored.getStatus() != WebhookEventStatus.PENDING) {
+            return;
+        }
+
+        int attempts = stored.getAttempts() + 1;
+        stored.setAttempts(attempts);
+        stored.setLastError(truncate(String.valueOf(error.getMessage())));
+
+        if (attempts >= maxAttempts) {
+            stored.setStatus(WebhookEventStatus.FAILED);
+            meterRegistry.counter("stripe.webhook.events", "outcome", "failed").increment();
+            log.error("Giving up on Stripe event {} after {} attempts: {}", stored.getEventId(), attempts, error.getMessage());
+        } else {
+            long delayMs = retryDelayMs << Math.min(attempts - 1, MAX_BACKOFF_SHIFT);
+            stored.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delayMs)));
+            meterRegistry.counter("stripe.webhook.events", "outcome", "retried").increment();
+            log.warn("Stripe event {} failed (attempt {}), retrying in {} ms: {}",
+                    stored.getEventId(), attempts, delayMs, error.getMessage());
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+}
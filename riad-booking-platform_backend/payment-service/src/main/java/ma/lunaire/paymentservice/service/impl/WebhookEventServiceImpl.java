@@ -0,0 +1,126 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.config.StripeConfig;
+import ma.lunaire.paymentservice.dao.entity.StripeWebhookEvent;
+import ma.lunaire.paymentservice.dao.entity.WebhookEventStatus;
+import ma.lunaire.paymentservice.dao.repository.StripeWebhookEventRepository;
+import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.service.WebhookEventService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stores verified webhook events and hands them to {@link WebhookEventDispatcher}.
+ * Not transactional on purpose: the row must be committed before a worker looks it up.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookEventServiceImpl implements WebhookEventService {
+
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final WebhookEventDispatcher webhookEventDispatcher;
+    private final StripeConfig stripeConfig;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.webhook.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    @Value("${stripe.webhook.recovery-batch-size:500}")
+    private int recoveryBatchSize;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("stripe.webhook.backlog", webhookEventRepository,
+                        repository -> repository.countByStatus(WebhookEventStatus.PENDING))
+                .description("Stored webhook events not processed yet")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean ingest(String payload, String sigHeader) {
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, sigHeader, stripeConfig.getWebhookSecret());
+        } catch (SignatureVerificationException e) {
+            log.error("Webhook signature verification failed: {}", e.getMessage());
+            throw new PaymentProcessingException("Invalid webhook signature", e);
+        }
+
+        if (webhookEventRepository.existsByEventId(event.getId())) {
+            return duplicate(event);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        StripeWebhookEvent stored;
+        try {
+            stored = webhookEventRepository.saveAndFlush(StripeWebhookEvent.builder()
+                    .eventId(event.getId())
+                    .type(event.getType())
+                    .orderingKey(orderingKey(event))
+                    .payload(payload)
+                    .receivedAt(now)
+                    // Queued right away; the poller only steps in if that did not happen
+                    .nextAttemptAt(now.plus(Duration.ofMillis(retryDelayMs)))
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Concurrent delivery of the same event won the unique key
+            return duplicate(event);
+        }
+
+        meterRegistry.counter("stripe.webhook.events", "outcome", "accepted").increment();
+        log.info("Stored Stripe event {} ({}) for {}", event.getId(), event.getType(), stored.getOrderingKey());
+        webhookEventDispatcher.dispatch(stored.getId(), stored.getOrderingKey());
+        return true;
+    }
+
+    @Override
+    public int recoverPending() {
+        List<StripeWebhookEvent> due = webhookEventRepository.findDue(
+                LocalDateTime.now(), PageRequest.of(0, recoveryBatchSize));
+        int queued = 0;
+        for (StripeWebhookEvent event : due) {
+            if (webhookEventDispatcher.dispatch(event.getId(), event.getOrderingKey())) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * The PaymentIntent an event is about, so its events share a worker lane.
+     */
+    static String orderingKey(Event event) {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        if (object instanceof PaymentIntent paymentIntent) {
+            return paymentIntent.getId();
+        }
+        if (object instanceof Charge charge && charge.getPaymentIntent() != null) {
+            return charge.getPaymentIntent();
+        }
+        return event.getId();
+    }
+
+    private boolean duplicate(Event event) {
+        meterRegistry.counter("stripe.webhook.events", "outcome", "duplicate").increment();
+        log.info("Ignoring duplicate Stripe event {}", event.getId());
+        return false;
+    }
+}
@@ -0,0 +1,328 @@
+package ma.lunaire.paymentservice.service.impl;
+
+import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.lunaire.paymentservice.dao.entity.WebhookReplayCheckpoint;
+import ma.lunaire.paymentservice.dao.repository.StripeWebhookEventRepository;
+import ma.lunaire.paymentservice.dao.repository.WebhookReplayCheckpointRepository;
+import ma.lunaire.paymentservice.dto.WebhookReplayRequest;
+import ma.lunaire.paymentservice.dto.WebhookReplayResult;
+import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
+import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.service.PaymentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Replays Stripe events through the payment handlers after an outage, either the
+ * stored events of a time range (whatever their status) or a local export file.
+ * Events are read in chunks; within a chunk, events of different PaymentIntents run
+ * in parallel lanes and events of one PaymentIntent run in order. The checkpoint is
+ * saved after each chunk, so running the same replay again resumes after it.
+ * <p>
+ * Handlers skip events older than the latest one applied to the payment, and never move
+ * a payment back from a status Stripe cannot leave (a refunded payment to COMPLETED, say),
+ * whether that status came from a webhook or an API call such as a refund. Replaying an
+ * event superseded since therefore leaves the payment as it is. A failed event stops
+ * the replay before the next checkpoint; running it again retries the whole chunk.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookReplayer {
+
+    private static final String STORED_SOURCE = "stored";
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final WebhookReplayCheckpointRepository checkpointRepository;
+    private final WebhookEventProcessor webhookEventProcessor;
+    private final PaymentService paymentService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.webhook.replay.workers:8}")
+    private int workers;
+
+    @Value("${stripe.webhook.replay.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${stripe.webhook.replay.directory:replay}")
+    private String directory;
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Run a replay to its end, or until an event fails. Blocks until then.
+     */
+    public WebhookReplayResult replay(WebhookReplayRequest request) {
+        String replayId = request.getReplayId();
+        if (!running.add(replayId)) {
+            throw new InvalidPaymentOperationException("Replay " + replayId + " is already running");
+        }
+        try {
+            return run(request);
+        } finally {
+            running.remove(replayId);
+        }
+    }
+
+    private WebhookReplayResult run(WebhookReplayRequest request) {
+        String source = request.getFile() != null ? "file:" + request.getFile() : STORED_SOURCE;
+        WebhookReplayCheckpoint checkpoint = checkpointRepository.findById(request.getReplayId())
+                .orElseGet(() -> WebhookReplayCheckpoint.builder()
+                        .replayId(request.getReplayId())
+                        .source(source)
+                        .build());
+        if (!checkpoint.getSource().equals(source)) {
+            throw new InvalidPaymentOperationException(
+                    "Replay " + request.getReplayId() + " was started from " + checkpoint.getSource());
+        }
+
+        long resumedFrom = checkpoint.getPosition();
+        log.info("Replaying Stripe events from {} as {}, after position {}", source, request.getReplayId(), resumedFrom);
+
+        Timer chunkTimer = meterRegistry.timer("stripe.webhook.replay.chunk");
+        long started = System.nanoTime();
+        long replayed = 0;
+        long failed = 0;
+        try (ReplaySource events = open(request, resumedFrom);
+             ExecutorService executor = Executors.newFixedThreadPool(workers,
+                     Thread.ofPlatform().name("stripe-webhook-replay-", 0).factory())) {
+            List<ReplayEvent> chunk;
+            while (failed == 0 && !(chunk = events.next(chunkSize)).isEmpty()) {
+                long chunkStarted = System.nanoTime();
+                ChunkResult result = replayChunk(chunk, executor);
+                chunkTimer.record(Duration.ofNanos(System.nanoTime() - chunkStarted));
+                replayed += result.replayed();
+                failed = result.failed();
+                if (failed == 0) {
+                    checkpoint.setPosition(chunk.getLast().position());
+                    checkpoint.setReplayed(checkpoint.getReplayed() + result.replayed());
+                    checkpoint = saveCheckpoint(checkpoint, false);
+                    log.debug("Replay {} reached position {} ({} events/s)", request.getReplayId(),
+                            checkpoint.getPosition(), eventsPerSecond(replayed, started));
+                }
+            }
+        } catch (IOException e) {
+            throw new PaymentProcessingException("Could not read replay file " + request.getFile(), e);
+        }
+
+        if (failed == 0) {
+            checkpoint = saveCheckpoint(checkpoint, true);
+        }
+        meterRegistry.counter("stripe.webhook.replay.events", "outcome", "replayed").increment(replayed);
+        meterRegistry.counter("stripe.webhook.replay.events", "outcome", "failed").increment(failed);
+
+        WebhookReplayResult result = WebhookReplayResult.builder()
+                .replayId(request.getReplayId())
+                .source(source)
+                .resumedFrom(resumedFrom)
+                .position(checkpoint.getPosition())
+                .replayed(replayed)
+                .failed(failed)
+                .completed(failed == 0)
+                .elapsedMs(Duration.ofNanos(System.nanoTime() - started).toMillis())
+                .eventsPerSecond(eventsPerSecond(replayed, started))
+                .build();
+        log.info("Replay {} {} at position {}: {} events replayed, {} failed, {} events/s", result.getReplayId(),
+                result.isCompleted() ? "completed" : "stopped", result.getPosition(), replayed, failed,
+                Math.round(result.getEventsPerSecond()));
+        return result;
+    }
+
+    private ChunkResult replayChunk(List<ReplayEvent> chunk, ExecutorService executor) {
+        // Grouping keeps the chunk order within each lane, and a PaymentIntent always maps to one lane
+        Map<Integer, List<ReplayEvent>> lanes = chunk.stream()
+                .collect(Collectors.groupingBy(event -> Math.floorMod(event.orderingKey().hashCode(), workers)));
+
+        AtomicLong replayed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<Callable<Void>> tasks = lanes.values().stream()
+                .<Callable<Void>>map(lane -> () -> {
+                    replayLane(lane, replayed, failed);
+                    return null;
+                })
+                .toList();
+        try {
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentProcessingException("Webhook replay interrupted", e);
+        }
+        return new ChunkResult(replayed.get(), failed.get());
+    }
+
+    private void replayLane(List<ReplayEvent> lane, AtomicLong replayed, AtomicLong failed) {
+        Set<String> failedKeys = new HashSet<>();
+        for (ReplayEvent event : lane) {
+            if (failedKeys.contains(event.orderingKey())) {
+                // Applying later events of the PaymentIntent would break their order
+                failed.incrementAndGet();
+                continue;
+            }
+            try {
+                event.apply().run();
+                replayed.incrementAndGet();
+            } catch (Exception e) {
+                failedKeys.add(event.orderingKey());
+                failed.incrementAndGet();
+                log.warn("Replay of Stripe event {} for {} failed: {}", event.eventId(), event.orderingKey(), e.getMessage());
+            }
+        }
+    }
+
+    private WebhookReplayCheckpoint saveCheckpoint(WebhookReplayCheckpoint checkpoint, boolean completed) {
+        checkpoint.setCompleted(completed);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private ReplaySource open(WebhookReplayRequest request, long position) throws IOException {
+        if (request.getFile() == null) {
+            return new StoredEvents(
+                    request.getFrom() != null ? request.getFrom() : EPOCH,
+                    request.getTo() != null ? request.getTo() : LocalDateTime.now(),
+                    position);
+        }
+        return new FileEvents(resolve(request.getFile()), position);
+    }
+
+    /**
+     * Resolve an export file inside the replay directory, refusing paths that leave it.
+     */
+    private Path resolve(String file) {
+        Path base = Path.of(directory).toAbsolutePath().normalize();
+        Path path = base.resolve(file).normalize();
+        if (!path.startsWith(base) || !Files.isRegularFile(path)) {
+            throw new InvalidPaymentOperationException("Replay file not found: " + file);
+        }
+        return path;
+    }
+
+    private static double eventsPerSecond(long events, long startedNanos) {
+        long elapsedNanos = Math.max(System.nanoTime() - startedNanos, 1);
+        return events * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    private record ReplayEvent(long position, String eventId, String orderingKey, Runnable apply) {
+    }
+
+    private record ChunkResult(long replayed, long failed) {
+    }
+
+    private interface ReplaySource extends Closeable {
+
+        /**
+         * Next events in order, at most {@code max}; empty once the source is exhausted.
+         */
+        List<ReplayEvent> next(int max) throws IOException;
+    }
+
+    /**
+     * Stored events by id, which is their arrival order.
+     */
+    private final class StoredEvents implements ReplaySource {
+
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private long afterId;
+
+        private StoredEvents(LocalDateTime from, LocalDateTime to, long afterId) {
+            this.from = from;
+            this.to = to;
+            this.afterId = afterId;
+        }
+
+        @Override
+        public List<ReplayEvent> next(int max) {
+            List<ReplayEvent> chunk = webhookEventRepository.findForReplay(afterId, from, to, PageRequest.of(0, max))
+                    .stream()
+                    .map(stored -> new ReplayEvent(stored.getId(), stored.getEventId(), stored.getOrderingKey(),
+                            () -> webhookEventProcessor.replay(stored.getId())))
+                    .toList();
+            if (!chunk.isEmpty()) {
+                afterId = chunk.getLast().position();
+            }
+            return chunk;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Export file with one Stripe event JSON per line, oldest first; positions are line numbers.
+     */
+    private final class FileEvents implements ReplaySource {
+
+        private final BufferedReader reader;
+        private long line;
+
+        private FileEvents(Path file, long skipTo) throws IOException {
+            reader = Files.newBufferedReader(file);
+            while (line < skipTo && reader.readLine() != null) {
+                line++;
+            }
+        }
+
+        @Override
+        public List<ReplayEvent> next(int max) throws IOException {
+            List<ReplayEvent> chunk = new ArrayList<>(max);
+            String json;
+            while (chunk.size() < max && (json = reader.readLine()) != null) {
+                line++;
+                if (json.isBlank()) {
+                    continue;
+                }
+                Event event = parse(json);
+                chunk.add(new ReplayEvent(line, event.getId(), WebhookEventServiceImpl.orderingKey(event),
+                        () -> paymentService.handleStripeEvent(event)));
+            }
+            return chunk;
+        }
+
+        private Event parse(String json) {
+            Event event;
+            try {
+                event = ApiResource.GSON.fromJson(json, Event.class);
+            } catch (RuntimeException e) {
+                // Malformed JSON
+                event = null;
+            }
+            if (event == null || event.getId() == null) {
+                throw new InvalidPaymentOperationException("Line " + line + " of the replay file is not a Stripe event");
+            }
+            return event;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ma.lunaire.paymentservice.config;
+
+import ma.lunaire.paymentservice.service.impl.ExchangeRates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Migration tests against an in-memory H2 database holding the decimal-amount payments table.
+ */
+class MinorUnitsMigrationTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ExchangeRates exchangeRates;
+    private MinorUnitsMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migration-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        exchangeRates = mock(ExchangeRates.class);
+        when(exchangeRates.find(any())).thenReturn(Optional.empty());
+        when(exchangeRates.find("MAD")).thenReturn(Optional.of(BigDecimal.ONE));
+        when(exchangeRates.find("EUR")).thenReturn(Optional.of(new BigDecimal("10.85")));
+        migration = new MinorUnitsMigration(dataSource, exchangeRates);
+    }
+
+    private void createLegacyTable() {
+        jdbcTemplate.execute("CREATE TABLE payments (id BIGINT PRIMARY KEY, payment_number VARCHAR(255) NOT NULL, "
+                + "amount NUMERIC(10, 2) NOT NULL, currency VARCHAR(3), refunded_amount NUMERIC(10, 2))");
+    }
+
+    private void insert(long id, String amount, String currency, String refundedAmount) {
+        jdbcTemplate.update("INSERT INTO payments (id, payment_number, amount, currency, refunded_amount) VALUES (?, ?, ?, ?, ?)",
+                id, "PAY-" + id, new BigDecimal(amount), currency,
+                refundedAmount != null ? new BigDecimal(refundedAmount) : null);
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbcTemplate.queryForMap(
+                "SELECT amount_minor, base_amount_minor, refunded_amount_minor, exchange_rate FROM payments WHERE id = ?", id);
+    }
+
+    private List<String> columns() {
+        return jdbcTemplate.queryForList("SELECT LOWER(column_name) FROM information_schema.columns "
+                + "WHERE table_name = 'PAYMENTS' ORDER BY ordinal_position", String.class);
+    }
+
+    @Test
+    @DisplayName("Should convert each row with its own currency exponent and rate")
+    void shouldConvertRowsPerCurrency() {
+        createLegacyTable();
+        insert(1, "1500.00", "MAD", "250.50");
+        insert(2, "120.00", "EUR", null);
+        insert(3, "3000.00", "JPY", null);
+        when(exchangeRates.find("JPY")).thenReturn(Optional.of(new BigDecimal("0.068")));
+
+        assertThat(migration.migrate()).isEqualTo(3);
+
+        assertThat(row(1)).containsEntry("AMOUNT_MINOR", 150000L)
+                .containsEntry("BASE_AMOUNT_MINOR", 150000L)
+                .containsEntry("REFUNDED_AMOUNT_MINOR", 25050L);
+        assertThat(row(2)).containsEntry("AMOUNT_MINOR", 12000L)
+                .containsEntry("BASE_AMOUNT_MINOR", 130200L)
+                .containsEntry("REFUNDED_AMOUNT_MINOR", 0L);
+        assertThat((BigDecimal) row(2).get("EXCHANGE_RATE")).isEqualByComparingTo("10.85");
+        // JPY has no minor unit: 3000 yen, not 300000
+        assertThat(row(3)).containsEntry("AMOUNT_MINOR", 3000L)
+                .containsEntry("BASE_AMOUNT_MINOR", 20400L);
+    }
+
+    @Test
+    @DisplayName("Should drop the decimal columns and make the minor-unit columns NOT NULL")
+    void shouldReplaceDecimalColumns() {
+        createLegacyTable();
+        insert(1, "100.00", "MAD", null);
+
+        migration.migrate();
+
+        assertThat(columns()).doesNotContain("amount", "refunded_amount")
+                .contains("amount_minor", "base_amount_minor", "refunded_amount_minor", "exchange_rate");
+        assertThat(jdbcTemplate.queryForList("SELECT LOWER(column_name) FROM information_schema.columns "
+                + "WHERE table_name = 'PAYMENTS' AND is_nullable = 'NO'", String.class))
+                .contains("amount_minor", "base_amount_minor", "refunded_amount_minor");
+        assertThatThrownBy(() -> jdbcTemplate.update(
+                "INSERT INTO payments (id, payment_number, currency) VALUES (2, 'PAY-2', 'MAD')"))
+                .hasMessageContaining("AMOUNT_MINOR");
+    }
+
+    @Test
+    @DisplayName("Should keep the exchange rate a row already has")
+    void shouldKeepStoredRate() {
+        createLegacyTable();
+        jdbcTemplate.execute("ALTER TABLE payments ADD COLUMN exchange_rate NUMERIC(19, 8)");
+        insert(1, "100.00", "EUR", null);
+        jdbcTemplate.update("UPDATE payments SET exchange_rate = 11 WHERE id = 1");
+
+        migration.migrate();
+
+        assertThat(row(1)).containsEntry("BASE_AMOUNT_MINOR", 110000L);
+    }
+
+    @Test
+    @DisplayName("Should resume after an interrupted run without converting rows twice")
+    void shouldResumeInterruptedRun() {
+        createLegacyTable();
+        insert(1, "100.00", "MAD", null);
+        insert(2, "200.00", "MAD", null);
+        jdbcTemplate.execute("ALTER TABLE payments ADD COLUMN amount_minor BIGINT");
+        jdbcTemplate.execute("ALTER TABLE payments ADD COLUMN base_amount_minor BIGINT");
+        jdbcTemplate.execute("ALTER TABLE payments ADD COLUMN refunded_amount_minor BIGINT");
+        jdbcTemplate.update("UPDATE payments SET amount_minor = 10000, base_amount_minor = 10000, "
+                + "refunded_amount_minor = 0 WHERE id = 1");
+
+        assertThat(migration.migrate()).isEqualTo(1);
+
+        assertThat(row(2)).containsEntry("AMOUNT_MINOR", 20000L);
+        assertThat(migration.migrate()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep the decimal columns when a currency has no rate")
+    void shouldFailOnUnknownCurrency() {
+        createLegacyTable();
+        insert(1, "100.00", "XAF", null);
+
+        assertThatThrownBy(migration::migrate)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("XAF");
+        assertThat(columns()).contains("amount");
+    }
+
+    @Test
+    @DisplayName("Should leave a database without the decimal columns alone")
+    void shouldSkipCurrentSchema() {
+        assertThat(migration.migrate()).isZero();
+
+        jdbcTemplate.execute("CREATE TABLE payments (id BIGINT PRIMARY KEY, amount_minor BIGINT NOT NULL)");
+        assertThat(migration.migrate()).isZero();
+        assertThat(columns()).containsExactly("id", "amount_minor");
+    }
+}
@@ -0,0 +1,66 @@
+package ma.lunaire.paymentservice.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecondLevelCacheConfigTest {
+
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    @DisplayName("Region is bounded by its configured size and TTL")
+    void boundedRegion() {
+        SecondLevelCacheConfig.createRegion(cacheManager, "test-region", 500, Duration.ofMinutes(5));
+
+        CaffeineConfiguration<?, ?> configuration = configurationOf("test-region");
+        assertThat(configuration.getMaximumSize()).hasValue(500);
+        assertThat(configuration.getExpireAfterWrite()).hasValue(Duration.ofMinutes(5).toNanos());
+        assertThat(configuration.isStoreByValue()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Non-positive size and TTL leave the region unbounded")
+    void unboundedRegion() {
+        SecondLevelCacheConfig.createRegion(cacheManager, "test-region", 0, Duration.ZERO);
+
+        CaffeineConfiguration<?, ?> configuration = configurationOf("test-region");
+        assertThat(configuration.getMaximumSize()).isEmpty();
+        assertThat(configuration.getExpireAfterWrite()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Existing region is replaced with the new settings")
+    void replacesExistingRegion() {
+        SecondLevelCacheConfig.createRegion(cacheManager, "test-region", 500, Duration.ofMinutes(5));
+        SecondLevelCacheConfig.createRegion(cacheManager, "test-region", 100, Duration.ofMinutes(1));
+
+        assertThat(configurationOf("test-region").getMaximumSize()).hasValue(100);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CaffeineConfiguration<?, ?> configurationOf(String region) {
+        Cache<Object, Object> cache = cacheManager.getCache(region);
+        return cache.getConfiguration(CaffeineConfiguration.class);
+    }
+}
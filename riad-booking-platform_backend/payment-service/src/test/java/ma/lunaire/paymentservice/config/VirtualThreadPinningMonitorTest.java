@@ -0,0 +1,43 @@
+package ma.lunaire.paymentservice.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for VirtualThreadPinningMonitor.
+ */
+class VirtualThreadPinningMonitorTest {
+
+    @Test
+    @DisplayName("Should attribute pinning inside the Stripe SDK")
+    void shouldAttributeStripeSdk() {
+        List<String> frames = List.of(
+                "sun.net.www.protocol.http.HttpURLConnection.getInputStream",
+                "com.stripe.net.HttpURLConnectionClient.request",
+                "ma.lunaire.paymentservice.service.impl.StripeServiceImpl.createPaymentIntent");
+
+        assertThat(VirtualThreadPinningMonitor.classifySource(frames)).isEqualTo("stripe-sdk");
+    }
+
+    @Test
+    @DisplayName("Should attribute pinning inside the JDBC driver")
+    void shouldAttributeJdbcDriver() {
+        List<String> frames = List.of(
+                "org.postgresql.core.v3.QueryExecutorImpl.execute",
+                "com.zaxxer.hikari.pool.ProxyPreparedStatement.executeQuery");
+
+        assertThat(VirtualThreadPinningMonitor.classifySource(frames)).isEqualTo("jdbc-driver");
+    }
+
+    @Test
+    @DisplayName("Should fall back to other for unknown frames")
+    void shouldFallBackToOther() {
+        assertThat(VirtualThreadPinningMonitor.classifySource(List.of("java.lang.Object.wait")))
+                .isEqualTo("other");
+        assertThat(VirtualThreadPinningMonitor.classifySource(List.of())).isEqualTo("other");
+    }
+}
@@ -1,9 +1,16 @@
 package ma.lunaire.paymentservice.controller;
 
+import ma.lunaire.paymentservice.dao.entity.PaymentEventType;
 import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
 import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dto.BookingPaymentStatus;
+import ma.lunaire.paymentservice.dto.BookingPaymentStatusRequest;
 import ma.lunaire.paymentservice.dto.CreatePaymentRequest;
+import ma.lunaire.paymentservice.dto.PaymentCursorPage;
+import ma.lunaire.paymentservice.dto.PaymentEventResponse;
 import ma.lunaire.paymentservice.dto.PaymentResponse;
+import ma.lunaire.paymentservice.dto.PaymentSearchCriteria;
+import ma.lunaire.paymentservice.dto.PaymentVolume;
 import ma.lunaire.paymentservice.dto.RefundRequest;
 import ma.lunaire.paymentservice.service.PaymentService;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,6 +29,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -72,14 +80,14 @@ class PaymentControllerTest {
         @Test
         @DisplayName("Should create payment and return CREATED status")
         void shouldCreatePaymentAndReturnCreatedStatus() {
-            when(paymentService.createPayment(any(CreatePaymentRequest.class))).thenReturn(paymentResponse);
+            when(paymentService.createPayment(any(CreatePaymentRequest.class), eq("key-1"))).thenReturn(paymentResponse);
 
-            ResponseEntity<PaymentResponse> response = paymentController.createPayment(createRequest);
+            ResponseEntity<PaymentResponse> response = paymentController.createPayment(createRequest, "key-1");
 
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
             assertThat(response.getBody()).isNotNull();
             assertThat(response.getBody().getPaymentNumber()).isEqualTo("PAY-12345678");
-            verify(paymentService).createPayment(createRequest);
+            verify(paymentService).createPayment(createRequest, "key-1");
         }
     }
 
@@ -146,6 +154,40 @@ class PaymentControllerTest {
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
             assertThat(response.getBody()).hasSize(1);
         }
+
+        @Test
+        @DisplayName("Should get payment history")
+        void shouldGetPaymentHistory() {
+            PaymentEventResponse created = PaymentEventResponse.builder()
+                    .id(10L)
+                    .paymentId(1L)
+                    .type(PaymentEventType.CREATED)
+                    .status(PaymentStatus.PENDING)
+                    .build();
+            when(paymentService.getPaymentHistory(1L)).thenReturn(List.of(created));
+
+            ResponseEntity<List<PaymentEventResponse>> response = paymentController.getPaymentHistory(1L);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).containsExactly(created);
+        }
+
+        @Test
+        @DisplayName("Should scroll payments by cursor")
+        void shouldScrollPayments() {
+            PaymentSearchCriteria criteria = PaymentSearchCriteria.builder().userId(1L).build();
+            PaymentCursorPage page = PaymentCursorPage.builder()
+                    .content(List.of(paymentResponse))
+                    .nextCursor("next")
+                    .hasNext(true)
+                    .build();
+            when(paymentService.scrollPayments(criteria, "cursor", 20)).thenReturn(page);
+
+            ResponseEntity<PaymentCursorPage> response = paymentController.scrollPayments(criteria, "cursor", 20);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody().getNextCursor()).isEqualTo("next");
+        }
     }
 
     @Nested
@@ -248,6 +290,35 @@ class PaymentControllerTest {
             assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
             assertThat(response.getBody()).isTrue();
         }
+
+        @Test
+        @DisplayName("Should get payment statuses of several bookings")
+        void shouldGetBookingPaymentStatuses() {
+            List<BookingPaymentStatus> statuses = List.of(
+                    new BookingPaymentStatus(100L, true, new BigDecimal("500.00")),
+                    new BookingPaymentStatus(200L, false, BigDecimal.ZERO));
+            when(paymentService.getBookingPaymentStatuses(List.of(100L, 200L))).thenReturn(statuses);
+
+            ResponseEntity<List<BookingPaymentStatus>> response = paymentController.getBookingPaymentStatuses(
+                    new BookingPaymentStatusRequest(List.of(100L, 200L)));
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(statuses);
+        }
+
+        @Test
+        @DisplayName("Should get payment volume for a date range")
+        void shouldGetPaymentVolume() {
+            LocalDate from = LocalDate.of(2026, 1, 1);
+            LocalDate to = LocalDate.of(2026, 1, 31);
+            List<PaymentVolume> volume = List.of(new PaymentVolume(
+                    "MAD", PaymentStatus.COMPLETED, PaymentMethod.CREDIT_CARD, 3, new BigDecimal("1500.00"), new BigDecimal("1500.00")));
+            when(paymentService.getPaymentVolume(from, to)).thenReturn(volume);
+
+            ResponseEntity<List<PaymentVolume>> response = paymentController.getPaymentVolume(from, to);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(volume);
+        }
     }
 }
-
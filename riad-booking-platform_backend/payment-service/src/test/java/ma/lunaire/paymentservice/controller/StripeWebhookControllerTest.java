@@ -0,0 +1,92 @@
+package ma.lunaire.paymentservice.controller;
+
+import ma.lunaire.paymentservice.dto.WebhookReplayRequest;
+import ma.lunaire.paymentservice.dto.WebhookReplayResult;
+import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.service.WebhookEventService;
+import ma.lunaire.paymentservice.service.impl.WebhookReplayer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StripeWebhookController.
+ */
+@ExtendWith(MockitoExtension.class)
+class StripeWebhookControllerTest {
+
+    @Mock
+    private WebhookEventService webhookEventService;
+
+    @Mock
+    private WebhookReplayer webhookReplayer;
+
+    @InjectMocks
+    private StripeWebhookController controller;
+
+    @Test
+    @DisplayName("Should acknowledge a stored event")
+    void shouldAcknowledgeStoredEvent() {
+        when(webhookEventService.ingest("{}", "sig")).thenReturn(true);
+
+        ResponseEntity<String> response = controller.handleStripeWebhook("{}", "sig");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("Webhook received");
+    }
+
+    @Test
+    @DisplayName("Should acknowledge a duplicate delivery so Stripe stops retrying")
+    void shouldAcknowledgeDuplicate() {
+        when(webhookEventService.ingest("{}", "sig")).thenReturn(false);
+
+        ResponseEntity<String> response = controller.handleStripeWebhook("{}", "sig");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("Duplicate webhook ignored");
+    }
+
+    @Test
+    @DisplayName("Should answer 400 for an invalid signature")
+    void shouldRejectInvalidSignature() {
+        when(webhookEventService.ingest("{}", "sig"))
+                .thenThrow(new PaymentProcessingException("Invalid webhook signature"));
+
+        ResponseEntity<String> response = controller.handleStripeWebhook("{}", "sig");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @DisplayName("Should answer 500 when the event cannot be stored so Stripe retries")
+    void shouldFailWhenStorageFails() {
+        when(webhookEventService.ingest("{}", "sig"))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+
+        ResponseEntity<String> response = controller.handleStripeWebhook("{}", "sig");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    @DisplayName("Should return the result of a replay")
+    void shouldReplayEvents() {
+        WebhookReplayRequest request = WebhookReplayRequest.builder().replayId("outage").build();
+        WebhookReplayResult result = WebhookReplayResult.builder().replayId("outage").replayed(42).completed(true).build();
+        when(webhookReplayer.replay(request)).thenReturn(result);
+
+        ResponseEntity<WebhookReplayResult> response = controller.replayStripeEvents(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(result);
+    }
+}
@@ -5,7 +5,6 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -24,7 +23,7 @@ class PaymentTest {
                 .paymentNumber("PAY-12345678")
                 .bookingId(100L)
                 .userId(1L)
-                .amount(new BigDecimal("500.00"))
+                .amountMinor(50000L)
                 .currency("MAD")
                 .status(PaymentStatus.PENDING)
                 .paymentMethod(PaymentMethod.CREDIT_CARD)
@@ -44,7 +43,7 @@ class PaymentTest {
             assertThat(payment.getPaymentNumber()).isEqualTo("PAY-12345678");
             assertThat(payment.getBookingId()).isEqualTo(100L);
             assertThat(payment.getUserId()).isEqualTo(1L);
-            assertThat(payment.getAmount()).isEqualByComparingTo(new BigDecimal("500.00"));
+            assertThat(payment.getAmountMinor()).isEqualTo(50000L);
             assertThat(payment.getCurrency()).isEqualTo("MAD");
             assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PENDING);
             assertThat(payment.getPaymentMethod()).isEqualTo(PaymentMethod.CREDIT_CARD);
@@ -56,7 +55,7 @@ class PaymentTest {
             Payment newPayment = Payment.builder()
                     .bookingId(100L)
                     .userId(1L)
-                    .amount(new BigDecimal("100.00"))
+                    .amountMinor(10000L)
                     .paymentMethod(PaymentMethod.CASH)
                     .build();
 
@@ -69,7 +68,7 @@ class PaymentTest {
             Payment newPayment = Payment.builder()
                     .bookingId(100L)
                     .userId(1L)
-                    .amount(new BigDecimal("100.00"))
+                    .amountMinor(10000L)
                     .paymentMethod(PaymentMethod.CASH)
                     .build();
 
@@ -100,10 +99,10 @@ class PaymentTest {
         @DisplayName("Should set refund details")
         void shouldSetRefundDetails() {
             LocalDateTime refundedAt = LocalDateTime.now();
-            payment.setRefundedAmount(new BigDecimal("100.00"));
+            payment.setRefundedAmountMinor(10000L);
             payment.setRefundedAt(refundedAt);
 
-            assertThat(payment.getRefundedAmount()).isEqualByComparingTo(new BigDecimal("100.00"));
+            assertThat(payment.getRefundedAmountMinor()).isEqualTo(10000L);
             assertThat(payment.getRefundedAt()).isEqualTo(refundedAt);
         }
 
@@ -125,6 +124,41 @@ class PaymentTest {
         }
     }
 
+    @Nested
+    @DisplayName("Base Amount Tests")
+    class BaseAmountTests {
+
+        @Test
+        @DisplayName("Should keep MAD amounts as they are")
+        void shouldKeepBaseCurrencyAmounts() {
+            payment.setBaseAmountMinor(50000L);
+
+            assertThat(payment.toBaseMinor(12345L)).isEqualTo(12345L);
+        }
+
+        @Test
+        @DisplayName("Should convert in proportion to the base amount fixed at creation")
+        void shouldConvertProportionally() {
+            payment.setCurrency("EUR");
+            payment.setAmountMinor(9999L);
+            payment.setBaseAmountMinor(108489L);
+
+            assertThat(payment.toBaseMinor(9999L)).isEqualTo(108489L);
+            assertThat(payment.toBaseMinor(3333L)).isEqualTo(36163L);
+            assertThat(payment.toBaseMinor(0L)).isZero();
+        }
+
+        @Test
+        @DisplayName("Should not overflow on very large amounts")
+        void shouldNotOverflow() {
+            payment.setCurrency("EUR");
+            payment.setAmountMinor(Long.MAX_VALUE / 4);
+            payment.setBaseAmountMinor(Long.MAX_VALUE / 2);
+
+            assertThat(payment.toBaseMinor(Long.MAX_VALUE / 4)).isEqualTo(Long.MAX_VALUE / 2);
+        }
+    }
+
     @Nested
     @DisplayName("Pre-Persist Tests")
     class PrePersistTests {
@@ -135,7 +169,7 @@ class PaymentTest {
             Payment newPayment = Payment.builder()
                     .bookingId(100L)
                     .userId(1L)
-                    .amount(new BigDecimal("100.00"))
+                    .amountMinor(10000L)
                     .paymentMethod(PaymentMethod.CASH)
                     .build();
 
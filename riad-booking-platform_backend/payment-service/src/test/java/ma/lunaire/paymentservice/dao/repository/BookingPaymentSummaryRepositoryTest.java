@@ -0,0 +1,56 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.BookingPaymentSummary;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.hibernate.autoconfigure.HibernateJpaAutoConfiguration;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.transaction.autoconfigure.TransactionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Summary upsert tests against the in-memory database, on the JPA slice of the application.
+ */
+@SpringBootTest(classes = BookingPaymentSummaryRepositoryTest.JpaSlice.class, properties = "spring.jpa.show-sql=false")
+class BookingPaymentSummaryRepositoryTest {
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Payment.class)
+    @EnableJpaRepositories(basePackageClasses = PaymentRepository.class)
+    static class JpaSlice {
+    }
+
+    @Autowired
+    private BookingPaymentSummaryRepository summaryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("Should insert a missing summary and leave an existing one alone")
+    void shouldInsertOnlyIfAbsent() {
+        Integer inserted = transactionTemplate.execute(status ->
+                summaryRepository.insertIfAbsent(500L, 30000L, 1, 0L));
+        Integer again = transactionTemplate.execute(status ->
+                summaryRepository.insertIfAbsent(500L, 99999L, 7, 100L));
+
+        assertThat(inserted).isEqualTo(1);
+        assertThat(again).isZero();
+        BookingPaymentSummary summary = transactionTemplate.execute(status ->
+                summaryRepository.findForUpdate(500L).orElseThrow());
+        assertThat(summary.getTotalPaidMinor()).isEqualTo(30000L);
+        assertThat(summary.getCompletedPayments()).isEqualTo(1);
+        assertThat(summary.getVersion()).isZero();
+    }
+}
@@ -0,0 +1,101 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import ma.lunaire.paymentservice.config.SecondLevelCacheConfig;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.hibernate.autoconfigure.HibernateJpaAutoConfiguration;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.transaction.autoconfigure.TransactionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Natural-id cache tests against the in-memory database, on the JPA slice of the
+ * application with the second-level cache enabled.
+ */
+@SpringBootTest(classes = PaymentNaturalIdCacheTest.JpaSlice.class, properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class PaymentNaturalIdCacheTest {
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Payment.class)
+    @EnableJpaRepositories(basePackageClasses = PaymentRepository.class)
+    @Import(SecondLevelCacheConfig.class)
+    static class JpaSlice {
+    }
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+    private String paymentNumber;
+
+    @BeforeEach
+    void setUp() {
+        paymentNumber = transactionTemplate.execute(status -> paymentRepository.save(Payment.builder()
+                .bookingId(100L)
+                .userId(1L)
+                .amountMinor(92500L)
+                .baseAmountMinor(92500L)
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .build()).getPaymentNumber());
+        // Saving caches the resolution; start each test from a cold cache
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Should resolve a payment number from the natural-id cache after the first lookup")
+    void shouldResolveFromNaturalIdCache() {
+        assertThat(findByPaymentNumber(paymentNumber)).isPresent();
+        assertThat(findByPaymentNumber(paymentNumber)).isPresent();
+
+        assertThat(statistics.getNaturalIdCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getNaturalIdCachePutCount()).isEqualTo(1);
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getNaturalIdQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should query the database each time for an unknown payment number")
+    void shouldNotCacheUnknownPaymentNumber() {
+        assertThat(findByPaymentNumber("PAY-UNKNOWN")).isEmpty();
+        assertThat(findByPaymentNumber("PAY-UNKNOWN")).isEmpty();
+
+        assertThat(statistics.getNaturalIdCacheHitCount()).isZero();
+        assertThat(statistics.getNaturalIdQueryExecutionCount()).isEqualTo(2);
+    }
+
+    private Optional<Payment> findByPaymentNumber(String number) {
+        return transactionTemplate.execute(status -> paymentRepository.findByPaymentNumber(number));
+    }
+}
@@ -0,0 +1,134 @@
+package ma.lunaire.paymentservice.dao.repository;
+
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.*;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PaymentSpecifications.
+ */
+class PaymentSpecificationsTest {
+
+    private Root<Payment> root;
+    private CriteriaQuery<?> query;
+    private CriteriaBuilder criteriaBuilder;
+    private Path<Object> path;
+    private Predicate predicate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        root = mock(Root.class);
+        query = mock(CriteriaQuery.class);
+        criteriaBuilder = mock(CriteriaBuilder.class);
+        path = mock(Path.class);
+        predicate = mock(Predicate.class);
+    }
+
+    @Nested
+    @DisplayName("Equality Specifications")
+    class EqualitySpecifications {
+
+        @Test
+        @DisplayName("Should return null predicates for missing criteria")
+        void shouldReturnNullForMissingCriteria() {
+            assertThat(PaymentSpecifications.hasBookingId(null).toPredicate(root, query, criteriaBuilder)).isNull();
+            assertThat(PaymentSpecifications.hasPaymentMethod(null).toPredicate(root, query, criteriaBuilder)).isNull();
+            assertThat(PaymentSpecifications.hasPaymentNumber("").toPredicate(root, query, criteriaBuilder)).isNull();
+            assertThat(PaymentSpecifications.hasTransactionId(null).toPredicate(root, query, criteriaBuilder)).isNull();
+        }
+
+        @Test
+        @DisplayName("Should create equal predicate when bookingId is provided")
+        void shouldCreateEqualPredicateForBookingId() {
+            when(root.get("bookingId")).thenReturn(path);
+            when(criteriaBuilder.equal(path, 100L)).thenReturn(predicate);
+
+            Predicate result = PaymentSpecifications.hasBookingId(100L).toPredicate(root, query, criteriaBuilder);
+
+            assertThat(result).isEqualTo(predicate);
+        }
+
+        @Test
+        @DisplayName("Should create equal predicate when payment method is provided")
+        void shouldCreateEqualPredicateForPaymentMethod() {
+            when(root.get("paymentMethod")).thenReturn(path);
+            when(criteriaBuilder.equal(path, PaymentMethod.CREDIT_CARD)).thenReturn(predicate);
+
+            Predicate result = PaymentSpecifications.hasPaymentMethod(PaymentMethod.CREDIT_CARD)
+                    .toPredicate(root, query, criteriaBuilder);
+
+            assertThat(result).isEqualTo(predicate);
+        }
+    }
+
+    @Nested
+    @DisplayName("createdBetween Specification")
+    class CreatedBetweenSpecification {
+
+        @Test
+        @DisplayName("Should return null predicate when both bounds are null")
+        void shouldReturnNullWhenBothBoundsNull() {
+            assertThat(PaymentSpecifications.createdBetween(null, null).toPredicate(root, query, criteriaBuilder)).isNull();
+        }
+
+        @Test
+        @DisplayName("Should use a lower bound only when createdTo is null")
+        void shouldUseLowerBoundOnly() {
+            LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0);
+            Path<LocalDateTime> createdAt = mock(Path.class);
+            doReturn(createdAt).when(root).get("createdAt");
+            when(criteriaBuilder.greaterThanOrEqualTo(createdAt, from)).thenReturn(predicate);
+
+            Predicate result = PaymentSpecifications.createdBetween(from, null).toPredicate(root, query, criteriaBuilder);
+
+            assertThat(result).isEqualTo(predicate);
+        }
+    }
+
+    @Nested
+    @DisplayName("Keyset Specification")
+    class KeysetSpecification {
+
+        @Test
+        @DisplayName("Should select payments created earlier, or at the same time with a lower id")
+        void shouldSelectPaymentsAfterCursor() {
+            LocalDateTime createdAt = LocalDateTime.of(2026, 1, 1, 10, 0);
+            Path<LocalDateTime> createdAtPath = mock(Path.class);
+            Path<Long> idPath = mock(Path.class);
+            Predicate before = mock(Predicate.class);
+            Predicate sameTime = mock(Predicate.class);
+            Predicate lowerId = mock(Predicate.class);
+            Predicate tie = mock(Predicate.class);
+            doReturn(createdAtPath).when(root).get("createdAt");
+            doReturn(idPath).when(root).get("id");
+            when(criteriaBuilder.lessThan(createdAtPath, createdAt)).thenReturn(before);
+            when(criteriaBuilder.equal(createdAtPath, createdAt)).thenReturn(sameTime);
+            when(criteriaBuilder.lessThan(idPath, 42L)).thenReturn(lowerId);
+            when(criteriaBuilder.and(sameTime, lowerId)).thenReturn(tie);
+            when(criteriaBuilder.or(before, tie)).thenReturn(predicate);
+
+            Specification<Payment> spec = PaymentSpecifications.olderThan(createdAt, 42L);
+
+            assertThat(spec.toPredicate(root, query, criteriaBuilder)).isEqualTo(predicate);
+        }
+
+        @Test
+        @DisplayName("Should order newest first with id as tie-breaker")
+        void shouldOrderNewestFirst() {
+            assertThat(PaymentSpecifications.NEWEST_FIRST).containsExactly(
+                    Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+        }
+    }
+}
@@ -47,11 +47,40 @@ class ExceptionTest {
         assertThat(exception.getCause()).isEqualTo(cause);
     }
 
+    @Test
+    @DisplayName("StripeUnavailableException is a PaymentProcessingException")
+    void stripeUnavailableExceptionIsPaymentProcessingException() {
+        StripeUnavailableException exception = new StripeUnavailableException("Stripe is unavailable");
+        assertThat(exception).isInstanceOf(PaymentProcessingException.class);
+        assertThat(exception.getMessage()).isEqualTo("Stripe is unavailable");
+    }
+
     @Test
     @DisplayName("InvalidPaymentOperationException with message")
     void invalidPaymentOperationExceptionWithMessage() {
         InvalidPaymentOperationException exception = new InvalidPaymentOperationException("Invalid operation");
         assertThat(exception.getMessage()).isEqualTo("Invalid operation");
     }
-}
 
+    @Test
+    @DisplayName("IdempotencyKeyConflictException with message")
+    void idempotencyKeyConflictExceptionWithMessage() {
+        IdempotencyKeyConflictException exception = new IdempotencyKeyConflictException("Key in use");
+        assertThat(exception.getMessage()).isEqualTo("Key in use");
+    }
+
+    @Test
+    @DisplayName("RefundInProgressException with message")
+    void refundInProgressExceptionWithMessage() {
+        RefundInProgressException exception = new RefundInProgressException("Refund in progress");
+        assertThat(exception.getMessage()).isEqualTo("Refund in progress");
+    }
+
+    @Test
+    @DisplayName("VelocityLimitExceededException with retry delay")
+    void velocityLimitExceededExceptionWithRetryDelay() {
+        VelocityLimitExceededException exception = new VelocityLimitExceededException("Too many attempts", 60);
+        assertThat(exception.getMessage()).isEqualTo("Too many attempts");
+        assertThat(exception.getRetryAfterSeconds()).isEqualTo(60);
+    }
+}
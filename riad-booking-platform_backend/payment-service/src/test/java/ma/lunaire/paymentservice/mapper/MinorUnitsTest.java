@@ -0,0 +1,71 @@
+package ma.lunaire.paymentservice.mapper;
+
+import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for minor unit conversions.
+ */
+class MinorUnitsTest {
+
+    @Nested
+    @DisplayName("Exponent Tests")
+    class ExponentTests {
+
+        @Test
+        @DisplayName("Should use the ISO 4217 exponent of the currency")
+        void shouldUseIsoExponent() {
+            assertThat(MinorUnits.exponent("MAD")).isEqualTo(2);
+            assertThat(MinorUnits.exponent("eur")).isEqualTo(2);
+            assertThat(MinorUnits.exponent("JPY")).isZero();
+            assertThat(MinorUnits.exponent("KWD")).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Should default to two decimals for a missing or unknown currency")
+        void shouldDefaultToTwoDecimals() {
+            assertThat(MinorUnits.exponent(null)).isEqualTo(2);
+            assertThat(MinorUnits.exponent("XYZ")).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("Conversion Tests")
+    class ConversionTests {
+
+        @Test
+        @DisplayName("Should convert exact amounts both ways")
+        void shouldConvertExactAmounts() {
+            assertThat(MinorUnits.toMinor(new BigDecimal("500.00"), "MAD")).isEqualTo(50000L);
+            assertThat(MinorUnits.toMinor(new BigDecimal("500"), "MAD")).isEqualTo(50000L);
+            assertThat(MinorUnits.toMinor(new BigDecimal("1500"), "JPY")).isEqualTo(1500L);
+            assertThat(MinorUnits.toDecimal(50000L, "MAD")).isEqualTo(new BigDecimal("500.00"));
+            assertThat(MinorUnits.toDecimal(1500L, "JPY")).isEqualTo(new BigDecimal("1500"));
+            assertThat(MinorUnits.toDecimal(null, "MAD")).isNull();
+        }
+
+        @Test
+        @DisplayName("Should reject amounts finer than the minor unit")
+        void shouldRejectSubMinorAmounts() {
+            assertThatThrownBy(() -> MinorUnits.toMinor(new BigDecimal("10.005"), "MAD"))
+                    .isInstanceOf(InvalidPaymentOperationException.class)
+                    .hasMessageContaining("not a valid MAD amount");
+            assertThatThrownBy(() -> MinorUnits.toMinor(new BigDecimal("10.5"), "JPY"))
+                    .isInstanceOf(InvalidPaymentOperationException.class);
+        }
+
+        @Test
+        @DisplayName("Should round computed amounts half up")
+        void shouldRoundComputedAmounts() {
+            assertThat(MinorUnits.roundToMinor(new BigDecimal("1084.8915"), "MAD")).isEqualTo(108489L);
+            assertThat(MinorUnits.roundToMinor(new BigDecimal("1084.895"), "MAD")).isEqualTo(108490L);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ma.lunaire.paymentservice.messaging;
+
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dto.PaymentOutcomeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Unit tests for publishing payment outcomes with publisher confirms.
+ */
+@ExtendWith(MockitoExtension.class)
+class RabbitPaymentOutcomeTransportTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private RabbitPaymentOutcomeTransport transport;
+
+    private final List<PaymentOutcomeMessage> batch = List.of(PaymentOutcomeMessage.builder()
+            .eventId(1L)
+            .paymentId(1L)
+            .bookingId(100L)
+            .status(PaymentStatus.COMPLETED)
+            .amount(new BigDecimal("500.00"))
+            .currency("MAD")
+            .build());
+
+    @BeforeEach
+    void setUp() {
+        transport = new RabbitPaymentOutcomeTransport(rabbitTemplate, JsonMapper.builder().build());
+        ReflectionTestUtils.setField(transport, "exchange", "payments");
+        ReflectionTestUtils.setField(transport, "confirmTimeoutMs", 100L);
+    }
+
+    private void onPublish(Consumer<CorrelationData> broker) {
+        doAnswer(invocation -> {
+            broker.accept(invocation.getArgument(3));
+            return null;
+        }).when(rabbitTemplate).send(eq("payments"), eq(RabbitPaymentOutcomeTransport.ROUTING_KEY),
+                any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    @DisplayName("Should return once the broker confirms the batch")
+    void shouldSendConfirmedBatch() {
+        onPublish(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null)));
+
+        assertThatCode(() -> transport.send(batch)).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Should fail when the broker nacks the batch")
+    void shouldFailOnNack() {
+        onPublish(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(false, "disk alarm")));
+
+        assertThatThrownBy(() -> transport.send(batch))
+                .isInstanceOf(AmqpException.class)
+                .hasMessageContaining("disk alarm");
+    }
+
+    @Test
+    @DisplayName("Should fail when the batch is not routed to any queue")
+    void shouldFailOnReturn() {
+        onPublish(correlation -> {
+            correlation.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()),
+                    312, "NO_ROUTE", "payments", RabbitPaymentOutcomeTransport.ROUTING_KEY));
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+        });
+
+        assertThatThrownBy(() -> transport.send(batch))
+                .isInstanceOf(AmqpException.class)
+                .hasMessageContaining("NO_ROUTE");
+    }
+
+    @Test
+    @DisplayName("Should fail when no confirm arrives in time")
+    void shouldFailWithoutConfirm() {
+        onPublish(correlation -> {
+        });
+
+        assertThatThrownBy(() -> transport.send(batch))
+                .isInstanceOf(AmqpException.class)
+                .hasMessageContaining("No broker confirm");
+    }
+}
@@ -0,0 +1,239 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.dao.entity.BookingPaymentSummary;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.BookingPaymentSummaryRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.service.impl.BookingLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the per-booking payment ledger.
+ */
+@ExtendWith(MockitoExtension.class)
+class BookingLedgerTest {
+
+    private static final Long BOOKING_ID = 100L;
+
+    @Mock
+    private BookingPaymentSummaryRepository summaryRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    private BookingLedger ledger;
+    private BookingPaymentSummary summary;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new BookingLedger(summaryRepository, paymentRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ledger, "cacheSize", 100L);
+        ReflectionTestUtils.setField(ledger, "cacheTtlMs", 60000L);
+        ledger.init();
+
+        summary = BookingPaymentSummary.builder().bookingId(BOOKING_ID).build();
+    }
+
+    @Nested
+    @DisplayName("Recording Tests")
+    class RecordingTests {
+
+        @Test
+        @DisplayName("Should add the amount when a payment completes")
+        void shouldAddAmountOnCompletion() {
+            Payment payment = loadedPayment(PaymentStatus.PENDING);
+            payment.setStatus(PaymentStatus.COMPLETED);
+            when(summaryRepository.findForUpdate(BOOKING_ID)).thenReturn(Optional.of(summary));
+
+            record(payment);
+
+            assertThat(summary.getTotalPaidMinor()).isEqualTo(50000L);
+            assertThat(summary.getCompletedPayments()).isEqualTo(1);
+            assertThat(summary.getLatestStatus()).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(summary.getLatestPaymentId()).isEqualTo(1L);
+        }
+
+        @Test
+        @DisplayName("Should move the amount out of paid and record the refund on a full refund")
+        void shouldApplyRefund() {
+            summary.setTotalPaidMinor(50000L);
+            summary.setCompletedPayments(1);
+            Payment payment = loadedPayment(PaymentStatus.COMPLETED);
+            payment.setStatus(PaymentStatus.REFUNDED);
+            payment.setRefundedAmountMinor(50000L);
+            when(summaryRepository.findForUpdate(BOOKING_ID)).thenReturn(Optional.of(summary));
+
+            record(payment);
+
+            assertThat(summary.getTotalPaidMinor()).isZero();
+            assertThat(summary.getCompletedPayments()).isZero();
+            assertThat(summary.getTotalRefundedMinor()).isEqualTo(50000L);
+        }
+
+        @Test
+        @DisplayName("Should total foreign-currency payments in MAD at their own rate")
+        void shouldTotalInBaseCurrency() {
+            Payment payment = loadedPayment(PaymentStatus.COMPLETED);
+            payment.setCurrency("EUR");
+            payment.setExchangeRate(new BigDecimal("10.85"));
+            payment.setBaseAmountMinor(542500L);
+            payment.markRecorded();
+            summary.setTotalPaidMinor(542500L);
+            summary.setCompletedPayments(1);
+            payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
+            payment.setRefundedAmountMinor(10000L);
+            when(summaryRepository.findForUpdate(BOOKING_ID)).thenReturn(Optional.of(summary));
+
+            record(payment);
+
+            assertThat(summary.getTotalPaidMinor()).isZero();
+            assertThat(summary.getTotalRefundedMinor()).isEqualTo(108500L);
+        }
+
+        @Test
+        @DisplayName("Should net foreign-currency refunds to the base amount once fully refunded")
+        void shouldNetFullForeignRefund() {
+            Payment payment = loadedPayment(PaymentStatus.COMPLETED);
+            payment.setCurrency("EUR");
+            payment.setAmountMinor(10000L);
+            payment.setBaseAmountMinor(108489L);
+            payment.markRecorded();
+            when(summaryRepository.findForUpdate(BOOKING_ID)).thenReturn(Optional.of(summary));
+
+            for (long refunded : new long[]{3333L, 6666L, 10000L}) {
+                payment.setStatus(refunded == 10000L ? PaymentStatus.REFUNDED : PaymentStatus.PARTIALLY_REFUNDED);
+                payment.setRefundedAmountMinor(refunded);
+                record(payment);
+            }
+
+            assertThat(summary.getTotalRefundedMinor()).isEqualTo(108489L);
+        }
+
+        @Test
+        @DisplayName("Should seed a missing summary from the other payments of the booking")
+        void shouldSeedMissingSummary() {
+            Payment payment = Payment.builder()
+                    .id(2L)
+                    .bookingId(BOOKING_ID)
+                    .amountMinor(20000L)
+                    .baseAmountMinor(20000L)
+                    .status(PaymentStatus.PENDING)
+                    .build();
+            Payment committed = Payment.builder()
+                    .id(1L)
+                    .bookingId(BOOKING_ID)
+                    .amountMinor(30000L)
+                    .baseAmountMinor(30000L)
+                    .status(PaymentStatus.COMPLETED)
+                    .build();
+            BookingPaymentSummary seeded = BookingPaymentSummary.builder()
+                    .bookingId(BOOKING_ID)
+                    .totalPaidMinor(30000L)
+                    .completedPayments(1)
+                    .build();
+            when(summaryRepository.findForUpdate(BOOKING_ID)).thenReturn(Optional.empty(), Optional.of(seeded));
+            when(paymentRepository.findByBookingId(BOOKING_ID)).thenReturn(List.of(committed, payment));
+            when(summaryRepository.insertIfAbsent(BOOKING_ID, 30000L, 1, 0L)).thenReturn(1);
+
+            record(payment);
+
+            verify(summaryRepository).insertIfAbsent(BOOKING_ID, 30000L, 1, 0L);
+            assertThat(seeded.getLatestPaymentId()).isEqualTo(2L);
+            assertThat(seeded.getLatestStatus()).isEqualTo(PaymentStatus.PENDING);
+        }
+
+        @Test
+        @DisplayName("Should seed the changed payment at its previous state so the change is applied once")
+        void shouldSeedChangedPaymentBeforeChange() {
+            Payment payment = loadedPayment(PaymentStatus.COMPLETED);
+            payment.setStatus(PaymentStatus.REFUNDED);
+            payment.setRefundedAmountMinor(50000L);
+            BookingPaymentSummary seeded = BookingPaymentSummary.builder()
+                    .bookingId(BOOKING_ID)
+                    .totalPaidMinor(50000L)
+                    .completedPayments(1)
+                    .build();
+            when(summaryRepository.findForUpdate(BOOKING_ID)).thenReturn(Optional.empty(), Optional.of(seeded));
+            // Read in the caller's transaction, so the payment already has its new state
+            when(paymentRepository.findByBookingId(BOOKING_ID)).thenReturn(List.of(payment));
+            when(summaryRepository.insertIfAbsent(BOOKING_ID, 50000L, 1, 0L)).thenReturn(1);
+
+            record(payment);
+
+            assertThat(seeded.getTotalPaidMinor()).isZero();
+            assertThat(seeded.getCompletedPayments()).isZero();
+            assertThat(seeded.getTotalRefundedMinor()).isEqualTo(50000L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Lookup Tests")
+    class LookupTests {
+
+        @Test
+        @DisplayName("Should answer from the summary row and then from memory")
+        void shouldReadSummaryOnce() {
+            summary.setTotalPaidMinor(75000L);
+            summary.setCompletedPayments(2);
+            when(summaryRepository.findById(BOOKING_ID)).thenReturn(Optional.of(summary));
+
+            assertThat(ledger.totalPaidMinor(BOOKING_ID)).isEqualTo(75000L);
+            assertThat(ledger.hasCompletedPayment(BOOKING_ID)).isTrue();
+
+            verify(summaryRepository, times(1)).findById(BOOKING_ID);
+            verifyNoInteractions(paymentRepository);
+        }
+
+        @Test
+        @DisplayName("Should fall back to the aggregate queries for bookings without a summary")
+        void shouldFallBackWithoutSummary() {
+            when(summaryRepository.findById(BOOKING_ID)).thenReturn(Optional.empty());
+            when(paymentRepository.getTotalPaidMinorByBookingId(BOOKING_ID)).thenReturn(10000L);
+            when(paymentRepository.existsByBookingIdAndStatus(BOOKING_ID, PaymentStatus.COMPLETED)).thenReturn(true);
+
+            assertThat(ledger.totalPaidMinor(BOOKING_ID)).isEqualTo(10000L);
+            assertThat(ledger.hasCompletedPayment(BOOKING_ID)).isTrue();
+            verify(summaryRepository, never()).save(any());
+        }
+    }
+
+    /**
+     * Apply the payment's change since it was last recorded, as the PaymentChangeRecorder does.
+     */
+    private void record(Payment payment) {
+        ledger.record(payment, payment.getRecordedStatus(), payment.getRecordedRefundedMinor());
+        payment.markRecorded();
+    }
+
+    /**
+     * A payment as loaded from the database, i.e. already recorded.
+     */
+    private static Payment loadedPayment(PaymentStatus status) {
+        Payment payment = Payment.builder()
+                .id(1L)
+                .bookingId(BOOKING_ID)
+                .amountMinor(50000L)
+                .baseAmountMinor(50000L)
+                .status(status)
+                .build();
+        payment.markRecorded();
+        return payment;
+    }
+}
@@ -0,0 +1,120 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
+import ma.lunaire.paymentservice.service.impl.ExchangeRates;
+import ma.lunaire.paymentservice.service.impl.FileExchangeRateProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the exchange rate snapshot and its file provider.
+ */
+@ExtendWith(MockitoExtension.class)
+class ExchangeRatesTest {
+
+    @Mock
+    private ExchangeRateProvider exchangeRateProvider;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExchangeRates exchangeRates;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        exchangeRates = new ExchangeRates(exchangeRateProvider, meterRegistry);
+    }
+
+    @Nested
+    @DisplayName("Conversion Tests")
+    class ConversionTests {
+
+        @BeforeEach
+        void loadRates() {
+            when(exchangeRateProvider.loadRates()).thenReturn(Map.of("eur", new BigDecimal("10.85")));
+            exchangeRates.init();
+        }
+
+        @Test
+        @DisplayName("Should convert to MAD rounded to centimes")
+        void shouldConvertToBase() {
+            assertThat(exchangeRates.toBase(new BigDecimal("99.99"), "EUR")).hasValueSatisfying(amount ->
+                    assertThat(amount).isEqualByComparingTo("1084.89"));
+        }
+
+        @Test
+        @DisplayName("Should always know MAD, also as the default currency")
+        void shouldKnowBaseCurrency() {
+            assertThat(exchangeRates.rateToBase("MAD")).isEqualByComparingTo("1");
+            assertThat(exchangeRates.rateToBase(null)).isEqualByComparingTo("1");
+        }
+
+        @Test
+        @DisplayName("Should reject a currency without a rate")
+        void shouldRejectUnknownCurrency() {
+            assertThat(exchangeRates.toBase(BigDecimal.TEN, "JPY")).isEmpty();
+            assertThatThrownBy(() -> exchangeRates.rateToBase("JPY"))
+                    .isInstanceOf(InvalidPaymentOperationException.class)
+                    .hasMessageContaining("Unsupported currency");
+        }
+    }
+
+    @Nested
+    @DisplayName("Refresh Tests")
+    class RefreshTests {
+
+        @Test
+        @DisplayName("Should swap in the newly loaded rates")
+        void shouldSwapRates() {
+            when(exchangeRateProvider.loadRates())
+                    .thenReturn(Map.of("EUR", new BigDecimal("10.85")))
+                    .thenReturn(Map.of("EUR", new BigDecimal("11.00"), "USD", new BigDecimal("9.95")));
+            exchangeRates.init();
+
+            exchangeRates.refresh();
+
+            assertThat(exchangeRates.rateToBase("EUR")).isEqualByComparingTo("11.00");
+            assertThat(exchangeRates.rateToBase("USD")).isEqualByComparingTo("9.95");
+        }
+
+        @Test
+        @DisplayName("Should keep the previous rates when a refresh fails or is invalid")
+        void shouldKeepRatesOnFailure() {
+            when(exchangeRateProvider.loadRates())
+                    .thenReturn(Map.of("EUR", new BigDecimal("10.85")))
+                    .thenThrow(new IllegalStateException("Provider down"))
+                    .thenReturn(Map.of("EUR", BigDecimal.ZERO));
+            exchangeRates.init();
+
+            exchangeRates.refresh();
+            exchangeRates.refresh();
+
+            assertThat(exchangeRates.rateToBase("EUR")).isEqualByComparingTo("10.85");
+            assertThat(meterRegistry.get("payments.fx.refresh.failures").counter().count()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Should read the local stand-in rates file")
+    void shouldReadRatesFile() {
+        FileExchangeRateProvider provider = new FileExchangeRateProvider(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(provider, "ratesLocation", "classpath:fx-rates.properties");
+
+        assertThat(provider.loadRates()).containsKeys("EUR", "USD")
+                .allSatisfy((currency, rate) -> assertThat(rate).isPositive());
+    }
+}
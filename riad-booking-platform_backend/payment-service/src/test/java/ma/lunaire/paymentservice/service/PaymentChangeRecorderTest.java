@@ -0,0 +1,118 @@
+package ma.lunaire.paymentservice.service;
+
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.service.impl.BookingLedger;
+import ma.lunaire.paymentservice.service.impl.PaymentChangeRecorder;
+import ma.lunaire.paymentservice.service.impl.PaymentEventLog;
+import ma.lunaire.paymentservice.service.impl.PaymentOutbox;
+import ma.lunaire.paymentservice.service.impl.PaymentRollups;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the fan-out of payment changes.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentChangeRecorderTest {
+
+    @Mock
+    private BookingLedger bookingLedger;
+
+    @Mock
+    private PaymentRollups paymentRollups;
+
+    @Mock
+    private PaymentEventLog paymentEventLog;
+
+    @Mock
+    private PaymentOutbox paymentOutbox;
+
+    private PaymentChangeRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        recorder = new PaymentChangeRecorder(bookingLedger, paymentRollups, paymentEventLog, paymentOutbox);
+    }
+
+    @Test
+    @DisplayName("Should pass a change to every store with the previously recorded state")
+    void shouldPassChangeToEveryStore() {
+        Payment payment = loadedPayment(PaymentStatus.COMPLETED);
+        payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
+        payment.setRefundedAmountMinor(20000L);
+
+        recorder.record(payment);
+
+        verify(bookingLedger).record(payment, PaymentStatus.COMPLETED, 0L);
+        verify(paymentRollups).record(payment, PaymentStatus.COMPLETED);
+        verify(paymentEventLog).append(payment, PaymentStatus.COMPLETED, 0L);
+        verify(paymentOutbox).record(payment, PaymentStatus.COMPLETED);
+        assertThat(payment.getRecordedStatus()).isEqualTo(PaymentStatus.PARTIALLY_REFUNDED);
+        assertThat(payment.getRecordedRefundedMinor()).isEqualTo(20000L);
+    }
+
+    @Test
+    @DisplayName("Should record a new payment with no previous status")
+    void shouldRecordNewPayment() {
+        Payment payment = Payment.builder()
+                .id(1L)
+                .bookingId(100L)
+                .amountMinor(50000L)
+                .baseAmountMinor(50000L)
+                .status(PaymentStatus.PENDING)
+                .build();
+
+        recorder.record(payment);
+
+        verify(bookingLedger).record(payment, null, 0L);
+        verify(paymentOutbox).record(payment, null);
+    }
+
+    @Test
+    @DisplayName("Should record a change only once when a payment is saved twice")
+    void shouldRecordChangeOnce() {
+        Payment payment = loadedPayment(PaymentStatus.PENDING);
+        payment.setStatus(PaymentStatus.COMPLETED);
+
+        recorder.record(payment);
+        recorder.record(payment);
+
+        verify(bookingLedger, times(1)).record(any(), any(), anyLong());
+        verify(paymentRollups, times(1)).record(any(), any());
+        verify(paymentEventLog, times(1)).append(any(), any(), anyLong());
+        verify(paymentOutbox, times(1)).record(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should skip a payment saved without a change")
+    void shouldSkipUnchangedPayment() {
+        recorder.record(loadedPayment(PaymentStatus.COMPLETED));
+
+        verifyNoInteractions(bookingLedger, paymentRollups, paymentEventLog, paymentOutbox);
+    }
+
+    /**
+     * A payment as loaded from the database, i.e. already recorded.
+     */
+    private static Payment loadedPayment(PaymentStatus status) {
+        Payment payment = Payment.builder()
+                .id(1L)
+                .bookingId(100L)
+                .amountMinor(50000L)
+                .baseAmountMinor(50000L)
+                .status(status)
+                .build();
+        payment.markRecorded();
+        return payment;
+    }
+}
@@ -0,0 +1,227 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.entity.PaymentUpdate;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentUpdateRepository;
+import ma.lunaire.paymentservice.service.impl.PaymentChangeRecorder;
+import ma.lunaire.paymentservice.service.impl.PaymentCompactor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for compacting webhook payment updates into their payments.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentCompactorTest {
+
+    @Mock
+    private PaymentUpdateRepository updateRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentChangeRecorder paymentChangeRecorder;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PaymentCompactor compactor;
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        compactor = new PaymentCompactor(updateRepository, paymentRepository, paymentChangeRecorder,
+                transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(compactor, "batchSize", 10);
+        compactor.init();
+
+        payment = Payment.builder()
+                .id(1L)
+                .paymentNumber("PAY-12345678")
+                .amountMinor(50000L)
+                .baseAmountMinor(50000L)
+                .status(PaymentStatus.PENDING)
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should only insert when appending an update")
+    void shouldAppendWithoutTouchingPayment() {
+        PaymentUpdate update = update(10L, PaymentStatus.COMPLETED, 1_767_225_600L).build();
+
+        compactor.append(update);
+
+        verify(updateRepository).save(update);
+        verifyNoInteractions(paymentRepository, paymentChangeRecorder);
+    }
+
+    @Nested
+    @DisplayName("Compaction Tests")
+    class CompactionTests {
+
+        @Test
+        @DisplayName("Should apply updates in order, recording each change, and delete them")
+        void shouldApplyInOrder() {
+            List<PaymentStatus> recorded = recordStatuses();
+            pending(update(10L, PaymentStatus.COMPLETED, 1_767_225_600L)
+                            .receiptUrl("https://pay.stripe.com/receipts/rcpt_1").build(),
+                    update(11L, PaymentStatus.PARTIALLY_REFUNDED, 1_767_225_700L).refundedAmountMinor(20000L).build());
+
+            assertThat(compactor.compact(payment)).isEqualTo(2);
+
+            assertThat(recorded).containsExactly(PaymentStatus.COMPLETED, PaymentStatus.PARTIALLY_REFUNDED);
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PARTIALLY_REFUNDED);
+            assertThat(payment.getRefundedAmountMinor()).isEqualTo(20000L);
+            assertThat(payment.getPaidAt()).isNotNull();
+            assertThat(payment.getStripeReceiptUrl()).isEqualTo("https://pay.stripe.com/receipts/rcpt_1");
+            assertThat(payment.getStripeEventCreated()).isEqualTo(1_767_225_700L);
+            verify(updateRepository).deleteAllByIdInBatch(List.of(10L, 11L));
+        }
+
+        @Test
+        @DisplayName("Should keep a completed payment when an older failure arrives after its success")
+        void shouldIgnoreFailureOlderThanSuccess() {
+            pending(update(10L, PaymentStatus.COMPLETED, 1_767_225_600L).build(),
+                    update(11L, PaymentStatus.FAILED, 1_767_225_540L).failureReason("Card declined").build());
+
+            assertThat(compactor.compact(payment)).isEqualTo(1);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(payment.getFailureReason()).isNull();
+            assertThat(payment.getStripeEventCreated()).isEqualTo(1_767_225_600L);
+            verify(paymentChangeRecorder, times(1)).record(payment);
+            verify(updateRepository).deleteAllByIdInBatch(List.of(10L, 11L));
+        }
+
+        @Test
+        @DisplayName("Should apply a success that follows an earlier failure")
+        void shouldApplySuccessAfterFailure() {
+            pending(update(10L, PaymentStatus.FAILED, 1_767_225_540L).build(),
+                    update(11L, PaymentStatus.COMPLETED, 1_767_225_600L).build());
+
+            assertThat(compactor.compact(payment)).isEqualTo(2);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        }
+
+        @Test
+        @DisplayName("Should keep a payment refunded through the API when its success is replayed")
+        void shouldKeepRefundedPaymentOnReplayedSuccess() {
+            LocalDateTime paidAt = LocalDateTime.of(2026, 1, 1, 10, 0);
+            payment.setStatus(PaymentStatus.REFUNDED);
+            payment.setRefundedAmountMinor(50000L);
+            payment.setPaidAt(paidAt);
+            pending(update(10L, PaymentStatus.COMPLETED, 1_767_225_600L).build());
+
+            assertThat(compactor.compact(payment)).isZero();
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+            assertThat(payment.getPaidAt()).isEqualTo(paidAt);
+            verify(paymentRepository, never()).save(any(Payment.class));
+            verify(updateRepository).deleteAllByIdInBatch(List.of(10L));
+        }
+
+        @Test
+        @DisplayName("Should not lower the refunded amount on a late charge.refunded")
+        void shouldNotLowerRefundedAmount() {
+            payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
+            payment.setRefundedAmountMinor(30000L);
+            pending(update(10L, PaymentStatus.PARTIALLY_REFUNDED, null).refundedAmountMinor(10000L).build());
+
+            compactor.compact(payment);
+
+            assertThat(payment.getRefundedAmountMinor()).isEqualTo(30000L);
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PARTIALLY_REFUNDED);
+        }
+
+        @Test
+        @DisplayName("Should do nothing for a payment without pending updates")
+        void shouldSkipPaymentWithoutUpdates() {
+            when(updateRepository.findByPaymentIdOrderByIdAsc(1L)).thenReturn(List.of());
+
+            assertThat(compactor.compact(payment)).isZero();
+
+            verify(updateRepository, never()).deleteAllByIdInBatch(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Scheduled Compaction Tests")
+    class ScheduledCompactionTests {
+
+        @Test
+        @DisplayName("Should compact each payment under its row lock and go on after a failure")
+        void shouldCompactEachPayment() {
+            when(updateRepository.findPendingPaymentIds(any(Pageable.class))).thenReturn(List.of(1L, 2L));
+            when(paymentRepository.findForUpdate(1L)).thenThrow(new IllegalStateException("Lock timeout"));
+            Payment other = Payment.builder().id(2L).status(PaymentStatus.PENDING).build();
+            when(paymentRepository.findForUpdate(2L)).thenReturn(Optional.of(other));
+            when(updateRepository.findByPaymentIdOrderByIdAsc(2L)).thenReturn(List.of(PaymentUpdate.builder()
+                    .id(20L).paymentId(2L).status(PaymentStatus.FAILED).build()));
+
+            assertThat(compactor.compactPending()).isEqualTo(1);
+
+            assertThat(other.getStatus()).isEqualTo(PaymentStatus.FAILED);
+            verify(updateRepository).deleteAllByIdInBatch(List.of(20L));
+            verify(updateRepository, never()).findByPaymentIdOrderByIdAsc(1L);
+        }
+
+        @Test
+        @DisplayName("Should drop the updates of a payment that no longer exists")
+        void shouldDropUpdatesOfMissingPayment() {
+            when(updateRepository.findPendingPaymentIds(any(Pageable.class))).thenReturn(List.of(3L));
+            when(paymentRepository.findForUpdate(3L)).thenReturn(Optional.empty());
+            when(updateRepository.findByPaymentIdOrderByIdAsc(3L)).thenReturn(List.of(PaymentUpdate.builder()
+                    .id(30L).paymentId(3L).status(PaymentStatus.COMPLETED).build()));
+
+            compactor.compactPending();
+
+            verify(updateRepository).deleteAllByIdInBatch(List.of(30L));
+            verifyNoInteractions(paymentChangeRecorder);
+        }
+    }
+
+    private void pending(PaymentUpdate... updates) {
+        when(updateRepository.findByPaymentIdOrderByIdAsc(1L)).thenReturn(List.of(updates));
+    }
+
+    private List<PaymentStatus> recordStatuses() {
+        List<PaymentStatus> recorded = new ArrayList<>();
+        doAnswer(invocation -> recorded.add(invocation.<Payment>getArgument(0).getStatus()))
+                .when(paymentChangeRecorder).record(payment);
+        return recorded;
+    }
+
+    private static PaymentUpdate.PaymentUpdateBuilder update(Long id, PaymentStatus status, Long eventCreated) {
+        return PaymentUpdate.builder()
+                .id(id)
+                .paymentId(1L)
+                .stripeEventId("evt_" + id)
+                .stripeEventType("test")
+                .stripeEventCreated(eventCreated)
+                .status(status);
+    }
+}
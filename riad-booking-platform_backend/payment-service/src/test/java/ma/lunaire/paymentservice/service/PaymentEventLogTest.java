@@ -0,0 +1,103 @@
+package ma.lunaire.paymentservice.service;
+
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentEvent;
+import ma.lunaire.paymentservice.dao.entity.PaymentEventType;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.PaymentEventRepository;
+import ma.lunaire.paymentservice.service.impl.PaymentEventLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for the append-only payment event log.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentEventLogTest {
+
+    @Mock
+    private PaymentEventRepository eventRepository;
+
+    private PaymentEventLog eventLog;
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        eventLog = new PaymentEventLog(eventRepository);
+        payment = Payment.builder()
+                .id(1L)
+                .amountMinor(50000L)
+                .currency("MAD")
+                .status(PaymentStatus.PENDING)
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should record a new payment with its amount")
+    void shouldRecordCreation() {
+        PaymentEvent event = append(null, 0L);
+
+        assertThat(event.getPaymentId()).isEqualTo(1L);
+        assertThat(event.getType()).isEqualTo(PaymentEventType.CREATED);
+        assertThat(event.getPreviousStatus()).isNull();
+        assertThat(event.getStatus()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(event.getAmountMinor()).isEqualTo(50000L);
+        assertThat(event.getCurrency()).isEqualTo("MAD");
+    }
+
+    @Test
+    @DisplayName("Should record a status change")
+    void shouldRecordStatusChange() {
+        payment.setStatus(PaymentStatus.COMPLETED);
+
+        PaymentEvent event = append(PaymentStatus.PENDING, 0L);
+
+        assertThat(event.getType()).isEqualTo(PaymentEventType.COMPLETED);
+        assertThat(event.getPreviousStatus()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(event.getAmountMinor()).isNull();
+        assertThat(event.getReason()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should record the refunded difference, not the running total")
+    void shouldRecordRefundedDifference() {
+        payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
+        payment.setRefundedAmountMinor(30000L);
+
+        PaymentEvent event = append(PaymentStatus.PARTIALLY_REFUNDED, 10000L);
+
+        assertThat(event.getType()).isEqualTo(PaymentEventType.REFUNDED);
+        assertThat(event.getAmountMinor()).isEqualTo(20000L);
+        assertThat(event.getRefundedAmountMinor()).isEqualTo(30000L);
+    }
+
+    @Test
+    @DisplayName("Should keep the failure reason of a failed payment")
+    void shouldRecordFailureReason() {
+        payment.setStatus(PaymentStatus.FAILED);
+        payment.setFailureReason("Card declined");
+
+        PaymentEvent event = append(PaymentStatus.PROCESSING, 0L);
+
+        assertThat(event.getType()).isEqualTo(PaymentEventType.FAILED);
+        assertThat(event.getReason()).isEqualTo("Card declined");
+    }
+
+    private PaymentEvent append(PaymentStatus previousStatus, long previousRefundedMinor) {
+        eventLog.append(payment, previousStatus, previousRefundedMinor);
+        ArgumentCaptor<PaymentEvent> event = ArgumentCaptor.forClass(PaymentEvent.class);
+        verify(eventRepository).save(event.capture());
+        return event.getValue();
+    }
+}
@@ -0,0 +1,221 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.service.impl.PaymentChangeRecorder;
+import ma.lunaire.paymentservice.service.impl.PaymentExpiryPipeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the stale payment expiry pipeline.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentExpiryPipelineTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final String REASON = "Payment expired - not completed within 24 hours";
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private StripeService stripeService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PaymentChangeRecorder paymentChangeRecorder;
+
+    private MeterRegistry meterRegistry;
+    private PaymentExpiryPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new PaymentExpiryPipeline(paymentRepository, stripeService, transactionTemplate, paymentChangeRecorder, meterRegistry);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 2);
+        ReflectionTestUtils.setField(pipeline, "concurrency", 4);
+        ReflectionTestUtils.setField(pipeline, "requestsPerSecond", 1000);
+        pipeline.init();
+
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("Should cancel every stale payment at Stripe and commit each one on its own")
+    void shouldExpireAllBatches() {
+        List<Payment> first = List.of(pending(1L), pending(2L));
+        List<Payment> second = List.of(pending(3L));
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(0L), eq(Long.MAX_VALUE), any(Pageable.class))).thenReturn(first);
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(2L), eq(Long.MAX_VALUE), any(Pageable.class))).thenReturn(second);
+        stubFindById(first);
+        stubFindById(second);
+
+        int expired = pipeline.expire(CUTOFF, REASON);
+
+        assertThat(expired).isEqualTo(3);
+        verify(stripeService, times(3)).cancelPaymentIntent(anyString());
+        verify(transactionTemplate, times(3)).execute(any());
+        assertThat(first).allSatisfy(payment -> {
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+            assertThat(payment.getFailureReason()).isEqualTo(REASON);
+        });
+        assertThat(outcome("expired")).isEqualTo(3);
+        verify(paymentChangeRecorder, times(3)).record(any(Payment.class));
+    }
+
+    @Test
+    @DisplayName("Should only sweep the payments of the given id range")
+    void shouldExpireIdRange() {
+        Payment payment = pending(150L);
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(100L), eq(200L), any(Pageable.class)))
+                .thenReturn(List.of(payment));
+        stubFindById(List.of(payment));
+
+        assertThat(pipeline.expire(CUTOFF, REASON, 101, 200)).isEqualTo(1);
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+    }
+
+    @Test
+    @DisplayName("Should leave a payment pending when its Stripe cancellation fails")
+    void shouldKeepPaymentPendingWhenStripeFails() {
+        Payment failing = pending(1L);
+        Payment cancelled = pending(2L);
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(0L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(failing, cancelled));
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(2L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of());
+        // Cancellations run on separate threads, so one stubbing answers for every PaymentIntent
+        when(stripeService.cancelPaymentIntent(anyString())).thenAnswer(invocation -> {
+            if ("pi_1".equals(invocation.getArgument(0))) {
+                throw new PaymentProcessingException("Stripe down");
+            }
+            return null;
+        });
+        stubFindById(List.of(cancelled));
+
+        int expired = pipeline.expire(CUTOFF, REASON);
+
+        assertThat(expired).isEqualTo(1);
+        assertThat(failing.getStatus()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(cancelled.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+        assertThat(outcome("stripe_error")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not overwrite a payment settled while Stripe was being called")
+    void shouldSkipPaymentSettledConcurrently() {
+        Payment payment = pending(1L);
+        Payment settled = pending(1L);
+        settled.setStatus(PaymentStatus.COMPLETED);
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(0L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(payment));
+        stubFindById(List.of(settled));
+
+        int expired = pipeline.expire(CUTOFF, REASON);
+
+        assertThat(expired).isZero();
+        assertThat(settled.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(outcome("skipped")).isEqualTo(1);
+        verifyNoInteractions(paymentChangeRecorder);
+    }
+
+    @Test
+    @DisplayName("Should still expire the rest of a batch when one payment changed concurrently")
+    void shouldSkipOnlyPaymentChangedConcurrently() {
+        Payment changed = pending(1L);
+        Payment payment = pending(2L);
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(0L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(changed, payment));
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(2L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of());
+        stubFindById(List.of(changed, payment));
+        doThrow(new ObjectOptimisticLockingFailureException(Payment.class, 1L))
+                .when(paymentChangeRecorder).record(changed);
+
+        int expired = pipeline.expire(CUTOFF, REASON);
+
+        assertThat(expired).isEqualTo(1);
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+        assertThat(outcome("expired")).isEqualTo(1);
+        assertThat(outcome("skipped")).isEqualTo(1);
+        verify(paymentChangeRecorder).record(payment);
+    }
+
+    @Test
+    @DisplayName("Should expire payments without a PaymentIntent without calling Stripe")
+    void shouldExpireWithoutPaymentIntent() {
+        Payment payment = pending(1L);
+        payment.setStripePaymentIntentId(null);
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), eq(0L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(payment));
+        stubFindById(List.of(payment));
+
+        assertThat(pipeline.expire(CUTOFF, REASON)).isEqualTo(1);
+        verifyNoInteractions(stripeService);
+    }
+
+    @Test
+    @DisplayName("Should run Stripe cancellations of a batch in parallel")
+    void shouldCancelInParallel() {
+        ReflectionTestUtils.setField(pipeline, "batchSize", 8);
+        List<Payment> batch = LongStream.rangeClosed(1, 4).mapToObj(PaymentExpiryPipelineTest::pending).toList();
+        when(paymentRepository.findPendingPaymentsOlderThan(eq(CUTOFF), anyLong(), anyLong(), any(Pageable.class)))
+                .thenReturn(batch);
+        stubFindById(batch);
+        when(stripeService.cancelPaymentIntent(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return null;
+        });
+
+        long start = System.nanoTime();
+        assertThat(pipeline.expire(CUTOFF, REASON)).isEqualTo(4);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1000);
+    }
+
+    private void stubFindById(List<Payment> payments) {
+        payments.forEach(payment -> when(paymentRepository.findById(payment.getId())).thenReturn(Optional.of(payment)));
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("payments.expiry.payments").tag("outcome", outcome).counter().count();
+    }
+
+    private static Payment pending(Long id) {
+        return Payment.builder()
+                .id(id)
+                .paymentNumber("PAY-" + id)
+                .status(PaymentStatus.PENDING)
+                .stripePaymentIntentId("pi_" + id)
+                .build();
+    }
+}
@@ -0,0 +1,266 @@
+package ma.lunaire.paymentservice.service;
+
+import ma.lunaire.paymentservice.dao.entity.IdempotencyKeyStatus;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentIdempotencyKey;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.repository.PaymentIdempotencyKeyRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.dto.CreatePaymentRequest;
+import ma.lunaire.paymentservice.dto.PaymentResponse;
+import ma.lunaire.paymentservice.exception.IdempotencyKeyConflictException;
+import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.mapper.PaymentMapper;
+import ma.lunaire.paymentservice.service.impl.PaymentIdempotency;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for Idempotency-Key handling of payment creation.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentIdempotencyTest {
+
+    private static final String KEY = "checkout-42";
+
+    @Mock
+    private PaymentIdempotencyKeyRepository keyRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentMapper paymentMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PaymentIdempotency idempotency;
+    private CreatePaymentRequest request;
+    private PaymentResponse response;
+
+    @BeforeEach
+    void setUp() {
+        idempotency = new PaymentIdempotency(keyRepository, paymentRepository, paymentMapper, transactionManager);
+        ReflectionTestUtils.setField(idempotency, "lockTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(idempotency, "retentionHours", 24L);
+        idempotency.init();
+
+        request = CreatePaymentRequest.builder()
+                .bookingId(100L)
+                .userId(1L)
+                .amount(new BigDecimal("500.00"))
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .build();
+        response = PaymentResponse.builder().id(1L).paymentNumber("PAY-1").build();
+    }
+
+    @Nested
+    @DisplayName("First Request Tests")
+    class FirstRequestTests {
+
+        @Test
+        @DisplayName("Should claim the key and create the payment")
+        void shouldClaimAndCreate() {
+            PaymentResponse result = idempotency.execute(KEY, request, () -> response);
+
+            assertThat(result).isSameAs(response);
+            verify(keyRepository).saveAndFlush(argThat(claim ->
+                    KEY.equals(claim.getIdempotencyKey()) && claim.getStatus() == IdempotencyKeyStatus.IN_PROGRESS));
+            verify(keyRepository, never()).releaseClaim(any());
+        }
+
+        @Test
+        @DisplayName("Should release the claim when creation fails so a retry can run")
+        void shouldReleaseClaimOnFailure() {
+            assertThatThrownBy(() -> idempotency.execute(KEY, request, () -> {
+                throw new PaymentProcessingException("Card declined");
+            })).isInstanceOf(PaymentProcessingException.class);
+
+            verify(keyRepository).releaseClaim(KEY);
+        }
+
+        @Test
+        @DisplayName("Should record the created payment against the key")
+        void shouldCompleteKey() {
+            PaymentIdempotencyKey claim = PaymentIdempotencyKey.builder().idempotencyKey(KEY).build();
+            when(keyRepository.findById(KEY)).thenReturn(Optional.of(claim));
+            response.setRequiresAction(true);
+            response.setNextActionUrl("https://hooks.stripe.com/3ds");
+
+            idempotency.complete(KEY, response);
+
+            assertThat(claim.getStatus()).isEqualTo(IdempotencyKeyStatus.COMPLETED);
+            assertThat(claim.getPaymentId()).isEqualTo(1L);
+            assertThat(claim.isRequiresAction()).isTrue();
+            assertThat(claim.getNextActionUrl()).isEqualTo("https://hooks.stripe.com/3ds");
+        }
+    }
+
+    @Nested
+    @DisplayName("Repeated Key Tests")
+    class RepeatedKeyTests {
+
+        @Test
+        @DisplayName("Should replay a completed key from the stored payment without creating again")
+        @SuppressWarnings("unchecked")
+        void shouldReplayCompletedKey() {
+            Payment payment = Payment.builder().id(1L).build();
+            existingClaim(IdempotencyKeyStatus.COMPLETED);
+            when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
+            when(paymentMapper.toResponse(payment)).thenReturn(response);
+            Supplier<PaymentResponse> creation = mock(Supplier.class);
+
+            PaymentResponse result = idempotency.execute(KEY, request, creation);
+
+            assertThat(result).isSameAs(response);
+            assertThat(result.isRequiresAction()).isTrue();
+            verifyNoInteractions(creation);
+        }
+
+        @Test
+        @DisplayName("Should reject a key that another request still holds")
+        void shouldRejectKeyInProgress() {
+            existingClaim(IdempotencyKeyStatus.IN_PROGRESS);
+            when(keyRepository.takeOverAbandoned(eq(KEY), any(), any())).thenReturn(0);
+
+            assertThatThrownBy(() -> idempotency.execute(KEY, request, () -> response))
+                    .isInstanceOf(IdempotencyKeyConflictException.class)
+                    .hasMessageContaining("in progress");
+        }
+
+        @Test
+        @DisplayName("Should take over a claim abandoned by a request that died")
+        void shouldTakeOverAbandonedClaim() {
+            existingClaim(IdempotencyKeyStatus.IN_PROGRESS);
+            when(keyRepository.takeOverAbandoned(eq(KEY), any(), any())).thenReturn(1);
+
+            assertThat(idempotency.execute(KEY, request, () -> response)).isSameAs(response);
+        }
+
+        @Test
+        @DisplayName("Should reject a key reused for a different request")
+        void shouldRejectDifferentRequest() {
+            when(keyRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+            when(keyRepository.findById(KEY)).thenReturn(Optional.of(PaymentIdempotencyKey.builder()
+                    .idempotencyKey(KEY)
+                    .requestHash("0".repeat(64))
+                    .status(IdempotencyKeyStatus.COMPLETED)
+                    .build()));
+
+            assertThatThrownBy(() -> idempotency.execute(KEY, request, () -> response))
+                    .isInstanceOf(IdempotencyKeyConflictException.class)
+                    .hasMessageContaining("different request");
+        }
+    }
+
+    @Nested
+    @DisplayName("Request Hash Tests")
+    class RequestHashTests {
+
+        @Test
+        @DisplayName("Should treat the same amount and email written differently as the same request")
+        void shouldHashEquivalentRequestsAlike() {
+            assertThat(claimedHash(checkout("500.0", " Guest@Riad.MA ").build()))
+                    .isEqualTo(claimedHash(checkout("500.00", "guest@riad.ma").build()));
+        }
+
+        @Test
+        @DisplayName("Should tell requests apart when a field differs")
+        void shouldHashDifferentRequestsApart() {
+            assertThat(claimedHash(checkout("50.00", "guest@riad.ma").build()))
+                    .isNotEqualTo(claimedHash(checkout("500.00", "guest@riad.ma").build()));
+            assertThat(claimedHash(checkout("500.00", null).description("ab").customerName("c").build()))
+                    .isNotEqualTo(claimedHash(checkout("500.00", null).description("a").customerName("bc").build()));
+        }
+
+        private CreatePaymentRequest.CreatePaymentRequestBuilder checkout(String amount, String email) {
+            return CreatePaymentRequest.builder()
+                    .bookingId(100L)
+                    .userId(1L)
+                    .amount(new BigDecimal(amount))
+                    .paymentMethod(PaymentMethod.CREDIT_CARD)
+                    .customerEmail(email);
+        }
+
+        private String claimedHash(CreatePaymentRequest claimed) {
+            clearInvocations(keyRepository);
+            idempotency.execute(KEY, claimed, () -> response);
+            ArgumentCaptor<PaymentIdempotencyKey> claim = ArgumentCaptor.forClass(PaymentIdempotencyKey.class);
+            verify(keyRepository).saveAndFlush(claim.capture());
+            return claim.getValue().getRequestHash();
+        }
+    }
+
+    @Test
+    @DisplayName("Should collapse concurrent duplicates into one creation")
+    void shouldCollapseConcurrentDuplicates() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger creations = new AtomicInteger();
+        Supplier<PaymentResponse> creation = () -> {
+            creations.incrementAndGet();
+            creating.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return response;
+        };
+
+        CompletableFuture<PaymentResponse> first = CompletableFuture.supplyAsync(
+                () -> idempotency.execute(KEY, request, creation));
+        assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<PaymentResponse> duplicate = CompletableFuture.supplyAsync(
+                () -> idempotency.execute(KEY, request, creation));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(response);
+        assertThat(duplicate.get(5, TimeUnit.SECONDS)).isSameAs(response);
+        assertThat(creations).hasValue(1);
+        verify(keyRepository, times(1)).saveAndFlush(any());
+    }
+
+    /**
+     * Make the claim insert fail as if the key existed with the given status for this request.
+     */
+    private void existingClaim(IdempotencyKeyStatus status) {
+        AtomicReference<String> requestHash = new AtomicReference<>();
+        when(keyRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            requestHash.set(invocation.<PaymentIdempotencyKey>getArgument(0).getRequestHash());
+            throw new DataIntegrityViolationException("duplicate key");
+        });
+        when(keyRepository.findById(KEY)).thenAnswer(invocation -> Optional.of(PaymentIdempotencyKey.builder()
+                .idempotencyKey(KEY)
+                .requestHash(requestHash.get())
+                .status(status)
+                .paymentId(1L)
+                .requiresAction(true)
+                .build()));
+    }
+}
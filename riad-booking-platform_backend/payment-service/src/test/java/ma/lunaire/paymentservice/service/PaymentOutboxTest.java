@@ -0,0 +1,143 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.entity.PaymentOutboxMessage;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.PaymentOutboxRepository;
+import ma.lunaire.paymentservice.dto.PaymentOutcomeMessage;
+import ma.lunaire.paymentservice.messaging.PaymentOutcomeTransport;
+import ma.lunaire.paymentservice.service.impl.PaymentOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the payment outcome outbox.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentOutboxTest {
+
+    @Mock
+    private PaymentOutboxRepository outboxRepository;
+
+    @Mock
+    private PaymentOutcomeTransport paymentOutcomeTransport;
+
+    private PaymentOutbox outbox;
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new PaymentOutbox(outboxRepository, Optional.of(paymentOutcomeTransport), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(outbox, "batchSize", 2);
+        outbox.init();
+
+        payment = Payment.builder()
+                .id(1L)
+                .bookingId(100L)
+                .amountMinor(50000L)
+                .currency("MAD")
+                .status(PaymentStatus.COMPLETED)
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .build();
+    }
+
+    @Nested
+    @DisplayName("Recording Tests")
+    class RecordingTests {
+
+        @Test
+        @DisplayName("Should store an outcome when a payment completes")
+        void shouldStoreCompletion() {
+            outbox.record(payment, PaymentStatus.PROCESSING);
+
+            ArgumentCaptor<PaymentOutboxMessage> stored = ArgumentCaptor.forClass(PaymentOutboxMessage.class);
+            verify(outboxRepository).save(stored.capture());
+            assertThat(stored.getValue().getBookingId()).isEqualTo(100L);
+            assertThat(stored.getValue().getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        }
+
+        @Test
+        @DisplayName("Should ignore changes that are not a new outcome")
+        void shouldIgnoreNonOutcomes() {
+            outbox.record(payment, PaymentStatus.COMPLETED);
+            payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
+            outbox.record(payment, PaymentStatus.COMPLETED);
+
+            verifyNoInteractions(outboxRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Publishing Tests")
+    class PublishingTests {
+
+        @Test
+        @DisplayName("Should publish and delete batches until none is left")
+        @SuppressWarnings("unchecked")
+        void shouldPublishInBatches() {
+            when(outboxRepository.findByOrderByIdAsc(any(Pageable.class)))
+                    .thenReturn(List.of(stored(1L), stored(2L)))
+                    .thenReturn(List.of(stored(3L)));
+
+            int published = outbox.publishPending();
+
+            assertThat(published).isEqualTo(3);
+            ArgumentCaptor<List<PaymentOutcomeMessage>> batches = ArgumentCaptor.forClass(List.class);
+            verify(paymentOutcomeTransport, times(2)).send(batches.capture());
+            assertThat(batches.getAllValues().get(0)).extracting(PaymentOutcomeMessage::getEventId)
+                    .containsExactly(1L, 2L);
+            assertThat(batches.getAllValues().get(0).get(0).getAmount()).isEqualByComparingTo("500.00");
+            verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+            verify(outboxRepository).deleteAllByIdInBatch(List.of(3L));
+        }
+
+        @Test
+        @DisplayName("Should keep a batch that failed to send")
+        void shouldKeepFailedBatch() {
+            when(outboxRepository.findByOrderByIdAsc(any(Pageable.class))).thenReturn(List.of(stored(1L)));
+            doThrow(new IllegalStateException("Broker unreachable")).when(paymentOutcomeTransport).send(any());
+
+            assertThatThrownBy(() -> outbox.publishPending()).isInstanceOf(IllegalStateException.class);
+            verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+        }
+
+        @Test
+        @DisplayName("Should keep outcomes stored when no transport is configured")
+        void shouldKeepOutcomesWithoutTransport() {
+            PaymentOutbox withoutTransport = new PaymentOutbox(outboxRepository, Optional.empty(), new SimpleMeterRegistry());
+            withoutTransport.init();
+
+            assertThat(withoutTransport.publishPending()).isZero();
+            verifyNoInteractions(outboxRepository);
+        }
+    }
+
+    private static PaymentOutboxMessage stored(Long id) {
+        return PaymentOutboxMessage.builder()
+                .id(id)
+                .paymentId(id)
+                .bookingId(100L + id)
+                .status(PaymentStatus.COMPLETED)
+                .amountMinor(50000L)
+                .currency("MAD")
+                .build();
+    }
+}
@@ -0,0 +1,112 @@
+package ma.lunaire.paymentservice.service;
+
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeCollection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.service.impl.PaymentReconciler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the Stripe reconciliation job.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentReconcilerTest {
+
+    private static final Instant FROM = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2026-01-01T03:00:00Z");
+
+    @Mock
+    private StripeService stripeService;
+
+    @Mock
+    private PaymentService paymentService;
+
+    private MeterRegistry meterRegistry;
+    private PaymentReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reconciler = new PaymentReconciler(stripeService, paymentService, meterRegistry);
+        ReflectionTestUtils.setField(reconciler, "windowMinutes", 180L);
+        reconciler.init();
+    }
+
+    @Test
+    @DisplayName("Should page through the Stripe list and reconcile each page")
+    void shouldReconcileEveryPage() {
+        List<PaymentIntent> first = List.of(intent("pi_3"), intent("pi_2"));
+        List<PaymentIntent> second = List.of(intent("pi_1"));
+        when(stripeService.listPaymentIntents(FROM.getEpochSecond(), TO.getEpochSecond(), null))
+                .thenReturn(page(first, true));
+        when(stripeService.listPaymentIntents(FROM.getEpochSecond(), TO.getEpochSecond(), "pi_2"))
+                .thenReturn(page(second, false));
+        when(paymentService.reconcilePaymentIntents(first)).thenReturn(1);
+        when(paymentService.reconcilePaymentIntents(second)).thenReturn(0);
+
+        int updated = reconciler.reconcile(FROM, TO);
+
+        assertThat(updated).isEqualTo(1);
+        verify(stripeService, times(2)).listPaymentIntents(anyLong(), anyLong(), any());
+        assertThat(meterRegistry.get("payments.reconciliation.pages").counter().count()).isEqualTo(2);
+        assertThat(outcome("updated")).isEqualTo(1);
+        assertThat(outcome("unchanged")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should stop at an empty page")
+    void shouldStopAtEmptyPage() {
+        when(stripeService.listPaymentIntents(anyLong(), anyLong(), isNull())).thenReturn(page(List.of(), true));
+
+        assertThat(reconciler.reconcile(FROM, TO)).isZero();
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    @DisplayName("Should continue with the next page when a page changed concurrently")
+    void shouldSkipPageOnOptimisticLockFailure() {
+        List<PaymentIntent> first = List.of(intent("pi_2"));
+        List<PaymentIntent> second = List.of(intent("pi_1"));
+        when(stripeService.listPaymentIntents(anyLong(), anyLong(), isNull())).thenReturn(page(first, true));
+        when(stripeService.listPaymentIntents(anyLong(), anyLong(), eq("pi_2"))).thenReturn(page(second, false));
+        when(paymentService.reconcilePaymentIntents(first))
+                .thenThrow(new OptimisticLockingFailureException("Payment changed"));
+        when(paymentService.reconcilePaymentIntents(second)).thenReturn(1);
+
+        assertThat(reconciler.reconcile(FROM, TO)).isEqualTo(1);
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("payments.reconciliation.intents").tag("outcome", outcome).counter().count();
+    }
+
+    private static PaymentIntent intent(String id) {
+        PaymentIntent intent = new PaymentIntent();
+        intent.setId(id);
+        return intent;
+    }
+
+    private static StripeCollection<PaymentIntent> page(List<PaymentIntent> data, boolean hasMore) {
+        StripeCollection<PaymentIntent> page = new StripeCollection<>();
+        page.setData(data);
+        page.setHasMore(hasMore);
+        return page;
+    }
+}
@@ -0,0 +1,143 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.exception.RefundInProgressException;
+import ma.lunaire.paymentservice.service.impl.PaymentRefundQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for per-payment serialized refund execution.
+ */
+class PaymentRefundQueueTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentRefundQueue refundQueue;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        refundQueue = new PaymentRefundQueue(meterRegistry);
+        ReflectionTestUtils.setField(refundQueue, "maxQueuedPerPayment", 10);
+        ReflectionTestUtils.setField(refundQueue, "queueTimeoutMs", 5000L);
+        refundQueue.init();
+    }
+
+    @Test
+    @DisplayName("Should run refunds of the same payment one at a time")
+    void shouldSerializeRefundsOfSamePayment() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Supplier<String> refund = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(20);
+            running.decrementAndGet();
+            return "re_1";
+        };
+
+        List<CompletableFuture<String>> refunds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            refunds.add(CompletableFuture.supplyAsync(() -> refundQueue.submit(1L, refund)));
+        }
+        CompletableFuture.allOf(refunds.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertThat(maxRunning).hasValue(1);
+        assertThat(meterRegistry.get("payments.refunds.execution").timer().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("payments.refunds.queue.wait").timer().count()).isEqualTo(5);
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(refundQueue, "lanes")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should run refunds of different payments in parallel")
+    void shouldRunDifferentPaymentsInParallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        Supplier<Boolean> refund = () -> {
+            bothRunning.countDown();
+            try {
+                return bothRunning.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        };
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> refundQueue.submit(1L, refund));
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> refundQueue.submit(2L, refund));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject a refund that waits longer than the queue timeout")
+    void shouldRejectAfterQueueTimeout() throws Exception {
+        ReflectionTestUtils.setField(refundQueue, "queueTimeoutMs", 50L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> refundQueue.submit(1L, () -> {
+            started.countDown();
+            await(release);
+            return "re_1";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> refundQueue.submit(1L, () -> "re_2"))
+                .isInstanceOf(RefundInProgressException.class)
+                .hasMessageContaining("still in progress");
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("re_1");
+    }
+
+    @Test
+    @DisplayName("Should reject a refund when the payment's queue is full")
+    void shouldRejectWhenQueueFull() throws Exception {
+        ReflectionTestUtils.setField(refundQueue, "maxQueuedPerPayment", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> refundQueue.submit(1L, () -> {
+            started.countDown();
+            await(release);
+            return "re_1";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> refundQueue.submit(1L, () -> "re_2"))
+                .isInstanceOf(RefundInProgressException.class)
+                .hasMessageContaining("Too many refunds");
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("re_1");
+        assertThat(refundQueue.submit(1L, () -> "re_3")).isEqualTo("re_3");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
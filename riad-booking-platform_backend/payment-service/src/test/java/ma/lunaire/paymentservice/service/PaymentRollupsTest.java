@@ -0,0 +1,154 @@
+package ma.lunaire.paymentservice.service;
+
+import ma.lunaire.paymentservice.dao.entity.DailyPaymentRollup;
+import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.repository.DailyPaymentRollupRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.service.impl.PaymentRollups;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the daily payment rollups.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentRollupsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 1, 15);
+    private static final long AMOUNT = 50000L;
+    private static final long BASE_AMOUNT = 542500L;
+
+    @Mock
+    private DailyPaymentRollupRepository rollupRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PaymentRollups rollups;
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        rollups = new PaymentRollups(rollupRepository, paymentRepository, transactionManager);
+        ReflectionTestUtils.setField(rollups, "backfillConcurrency", 2);
+        rollups.init();
+
+        payment = Payment.builder()
+                .id(1L)
+                .amountMinor(AMOUNT)
+                .baseAmountMinor(BASE_AMOUNT)
+                .currency("EUR")
+                .status(PaymentStatus.COMPLETED)
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .createdAt(DAY.atTime(10, 30))
+                .build();
+    }
+
+    @Nested
+    @DisplayName("Incremental Tests")
+    class IncrementalTests {
+
+        @Test
+        @DisplayName("Should move the payment from its previous status bucket to the new one")
+        void shouldMoveBetweenBuckets() {
+            when(rollupRepository.increment(any(), any(), any(), any(), anyLong(), anyLong(), anyLong())).thenReturn(1);
+
+            rollups.record(payment, PaymentStatus.PENDING);
+
+            verify(rollupRepository).increment(DAY, "EUR", PaymentStatus.PENDING, PaymentMethod.CREDIT_CARD,
+                    -1, -AMOUNT, -BASE_AMOUNT);
+            verify(rollupRepository).increment(DAY, "EUR", PaymentStatus.COMPLETED, PaymentMethod.CREDIT_CARD,
+                    1, AMOUNT, BASE_AMOUNT);
+            verify(rollupRepository, never()).insertIfAbsent(any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should create a missing bucket and then add to it")
+        void shouldCreateMissingBucket() {
+            when(rollupRepository.increment(DAY, "EUR", PaymentStatus.COMPLETED, PaymentMethod.CREDIT_CARD,
+                    1, AMOUNT, BASE_AMOUNT))
+                    .thenReturn(0, 1);
+
+            rollups.record(payment, null);
+
+            verify(rollupRepository).insertIfAbsent(DAY, "EUR", PaymentStatus.COMPLETED, PaymentMethod.CREDIT_CARD);
+            verify(rollupRepository, times(2))
+                    .increment(DAY, "EUR", PaymentStatus.COMPLETED, PaymentMethod.CREDIT_CARD, 1, AMOUNT, BASE_AMOUNT);
+        }
+
+        @Test
+        @DisplayName("Should ignore changes that keep the status")
+        void shouldIgnoreUnchangedStatus() {
+            rollups.record(payment, PaymentStatus.COMPLETED);
+
+            verifyNoInteractions(rollupRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Backfill Tests")
+    class BackfillTests {
+
+        @Test
+        @DisplayName("Should rebuild every day of the range from the payments table")
+        void shouldRebuildEveryDay() {
+            DailyPaymentRollupRepository.VolumeTotal total = mock(DailyPaymentRollupRepository.VolumeTotal.class);
+            when(total.getCurrency()).thenReturn("MAD");
+            when(total.getStatus()).thenReturn(PaymentStatus.COMPLETED);
+            when(total.getPaymentMethod()).thenReturn(PaymentMethod.CREDIT_CARD);
+            when(total.getPaymentCount()).thenReturn(4L);
+            when(total.getTotalAmountMinor()).thenReturn(200000L);
+            when(total.getTotalBaseAmountMinor()).thenReturn(200000L);
+            when(paymentRepository.sumVolumeCreatedBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
+                    .thenReturn(List.of(total));
+
+            int rebuilt = rollups.backfill(DAY, DAY.plusDays(2));
+
+            assertThat(rebuilt).isEqualTo(3);
+            verify(rollupRepository).deleteByPaymentDate(DAY);
+            verify(rollupRepository).deleteByPaymentDate(DAY.plusDays(2));
+            verify(paymentRepository).sumVolumeCreatedBetween(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay());
+            ArgumentCaptor<DailyPaymentRollup> saved = ArgumentCaptor.forClass(DailyPaymentRollup.class);
+            verify(rollupRepository, times(3)).save(saved.capture());
+            assertThat(saved.getValue().getTotalBaseAmountMinor()).isEqualTo(200000L);
+        }
+
+        @Test
+        @DisplayName("Should count only the days that were rebuilt")
+        void shouldSkipFailedDays() {
+            when(paymentRepository.sumVolumeCreatedBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
+                    .thenReturn(List.of());
+            // Days are rebuilt on separate threads, so one stubbing answers for every day
+            when(rollupRepository.deleteByPaymentDate(any(LocalDate.class))).thenAnswer(invocation -> {
+                if (DAY.equals(invocation.getArgument(0))) {
+                    throw new IllegalStateException("Lock timeout");
+                }
+                return 0;
+            });
+
+            assertThat(rollups.backfill(DAY, DAY.plusDays(1))).isEqualTo(1);
+        }
+    }
+}
@@ -1,25 +1,48 @@
 package ma.lunaire.paymentservice.service;
 
-import com.stripe.model.Customer;
+import com.stripe.Stripe;
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
-import ma.lunaire.paymentservice.config.StripeConfig;
+import com.stripe.net.ApiResource;
 import ma.lunaire.paymentservice.dao.entity.Payment;
+import ma.lunaire.paymentservice.dao.entity.PaymentEvent;
+import ma.lunaire.paymentservice.dao.entity.PaymentEventType;
 import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
 import ma.lunaire.paymentservice.dao.entity.PaymentStatus;
+import ma.lunaire.paymentservice.dao.entity.PaymentUpdate;
+import ma.lunaire.paymentservice.dao.repository.DailyPaymentRollupRepository;
+import ma.lunaire.paymentservice.dao.repository.PaymentEventRepository;
 import ma.lunaire.paymentservice.dao.repository.PaymentRepository;
+import ma.lunaire.paymentservice.dto.BookingPaymentStatus;
 import ma.lunaire.paymentservice.dto.CreatePaymentRequest;
+import ma.lunaire.paymentservice.dto.PaymentCursorPage;
+import ma.lunaire.paymentservice.dto.PaymentEventResponse;
 import ma.lunaire.paymentservice.dto.PaymentResponse;
+import ma.lunaire.paymentservice.dto.PaymentSearchCriteria;
+import ma.lunaire.paymentservice.dto.PaymentVolume;
 import ma.lunaire.paymentservice.dto.RefundRequest;
 import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
 import ma.lunaire.paymentservice.exception.PaymentNotFoundException;
+import ma.lunaire.paymentservice.exception.VelocityLimitExceededException;
 import ma.lunaire.paymentservice.mapper.PaymentMapper;
+import ma.lunaire.paymentservice.service.impl.BookingLedger;
+import ma.lunaire.paymentservice.service.impl.ExchangeRates;
+import ma.lunaire.paymentservice.service.impl.PaymentChangeRecorder;
+import ma.lunaire.paymentservice.service.impl.PaymentCompactor;
+import ma.lunaire.paymentservice.service.impl.PaymentExpiryPipeline;
+import ma.lunaire.paymentservice.service.impl.PaymentIdempotency;
+import ma.lunaire.paymentservice.service.impl.PaymentRefundQueue;
+import ma.lunaire.paymentservice.service.impl.PaymentRollups;
 import ma.lunaire.paymentservice.service.impl.PaymentServiceImpl;
+import ma.lunaire.paymentservice.service.impl.PaymentVelocityLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -27,11 +50,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -39,6 +67,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 /**
@@ -57,7 +86,40 @@ class PaymentServiceImplTest {
     private StripeService stripeService;
 
     @Mock
-    private StripeConfig stripeConfig;
+    private PaymentExpiryPipeline paymentExpiryPipeline;
+
+    @Mock
+    private BookingLedger bookingLedger;
+
+    @Mock
+    private PaymentChangeRecorder paymentChangeRecorder;
+
+    @Mock
+    private PaymentCompactor paymentCompactor;
+
+    @Mock
+    private PaymentRollups paymentRollups;
+
+    @Mock
+    private DailyPaymentRollupRepository rollupRepository;
+
+    @Mock
+    private PaymentIdempotency paymentIdempotency;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PaymentEventRepository paymentEventRepository;
+
+    @Mock
+    private PaymentRefundQueue paymentRefundQueue;
+
+    @Mock
+    private PaymentVelocityLimiter paymentVelocityLimiter;
+
+    @Mock
+    private ExchangeRates exchangeRates;
 
     @InjectMocks
     private PaymentServiceImpl paymentService;
@@ -73,7 +135,8 @@ class PaymentServiceImplTest {
                 .paymentNumber("PAY-12345678")
                 .bookingId(100L)
                 .userId(1L)
-                .amount(new BigDecimal("500.00"))
+                .amountMinor(50000L)
+                .baseAmountMinor(50000L)
                 .currency("MAD")
                 .status(PaymentStatus.PENDING)
                 .paymentMethod(PaymentMethod.CREDIT_CARD)
@@ -117,13 +180,12 @@ class PaymentServiceImplTest {
         @Test
         @DisplayName("Should create payment with Stripe successfully")
         void shouldCreatePaymentWithStripeSuccessfully() {
-            Customer mockCustomer = mock(Customer.class);
-            when(mockCustomer.getId()).thenReturn("cus_test123");
             PaymentIntent mockIntent = createMockPaymentIntent("requires_payment_method");
 
-            when(stripeService.createOrRetrieveCustomer(anyString(), any(), anyMap())).thenReturn(mockCustomer);
-            when(stripeService.convertToStripeAmount(any(BigDecimal.class))).thenReturn(50000L);
-            when(stripeService.createPaymentIntent(anyLong(), anyString(), anyString(), any(), anyString(), anyMap()))
+            when(exchangeRates.rateToBase("MAD")).thenReturn(BigDecimal.ONE);
+            when(stripeService.getOrCreateCustomerId(anyString(), any(), anyMap())).thenReturn("cus_test123");
+            when(stripeService.createPaymentIntent(anyLong(), anyString(), anyString(), any(), anyString(), anyMap(),
+                    isNull()))
                     .thenReturn(mockIntent);
             when(paymentMapper.toEntity(any(CreatePaymentRequest.class))).thenReturn(payment);
             when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
@@ -133,9 +195,87 @@ class PaymentServiceImplTest {
 
             assertThat(result).isNotNull();
             assertThat(result.getBookingId()).isEqualTo(100L);
-            verify(stripeService).createPaymentIntent(anyLong(), anyString(), anyString(), any(), anyString(), anyMap());
+            verify(stripeService).createPaymentIntent(eq(50000L), anyString(), anyString(), any(), anyString(), anyMap(),
+                    isNull());
             verify(paymentRepository).save(any(Payment.class));
         }
+
+        @Test
+        @DisplayName("Should forward the Idempotency-Key to Stripe and complete it with the payment")
+        void shouldCreatePaymentOncePerIdempotencyKey() {
+            PaymentIntent mockIntent = createMockPaymentIntent("requires_payment_method");
+            when(paymentIdempotency.execute(eq("key-1"), eq(createRequest), any())).thenAnswer(invocation ->
+                    invocation.<Supplier<PaymentResponse>>getArgument(2).get());
+            when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                    invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+            when(exchangeRates.rateToBase("MAD")).thenReturn(BigDecimal.ONE);
+            when(stripeService.getOrCreateCustomerId(anyString(), any(), anyMap())).thenReturn("cus_test123");
+            when(stripeService.createPaymentIntent(anyLong(), anyString(), anyString(), any(), anyString(), anyMap(),
+                    eq("key-1"))).thenReturn(mockIntent);
+            when(paymentMapper.toEntity(any(CreatePaymentRequest.class))).thenReturn(payment);
+            when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
+            when(paymentMapper.toResponse(any(Payment.class))).thenReturn(paymentResponse);
+
+            PaymentResponse result = paymentService.createPayment(createRequest, "key-1");
+
+            assertThat(result.getBookingId()).isEqualTo(100L);
+            verify(paymentIdempotency).complete("key-1", result);
+        }
+
+        @Test
+        @DisplayName("Should answer a replayed Idempotency-Key without calling Stripe")
+        void shouldReplayIdempotencyKey() {
+            when(paymentIdempotency.execute(eq("key-1"), eq(createRequest), any())).thenReturn(paymentResponse);
+
+            PaymentResponse result = paymentService.createPayment(createRequest, "key-1");
+
+            assertThat(result).isSameAs(paymentResponse);
+            verifyNoInteractions(stripeService, transactionTemplate, paymentVelocityLimiter);
+        }
+
+        @Test
+        @DisplayName("Should fix the exchange rate of a foreign-currency payment at creation")
+        void shouldFixExchangeRateAtCreation() {
+            createRequest.setCurrency("EUR");
+            PaymentIntent mockIntent = createMockPaymentIntent("requires_payment_method");
+            when(exchangeRates.rateToBase("EUR")).thenReturn(new BigDecimal("10.85"));
+            when(stripeService.getOrCreateCustomerId(anyString(), any(), anyMap())).thenReturn("cus_test123");
+            when(stripeService.createPaymentIntent(anyLong(), eq("EUR"), anyString(), any(), anyString(), anyMap(),
+                    isNull())).thenReturn(mockIntent);
+            when(paymentMapper.toEntity(any(CreatePaymentRequest.class))).thenReturn(payment);
+            when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
+            when(paymentMapper.toResponse(any(Payment.class))).thenReturn(paymentResponse);
+
+            paymentService.createPayment(createRequest);
+
+            assertThat(payment.getExchangeRate()).isEqualByComparingTo("10.85");
+            assertThat(payment.getAmountMinor()).isEqualTo(50000L);
+            assertThat(payment.getBaseAmountMinor()).isEqualTo(542500L);
+        }
+
+        @Test
+        @DisplayName("Should reject a currency without an exchange rate before calling Stripe")
+        void shouldRejectUnsupportedCurrency() {
+            createRequest.setCurrency("XYZ");
+            when(exchangeRates.rateToBase("XYZ"))
+                    .thenThrow(new InvalidPaymentOperationException("Unsupported currency: XYZ"));
+
+            assertThatThrownBy(() -> paymentService.createPayment(createRequest))
+                    .isInstanceOf(InvalidPaymentOperationException.class)
+                    .hasMessageContaining("Unsupported currency");
+            verifyNoInteractions(stripeService);
+        }
+
+        @Test
+        @DisplayName("Should reject a payment over the velocity limits before calling Stripe")
+        void shouldRejectOverVelocityLimits() {
+            doThrow(new VelocityLimitExceededException("Too many payment attempts, retry later", 60))
+                    .when(paymentVelocityLimiter).check(createRequest);
+
+            assertThatThrownBy(() -> paymentService.createPayment(createRequest))
+                    .isInstanceOf(VelocityLimitExceededException.class);
+            verifyNoInteractions(stripeService, paymentRepository);
+        }
     }
 
     @Nested
@@ -186,6 +326,95 @@ class PaymentServiceImplTest {
             assertThat(results).hasSize(1);
             assertThat(results.get(0).getBookingId()).isEqualTo(100L);
         }
+
+        @Test
+        @DisplayName("Should get payment history oldest first")
+        void shouldGetPaymentHistory() {
+            PaymentEvent created = PaymentEvent.builder().id(10L).paymentId(1L).type(PaymentEventType.CREATED).build();
+            PaymentEvent completed = PaymentEvent.builder().id(11L).paymentId(1L).type(PaymentEventType.COMPLETED).build();
+            PaymentEventResponse createdResponse = PaymentEventResponse.builder().id(10L).build();
+            PaymentEventResponse completedResponse = PaymentEventResponse.builder().id(11L).build();
+            when(paymentRepository.existsById(1L)).thenReturn(true);
+            when(paymentEventRepository.findByPaymentIdOrderByIdAsc(1L)).thenReturn(List.of(created, completed));
+            when(paymentMapper.toEventResponse(created)).thenReturn(createdResponse);
+            when(paymentMapper.toEventResponse(completed)).thenReturn(completedResponse);
+
+            List<PaymentEventResponse> history = paymentService.getPaymentHistory(1L);
+
+            assertThat(history).containsExactly(createdResponse, completedResponse);
+        }
+
+        @Test
+        @DisplayName("Should throw exception for the history of an unknown payment")
+        void shouldThrowForHistoryOfUnknownPayment() {
+            when(paymentRepository.existsById(999L)).thenReturn(false);
+
+            assertThatThrownBy(() -> paymentService.getPaymentHistory(999L))
+                    .isInstanceOf(PaymentNotFoundException.class);
+            verifyNoInteractions(paymentEventRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Search Payment Tests")
+    class SearchPaymentTests {
+
+        @Test
+        @DisplayName("Should search with a specification built from all criteria")
+        @SuppressWarnings("unchecked")
+        void shouldSearchWithSpecification() {
+            PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                    .bookingId(100L)
+                    .paymentMethod(PaymentMethod.CREDIT_CARD)
+                    .build();
+            Pageable pageable = PageRequest.of(0, 10);
+            when(paymentRepository.findAll(any(Specification.class), eq(pageable)))
+                    .thenReturn(new PageImpl<>(List.of(payment)));
+            when(paymentMapper.toResponse(payment)).thenReturn(paymentResponse);
+
+            Page<PaymentResponse> results = paymentService.searchPayments(criteria, pageable);
+
+            assertThat(results.getContent()).containsExactly(paymentResponse);
+        }
+
+        @Test
+        @DisplayName("Should return a cursor when more payments follow and accept it for the next page")
+        @SuppressWarnings("unchecked")
+        void shouldScrollWithCursor() {
+            Payment older = Payment.builder().id(2L).createdAt(LocalDateTime.of(2026, 1, 1, 10, 0)).build();
+            payment.setCreatedAt(LocalDateTime.of(2026, 1, 2, 10, 0));
+            when(paymentRepository.findBy(any(Specification.class), any()))
+                    .thenReturn(List.of(payment, older), List.of(older));
+            when(paymentMapper.toResponse(any(Payment.class))).thenReturn(paymentResponse);
+
+            PaymentCursorPage first = paymentService.scrollPayments(new PaymentSearchCriteria(), null, 1);
+
+            assertThat(first.isHasNext()).isTrue();
+            assertThat(first.getContent()).hasSize(1);
+            assertThat(first.getNextCursor()).isNotBlank();
+
+            PaymentCursorPage second = paymentService.scrollPayments(new PaymentSearchCriteria(), first.getNextCursor(), 1);
+
+            assertThat(second.isHasNext()).isFalse();
+            assertThat(second.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Should reject a malformed cursor")
+        void shouldRejectMalformedCursor() {
+            assertThatThrownBy(() -> paymentService.scrollPayments(new PaymentSearchCriteria(), "not-a-cursor", 10))
+                    .isInstanceOf(InvalidPaymentOperationException.class)
+                    .hasMessageContaining("Invalid search cursor");
+        }
+
+        @Test
+        @DisplayName("Should reject page sizes outside the allowed range")
+        void shouldRejectInvalidPageSize() {
+            assertThatThrownBy(() -> paymentService.scrollPayments(new PaymentSearchCriteria(), null, 0))
+                    .isInstanceOf(InvalidPaymentOperationException.class);
+            assertThatThrownBy(() -> paymentService.scrollPayments(new PaymentSearchCriteria(), null, 1000))
+                    .isInstanceOf(InvalidPaymentOperationException.class);
+        }
     }
 
     @Nested
@@ -215,6 +444,44 @@ class PaymentServiceImplTest {
 
             assertThat(result.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
             verify(stripeService).confirmPaymentIntent(eq("pi_test123"), any());
+            verify(paymentChangeRecorder).record(payment);
+        }
+
+        @Test
+        @DisplayName("Should take receipt details from the expanded charge without another Stripe call")
+        void shouldUseExpandedChargeFromConfirmation() {
+            Charge charge = mock(Charge.class);
+            when(charge.getReceiptUrl()).thenReturn("https://pay.stripe.com/receipts/rcpt_1");
+            PaymentIntent confirmedIntent = mock(PaymentIntent.class);
+            when(confirmedIntent.getStatus()).thenReturn("succeeded");
+            when(confirmedIntent.getLatestChargeObject()).thenReturn(charge);
+
+            when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
+            when(stripeService.confirmPaymentIntent(anyString(), any())).thenReturn(confirmedIntent);
+            when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
+            when(paymentMapper.toResponse(any(Payment.class))).thenReturn(paymentResponse);
+
+            paymentService.confirmPayment(1L);
+
+            assertThat(payment.getStripeReceiptUrl()).isEqualTo("https://pay.stripe.com/receipts/rcpt_1");
+            verify(stripeService, never()).retrieveCharge(anyString());
+        }
+
+        @Test
+        @DisplayName("Should keep a refunded payment when syncing its succeeded PaymentIntent")
+        void shouldKeepRefundedPaymentOnSync() {
+            payment.setStatus(PaymentStatus.REFUNDED);
+            payment.setRefundedAmountMinor(50000L);
+            PaymentIntent intent = createMockPaymentIntent("succeeded");
+            when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
+            when(stripeService.retrievePaymentIntent("pi_test123")).thenReturn(intent);
+            when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
+            when(paymentMapper.toResponse(any(Payment.class))).thenReturn(paymentResponse);
+
+            paymentService.syncPaymentStatus(1L);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+            assertThat(payment.getPaidAt()).isNull();
         }
 
         @Test
@@ -269,6 +536,14 @@ class PaymentServiceImplTest {
     @DisplayName("Refund Payment Tests")
     class RefundPaymentTests {
 
+        @BeforeEach
+        void runRefundsInline() {
+            when(paymentRefundQueue.submit(eq(1L), any())).thenAnswer(invocation ->
+                    invocation.<Supplier<PaymentResponse>>getArgument(1).get());
+            when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                    invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        }
+
         @Test
         @DisplayName("Should refund completed payment via Stripe")
         void shouldRefundCompletedPaymentViaStripe() {
@@ -288,16 +563,15 @@ class PaymentServiceImplTest {
                     .refundedAmount(new BigDecimal("500.00"))
                     .build();
 
-            when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
-            when(stripeService.convertToStripeAmount(any(BigDecimal.class))).thenReturn(50000L);
-            when(stripeService.createRefund(anyString(), anyLong(), anyString())).thenReturn(mockRefund);
+            when(paymentRepository.findForUpdate(1L)).thenReturn(Optional.of(payment));
+            when(stripeService.createRefund(anyString(), anyLong(), anyString(), anyString())).thenReturn(mockRefund);
             when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
             when(paymentMapper.toResponse(any(Payment.class))).thenReturn(refundedResponse);
 
             PaymentResponse result = paymentService.refundPayment(1L, refundRequest);
 
             assertThat(result.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
-            verify(stripeService).createRefund(eq("pi_test123"), eq(50000L), eq("Customer request"));
+            verify(stripeService).createRefund(eq("pi_test123"), eq(50000L), eq("Customer request"), anyString());
         }
 
         @Test
@@ -307,13 +581,72 @@ class PaymentServiceImplTest {
                     .amount(new BigDecimal("100.00"))
                     .build();
 
-            when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
+            when(paymentRepository.findForUpdate(1L)).thenReturn(Optional.of(payment));
 
             assertThatThrownBy(() -> paymentService.refundPayment(1L, refundRequest))
                     .isInstanceOf(InvalidPaymentOperationException.class)
                     .hasMessageContaining("Can only refund COMPLETED payments");
         }
 
+        @Test
+        @DisplayName("Should refund a partially refunded payment further")
+        void shouldRefundPartiallyRefundedPaymentFurther() {
+            payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
+            payment.setRefundedAmountMinor(20000L);
+            RefundRequest refundRequest = RefundRequest.builder()
+                    .amount(new BigDecimal("300.00"))
+                    .reason("Customer request")
+                    .build();
+            Refund mockRefund = mock(Refund.class);
+            when(mockRefund.getId()).thenReturn("re_test456");
+            when(paymentRepository.findForUpdate(1L)).thenReturn(Optional.of(payment));
+            when(stripeService.createRefund(anyString(), anyLong(), anyString(), anyString())).thenReturn(mockRefund);
+            when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
+            when(paymentMapper.toResponse(any(Payment.class))).thenReturn(paymentResponse);
+
+            paymentService.refundPayment(1L, refundRequest);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+            assertThat(payment.getRefundedAmountMinor()).isEqualTo(50000L);
+            verify(stripeService).createRefund("pi_test123", 30000L, "Customer request", "refund-PAY-12345678-20000-30000");
+        }
+
+        @Test
+        @DisplayName("Should count refunds still pending as webhook updates before refunding")
+        void shouldCompactPendingUpdatesBeforeRefund() {
+            payment.setStatus(PaymentStatus.COMPLETED);
+            RefundRequest refundRequest = RefundRequest.builder()
+                    .amount(new BigDecimal("400.00"))
+                    .reason("Customer request")
+                    .build();
+            when(paymentRepository.findForUpdate(1L)).thenReturn(Optional.of(payment));
+            when(paymentCompactor.compact(payment)).thenAnswer(invocation -> {
+                payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
+                payment.setRefundedAmountMinor(20000L);
+                return 1;
+            });
+
+            assertThatThrownBy(() -> paymentService.refundPayment(1L, refundRequest))
+                    .isInstanceOf(InvalidPaymentOperationException.class)
+                    .hasMessageContaining("cannot exceed");
+            verify(stripeService, never()).createRefund(anyString(), anyLong(), any(), anyString());
+        }
+
+        @Test
+        @DisplayName("Should reject a refund finer than the currency's minor unit")
+        void shouldRejectSubMinorUnitRefund() {
+            payment.setStatus(PaymentStatus.COMPLETED);
+            RefundRequest refundRequest = RefundRequest.builder()
+                    .amount(new BigDecimal("10.005"))
+                    .build();
+            when(paymentRepository.findForUpdate(1L)).thenReturn(Optional.of(payment));
+
+            assertThatThrownBy(() -> paymentService.refundPayment(1L, refundRequest))
+                    .isInstanceOf(InvalidPaymentOperationException.class)
+                    .hasMessageContaining("not a valid MAD amount");
+            verify(stripeService, never()).createRefund(anyString(), anyLong(), any(), any());
+        }
+
         @Test
         @DisplayName("Should throw exception when refund exceeds payment amount")
         void shouldThrowExceptionWhenRefundExceedsPaymentAmount() {
@@ -323,7 +656,7 @@ class PaymentServiceImplTest {
                     .amount(new BigDecimal("1000.00"))
                     .build();
 
-            when(paymentRepository.findById(1L)).thenReturn(Optional.of(payment));
+            when(paymentRepository.findForUpdate(1L)).thenReturn(Optional.of(payment));
 
             assertThatThrownBy(() -> paymentService.refundPayment(1L, refundRequest))
                     .isInstanceOf(InvalidPaymentOperationException.class)
@@ -331,6 +664,160 @@ class PaymentServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("Reconciliation Tests")
+    class ReconciliationTests {
+
+        @Test
+        @DisplayName("Should update only the payments that diverge from Stripe")
+        void shouldUpdateOnlyDivergingPayments() {
+            Payment inSync = Payment.builder()
+                    .id(2L)
+                    .paymentNumber("PAY-2")
+                    .status(PaymentStatus.CANCELLED)
+                    .stripePaymentIntentId("pi_2")
+                    .build();
+            PaymentIntent succeeded = createMockPaymentIntent("succeeded");
+            PaymentIntent canceled = mock(PaymentIntent.class);
+            when(canceled.getId()).thenReturn("pi_2");
+            when(canceled.getStatus()).thenReturn("canceled");
+            when(paymentRepository.findByStripePaymentIntentIdIn(any())).thenReturn(List.of(payment, inSync));
+
+            int updated = paymentService.reconcilePaymentIntents(List.of(succeeded, canceled));
+
+            assertThat(updated).isEqualTo(1);
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+            verify(paymentRepository).save(payment);
+            verify(paymentRepository, never()).save(inSync);
+        }
+
+        @Test
+        @DisplayName("Should not reopen a failed payment whose PaymentIntent awaits a new method")
+        void shouldKeepFailedPayment() {
+            payment.setStatus(PaymentStatus.FAILED);
+            PaymentIntent intent = createMockPaymentIntent("requires_payment_method");
+            when(paymentRepository.findByStripePaymentIntentIdIn(any())).thenReturn(List.of(payment));
+
+            assertThat(paymentService.reconcilePaymentIntents(List.of(intent))).isZero();
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.FAILED);
+            verify(paymentRepository, never()).save(any(Payment.class));
+        }
+
+        @Test
+        @DisplayName("Should record refunds missed by webhooks from the expanded charge")
+        void shouldRecordMissedRefund() {
+            payment.setStatus(PaymentStatus.COMPLETED);
+            Charge charge = mock(Charge.class);
+            when(charge.getAmountRefunded()).thenReturn(20000L);
+            when(charge.getRefunded()).thenReturn(false);
+            PaymentIntent intent = createMockPaymentIntent("succeeded");
+            when(intent.getLatestChargeObject()).thenReturn(charge);
+            when(paymentRepository.findByStripePaymentIntentIdIn(any())).thenReturn(List.of(payment));
+
+            assertThat(paymentService.reconcilePaymentIntents(List.of(intent))).isEqualTo(1);
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PARTIALLY_REFUNDED);
+            assertThat(payment.getRefundedAmountMinor()).isEqualTo(20000L);
+
+            assertThat(paymentService.reconcilePaymentIntents(List.of(intent))).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Stripe Event Tests")
+    class StripeEventTests {
+
+        @Test
+        @DisplayName("Should append a cancellation on payment_intent.canceled without updating the payment")
+        void shouldAppendCancellationOnCanceledEvent() {
+            Event event = ApiResource.GSON.fromJson(WebhookEventServiceImplTest.paymentIntentEvent(
+                    "evt_1", "payment_intent.canceled", "pi_test123"), Event.class);
+            event.setCreated(1_767_225_600L);
+            when(paymentRepository.findByStripePaymentIntentId("pi_test123")).thenReturn(Optional.of(payment));
+
+            paymentService.handleStripeEvent(event);
+
+            PaymentUpdate update = appendedUpdate();
+            assertThat(update.getPaymentId()).isEqualTo(1L);
+            assertThat(update.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+            assertThat(update.getStripeEventId()).isEqualTo("evt_1");
+            assertThat(update.getStripeEventCreated()).isEqualTo(1_767_225_600L);
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PENDING);
+            verify(paymentRepository, never()).save(any(Payment.class));
+        }
+
+        @Test
+        @DisplayName("Should not fetch the charge on payment_intent.succeeded when confirmation recorded it")
+        void shouldSkipChargeFetchWhenReceiptAlreadyRecorded() {
+            payment.setStripeReceiptUrl("https://pay.stripe.com/receipts/rcpt_1");
+            when(paymentRepository.findByStripePaymentIntentId("pi_test123")).thenReturn(Optional.of(payment));
+
+            paymentService.handleStripeEvent(succeededEventWithCharge("evt_3"));
+
+            PaymentUpdate update = appendedUpdate();
+            assertThat(update.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(update.getReceiptUrl()).isNull();
+            verify(stripeService, never()).retrieveCharge(anyString());
+        }
+
+        @Test
+        @DisplayName("Should fetch the charge once on payment_intent.succeeded when no receipt is recorded")
+        void shouldFetchChargeWhenReceiptMissing() {
+            Charge charge = mock(Charge.class);
+            when(charge.getReceiptUrl()).thenReturn("https://pay.stripe.com/receipts/rcpt_2");
+            when(paymentRepository.findByStripePaymentIntentId("pi_test123")).thenReturn(Optional.of(payment));
+            when(stripeService.retrieveCharge("ch_test123")).thenReturn(charge);
+
+            paymentService.handleStripeEvent(succeededEventWithCharge("evt_4"));
+
+            assertThat(appendedUpdate().getReceiptUrl()).isEqualTo("https://pay.stripe.com/receipts/rcpt_2");
+            verify(stripeService).retrieveCharge("ch_test123");
+        }
+
+        private Event succeededEventWithCharge(String eventId) {
+            // Webhook payloads carry the latest charge as an id only
+            String payload = WebhookEventServiceImplTest.paymentIntentEvent(eventId, "payment_intent.succeeded", "pi_test123")
+                    .replace("\"status\":\"succeeded\"", "\"status\":\"succeeded\",\"latest_charge\":\"ch_test123\"");
+            return ApiResource.GSON.fromJson(payload, Event.class);
+        }
+
+        @Test
+        @DisplayName("Should append Stripe's refunded total on charge.refunded")
+        void shouldAppendRefundedTotal() {
+            payment.setStatus(PaymentStatus.COMPLETED);
+            when(paymentRepository.findByStripePaymentIntentId("pi_test123")).thenReturn(Optional.of(payment));
+            Event refunded = ApiResource.GSON.fromJson("""
+                    {"id":"evt_10","object":"event","api_version":"%s","type":"charge.refunded","livemode":false,
+                     "data":{"object":{"id":"ch_test123","object":"charge","amount":50000,"amount_refunded":10000,
+                     "refunded":false,"payment_intent":"pi_test123"}}}""".formatted(Stripe.API_VERSION), Event.class);
+
+            paymentService.handleStripeEvent(refunded);
+
+            PaymentUpdate update = appendedUpdate();
+            assertThat(update.getStatus()).isEqualTo(PaymentStatus.PARTIALLY_REFUNDED);
+            assertThat(update.getRefundedAmountMinor()).isEqualTo(10000L);
+            assertThat(payment.getRefundedAmountMinor()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should ignore events for unknown PaymentIntents")
+        void shouldIgnoreUnknownPaymentIntent() {
+            Event event = ApiResource.GSON.fromJson(WebhookEventServiceImplTest.paymentIntentEvent(
+                    "evt_2", "payment_intent.payment_failed", "pi_unknown"), Event.class);
+            when(paymentRepository.findByStripePaymentIntentId("pi_unknown")).thenReturn(Optional.empty());
+
+            paymentService.handleStripeEvent(event);
+
+            verify(paymentCompactor, never()).append(any());
+            verify(paymentRepository, never()).save(any(Payment.class));
+        }
+
+        private PaymentUpdate appendedUpdate() {
+            ArgumentCaptor<PaymentUpdate> update = ArgumentCaptor.forClass(PaymentUpdate.class);
+            verify(paymentCompactor).append(update.capture());
+            return update.getValue();
+        }
+    }
+
     @Nested
     @DisplayName("Utility Method Tests")
     class UtilityMethodTests {
@@ -338,8 +825,7 @@ class PaymentServiceImplTest {
         @Test
         @DisplayName("Should get total paid amount by booking ID")
         void shouldGetTotalPaidAmountByBookingId() {
-            when(paymentRepository.getTotalPaidAmountByBookingId(100L))
-                    .thenReturn(new BigDecimal("1000.00"));
+            when(bookingLedger.totalPaidMinor(100L)).thenReturn(100000L);
 
             BigDecimal total = paymentService.getTotalPaidAmountByBookingId(100L);
 
@@ -349,13 +835,100 @@ class PaymentServiceImplTest {
         @Test
         @DisplayName("Should check if booking has completed payment")
         void shouldCheckIfBookingHasCompletedPayment() {
-            when(paymentRepository.existsByBookingIdAndStatus(100L, PaymentStatus.COMPLETED))
-                    .thenReturn(true);
+            when(bookingLedger.hasCompletedPayment(100L)).thenReturn(true);
 
             boolean hasPayment = paymentService.hasCompletedPayment(100L);
 
             assertThat(hasPayment).isTrue();
         }
+
+        @Test
+        @DisplayName("Should look up payment state of several bookings with one grouped query")
+        void shouldGetBookingPaymentStatuses() {
+            PaymentRepository.BookingPaidTotal paid = paidTotal(100L, 75000L);
+            when(paymentRepository.getTotalPaidMinorByBookingIds(List.of(100L, 200L))).thenReturn(List.of(paid));
+
+            List<BookingPaymentStatus> statuses = paymentService.getBookingPaymentStatuses(List.of(100L, 200L, 100L));
+
+            assertThat(statuses).extracting(BookingPaymentStatus::getBookingId).containsExactly(100L, 200L);
+            assertThat(statuses.get(0).isCompleted()).isTrue();
+            assertThat(statuses.get(0).getTotalPaid()).isEqualByComparingTo("750.00");
+            assertThat(statuses.get(1).isCompleted()).isFalse();
+            assertThat(statuses.get(1).getTotalPaid()).isEqualByComparingTo("0");
+            verify(paymentRepository, times(1)).getTotalPaidMinorByBookingIds(any());
+        }
+
+        @Test
+        @DisplayName("Should report payment volume from the daily rollups at the rates the payments were taken at")
+        void shouldGetPaymentVolume() {
+            LocalDate from = LocalDate.of(2026, 1, 1);
+            LocalDate to = LocalDate.of(2026, 3, 31);
+            DailyPaymentRollupRepository.VolumeTotal total = mock(DailyPaymentRollupRepository.VolumeTotal.class);
+            when(total.getCurrency()).thenReturn("EUR");
+            when(total.getStatus()).thenReturn(PaymentStatus.COMPLETED);
+            when(total.getPaymentMethod()).thenReturn(PaymentMethod.CREDIT_CARD);
+            when(total.getPaymentCount()).thenReturn(42L);
+            when(total.getTotalAmountMinor()).thenReturn(2100000L);
+            when(total.getTotalBaseAmountMinor()).thenReturn(22785000L);
+            when(rollupRepository.sumBetween(from, to)).thenReturn(List.of(total));
+
+            List<PaymentVolume> volume = paymentService.getPaymentVolume(from, to);
+
+            assertThat(volume).singleElement().satisfies(row -> {
+                assertThat(row.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+                assertThat(row.getPaymentCount()).isEqualTo(42L);
+                assertThat(row.getTotalAmount()).isEqualByComparingTo("21000.00");
+                assertThat(row.getBaseAmount()).isEqualByComparingTo("227850.00");
+            });
+            verify(paymentRepository, never()).findByDateRange(any(), any());
+            verify(exchangeRates, never()).toBase(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should reject a report range that ends before it starts")
+        void shouldRejectInvertedRange() {
+            assertThatThrownBy(() -> paymentService.getPaymentVolume(LocalDate.of(2026, 2, 1), LocalDate.of(2026, 1, 1)))
+                    .isInstanceOf(InvalidPaymentOperationException.class);
+            verifyNoInteractions(rollupRepository);
+        }
+
+        @Test
+        @DisplayName("Should hand the rollup backfill to the rollups")
+        void shouldBackfillPaymentRollups() {
+            LocalDate from = LocalDate.of(2026, 1, 1);
+            LocalDate to = LocalDate.of(2026, 1, 31);
+            when(paymentRollups.backfill(from, to)).thenReturn(31);
+
+            assertThat(paymentService.backfillPaymentRollups(from, to)).isEqualTo(31);
+        }
+
+        @Test
+        @DisplayName("Should hand stale payment expiry to the pipeline")
+        void shouldExpirePendingPaymentsThroughPipeline() {
+            when(paymentExpiryPipeline.expire(any(LocalDateTime.class), eq("Payment expired - not completed within 24 hours"),
+                    eq(1L), eq(Long.MAX_VALUE)))
+                    .thenReturn(3);
+
+            int expired = paymentService.expirePendingPayments(24);
+
+            assertThat(expired).isEqualTo(3);
+            verifyNoInteractions(stripeService);
+        }
+
+        @Test
+        @DisplayName("Should hand an id range of the stale payment expiry to the pipeline")
+        void shouldExpirePendingPaymentsOfIdRange() {
+            when(paymentExpiryPipeline.expire(any(LocalDateTime.class), anyString(), eq(1001L), eq(2000L)))
+                    .thenReturn(2);
+
+            assertThat(paymentService.expirePendingPayments(24, 1001, 2000)).isEqualTo(2);
+        }
     }
-}
 
+    private static PaymentRepository.BookingPaidTotal paidTotal(Long bookingId, long totalPaidMinor) {
+        PaymentRepository.BookingPaidTotal total = mock(PaymentRepository.BookingPaidTotal.class);
+        when(total.getBookingId()).thenReturn(bookingId);
+        when(total.getTotalPaidMinor()).thenReturn(totalPaidMinor);
+        return total;
+    }
+}
@@ -0,0 +1,155 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.dao.entity.PaymentMethod;
+import ma.lunaire.paymentservice.dto.CreatePaymentRequest;
+import ma.lunaire.paymentservice.exception.VelocityLimitExceededException;
+import ma.lunaire.paymentservice.service.impl.PaymentVelocityLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the payment creation velocity limits.
+ */
+class PaymentVelocityLimiterTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-15T10:00:00Z");
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentVelocityLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new PaymentVelocityLimiter(meterRegistry);
+        ReflectionTestUtils.setField(limiter, "windowSeconds", 600L);
+        ReflectionTestUtils.setField(limiter, "maxPerUser", 3);
+        ReflectionTestUtils.setField(limiter, "maxPerEmail", 3);
+        ReflectionTestUtils.setField(limiter, "maxPerPaymentMethod", 2);
+        ReflectionTestUtils.setField(limiter, "maxTrackedKeys", 1000L);
+        at(NOW);
+        limiter.init();
+    }
+
+    @Nested
+    @DisplayName("Limit Tests")
+    class LimitTests {
+
+        @Test
+        @DisplayName("Should allow attempts up to the per-user limit and reject the next one")
+        void shouldRejectOverUserLimit() {
+            for (int i = 0; i < 3; i++) {
+                limiter.check(request(1L, null, null));
+            }
+
+            assertThatThrownBy(() -> limiter.check(request(1L, null, null)))
+                    .isInstanceOf(VelocityLimitExceededException.class)
+                    .hasMessageContaining("Too many payment attempts");
+            limiter.check(request(2L, null, null));
+            assertThat(meterRegistry.get("payments.velocity.rejected").tag("dimension", "user").counter().count())
+                    .isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should count the same email across users, ignoring case")
+        void shouldLimitPerEmail() {
+            limiter.check(request(1L, "Guest@Example.com", null));
+            limiter.check(request(2L, "guest@example.com", null));
+            limiter.check(request(3L, "GUEST@example.com ", null));
+
+            assertThatThrownBy(() -> limiter.check(request(4L, "guest@example.com", null)))
+                    .isInstanceOf(VelocityLimitExceededException.class);
+        }
+
+        @Test
+        @DisplayName("Should count the same payment method across users")
+        void shouldLimitPerPaymentMethod() {
+            limiter.check(request(1L, null, "pm_card"));
+            limiter.check(request(2L, null, "pm_card"));
+
+            assertThatThrownBy(() -> limiter.check(request(3L, null, "pm_card")))
+                    .isInstanceOf(VelocityLimitExceededException.class);
+        }
+
+        @Test
+        @DisplayName("Should skip a limit set to zero")
+        void shouldSkipDisabledLimit() {
+            ReflectionTestUtils.setField(limiter, "maxPerUser", 0);
+
+            for (int i = 0; i < 10; i++) {
+                limiter.check(request(1L, null, null));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Window Tests")
+    class WindowTests {
+
+        @Test
+        @DisplayName("Should allow attempts again once earlier ones slide out of the window")
+        void shouldSlideWindow() {
+            for (int i = 0; i < 3; i++) {
+                limiter.check(request(1L, null, null));
+            }
+            at(NOW.plus(Duration.ofMinutes(5)));
+            assertThatThrownBy(() -> limiter.check(request(1L, null, null)))
+                    .isInstanceOf(VelocityLimitExceededException.class);
+
+            at(NOW.plus(Duration.ofMinutes(10)));
+            limiter.check(request(1L, null, null));
+        }
+
+        @Test
+        @DisplayName("Should count every concurrent attempt exactly once")
+        void shouldCountConcurrentAttempts() throws Exception {
+            ReflectionTestUtils.setField(limiter, "maxPerUser", 100);
+            AtomicInteger rejected = new AtomicInteger();
+            List<CompletableFuture<Void>> attempts = new ArrayList<>();
+            for (int i = 0; i < 150; i++) {
+                attempts.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        limiter.check(request(1L, null, null));
+                    } catch (VelocityLimitExceededException e) {
+                        rejected.incrementAndGet();
+                    }
+                }));
+            }
+            CompletableFuture.allOf(attempts.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+            assertThat(rejected).hasValue(50);
+        }
+    }
+
+    private void at(Instant instant) {
+        ReflectionTestUtils.setField(limiter, "clock", Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    private static CreatePaymentRequest request(Long userId, String email, String paymentMethodId) {
+        return CreatePaymentRequest.builder()
+                .bookingId(100L)
+                .userId(userId)
+                .amount(new BigDecimal("500.00"))
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .customerEmail(email)
+                .stripePaymentMethodId(paymentMethodId)
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.dao.entity.StripeCustomer;
+import ma.lunaire.paymentservice.dao.repository.StripeCustomerRepository;
+import ma.lunaire.paymentservice.service.impl.StripeCustomerCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the local Stripe customer mapping.
+ */
+@ExtendWith(MockitoExtension.class)
+class StripeCustomerCacheTest {
+
+    @Mock
+    private StripeCustomerRepository stripeCustomerRepository;
+
+    private StripeCustomerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new StripeCustomerCache(stripeCustomerRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "cacheSize", 100L);
+        cache.init();
+    }
+
+    @Test
+    @DisplayName("Should load a stored mapping once and then answer from memory")
+    void shouldLoadStoredMappingOnce() {
+        when(stripeCustomerRepository.findByEmail("guest@example.com")).thenReturn(Optional.of(
+                StripeCustomer.builder().email("guest@example.com").stripeCustomerId("cus_1").build()));
+
+        assertThat(cache.find("guest@example.com")).contains("cus_1");
+        assertThat(cache.find("guest@example.com")).contains("cus_1");
+
+        verify(stripeCustomerRepository, times(1)).findByEmail("guest@example.com");
+    }
+
+    @Test
+    @DisplayName("Should match emails regardless of case and surrounding spaces")
+    void shouldNormalizeEmail() {
+        cache.remember("  Guest@Example.COM ", "cus_1");
+
+        ArgumentCaptor<StripeCustomer> saved = ArgumentCaptor.forClass(StripeCustomer.class);
+        verify(stripeCustomerRepository).saveAndFlush(saved.capture());
+        assertThat(saved.getValue().getEmail()).isEqualTo("guest@example.com");
+        assertThat(cache.find("guest@example.com")).contains("cus_1");
+        verify(stripeCustomerRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("Should not cache unknown emails")
+    void shouldNotCacheMisses() {
+        when(stripeCustomerRepository.findByEmail("new@example.com")).thenReturn(Optional.empty());
+
+        assertThat(cache.find("new@example.com")).isEmpty();
+        assertThat(cache.find("new@example.com")).isEmpty();
+
+        verify(stripeCustomerRepository, times(2)).findByEmail("new@example.com");
+    }
+}
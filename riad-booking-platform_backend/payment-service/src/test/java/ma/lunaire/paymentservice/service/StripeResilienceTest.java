@@ -0,0 +1,213 @@
+package ma.lunaire.paymentservice.service;
+
+import com.stripe.StripeClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.exception.StripeUnavailableException;
+import ma.lunaire.paymentservice.service.impl.StripeCallGuard;
+import ma.lunaire.paymentservice.service.impl.StripeCustomerCache;
+import ma.lunaire.paymentservice.service.impl.StripeServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Resilience tests for Stripe calls against a local HTTP stand-in that injects latency and errors.
+ */
+class StripeResilienceTest {
+
+    private static final String PAYMENT_INTENT = """
+            {"id":"pi_test123","object":"payment_intent","amount":50000,"currency":"mad","status":"succeeded"}""";
+    private static final String API_ERROR = """
+            {"error":{"type":"api_error","message":"Simulated Stripe outage"}}""";
+    private static final String INVALID_REQUEST = """
+            {"error":{"type":"invalid_request_error","message":"No such payment_intent"}}""";
+    private static final String ALREADY_CANCELED = """
+            {"error":{"type":"invalid_request_error","code":"payment_intent_unexpected_state",
+            "message":"You cannot cancel this PaymentIntent because it has a status of canceled.",
+            "payment_intent":{"id":"pi_test123","object":"payment_intent","amount":50000,"currency":"mad","status":"canceled"}}}""";
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long latencyMs;
+    private volatile int status = 200;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private StripeCallGuard stripeCallGuard;
+    private StripeService stripeService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::respond);
+        server.start();
+
+        StripeClient stripeClient = StripeClient.builder()
+                .setApiKey("sk_test_standin")
+                .setApiBase("http://localhost:" + server.getAddress().getPort())
+                .setMaxNetworkRetries(0)
+                .build();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(StripeCallGuard.TIMEOUT_PREFIX + "payment_intent.retrieve", "200");
+
+        stripeCallGuard = new StripeCallGuard(environment, meterRegistry);
+        ReflectionTestUtils.setField(stripeCallGuard, "maxConcurrentCalls", 1);
+        ReflectionTestUtils.setField(stripeCallGuard, "maxWaitMs", 0L);
+        ReflectionTestUtils.setField(stripeCallGuard, "defaultTimeoutMs", 2000);
+        ReflectionTestUtils.setField(stripeCallGuard, "failureRateThreshold", 50f);
+        ReflectionTestUtils.setField(stripeCallGuard, "windowSize", 4);
+        ReflectionTestUtils.setField(stripeCallGuard, "minimumCalls", 4);
+        ReflectionTestUtils.setField(stripeCallGuard, "openDurationMs", 200L);
+        ReflectionTestUtils.setField(stripeCallGuard, "halfOpenCalls", 1);
+        stripeCallGuard.init();
+
+        stripeService = new StripeServiceImpl(stripeClient, stripeCallGuard, mock(StripeCustomerCache.class), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should give up on a slow call at the operation's read timeout")
+    void shouldTimeOutSlowCall() {
+        latencyMs = 1500;
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> stripeService.retrievePaymentIntent("pi_test123"))
+                .isInstanceOf(PaymentProcessingException.class)
+                .isNotInstanceOf(StripeUnavailableException.class);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1000);
+    }
+
+    @Test
+    @DisplayName("Should open after repeated Stripe errors and then fail fast without calling Stripe")
+    void shouldOpenAfterRepeatedErrors() {
+        status = 500;
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> stripeService.retrievePaymentIntent("pi_test123"))
+                    .isInstanceOf(PaymentProcessingException.class)
+                    .isNotInstanceOf(StripeUnavailableException.class);
+        }
+        assertThat(stripeCallGuard.state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> stripeService.retrievePaymentIntent("pi_test123"))
+                .isInstanceOf(StripeUnavailableException.class);
+        assertThat(requests.get()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should probe once the open period ends and close when Stripe has recovered")
+    void shouldCloseAfterSuccessfulProbe() throws InterruptedException {
+        status = 500;
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> stripeService.retrievePaymentIntent("pi_test123"))
+                    .isInstanceOf(PaymentProcessingException.class);
+        }
+        assertThat(stripeCallGuard.state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        status = 200;
+        Thread.sleep(300);
+
+        assertThat(stripeService.retrievePaymentIntent("pi_test123").getId()).isEqualTo("pi_test123");
+        assertThat(stripeCallGuard.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Should not open on requests Stripe rejects as invalid")
+    void shouldIgnoreClientErrors() {
+        status = 404;
+
+        for (int i = 0; i < 6; i++) {
+            assertThatThrownBy(() -> stripeService.retrievePaymentIntent("pi_unknown"))
+                    .isInstanceOf(PaymentProcessingException.class)
+                    .isNotInstanceOf(StripeUnavailableException.class);
+        }
+
+        assertThat(stripeCallGuard.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(requests.get()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Should treat cancelling an already cancelled PaymentIntent as done")
+    void shouldAcceptAlreadyCancelledPaymentIntent() {
+        status = 400;
+
+        assertThat(stripeService.cancelPaymentIntent("pi_test123").getStatus()).isEqualTo("canceled");
+    }
+
+    @Test
+    @DisplayName("Should still fail a cancellation Stripe rejects for another reason")
+    void shouldRejectOtherInvalidCancellation() {
+        status = 404;
+
+        assertThatThrownBy(() -> stripeService.cancelPaymentIntent("pi_unknown"))
+                .isInstanceOf(PaymentProcessingException.class);
+    }
+
+    @Test
+    @DisplayName("Should reject calls beyond the concurrency limit instead of queueing them")
+    void shouldRejectCallsBeyondBulkhead() throws Exception {
+        latencyMs = 500;
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(
+                () -> stripeService.cancelPaymentIntent("pi_test123").getId(), executor);
+        while (requests.get() == 0) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> stripeService.cancelPaymentIntent("pi_test123"))
+                .isInstanceOf(StripeUnavailableException.class);
+        assertThat(first.get()).isEqualTo("pi_test123");
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            String body = switch (status) {
+                case 200 -> PAYMENT_INTENT;
+                case 400 -> ALREADY_CANCELED;
+                case 404 -> INVALID_REQUEST;
+                default -> API_ERROR;
+            };
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
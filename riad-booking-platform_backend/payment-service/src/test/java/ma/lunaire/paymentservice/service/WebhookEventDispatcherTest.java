@@ -0,0 +1,111 @@
+package ma.lunaire.paymentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.service.impl.WebhookEventDispatcher;
+import ma.lunaire.paymentservice.service.impl.WebhookEventProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Lane routing tests with a real thread pool and a mocked processor.
+ */
+class WebhookEventDispatcherTest {
+
+    private WebhookEventProcessor processor;
+    private SimpleMeterRegistry meterRegistry;
+    private WebhookEventDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        processor = mock(WebhookEventProcessor.class);
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new WebhookEventDispatcher(processor, meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "workers", 4);
+        ReflectionTestUtils.setField(dispatcher, "laneCapacity", 2);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    @DisplayName("Should process events of one PaymentIntent in dispatch order")
+    void shouldKeepOrderPerPaymentIntent() throws InterruptedException {
+        List<Long> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        when(processor.process(any())).thenAnswer(invocation -> {
+            processed.add(invocation.getArgument(0));
+            done.countDown();
+            return WebhookEventProcessor.Outcome.PROCESSED;
+        });
+
+        dispatcher.dispatch(1L, "pi_same");
+        dispatcher.dispatch(2L, "pi_same");
+        dispatcher.dispatch(3L, "pi_same");
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(processed).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("Should not queue an event that is already in flight")
+    void shouldNotQueueTwice() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(processor.process(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return WebhookEventProcessor.Outcome.PROCESSED;
+        });
+
+        assertThat(dispatcher.dispatch(1L, "pi_1")).isTrue();
+        assertThat(dispatcher.dispatch(1L, "pi_1")).isFalse();
+        assertThat(meterRegistry.get("stripe.webhook.queue.depth").gauge().value()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Should reject events once the lane is full")
+    void shouldRejectWhenLaneFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(processor.process(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return WebhookEventProcessor.Outcome.PROCESSED;
+        });
+
+        // One running plus a queue of two
+        assertThat(dispatcher.dispatch(1L, "pi_1")).isTrue();
+        verify(processor, timeout(1000)).process(1L);
+        assertThat(dispatcher.dispatch(2L, "pi_1")).isTrue();
+        assertThat(dispatcher.dispatch(3L, "pi_1")).isTrue();
+        assertThat(dispatcher.dispatch(4L, "pi_1")).isFalse();
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Should record a failure when processing throws")
+    void shouldRecordFailure() {
+        IllegalStateException error = new IllegalStateException("boom");
+        when(processor.process(5L)).thenThrow(error);
+
+        dispatcher.dispatch(5L, "pi_5");
+
+        InOrder inOrder = inOrder(processor);
+        inOrder.verify(processor, timeout(1000)).process(5L);
+        inOrder.verify(processor, timeout(1000)).recordFailure(eq(5L), eq(error));
+    }
+}
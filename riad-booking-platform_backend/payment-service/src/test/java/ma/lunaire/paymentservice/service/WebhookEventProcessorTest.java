@@ -0,0 +1,185 @@
+package ma.lunaire.paymentservice.service;
+
+import com.stripe.model.Event;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.dao.entity.StripeWebhookEvent;
+import ma.lunaire.paymentservice.dao.entity.WebhookEventStatus;
+import ma.lunaire.paymentservice.dao.repository.StripeWebhookEventRepository;
+import ma.lunaire.paymentservice.service.impl.WebhookEventProcessor;
+import ma.lunaire.paymentservice.service.impl.WebhookEventProcessor.Outcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for processing stored webhook events.
+ */
+@ExtendWith(MockitoExtension.class)
+class WebhookEventProcessorTest {
+
+    @Mock
+    private StripeWebhookEventRepository webhookEventRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WebhookEventProcessor processor;
+    private StripeWebhookEvent stored;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        processor = new WebhookEventProcessor(webhookEventRepository, paymentService, meterRegistry);
+        ReflectionTestUtils.setField(processor, "retryDelayMs", 1000L);
+        ReflectionTestUtils.setField(processor, "maxAttempts", 3);
+
+        stored = StripeWebhookEvent.builder()
+                .id(10L)
+                .eventId("evt_10")
+                .type("payment_intent.succeeded")
+                .orderingKey("pi_123")
+                .payload(WebhookEventServiceImplTest.paymentIntentEvent("evt_10", "payment_intent.succeeded", "pi_123"))
+                .receivedAt(LocalDateTime.now().minusSeconds(2))
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Nested
+    @DisplayName("Process Tests")
+    class ProcessTests {
+
+        @Test
+        @DisplayName("Should hand the event to the payment service and mark it processed")
+        void shouldProcessPendingEvent() {
+            when(webhookEventRepository.findById(10L)).thenReturn(Optional.of(stored));
+            when(webhookEventRepository.existsByOrderingKeyAndStatusAndIdLessThan("pi_123", WebhookEventStatus.PENDING, 10L))
+                    .thenReturn(false);
+
+            Outcome outcome = processor.process(10L);
+
+            assertThat(outcome).isEqualTo(Outcome.PROCESSED);
+            ArgumentCaptor<Event> event = ArgumentCaptor.forClass(Event.class);
+            verify(paymentService).handleStripeEvent(event.capture());
+            assertThat(event.getValue().getId()).isEqualTo("evt_10");
+            assertThat(event.getValue().getType()).isEqualTo("payment_intent.succeeded");
+            assertThat(stored.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+            assertThat(stored.getProcessedAt()).isNotNull();
+            assertThat(stored.getAttempts()).isEqualTo(1);
+            assertThat(meterRegistry.timer("stripe.webhook.lag").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should skip an event that is no longer pending")
+        void shouldSkipProcessedEvent() {
+            stored.setStatus(WebhookEventStatus.PROCESSED);
+            when(webhookEventRepository.findById(10L)).thenReturn(Optional.of(stored));
+
+            assertThat(processor.process(10L)).isEqualTo(Outcome.SKIPPED);
+            verifyNoInteractions(paymentService);
+        }
+
+        @Test
+        @DisplayName("Should defer while an earlier event for the same PaymentIntent is pending")
+        void shouldDeferBehindEarlierEvent() {
+            LocalDateTime before = stored.getNextAttemptAt();
+            when(webhookEventRepository.findById(10L)).thenReturn(Optional.of(stored));
+            when(webhookEventRepository.existsByOrderingKeyAndStatusAndIdLessThan("pi_123", WebhookEventStatus.PENDING, 10L))
+                    .thenReturn(true);
+
+            assertThat(processor.process(10L)).isEqualTo(Outcome.DEFERRED);
+            verifyNoInteractions(paymentService);
+            assertThat(stored.getStatus()).isEqualTo(WebhookEventStatus.PENDING);
+            assertThat(stored.getNextAttemptAt()).isAfter(before);
+        }
+    }
+
+    @Nested
+    @DisplayName("Replay Tests")
+    class ReplayTests {
+
+        @Test
+        @DisplayName("Should apply a failed event again and mark it processed")
+        void shouldReplayFailedEvent() {
+            stored.setStatus(WebhookEventStatus.FAILED);
+            stored.setLastError("db down");
+            when(webhookEventRepository.findById(10L)).thenReturn(Optional.of(stored));
+
+            processor.replay(10L);
+
+            verify(paymentService).handleStripeEvent(any(Event.class));
+            assertThat(stored.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+            assertThat(stored.getLastError()).isNull();
+        }
+
+        @Test
+        @DisplayName("Should apply a processed event again without touching it")
+        void shouldReplayProcessedEvent() {
+            LocalDateTime processedAt = LocalDateTime.now().minusDays(1);
+            stored.setStatus(WebhookEventStatus.PROCESSED);
+            stored.setProcessedAt(processedAt);
+            when(webhookEventRepository.findById(10L)).thenReturn(Optional.of(stored));
+
+            processor.replay(10L);
+
+            verify(paymentService).handleStripeEvent(any(Event.class));
+            assertThat(stored.getProcessedAt()).isEqualTo(processedAt);
+        }
+    }
+
+    @Nested
+    @DisplayName("Failure Tests")
+    class FailureTests {
+
+        @Test
+        @DisplayName("Should reschedule with backoff while attempts remain")
+        void shouldRescheduleFailedEvent() {
+            when(webhookEventRepository.findById(10L)).thenReturn(Optional.of(stored));
+
+            processor.recordFailure(10L, new IllegalStateException("db down"));
+
+            assertThat(stored.getStatus()).isEqualTo(WebhookEventStatus.PENDING);
+            assertThat(stored.getAttempts()).isEqualTo(1);
+            assertThat(stored.getLastError()).isEqualTo("db down");
+            assertThat(stored.getNextAttemptAt()).isAfter(LocalDateTime.now());
+        }
+
+        @Test
+        @DisplayName("Should give up after the maximum number of attempts")
+        void shouldFailAfterMaxAttempts() {
+            stored.setAttempts(2);
+            when(webhookEventRepository.findById(10L)).thenReturn(Optional.of(stored));
+
+            processor.recordFailure(10L, new IllegalStateException("still broken"));
+
+            assertThat(stored.getStatus()).isEqualTo(WebhookEventStatus.FAILED);
+            assertThat(stored.getAttempts()).isEqualTo(3);
+            assertThat(meterRegistry.counter("stripe.webhook.events", "outcome", "failed").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should leave a processed event untouched")
+        void shouldIgnoreFailureOfProcessedEvent() {
+            stored.setStatus(WebhookEventStatus.PROCESSED);
+            when(webhookEventRepository.findById(10L)).thenReturn(Optional.of(stored));
+
+            processor.recordFailure(10L, new IllegalStateException("late"));
+
+            assertThat(stored.getAttempts()).isZero();
+            verify(webhookEventRepository, never()).save(any());
+        }
+    }
+}
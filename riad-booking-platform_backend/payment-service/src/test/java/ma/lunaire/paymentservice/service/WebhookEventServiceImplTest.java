@@ -0,0 +1,178 @@
+package ma.lunaire.paymentservice.service;
+
+import com.stripe.Stripe;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.config.StripeConfig;
+import ma.lunaire.paymentservice.dao.entity.StripeWebhookEvent;
+import ma.lunaire.paymentservice.dao.entity.WebhookEventStatus;
+import ma.lunaire.paymentservice.dao.repository.StripeWebhookEventRepository;
+import ma.lunaire.paymentservice.exception.PaymentProcessingException;
+import ma.lunaire.paymentservice.service.impl.WebhookEventDispatcher;
+import ma.lunaire.paymentservice.service.impl.WebhookEventServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for webhook ingestion: signature check, dedupe and lane dispatch.
+ */
+@ExtendWith(MockitoExtension.class)
+class WebhookEventServiceImplTest {
+
+    private static final String WEBHOOK_SECRET = "whsec_test";
+
+    @Mock
+    private StripeWebhookEventRepository webhookEventRepository;
+
+    @Mock
+    private WebhookEventDispatcher webhookEventDispatcher;
+
+    @Mock
+    private StripeConfig stripeConfig;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WebhookEventServiceImpl webhookEventService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        webhookEventService = new WebhookEventServiceImpl(
+                webhookEventRepository, webhookEventDispatcher, stripeConfig, meterRegistry);
+        ReflectionTestUtils.setField(webhookEventService, "retryDelayMs", 5000L);
+        ReflectionTestUtils.setField(webhookEventService, "recoveryBatchSize", 100);
+        lenient().when(stripeConfig.getWebhookSecret()).thenReturn(WEBHOOK_SECRET);
+    }
+
+    @Nested
+    @DisplayName("Ingest Tests")
+    class IngestTests {
+
+        @Test
+        @DisplayName("Should store a new event and queue it on the PaymentIntent lane")
+        void shouldStoreAndDispatchNewEvent() throws Exception {
+            String payload = paymentIntentEvent("evt_1", "payment_intent.succeeded", "pi_123");
+            when(webhookEventRepository.existsByEventId("evt_1")).thenReturn(false);
+            when(webhookEventRepository.saveAndFlush(any(StripeWebhookEvent.class))).thenAnswer(invocation -> {
+                StripeWebhookEvent event = invocation.getArgument(0);
+                event.setId(42L);
+                return event;
+            });
+
+            boolean accepted = webhookEventService.ingest(payload, sign(payload));
+
+            assertThat(accepted).isTrue();
+            ArgumentCaptor<StripeWebhookEvent> stored = ArgumentCaptor.forClass(StripeWebhookEvent.class);
+            verify(webhookEventRepository).saveAndFlush(stored.capture());
+            assertThat(stored.getValue().getEventId()).isEqualTo("evt_1");
+            assertThat(stored.getValue().getType()).isEqualTo("payment_intent.succeeded");
+            assertThat(stored.getValue().getOrderingKey()).isEqualTo("pi_123");
+            assertThat(stored.getValue().getStatus()).isEqualTo(WebhookEventStatus.PENDING);
+            assertThat(stored.getValue().getPayload()).isEqualTo(payload);
+            verify(webhookEventDispatcher).dispatch(42L, "pi_123");
+            assertThat(meterRegistry.counter("stripe.webhook.events", "outcome", "accepted").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should ignore an event that was already received")
+        void shouldIgnoreDuplicateEvent() throws Exception {
+            String payload = paymentIntentEvent("evt_1", "payment_intent.succeeded", "pi_123");
+            when(webhookEventRepository.existsByEventId("evt_1")).thenReturn(true);
+
+            boolean accepted = webhookEventService.ingest(payload, sign(payload));
+
+            assertThat(accepted).isFalse();
+            verify(webhookEventRepository, never()).saveAndFlush(any());
+            verifyNoInteractions(webhookEventDispatcher);
+        }
+
+        @Test
+        @DisplayName("Should treat a unique key violation as a duplicate delivery")
+        void shouldTreatUniqueViolationAsDuplicate() throws Exception {
+            String payload = paymentIntentEvent("evt_1", "payment_intent.succeeded", "pi_123");
+            when(webhookEventRepository.existsByEventId("evt_1")).thenReturn(false);
+            when(webhookEventRepository.saveAndFlush(any(StripeWebhookEvent.class)))
+                    .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+            boolean accepted = webhookEventService.ingest(payload, sign(payload));
+
+            assertThat(accepted).isFalse();
+            verifyNoInteractions(webhookEventDispatcher);
+            assertThat(meterRegistry.counter("stripe.webhook.events", "outcome", "duplicate").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should reject an invalid signature without storing anything")
+        void shouldRejectInvalidSignature() {
+            String payload = paymentIntentEvent("evt_1", "payment_intent.succeeded", "pi_123");
+
+            assertThatThrownBy(() -> webhookEventService.ingest(payload, "t=1,v1=bad"))
+                    .isInstanceOf(PaymentProcessingException.class);
+            verifyNoInteractions(webhookEventRepository, webhookEventDispatcher);
+        }
+    }
+
+    @Nested
+    @DisplayName("Recovery Tests")
+    class RecoveryTests {
+
+        @Test
+        @DisplayName("Should queue due events in order and count only those accepted by a lane")
+        void shouldQueueDueEvents() {
+            StripeWebhookEvent first = StripeWebhookEvent.builder().id(1L).orderingKey("pi_1").build();
+            StripeWebhookEvent second = StripeWebhookEvent.builder().id(2L).orderingKey("pi_2").build();
+            when(webhookEventRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+                    .thenReturn(List.of(first, second));
+            when(webhookEventDispatcher.dispatch(1L, "pi_1")).thenReturn(true);
+            when(webhookEventDispatcher.dispatch(2L, "pi_2")).thenReturn(false);
+
+            int queued = webhookEventService.recoverPending();
+
+            assertThat(queued).isEqualTo(1);
+            var inOrder = inOrder(webhookEventDispatcher);
+            inOrder.verify(webhookEventDispatcher).dispatch(1L, "pi_1");
+            inOrder.verify(webhookEventDispatcher).dispatch(2L, "pi_2");
+        }
+
+        @Test
+        @DisplayName("Should do nothing when no event is due")
+        void shouldDoNothingWhenNothingDue() {
+            when(webhookEventRepository.findDue(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of());
+
+            assertThat(webhookEventService.recoverPending()).isZero();
+            verify(webhookEventDispatcher, never()).dispatch(anyLong(), anyString());
+        }
+    }
+
+    static String paymentIntentEvent(String eventId, String type, String paymentIntentId) {
+        return """
+                {"id":"%s","object":"event","api_version":"%s","created":%d,"type":"%s","livemode":false,
+                 "pending_webhooks":1,"data":{"object":{"id":"%s","object":"payment_intent","amount":50000,
+                 "currency":"mad","status":"succeeded"}}}"""
+                .formatted(eventId, Stripe.API_VERSION, Instant.now().getEpochSecond(), type, paymentIntentId);
+    }
+
+    private static String sign(String payload) throws Exception {
+        long timestamp = Instant.now().getEpochSecond();
+        return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(WEBHOOK_SECRET, timestamp + "." + payload);
+    }
+}
@@ -0,0 +1,228 @@
+package ma.lunaire.paymentservice.service;
+
+import com.stripe.model.Event;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.lunaire.paymentservice.dao.entity.StripeWebhookEvent;
+import ma.lunaire.paymentservice.dao.entity.WebhookReplayCheckpoint;
+import ma.lunaire.paymentservice.dao.repository.StripeWebhookEventRepository;
+import ma.lunaire.paymentservice.dao.repository.WebhookReplayCheckpointRepository;
+import ma.lunaire.paymentservice.dto.WebhookReplayRequest;
+import ma.lunaire.paymentservice.dto.WebhookReplayResult;
+import ma.lunaire.paymentservice.exception.InvalidPaymentOperationException;
+import ma.lunaire.paymentservice.service.impl.WebhookEventProcessor;
+import ma.lunaire.paymentservice.service.impl.WebhookReplayer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for replaying Stripe webhook events.
+ */
+@ExtendWith(MockitoExtension.class)
+class WebhookReplayerTest {
+
+    @Mock
+    private StripeWebhookEventRepository webhookEventRepository;
+
+    @Mock
+    private WebhookReplayCheckpointRepository checkpointRepository;
+
+    @Mock
+    private WebhookEventProcessor webhookEventProcessor;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @TempDir
+    private Path replayDirectory;
+
+    private WebhookReplayer replayer;
+
+    @BeforeEach
+    void setUp() {
+        replayer = new WebhookReplayer(webhookEventRepository, checkpointRepository, webhookEventProcessor,
+                paymentService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(replayer, "workers", 4);
+        ReflectionTestUtils.setField(replayer, "chunkSize", 2);
+        ReflectionTestUtils.setField(replayer, "directory", replayDirectory.toString());
+        lenient().when(checkpointRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Nested
+    @DisplayName("Stored Event Tests")
+    class StoredEventTests {
+
+        @Test
+        @DisplayName("Should replay stored events chunk by chunk and checkpoint each chunk")
+        void shouldReplayStoredEvents() {
+            when(webhookEventRepository.findForReplay(anyLong(), any(), any(), any(Pageable.class)))
+                    .thenReturn(List.of(stored(1L, "pi_1"), stored(2L, "pi_2")))
+                    .thenReturn(List.of(stored(3L, "pi_1")))
+                    .thenReturn(Collections.emptyList());
+
+            WebhookReplayResult result = replayer.replay(request(null));
+
+            assertThat(result.isCompleted()).isTrue();
+            assertThat(result.getReplayed()).isEqualTo(3);
+            assertThat(result.getPosition()).isEqualTo(3);
+            assertThat(result.getEventsPerSecond()).isPositive();
+            InOrder inOrder = inOrder(webhookEventProcessor);
+            inOrder.verify(webhookEventProcessor).replay(1L);
+            inOrder.verify(webhookEventProcessor).replay(3L);
+            verify(webhookEventProcessor).replay(2L);
+            verify(webhookEventRepository).findForReplay(eq(2L), any(), any(), any(Pageable.class));
+        }
+
+        @Test
+        @DisplayName("Should resume after the checkpoint of an earlier run")
+        void shouldResumeFromCheckpoint() {
+            when(checkpointRepository.findById("outage")).thenReturn(Optional.of(checkpoint("stored", 2L)));
+            when(webhookEventRepository.findForReplay(eq(2L), any(), any(), any(Pageable.class)))
+                    .thenReturn(List.of(stored(3L, "pi_1")));
+            when(webhookEventRepository.findForReplay(eq(3L), any(), any(), any(Pageable.class)))
+                    .thenReturn(Collections.emptyList());
+
+            WebhookReplayResult result = replayer.replay(request(null));
+
+            assertThat(result.getResumedFrom()).isEqualTo(2);
+            assertThat(result.getReplayed()).isEqualTo(1);
+            verify(webhookEventProcessor).replay(3L);
+            verifyNoMoreInteractions(webhookEventProcessor);
+        }
+
+        @Test
+        @DisplayName("Should stop before the checkpoint when an event fails")
+        void shouldStopOnFailure() {
+            when(webhookEventRepository.findForReplay(anyLong(), any(), any(), any(Pageable.class)))
+                    .thenReturn(List.of(stored(1L, "pi_1"), stored(2L, "pi_1")));
+            doThrow(new IllegalStateException("db down")).when(webhookEventProcessor).replay(1L);
+
+            WebhookReplayResult result = replayer.replay(request(null));
+
+            assertThat(result.isCompleted()).isFalse();
+            assertThat(result.getFailed()).isEqualTo(2);
+            assertThat(result.getPosition()).isZero();
+            verify(webhookEventProcessor, never()).replay(2L);
+            verify(checkpointRepository, never()).save(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Export File Tests")
+    class ExportFileTests {
+
+        @Test
+        @DisplayName("Should keep the order of each PaymentIntent while replaying in parallel")
+        void shouldKeepOrderPerPaymentIntent() throws Exception {
+            ReflectionTestUtils.setField(replayer, "chunkSize", 100);
+            List<String> lines = IntStream.range(0, 60)
+                    .mapToObj(i -> event("evt_" + i, "pi_" + (i % 3)))
+                    .toList();
+            Files.write(replayDirectory.resolve("events.jsonl"), lines);
+            List<String> applied = Collections.synchronizedList(new ArrayList<>());
+            doAnswer(invocation -> applied.add(invocation.<Event>getArgument(0).getId()))
+                    .when(paymentService).handleStripeEvent(any());
+
+            WebhookReplayResult result = replayer.replay(request("events.jsonl"));
+
+            assertThat(result.getReplayed()).isEqualTo(60);
+            assertThat(result.getPosition()).isEqualTo(60);
+            List<String> firstIntent = applied.stream()
+                    .filter(id -> Integer.parseInt(id.substring(4)) % 3 == 0)
+                    .toList();
+            assertThat(firstIntent).isSortedAccordingTo((a, b) ->
+                    Integer.compare(Integer.parseInt(a.substring(4)), Integer.parseInt(b.substring(4))));
+            assertThat(firstIntent).hasSize(20);
+        }
+
+        @Test
+        @DisplayName("Should skip the lines before the checkpoint")
+        void shouldResumeFile() throws Exception {
+            Files.write(replayDirectory.resolve("events.jsonl"),
+                    List.of(event("evt_1", "pi_1"), "", event("evt_2", "pi_1")));
+            when(checkpointRepository.findById("outage"))
+                    .thenReturn(Optional.of(checkpoint("file:events.jsonl", 1L)));
+
+            WebhookReplayResult result = replayer.replay(request("events.jsonl"));
+
+            assertThat(result.getReplayed()).isEqualTo(1);
+            assertThat(result.getPosition()).isEqualTo(3);
+            verify(paymentService).handleStripeEvent(argThat(event -> event.getId().equals("evt_2")));
+            verifyNoMoreInteractions(paymentService);
+        }
+
+        @Test
+        @DisplayName("Should refuse a file outside the replay directory")
+        void shouldRefusePathOutsideDirectory() {
+            assertThatThrownBy(() -> replayer.replay(request("../events.jsonl")))
+                    .isInstanceOf(InvalidPaymentOperationException.class)
+                    .hasMessageContaining("Replay file not found");
+        }
+
+        @Test
+        @DisplayName("Should refuse to resume a replay from another source")
+        void shouldRefuseOtherSource() {
+            when(checkpointRepository.findById("outage")).thenReturn(Optional.of(checkpoint("stored", 5L)));
+
+            assertThatThrownBy(() -> replayer.replay(request("events.jsonl")))
+                    .isInstanceOf(InvalidPaymentOperationException.class)
+                    .hasMessageContaining("was started from stored");
+        }
+    }
+
+    private static WebhookReplayRequest request(String file) {
+        return WebhookReplayRequest.builder()
+                .replayId("outage")
+                .file(file)
+                .build();
+    }
+
+    private static WebhookReplayCheckpoint checkpoint(String source, Long position) {
+        return WebhookReplayCheckpoint.builder()
+                .replayId("outage")
+                .source(source)
+                .position(position)
+                .replayed(position)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static StripeWebhookEvent stored(Long id, String paymentIntentId) {
+        return StripeWebhookEvent.builder()
+                .id(id)
+                .eventId("evt_" + id)
+                .type("payment_intent.succeeded")
+                .orderingKey(paymentIntentId)
+                .payload(event("evt_" + id, paymentIntentId))
+                .build();
+    }
+
+    private static String event(String eventId, String paymentIntentId) {
+        return WebhookEventServiceImplTest.paymentIntentEvent(eventId, "payment_intent.succeeded", paymentIntentId)
+                .replace("\n", "");
+    }
+}
@@ -1,19 +1,37 @@
 package com.code.researchservice.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.elasticsearch.client.ClientConfiguration;
 import org.springframework.data.elasticsearch.client.elc.ElasticsearchConfiguration;
 
+import java.net.URI;
+import java.util.Arrays;
+
 @Configuration
 public class ElasticsearchConfig extends ElasticsearchConfiguration {
 
+    private static final int DEFAULT_PORT = 9200;
+
+    @Value("${spring.elasticsearch.uris:http://localhost:9200}")
+    private String uris;
+
     @Override
     public ClientConfiguration clientConfiguration() {
-        // Use environment variable or default to localhost
-        return ClientConfiguration.builder()
-                .connectedTo("elasticsearch:9200")
-                .build();
+        // Hosts come from ELASTICSEARCH_URIS (comma separated), e.g. http://elasticsearch:9200
+        URI[] endpoints = Arrays.stream(uris.split(","))
+                .map(String::trim)
+                .map(URI::create)
+                .toArray(URI[]::new);
+        String[] hosts = Arrays.stream(endpoints)
+                .map(uri -> uri.getHost() + ":" + (uri.getPort() > 0 ? uri.getPort() : DEFAULT_PORT))
+                .toArray(String[]::new);
+
+        ClientConfiguration.MaybeSecureClientConfigurationBuilder builder =
+                ClientConfiguration.builder().connectedTo(hosts);
+        if ("https".equalsIgnoreCase(endpoints[0].getScheme())) {
+            builder.usingSsl();
+        }
+        return builder.build();
     }
 }
-
-
@@ -0,0 +1,37 @@
+package com.code.reservationservice.config;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Declares this service's durable queue for payment outcomes and binds it to the
+ * exchange payment-service publishes to.
+ */
+@Configuration
+@ConditionalOnProperty(name = "reservations.payment-outcomes.enabled", havingValue = "true")
+public class PaymentOutcomeMessagingConfig {
+
+    private static final String ROUTING_KEY = "payment.outcomes";
+
+    @Bean
+    public TopicExchange paymentsExchange(@Value("${reservations.payment-outcomes.exchange:payments}") String exchange) {
+        return new TopicExchange(exchange, true, false);
+    }
+
+    @Bean
+    public Queue paymentOutcomesQueue(
+            @Value("${reservations.payment-outcomes.queue:reservation.payment-outcomes}") String queue) {
+        return new Queue(queue, true);
+    }
+
+    @Bean
+    public Binding paymentOutcomesBinding(Queue paymentOutcomesQueue, TopicExchange paymentsExchange) {
+        return BindingBuilder.bind(paymentOutcomesQueue).to(paymentsExchange).with(ROUTING_KEY);
+    }
+}
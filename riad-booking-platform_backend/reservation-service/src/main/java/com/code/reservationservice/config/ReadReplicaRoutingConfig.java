@@ -0,0 +1,101 @@
+package com.code.reservationservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Primary/replica DataSource routing, enabled with datasource.routing.enabled.
+ * Each pool is a separate Hikari pool reporting hikaricp.* metrics under its pool name.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+@Slf4j
+public class ReadReplicaRoutingConfig {
+
+    @Value("${spring.datasource.url}")
+    private String primaryUrl;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int primaryPoolSize;
+
+    @Value("${spring.datasource.hikari.minimum-idle:-1}")
+    private int minimumIdle;
+
+    @Value("${spring.datasource.hikari.connection-timeout:30000}")
+    private long connectionTimeoutMs;
+
+    @Value("${datasource.routing.replica-urls:}")
+    private List<String> replicaUrls;
+
+    @Value("${datasource.routing.replica-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${datasource.routing.read-your-writes:true}")
+    private boolean readYourWrites;
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(MeterRegistry meterRegistry) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        HikariDataSource primary = pool(ReplicaRoutingDataSource.PRIMARY, primaryUrl, primaryPoolSize, false, metrics);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (!url.isBlank()) {
+                replicas.add(pool("replica-" + replicas.size(), url.trim(), replicaPoolSize, true, metrics));
+            }
+        }
+        if (replicas.isEmpty()) {
+            log.warn("Read-replica routing enabled without datasource.routing.replica-urls, all reads use the primary");
+        }
+        log.info("Routing read-only transactions to {} replica(s), read-your-writes {}", replicas.size(), readYourWrites);
+
+        return new ReplicaRoutingDataSource(primary, replicas, readYourWrites);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datasource.routing.read-your-writes", havingValue = "true", matchIfMissing = true)
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter();
+    }
+
+    private HikariDataSource pool(String name, String url, int size, boolean readOnly,
+                                  MicrometerMetricsTrackerFactory metrics) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(size);
+        if (minimumIdle >= 0) {
+            dataSource.setMinimumIdle(Math.min(minimumIdle, size));
+        }
+        dataSource.setConnectionTimeout(connectionTimeoutMs);
+        dataSource.setReadOnly(readOnly);
+        dataSource.setMetricsTrackerFactory(metrics);
+        return dataSource;
+    }
+}
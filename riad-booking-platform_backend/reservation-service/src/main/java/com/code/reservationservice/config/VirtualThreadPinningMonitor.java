@@ -0,0 +1,91 @@
+package com.code.reservationservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reports virtual threads pinned to their carrier (synchronized blocks in the
+ * JDBC driver or connection pool) using JFR streaming.
+ * Only active when virtual threads are enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${virtual-threads.pinning.threshold-ms:20}")
+    private long thresholdMs;
+
+    private RecordingStream recordingStream;
+
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(thresholdMs))
+                .withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("Virtual thread pinning monitor started (threshold {} ms)", thresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<String> frames = event.getStackTrace() == null ? List.of() :
+                event.getStackTrace().getFrames().stream()
+                        .map(RecordedFrame::getMethod)
+                        .map(method -> method.getType().getName() + "." + method.getName())
+                        .toList();
+        String source = classifySource(frames);
+
+        Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier longer than the threshold")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+
+        log.warn("Virtual thread pinned for {} ms ({}): {}",
+                event.getDuration().toMillis(), source,
+                frames.subList(0, Math.min(LOGGED_FRAMES, frames.size())));
+    }
+
+    /**
+     * Attribute a pinned stack to the library holding the monitor, top frame first.
+     */
+    static String classifySource(List<String> frames) {
+        for (String frame : frames) {
+            if (frame.startsWith("org.postgresql.") || frame.startsWith("org.h2.")) {
+                return "jdbc-driver";
+            }
+            if (frame.startsWith("com.zaxxer.hikari.")) {
+                return "connection-pool";
+            }
+        }
+        return "other";
+    }
+}
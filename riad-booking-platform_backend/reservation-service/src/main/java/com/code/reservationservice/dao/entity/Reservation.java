@@ -2,7 +2,10 @@ package com.code.reservationservice.dao.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import com.code.reservationservice.config.SecondLevelCacheConfig;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -25,12 +28,14 @@ import java.util.UUID;
     @Index(name = "idx_status", columnList = "status"),
     @Index(name = "idx_check_in_date", columnList = "checkInDate")
 })
+@NaturalIdCache(region = SecondLevelCacheConfig.RESERVATION_NATURAL_IDS_REGION)
 public class Reservation {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @NaturalId
     @Column(nullable = false, unique = true)
     private String reservationNumber;
 
@@ -0,0 +1,16 @@
+package com.code.reservationservice.dao.repository;
+
+import com.code.reservationservice.dao.entity.Reservation;
+
+import java.util.Optional;
+
+/**
+ * Lookup by the Reservation natural id, served from the natural-id cache when it is enabled.
+ */
+public interface ReservationNaturalIdRepository {
+
+    /**
+     * Find reservation by its unique reservation number.
+     */
+    Optional<Reservation> findByReservationNumber(String reservationNumber);
+}
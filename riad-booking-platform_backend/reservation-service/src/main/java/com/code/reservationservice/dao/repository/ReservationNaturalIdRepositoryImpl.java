@@ -0,0 +1,25 @@
+package com.code.reservationservice.dao.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import com.code.reservationservice.dao.entity.Reservation;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+/**
+ * Resolves the reservation number through Hibernate's natural-id API rather than a derived
+ * query, which bypasses the second-level cache.
+ */
+@RequiredArgsConstructor
+public class ReservationNaturalIdRepositoryImpl implements ReservationNaturalIdRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<Reservation> findByReservationNumber(String reservationNumber) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Reservation.class)
+                .loadOptional(reservationNumber);
+    }
+}
@@ -12,18 +12,13 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Repository for Reservation entity with custom query methods.
  */
 @Repository
-public interface ReservationRepository extends JpaRepository<Reservation, Long>, JpaSpecificationExecutor<Reservation> {
-
-    /**
-     * Find reservation by its unique reservation number.
-     */
-    Optional<Reservation> findByReservationNumber(String reservationNumber);
+public interface ReservationRepository extends JpaRepository<Reservation, Long>, JpaSpecificationExecutor<Reservation>,
+        ReservationNaturalIdRepository {
 
     /**
      * Find all reservations for a specific user.
@@ -63,10 +58,19 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>,
     List<Reservation> findByCheckOutDateAndStatus(LocalDate checkOutDate, ReservationStatus status);
 
     /**
-     * Find pending reservations that are older than given date (for expiration).
+     * Find pending reservations that are older than given date (for expiration), among ids fromId to toId.
+     */
+    @Query("SELECT r FROM Reservation r WHERE r.status = 'PENDING' AND r.createdAt < :expirationDate " +
+           "AND r.id >= :fromId AND r.id <= :toId")
+    List<Reservation> findPendingReservationsOlderThan(@Param("expirationDate") java.time.LocalDateTime expirationDate,
+                                                       @Param("fromId") Long fromId,
+                                                       @Param("toId") Long toId);
+
+    /**
+     * Highest reservation id, 0 when there are no reservations.
      */
-    @Query("SELECT r FROM Reservation r WHERE r.status = 'PENDING' AND r.createdAt < :expirationDate")
-    List<Reservation> findPendingReservationsOlderThan(@Param("expirationDate") java.time.LocalDateTime expirationDate);
+    @Query("SELECT COALESCE(MAX(r.id), 0) FROM Reservation r")
+    long findLastId();
 
     /**
      * Count reservations by user and status.
@@ -2,6 +2,7 @@ package com.code.reservationservice.dao.repository;
 
 import com.code.reservationservice.dao.entity.Reservation;
 import com.code.reservationservice.dao.entity.ReservationStatus;
+import com.code.reservationservice.dto.ReservationSearchCriteria;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDate;
@@ -56,4 +57,35 @@ public class ReservationSpecifications {
                 reservationNumber == null || reservationNumber.isEmpty() ? null :
                         criteriaBuilder.equal(root.get("reservationNumber"), reservationNumber);
     }
+
+    /**
+     * Compose the specification for a search request, skipping empty criteria.
+     */
+    public static Specification<Reservation> fromCriteria(ReservationSearchCriteria criteria) {
+        Specification<Reservation> spec = Specification.where(
+                hasUserId(criteria.getUserId()));
+
+        if (criteria.getRiadId() != null) {
+            spec = spec.and(hasRiadId(criteria.getRiadId()));
+        }
+        if (criteria.getStatus() != null) {
+            spec = spec.and(hasStatus(criteria.getStatus()));
+        }
+        if (criteria.getCheckInDateFrom() != null || criteria.getCheckInDateTo() != null) {
+            spec = spec.and(checkInDateBetween(
+                    criteria.getCheckInDateFrom(), criteria.getCheckInDateTo()));
+        }
+        if (criteria.getCheckOutDateFrom() != null || criteria.getCheckOutDateTo() != null) {
+            spec = spec.and(checkOutDateBetween(
+                    criteria.getCheckOutDateFrom(), criteria.getCheckOutDateTo()));
+        }
+        if (criteria.getGuestName() != null && !criteria.getGuestName().isEmpty()) {
+            spec = spec.and(guestNameContains(criteria.getGuestName()));
+        }
+        if (criteria.getReservationNumber() != null && !criteria.getReservationNumber().isEmpty()) {
+            spec = spec.and(hasReservationNumber(criteria.getReservationNumber()));
+        }
+
+        return spec;
+    }
 }
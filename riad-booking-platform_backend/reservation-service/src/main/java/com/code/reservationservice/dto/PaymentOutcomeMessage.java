@@ -0,0 +1,30 @@
+package com.code.reservationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Payment outcome published by payment-service. The booking ID is the reservation ID.
+ * Delivered at least once, so it must be applied idempotently.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentOutcomeMessage {
+
+    public static final String COMPLETED = "COMPLETED";
+
+    private Long eventId;
+    private Long paymentId;
+    private Long bookingId;
+    private String status;
+    private BigDecimal amount;
+    private String currency;
+    private LocalDateTime occurredAt;
+}
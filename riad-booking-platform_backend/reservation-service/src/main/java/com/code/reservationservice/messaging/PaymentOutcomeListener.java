@@ -0,0 +1,42 @@
+package com.code.reservationservice.messaging;
+
+import com.code.reservationservice.dto.PaymentOutcomeMessage;
+import com.code.reservationservice.service.ReservationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+
+/**
+ * Applies batches of payment outcomes published by payment-service. A batch that
+ * fails to apply is redelivered; one that cannot be parsed is rejected for good.
+ */
+@Component
+@ConditionalOnProperty(name = "reservations.payment-outcomes.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentOutcomeListener {
+
+    private final ReservationService reservationService;
+    private final JsonMapper jsonMapper;
+
+    @RabbitListener(queues = "${reservations.payment-outcomes.queue:reservation.payment-outcomes}")
+    public void onPaymentOutcomes(Message message) {
+        List<PaymentOutcomeMessage> outcomes;
+        try {
+            outcomes = List.of(jsonMapper.readValue(message.getBody(), PaymentOutcomeMessage[].class));
+        } catch (JacksonException e) {
+            throw new AmqpRejectAndDontRequeueException("Unreadable payment outcome batch", e);
+        }
+
+        int applied = reservationService.applyPaymentOutcomes(outcomes);
+        log.debug("Applied {} of {} payment outcomes", applied, outcomes.size());
+    }
+}
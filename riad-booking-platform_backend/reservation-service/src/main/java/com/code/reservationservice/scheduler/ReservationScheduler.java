@@ -8,8 +8,12 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Scheduled tasks for reservation management.
+ * Scheduled tasks for reservation management. They run under {@link SchedulerLeases},
+ * so that each run happens once across the replicas.
  */
 @Component
 @EnableScheduling
@@ -17,20 +21,33 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class ReservationScheduler {
 
+    /**
+     * Other replicas skip an hourly job for this long after one of them started it.
+     */
+    private static final Duration HOURLY_HOLD = Duration.ofMinutes(50);
+
     private final ReservationService reservationService;
+    private final SchedulerLeases schedulerLeases;
 
     @Value("${reservation.expiration.hours:24}")
     private int expirationHours;
 
+    @Value("${scheduler.leases.expiry-partitions:4}")
+    private int expiryPartitions;
+
     /**
      * Expire pending reservations that are older than configured hours.
-     * Runs every hour.
+     * Runs every hour, on the hour on every replica, so that the replicas share the
+     * sweep by id-range partitions.
      */
-    @Scheduled(fixedRate = 3600 * 1000) // Every hour
+    @Scheduled(cron = "0 0 * * * *") // Every hour
     public void expirePendingReservations() {
         log.info("Running scheduled task: Expire pending reservations older than {} hours", expirationHours);
-        int expiredCount = reservationService.expirePendingReservations(expirationHours);
-        log.info("Expired {} pending reservations", expiredCount);
+        AtomicInteger expiredCount = new AtomicInteger();
+        int partitions = schedulerLeases.runPartitioned("reservations.expiry", reservationService.getLastReservationId(),
+                expiryPartitions, HOURLY_HOLD, range -> expiredCount.addAndGet(
+                        reservationService.expirePendingReservations(expirationHours, range.fromId(), range.toId())));
+        log.info("Expired {} pending reservations in {} partitions", expiredCount.get(), partitions);
     }
 }
 
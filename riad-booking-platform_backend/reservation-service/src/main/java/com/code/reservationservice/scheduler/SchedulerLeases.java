@@ -0,0 +1,246 @@
+package com.code.reservationservice.scheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import com.code.reservationservice.dao.entity.SchedulerLease;
+import com.code.reservationservice.dao.repository.SchedulerLeaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Database leases that let one replica at a time run a scheduled job. Each job, or each
+ * id-range partition of a job, has a lease row; a replica takes it with a conditional
+ * update once it has expired, extends it while the job runs, and on completion keeps it
+ * until the job's next run is due, so the other replicas skip this run. If the holder
+ * dies, its lease expires after the lease duration and the next replica to try takes over.
+ * <p>
+ * Expiries are compared with each replica's clock, so the lease duration and the hold
+ * after a run must be well above the clock skew between replicas.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLeases {
+
+    /**
+     * Partition boundaries are multiples of this, so they stay put while the last id grows.
+     */
+    static final long PARTITION_ALIGNMENT = 1000;
+
+    private final SchedulerLeaseRepository leaseRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${scheduler.leases.lease-duration-ms:300000}")
+    private long leaseDurationMs;
+
+    @Value("${scheduler.leases.owner:${HOSTNAME:reservation-service}}")
+    private String ownerPrefix;
+
+    private String owner;
+    private TransactionTemplate newTransaction;
+    private ScheduledExecutorService heartbeats;
+
+    @PostConstruct
+    public void init() {
+        owner = ownerPrefix + "-" + UUID.randomUUID().toString().substring(0, 8);
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        heartbeats = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("scheduler-lease-heartbeat").daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    /**
+     * Run the job here unless another replica holds its lease, and keep the lease for
+     * {@code hold} after the start of the run. Returns whether the job ran here.
+     */
+    public boolean runExclusively(String job, Duration hold, Runnable task) {
+        boolean ran = runLeased(job, hold, task);
+        meterRegistry.counter("scheduler.leases.runs", "job", job, "outcome", ran ? "ran" : "skipped").increment();
+        if (!ran) {
+            log.debug("Skipped {}, another replica holds its lease", job);
+        }
+        return ran;
+    }
+
+    /**
+     * Split ids 1 to {@code lastId} into partitions and run the job on each partition no
+     * other replica holds, keeping each lease for {@code hold} after its start. Replicas
+     * begin at different partitions, so the ones that run together share the sweep. The
+     * last partition has no upper bound. Returns the number of partitions run here.
+     */
+    public int runPartitioned(String job, long lastId, int partitions, Duration hold, Consumer<IdRange> task) {
+        List<IdRange> ranges = IdRange.split(lastId, partitions);
+        int first = Math.floorMod(owner.hashCode(), ranges.size());
+        int ran = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            int partition = (first + i) % ranges.size();
+            IdRange range = ranges.get(partition);
+            if (runLeased(job + "#" + partition, hold, () -> task.accept(range))) {
+                ran++;
+            }
+        }
+        meterRegistry.counter("scheduler.leases.runs", "job", job, "outcome", "ran").increment(ran);
+        meterRegistry.counter("scheduler.leases.runs", "job", job, "outcome", "skipped").increment(ranges.size() - ran);
+        log.debug("Ran {} of {} partitions of {}", ran, ranges.size(), job);
+        return ran;
+    }
+
+    private boolean runLeased(String name, Duration hold, Runnable task) {
+        LocalDateTime started = LocalDateTime.now();
+        if (!acquire(name, started, started.plus(Duration.ofMillis(leaseDurationMs)))) {
+            return false;
+        }
+
+        Heartbeat heartbeat = new Heartbeat(name);
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // Let the next scheduled run, on any replica, retry
+            heartbeat.stop();
+            release(name, LocalDateTime.now());
+            throw e;
+        }
+        heartbeat.stop();
+        LocalDateTime heldUntil = started.plus(hold);
+        LocalDateTime now = LocalDateTime.now();
+        release(name, heldUntil.isAfter(now) ? heldUntil : now);
+        return true;
+    }
+
+    private boolean acquire(String name, LocalDateTime now, LocalDateTime leasedUntil) {
+        Integer acquired = newTransaction.execute(status -> leaseRepository.acquire(name, owner, now, leasedUntil));
+        if (acquired != null && acquired > 0) {
+            return true;
+        }
+        if (leaseRepository.existsById(name)) {
+            return false;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> leaseRepository.saveAndFlush(SchedulerLease.builder()
+                    .name(name)
+                    .owner(owner)
+                    .lockedAt(now)
+                    .leasedUntil(leasedUntil)
+                    .build()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Lease {} created concurrently by another replica", name);
+            return false;
+        }
+    }
+
+    private void extend(String name) {
+        try {
+            Integer extended = newTransaction.execute(status ->
+                    leaseRepository.extend(name, owner, LocalDateTime.now().plus(Duration.ofMillis(leaseDurationMs))));
+            if (extended == null || extended == 0) {
+                meterRegistry.counter("scheduler.leases.lost", "job", jobOf(name)).increment();
+                log.warn("Lease {} was taken by another replica while {} held it", name, owner);
+            }
+        } catch (Exception e) {
+            log.warn("Could not extend lease {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void release(String name, LocalDateTime leasedUntil) {
+        try {
+            newTransaction.executeWithoutResult(status -> leaseRepository.extend(name, owner, leasedUntil));
+        } catch (Exception e) {
+            // The lease then expires after its duration
+            log.warn("Could not release lease {}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Extends a lease every third of its duration until stopped. Stopping waits for an
+     * extension in progress, so that it cannot overwrite the release that follows.
+     */
+    private final class Heartbeat implements Runnable {
+
+        private final String name;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ScheduledFuture<?> future;
+        private boolean stopped;
+
+        private Heartbeat(String name) {
+            this.name = name;
+            long periodMs = Math.max(leaseDurationMs / 3, 1);
+            future = heartbeats.scheduleAtFixedRate(this, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            lock.lock();
+            try {
+                if (!stopped) {
+                    extend(name);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void stop() {
+            lock.lock();
+            try {
+                stopped = true;
+                future.cancel(false);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static String jobOf(String name) {
+        int partition = name.indexOf('#');
+        return partition >= 0 ? name.substring(0, partition) : name;
+    }
+
+    /**
+     * Ids from {@code fromId} to {@code toId}, both included.
+     */
+    public record IdRange(long fromId, long toId) {
+
+        /**
+         * Split ids 1 to {@code lastId} into at most {@code partitions} aligned ranges, the
+         * last one open-ended so that ids created meanwhile are still covered.
+         */
+        public static List<IdRange> split(long lastId, int partitions) {
+            long size = Math.ceilDiv(Math.max(lastId, 1), Math.max(partitions, 1));
+            size = Math.ceilDiv(size, PARTITION_ALIGNMENT) * PARTITION_ALIGNMENT;
+            List<IdRange> ranges = new ArrayList<>(Math.max(partitions, 1));
+            long fromId = 1;
+            while (fromId + size <= lastId && ranges.size() < partitions - 1) {
+                ranges.add(new IdRange(fromId, fromId + size - 1));
+                fromId += size;
+            }
+            ranges.add(new IdRange(fromId, Long.MAX_VALUE));
+            return ranges;
+        }
+    }
+}
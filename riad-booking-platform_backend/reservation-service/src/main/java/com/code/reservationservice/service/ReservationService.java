@@ -102,9 +102,25 @@ public interface ReservationService {
      */
     ReservationResponse updatePaymentInfo(Long id, String paymentId);
 
+    /**
+     * Apply payment outcomes from payment-service, skipping ones already applied.
+     * Returns the number of reservations changed.
+     */
+    int applyPaymentOutcomes(List<PaymentOutcomeMessage> outcomes);
+
     /**
      * Expire pending reservations older than specified hours.
      */
     int expirePendingReservations(int hours);
+
+    /**
+     * Expire pending reservations older than specified hours, among ids fromId to toId.
+     */
+    int expirePendingReservations(int hours, long fromId, long toId);
+
+    /**
+     * Highest reservation id, 0 when there are no reservations.
+     */
+    long getLastReservationId();
 }
 
@@ -20,7 +20,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -95,29 +98,7 @@ public class ReservationServiceImpl implements ReservationService {
     @Override
     @Transactional(readOnly = true)
     public Page<ReservationResponse> searchReservations(ReservationSearchCriteria criteria, Pageable pageable) {
-        Specification<Reservation> spec = Specification.where(
-                ReservationSpecifications.hasUserId(criteria.getUserId()));
-
-        if (criteria.getRiadId() != null) {
-            spec = spec.and(ReservationSpecifications.hasRiadId(criteria.getRiadId()));
-        }
-        if (criteria.getStatus() != null) {
-            spec = spec.and(ReservationSpecifications.hasStatus(criteria.getStatus()));
-        }
-        if (criteria.getCheckInDateFrom() != null || criteria.getCheckInDateTo() != null) {
-            spec = spec.and(ReservationSpecifications.checkInDateBetween(
-                    criteria.getCheckInDateFrom(), criteria.getCheckInDateTo()));
-        }
-        if (criteria.getCheckOutDateFrom() != null || criteria.getCheckOutDateTo() != null) {
-            spec = spec.and(ReservationSpecifications.checkOutDateBetween(
-                    criteria.getCheckOutDateFrom(), criteria.getCheckOutDateTo()));
-        }
-        if (criteria.getGuestName() != null && !criteria.getGuestName().isEmpty()) {
-            spec = spec.and(ReservationSpecifications.guestNameContains(criteria.getGuestName()));
-        }
-        if (criteria.getReservationNumber() != null && !criteria.getReservationNumber().isEmpty()) {
-            spec = spec.and(ReservationSpecifications.hasReservationNumber(criteria.getReservationNumber()));
-        }
+        Specification<Reservation> spec = ReservationSpecifications.fromCriteria(criteria);
 
         return reservationRepository.findAll(spec, pageable)
                 .map(reservationMapper::toResponse);
@@ -315,12 +296,57 @@ public class ReservationServiceImpl implements ReservationService {
         return reservationMapper.toResponse(updatedReservation);
     }
 
+    @Override
+    public int applyPaymentOutcomes(List<PaymentOutcomeMessage> outcomes) {
+        List<PaymentOutcomeMessage> completed = outcomes.stream()
+                .filter(outcome -> PaymentOutcomeMessage.COMPLETED.equals(outcome.getStatus()))
+                .filter(outcome -> outcome.getBookingId() != null)
+                .toList();
+        if (completed.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Reservation> reservations = reservationRepository
+                .findAllById(completed.stream().map(PaymentOutcomeMessage::getBookingId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Reservation::getId, Function.identity()));
+
+        List<Reservation> changed = new ArrayList<>();
+        for (PaymentOutcomeMessage outcome : completed) {
+            Reservation reservation = reservations.get(outcome.getBookingId());
+            String paymentId = String.valueOf(outcome.getPaymentId());
+            if (reservation == null) {
+                log.warn("Payment {} completed for unknown reservation {}", paymentId, outcome.getBookingId());
+            } else if (reservation.getStatus() == ReservationStatus.PENDING) {
+                reservation.setPaymentId(paymentId);
+                reservation.setStatus(ReservationStatus.CONFIRMED);
+                changed.add(reservation);
+            } else if (reservation.getStatus() == ReservationStatus.CONFIRMED && reservation.getPaymentId() == null) {
+                reservation.setPaymentId(paymentId);
+                changed.add(reservation);
+            } else if (!paymentId.equals(reservation.getPaymentId())) {
+                log.warn("Payment {} completed for reservation {} with status {}",
+                        paymentId, reservation.getReservationNumber(), reservation.getStatus());
+            }
+        }
+
+        reservationRepository.saveAll(changed);
+        log.info("Applied {} payment outcomes", changed.size());
+        return changed.size();
+    }
+
     @Override
     public int expirePendingReservations(int hours) {
-        log.info("Expiring pending reservations older than {} hours", hours);
+        return expirePendingReservations(hours, 1, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int expirePendingReservations(int hours, long fromId, long toId) {
+        log.info("Expiring pending reservations older than {} hours with ids {} to {}", hours, fromId, toId);
 
         LocalDateTime expirationDate = LocalDateTime.now().minusHours(hours);
-        List<Reservation> expiredReservations = reservationRepository.findPendingReservationsOlderThan(expirationDate);
+        List<Reservation> expiredReservations =
+                reservationRepository.findPendingReservationsOlderThan(expirationDate, fromId, toId);
 
         for (Reservation reservation : expiredReservations) {
             reservation.setStatus(ReservationStatus.EXPIRED);
@@ -331,6 +357,12 @@ public class ReservationServiceImpl implements ReservationService {
         return expiredReservations.size();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public long getLastReservationId() {
+        return reservationRepository.findLastId();
+    }
+
     // Helper methods
 
     private Reservation findReservationById(Long id) {
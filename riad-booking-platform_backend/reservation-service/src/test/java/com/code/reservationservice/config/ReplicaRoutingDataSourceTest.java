@@ -0,0 +1,125 @@
+package com.code.reservationservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing tests against two in-memory H2 databases standing in for the primary and a replica.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        String run = UUID.randomUUID().toString();
+        HikariDataSource primary = h2Pool("primary", "primary-" + run, false);
+        HikariDataSource replica = h2Pool("replica-0", "replica-" + run, true);
+        initMarker(primary, "primary");
+        initMarker(replica, "replica");
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, List.of(replica), true);
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWritesContext.end();
+        routingDataSource.close();
+    }
+
+    @Test
+    @DisplayName("Should send read-only transactions to the replica")
+    void shouldRouteReadOnlyToReplica() {
+        assertThat(readOnly.<String>execute(status -> currentDatabase())).isEqualTo("replica");
+    }
+
+    @Test
+    @DisplayName("Should send read-write transactions to the primary")
+    void shouldRouteReadWriteToPrimary() {
+        assertThat(readWrite.<String>execute(status -> currentDatabase())).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Should use the primary outside transactions")
+    void shouldUsePrimaryWithoutTransaction() {
+        assertThat(currentDatabase()).isEqualTo("primary");
+    }
+
+    @Nested
+    @DisplayName("Read-your-writes")
+    class ReadYourWrites {
+
+        @Test
+        @DisplayName("Should keep reads on the primary after a write in the same request")
+        void shouldStickToPrimaryAfterWrite() {
+            ReadYourWritesContext.begin();
+
+            readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE marker SET name = name"));
+
+            assertThat(readOnly.<String>execute(status -> currentDatabase())).isEqualTo("primary");
+        }
+
+        @Test
+        @DisplayName("Should read from the replica again once the request ends")
+        void shouldReleaseStickinessAtRequestEnd() {
+            ReadYourWritesContext.begin();
+            readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE marker SET name = name"));
+            ReadYourWritesContext.end();
+
+            assertThat(readOnly.<String>execute(status -> currentDatabase())).isEqualTo("replica");
+        }
+
+        @Test
+        @DisplayName("Should ignore writes made outside a request scope")
+        void shouldIgnoreWritesOutsideRequest() {
+            readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE marker SET name = name"));
+
+            assertThat(readOnly.<String>execute(status -> currentDatabase())).isEqualTo("replica");
+        }
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    private static HikariDataSource h2Pool(String poolName, String database, boolean readOnly) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(poolName);
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(2);
+        dataSource.setReadOnly(readOnly);
+        return dataSource;
+    }
+
+    private static void initMarker(HikariDataSource dataSource, String name) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE marker (name VARCHAR(20))");
+        template.update("INSERT INTO marker VALUES (?)", name);
+    }
+}
@@ -0,0 +1,39 @@
+package com.code.reservationservice.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for VirtualThreadPinningMonitor.
+ */
+class VirtualThreadPinningMonitorTest {
+
+    @Test
+    @DisplayName("Should attribute pinning inside the JDBC driver")
+    void shouldAttributeJdbcDriver() {
+        List<String> frames = List.of(
+                "org.h2.engine.SessionLocal.lock",
+                "com.zaxxer.hikari.pool.ProxyPreparedStatement.executeQuery");
+
+        assertThat(VirtualThreadPinningMonitor.classifySource(frames)).isEqualTo("jdbc-driver");
+    }
+
+    @Test
+    @DisplayName("Should attribute pinning inside the connection pool")
+    void shouldAttributeConnectionPool() {
+        List<String> frames = List.of("com.zaxxer.hikari.pool.HikariPool.getConnection");
+
+        assertThat(VirtualThreadPinningMonitor.classifySource(frames)).isEqualTo("connection-pool");
+    }
+
+    @Test
+    @DisplayName("Should fall back to other for unknown frames")
+    void shouldFallBackToOther() {
+        assertThat(VirtualThreadPinningMonitor.classifySource(List.of("java.lang.Object.wait")))
+                .isEqualTo("other");
+    }
+}
@@ -0,0 +1,104 @@
+package com.code.reservationservice.dao.repository;
+
+import com.code.reservationservice.config.SecondLevelCacheConfig;
+import com.code.reservationservice.dao.entity.Reservation;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.hibernate.autoconfigure.HibernateJpaAutoConfiguration;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.transaction.autoconfigure.TransactionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Natural-id cache tests against the in-memory database, on the JPA slice of the
+ * application with the second-level cache enabled.
+ */
+@SpringBootTest(classes = ReservationNaturalIdCacheTest.JpaSlice.class, properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class ReservationNaturalIdCacheTest {
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Reservation.class)
+    @EnableJpaRepositories(basePackageClasses = ReservationRepository.class)
+    @Import(SecondLevelCacheConfig.class)
+    static class JpaSlice {
+    }
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+    private String reservationNumber;
+
+    @BeforeEach
+    void setUp() {
+        reservationNumber = transactionTemplate.execute(status -> reservationRepository.save(Reservation.builder()
+                .userId(1L)
+                .riadId(10L)
+                .checkInDate(LocalDate.of(2026, 11, 2))
+                .checkOutDate(LocalDate.of(2026, 11, 5))
+                .numberOfGuests(2)
+                .numberOfRooms(1)
+                .totalPrice(new BigDecimal("2775.00"))
+                .build()).getReservationNumber());
+        // Saving caches the resolution; start each test from a cold cache
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Should resolve a reservation number from the natural-id cache after the first lookup")
+    void shouldResolveFromNaturalIdCache() {
+        assertThat(findByReservationNumber(reservationNumber)).isPresent();
+        assertThat(findByReservationNumber(reservationNumber)).isPresent();
+
+        assertThat(statistics.getNaturalIdCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getNaturalIdCachePutCount()).isEqualTo(1);
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getNaturalIdQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should query the database each time for an unknown reservation number")
+    void shouldNotCacheUnknownReservationNumber() {
+        assertThat(findByReservationNumber("RES-UNKNOWN")).isEmpty();
+        assertThat(findByReservationNumber("RES-UNKNOWN")).isEmpty();
+
+        assertThat(statistics.getNaturalIdCacheHitCount()).isZero();
+        assertThat(statistics.getNaturalIdQueryExecutionCount()).isEqualTo(2);
+    }
+
+    private Optional<Reservation> findByReservationNumber(String number) {
+        return transactionTemplate.execute(status -> reservationRepository.findByReservationNumber(number));
+    }
+}
@@ -2,6 +2,7 @@ package com.code.reservationservice.dao.repository;
 
 import com.code.reservationservice.dao.entity.Reservation;
 import com.code.reservationservice.dao.entity.ReservationStatus;
+import com.code.reservationservice.dto.ReservationSearchCriteria;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -273,5 +274,46 @@ class ReservationSpecificationsTest {
             verify(criteriaBuilder).equal(path, "RES-12345678");
         }
     }
-}
 
+    @Nested
+    @DisplayName("fromCriteria Specification")
+    class FromCriteriaSpecification {
+
+        @Test
+        @DisplayName("Should only filter on userId when other criteria are empty")
+        void shouldOnlyFilterOnUserIdWhenOtherCriteriaEmpty() {
+            when(root.get("userId")).thenReturn(path);
+            when(criteriaBuilder.equal(path, 1L)).thenReturn(predicate);
+
+            ReservationSearchCriteria criteria = ReservationSearchCriteria.builder()
+                    .userId(1L)
+                    .guestName("")
+                    .build();
+            Specification<Reservation> spec = ReservationSpecifications.fromCriteria(criteria);
+            spec.toPredicate(root, query, criteriaBuilder);
+
+            verify(root).get("userId");
+            verify(root, never()).get("guestName");
+            verify(root, never()).get("riadId");
+        }
+
+        @Test
+        @DisplayName("Should combine userId and status criteria")
+        void shouldCombineUserIdAndStatusCriteria() {
+            when(root.get("userId")).thenReturn(path);
+            when(root.get("status")).thenReturn(path);
+            when(criteriaBuilder.equal(path, 1L)).thenReturn(predicate);
+            when(criteriaBuilder.equal(path, ReservationStatus.CONFIRMED)).thenReturn(predicate);
+
+            ReservationSearchCriteria criteria = ReservationSearchCriteria.builder()
+                    .userId(1L)
+                    .status(ReservationStatus.CONFIRMED)
+                    .build();
+            Specification<Reservation> spec = ReservationSpecifications.fromCriteria(criteria);
+            spec.toPredicate(root, query, criteriaBuilder);
+
+            verify(criteriaBuilder).equal(path, 1L);
+            verify(criteriaBuilder).equal(path, ReservationStatus.CONFIRMED);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.code.reservationservice.dto;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for PaymentOutcomeMessage DTO.
+ */
+class PaymentOutcomeMessageTest {
+
+    @Test
+    @DisplayName("Should create message using builder")
+    void shouldCreateMessageUsingBuilder() {
+        LocalDateTime occurredAt = LocalDateTime.now();
+
+        PaymentOutcomeMessage message = PaymentOutcomeMessage.builder()
+                .eventId(7L)
+                .paymentId(42L)
+                .bookingId(1L)
+                .status(PaymentOutcomeMessage.COMPLETED)
+                .amount(new BigDecimal("500.00"))
+                .currency("MAD")
+                .occurredAt(occurredAt)
+                .build();
+
+        assertThat(message.getEventId()).isEqualTo(7L);
+        assertThat(message.getPaymentId()).isEqualTo(42L);
+        assertThat(message.getBookingId()).isEqualTo(1L);
+        assertThat(message.getStatus()).isEqualTo("COMPLETED");
+        assertThat(message.getAmount()).isEqualByComparingTo("500.00");
+        assertThat(message.getCurrency()).isEqualTo("MAD");
+        assertThat(message.getOccurredAt()).isEqualTo(occurredAt);
+    }
+
+    @Test
+    @DisplayName("Should create empty message using no-args constructor")
+    void shouldCreateEmptyMessage() {
+        PaymentOutcomeMessage message = new PaymentOutcomeMessage();
+
+        assertThat(message.getEventId()).isNull();
+        assertThat(message.getStatus()).isNull();
+    }
+}
@@ -0,0 +1,68 @@
+package com.code.reservationservice.messaging;
+
+import com.code.reservationservice.dto.PaymentOutcomeMessage;
+import com.code.reservationservice.service.ReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Unit tests for PaymentOutcomeListener.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentOutcomeListenerTest {
+
+    @Mock
+    private ReservationService reservationService;
+
+    private PaymentOutcomeListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new PaymentOutcomeListener(reservationService, JsonMapper.builder().findAndAddModules().build());
+    }
+
+    @Test
+    @DisplayName("Should apply every outcome of a batch")
+    @SuppressWarnings("unchecked")
+    void shouldApplyBatch() {
+        listener.onPaymentOutcomes(message("""
+                [{"eventId":1,"paymentId":42,"bookingId":1,"status":"COMPLETED","amount":500.00,"currency":"MAD",
+                  "occurredAt":"2026-01-15T10:00:00"},
+                 {"eventId":2,"paymentId":43,"bookingId":2,"status":"FAILED"}]
+                """));
+
+        ArgumentCaptor<List<PaymentOutcomeMessage>> outcomes = ArgumentCaptor.forClass(List.class);
+        verify(reservationService).applyPaymentOutcomes(outcomes.capture());
+        assertThat(outcomes.getValue()).extracting(PaymentOutcomeMessage::getBookingId).containsExactly(1L, 2L);
+        assertThat(outcomes.getValue().get(0).getStatus()).isEqualTo("COMPLETED");
+    }
+
+    @Test
+    @DisplayName("Should reject an unreadable batch without requeueing it")
+    void shouldRejectUnreadableBatch() {
+        assertThatThrownBy(() -> listener.onPaymentOutcomes(message("not json")))
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class);
+        verifyNoInteractions(reservationService);
+    }
+
+    private static Message message(String body) {
+        return MessageBuilder.withBody(body.getBytes(StandardCharsets.UTF_8)).build();
+    }
+}
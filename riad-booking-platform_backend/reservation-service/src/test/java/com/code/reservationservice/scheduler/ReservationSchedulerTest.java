@@ -1,6 +1,8 @@
 package com.code.reservationservice.scheduler;
 
+import com.code.reservationservice.scheduler.SchedulerLeases.IdRange;
 import com.code.reservationservice.service.ReservationService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,6 +11,15 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -20,44 +31,81 @@ class ReservationSchedulerTest {
     @Mock
     private ReservationService reservationService;
 
+    @Mock
+    private SchedulerLeases schedulerLeases;
+
     @InjectMocks
     private ReservationScheduler reservationScheduler;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reservationScheduler, "expiryPartitions", 4);
+    }
+
     @Test
     @DisplayName("Should expire pending reservations")
     void shouldExpirePendingReservations() {
         // Set the expiration hours value
         ReflectionTestUtils.setField(reservationScheduler, "expirationHours", 24);
+        runPartitions(List.of(new IdRange(1, Long.MAX_VALUE)));
 
-        when(reservationService.expirePendingReservations(24)).thenReturn(5);
+        when(reservationService.expirePendingReservations(24, 1, Long.MAX_VALUE)).thenReturn(5);
 
         reservationScheduler.expirePendingReservations();
 
-        verify(reservationService).expirePendingReservations(24);
+        verify(reservationService).expirePendingReservations(24, 1, Long.MAX_VALUE);
     }
 
     @Test
     @DisplayName("Should handle zero expired reservations")
     void shouldHandleZeroExpiredReservations() {
         ReflectionTestUtils.setField(reservationScheduler, "expirationHours", 24);
+        runPartitions(List.of(new IdRange(1, Long.MAX_VALUE)));
 
-        when(reservationService.expirePendingReservations(24)).thenReturn(0);
+        when(reservationService.expirePendingReservations(24, 1, Long.MAX_VALUE)).thenReturn(0);
 
         reservationScheduler.expirePendingReservations();
 
-        verify(reservationService).expirePendingReservations(24);
+        verify(reservationService).expirePendingReservations(24, 1, Long.MAX_VALUE);
     }
 
     @Test
     @DisplayName("Should use configured expiration hours")
     void shouldUseConfiguredExpirationHours() {
         ReflectionTestUtils.setField(reservationScheduler, "expirationHours", 48);
+        runPartitions(List.of(new IdRange(1, Long.MAX_VALUE)));
 
-        when(reservationService.expirePendingReservations(48)).thenReturn(3);
+        when(reservationService.expirePendingReservations(48, 1, Long.MAX_VALUE)).thenReturn(3);
 
         reservationScheduler.expirePendingReservations();
 
-        verify(reservationService).expirePendingReservations(48);
+        verify(reservationService).expirePendingReservations(48, 1, Long.MAX_VALUE);
     }
-}
 
+    @Test
+    @DisplayName("Should expire only the partitions leased by this replica")
+    void shouldExpireLeasedPartitions() {
+        ReflectionTestUtils.setField(reservationScheduler, "expirationHours", 24);
+        when(reservationService.getLastReservationId()).thenReturn(10_000L);
+        runPartitions(List.of(new IdRange(3001, 6000), new IdRange(9001, Long.MAX_VALUE)));
+
+        reservationScheduler.expirePendingReservations();
+
+        verify(schedulerLeases).runPartitioned(eq("reservations.expiry"), eq(10_000L), eq(4),
+                eq(Duration.ofMinutes(50)), any());
+        verify(reservationService).expirePendingReservations(24, 3001, 6000);
+        verify(reservationService).expirePendingReservations(24, 9001, Long.MAX_VALUE);
+        verify(reservationService, never()).expirePendingReservations(24, 1, 3000);
+    }
+
+    /**
+     * Make the leases hand these partitions to the scheduler, as if the other ones were held elsewhere.
+     */
+    private void runPartitions(List<IdRange> leased) {
+        when(schedulerLeases.runPartitioned(anyString(), anyLong(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            Consumer<IdRange> task = invocation.getArgument(4);
+            leased.forEach(task);
+            return leased.size();
+        });
+    }
+}
@@ -0,0 +1,207 @@
+package com.code.reservationservice.scheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.code.reservationservice.dao.entity.SchedulerLease;
+import com.code.reservationservice.dao.repository.SchedulerLeaseRepository;
+import com.code.reservationservice.scheduler.SchedulerLeases.IdRange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the database leases of scheduled jobs.
+ */
+@ExtendWith(MockitoExtension.class)
+class SchedulerLeasesTest {
+
+    private static final String JOB = "reservations.expiry";
+
+    @Mock
+    private SchedulerLeaseRepository leaseRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+    private SchedulerLeases leases;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        leases = new SchedulerLeases(leaseRepository, transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(leases, "leaseDurationMs", 300000L);
+        ReflectionTestUtils.setField(leases, "ownerPrefix", "reservation-service-0");
+        leases.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        leases.shutdown();
+    }
+
+    @Nested
+    @DisplayName("Exclusive Run Tests")
+    class ExclusiveRunTests {
+
+        @Test
+        @DisplayName("Should run the job and hold its lease until the next run is due")
+        void shouldRunAndHoldLease() {
+            when(leaseRepository.acquire(eq(JOB), anyString(), any(), any())).thenReturn(1);
+            LocalDateTime before = LocalDateTime.now();
+            Runnable task = mock(Runnable.class);
+
+            assertThat(leases.runExclusively(JOB, Duration.ofMinutes(50), task)).isTrue();
+
+            verify(task).run();
+            ArgumentCaptor<LocalDateTime> heldUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+            verify(leaseRepository).extend(eq(JOB), anyString(), heldUntil.capture());
+            assertThat(heldUntil.getValue()).isAfterOrEqualTo(before.plusMinutes(50));
+            assertThat(runs("ran")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should skip the job while another replica holds its lease")
+        void shouldSkipHeldLease() {
+            when(leaseRepository.acquire(eq(JOB), anyString(), any(), any())).thenReturn(0);
+            when(leaseRepository.existsById(JOB)).thenReturn(true);
+            Runnable task = mock(Runnable.class);
+
+            assertThat(leases.runExclusively(JOB, Duration.ofMinutes(50), task)).isFalse();
+
+            verifyNoInteractions(task);
+            verify(leaseRepository, never()).saveAndFlush(any());
+            assertThat(runs("skipped")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should create the lease of a job that never ran")
+        void shouldCreateMissingLease() {
+            when(leaseRepository.acquire(eq(JOB), anyString(), any(), any())).thenReturn(0);
+            when(leaseRepository.existsById(JOB)).thenReturn(false);
+            Runnable task = mock(Runnable.class);
+
+            assertThat(leases.runExclusively(JOB, Duration.ZERO, task)).isTrue();
+
+            ArgumentCaptor<SchedulerLease> created = ArgumentCaptor.forClass(SchedulerLease.class);
+            verify(leaseRepository).saveAndFlush(created.capture());
+            assertThat(created.getValue().getName()).isEqualTo(JOB);
+            assertThat(created.getValue().getOwner()).startsWith("reservation-service-0-");
+            verify(task).run();
+        }
+
+        @Test
+        @DisplayName("Should skip the job when another replica creates its lease first")
+        void shouldSkipLeaseCreatedConcurrently() {
+            when(leaseRepository.acquire(eq(JOB), anyString(), any(), any())).thenReturn(0);
+            when(leaseRepository.existsById(JOB)).thenReturn(false);
+            when(leaseRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+            Runnable task = mock(Runnable.class);
+
+            assertThat(leases.runExclusively(JOB, Duration.ZERO, task)).isFalse();
+
+            verifyNoInteractions(task);
+        }
+
+        @Test
+        @DisplayName("Should release the lease at once when the job fails")
+        void shouldReleaseLeaseOnFailure() {
+            when(leaseRepository.acquire(eq(JOB), anyString(), any(), any())).thenReturn(1);
+            LocalDateTime before = LocalDateTime.now();
+
+            assertThatThrownBy(() -> leases.runExclusively(JOB, Duration.ofMinutes(50), () -> {
+                throw new IllegalStateException("Database unavailable");
+            })).isInstanceOf(IllegalStateException.class);
+
+            ArgumentCaptor<LocalDateTime> heldUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+            verify(leaseRepository).extend(eq(JOB), anyString(), heldUntil.capture());
+            assertThat(heldUntil.getValue()).isBefore(before.plusMinutes(1));
+        }
+
+        @Test
+        @DisplayName("Should keep extending the lease while a long job runs")
+        void shouldExtendLeaseDuringLongRun() {
+            ReflectionTestUtils.setField(leases, "leaseDurationMs", 30L);
+            when(leaseRepository.acquire(eq(JOB), anyString(), any(), any())).thenReturn(1);
+            when(leaseRepository.extend(eq(JOB), anyString(), any())).thenReturn(1);
+
+            leases.runExclusively(JOB, Duration.ZERO, () -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            // Heartbeats every 10 ms, then the release
+            verify(leaseRepository, atLeast(3)).extend(eq(JOB), anyString(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Partitioned Run Tests")
+    class PartitionedRunTests {
+
+        @Test
+        @DisplayName("Should run every partition no other replica holds")
+        void shouldRunFreePartitions() {
+            when(leaseRepository.acquire(anyString(), anyString(), any(), any())).thenReturn(1);
+            when(leaseRepository.acquire(eq(JOB + "#1"), anyString(), any(), any())).thenReturn(0);
+            when(leaseRepository.existsById(JOB + "#1")).thenReturn(true);
+            List<IdRange> swept = new CopyOnWriteArrayList<>();
+
+            int ran = leases.runPartitioned(JOB, 10_000, 4, Duration.ofMinutes(50), swept::add);
+
+            assertThat(ran).isEqualTo(3);
+            assertThat(swept).containsExactlyInAnyOrder(
+                    new IdRange(1, 3000), new IdRange(6001, 9000), new IdRange(9001, Long.MAX_VALUE));
+            assertThat(runs("ran")).isEqualTo(3);
+            assertThat(runs("skipped")).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Id Range Tests")
+    class IdRangeTests {
+
+        @Test
+        @DisplayName("Should split ids into aligned ranges with an open-ended last one")
+        void shouldSplitIntoAlignedRanges() {
+            assertThat(IdRange.split(10_000, 4)).containsExactly(
+                    new IdRange(1, 3000), new IdRange(3001, 6000),
+                    new IdRange(6001, 9000), new IdRange(9001, Long.MAX_VALUE));
+        }
+
+        @Test
+        @DisplayName("Should use a single range for few ids")
+        void shouldUseSingleRangeForFewIds() {
+            assertThat(IdRange.split(0, 4)).containsExactly(new IdRange(1, Long.MAX_VALUE));
+            assertThat(IdRange.split(800, 4)).containsExactly(new IdRange(1, Long.MAX_VALUE));
+        }
+    }
+
+    private double runs(String outcome) {
+        return meterRegistry.counter("scheduler.leases.runs", "job", JOB, "outcome", outcome).count();
+    }
+}
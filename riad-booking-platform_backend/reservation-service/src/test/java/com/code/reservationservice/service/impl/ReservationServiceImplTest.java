@@ -589,6 +589,69 @@ class ReservationServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("Apply Payment Outcomes")
+    class ApplyPaymentOutcomes {
+
+        @Test
+        @DisplayName("Should confirm a pending reservation and record its payment")
+        void shouldConfirmPendingReservation() {
+            when(reservationRepository.findAllById(List.of(1L))).thenReturn(List.of(reservation));
+
+            int applied = reservationService.applyPaymentOutcomes(List.of(outcome("COMPLETED")));
+
+            assertThat(applied).isEqualTo(1);
+            assertThat(reservation.getStatus()).isEqualTo(ReservationStatus.CONFIRMED);
+            assertThat(reservation.getPaymentId()).isEqualTo("42");
+            verify(reservationRepository).saveAll(List.of(reservation));
+        }
+
+        @Test
+        @DisplayName("Should skip an outcome that was already applied")
+        void shouldSkipRedeliveredOutcome() {
+            reservation.setStatus(ReservationStatus.CONFIRMED);
+            reservation.setPaymentId("42");
+            when(reservationRepository.findAllById(List.of(1L))).thenReturn(List.of(reservation));
+
+            int applied = reservationService.applyPaymentOutcomes(List.of(outcome("COMPLETED")));
+
+            assertThat(applied).isZero();
+            verify(reservationRepository).saveAll(Collections.emptyList());
+        }
+
+        @Test
+        @DisplayName("Should not revive a cancelled reservation")
+        void shouldNotReviveCancelledReservation() {
+            reservation.setStatus(ReservationStatus.CANCELLED);
+            when(reservationRepository.findAllById(List.of(1L))).thenReturn(List.of(reservation));
+
+            int applied = reservationService.applyPaymentOutcomes(List.of(outcome("COMPLETED")));
+
+            assertThat(applied).isZero();
+            assertThat(reservation.getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+        }
+
+        @Test
+        @DisplayName("Should ignore outcomes other than completed payments")
+        void shouldIgnoreOtherOutcomes() {
+            int applied = reservationService.applyPaymentOutcomes(List.of(outcome("FAILED")));
+
+            assertThat(applied).isZero();
+            verifyNoInteractions(reservationRepository);
+        }
+
+        private PaymentOutcomeMessage outcome(String status) {
+            return PaymentOutcomeMessage.builder()
+                    .eventId(7L)
+                    .paymentId(42L)
+                    .bookingId(1L)
+                    .status(status)
+                    .amount(new BigDecimal("500.00"))
+                    .currency("MAD")
+                    .build();
+        }
+    }
+
     @Nested
     @DisplayName("Expire Pending Reservations")
     class ExpirePendingReservations {
@@ -601,7 +664,7 @@ class ReservationServiceImplTest {
                     .status(ReservationStatus.PENDING)
                     .build();
 
-            when(reservationRepository.findPendingReservationsOlderThan(any(LocalDateTime.class)))
+            when(reservationRepository.findPendingReservationsOlderThan(any(LocalDateTime.class), eq(1L), eq(Long.MAX_VALUE)))
                     .thenReturn(List.of(pendingReservation));
 
             int expiredCount = reservationService.expirePendingReservations(24);
@@ -614,7 +677,7 @@ class ReservationServiceImplTest {
         @Test
         @DisplayName("Should return 0 when no pending reservations to expire")
         void shouldReturnZeroWhenNoPendingReservationsToExpire() {
-            when(reservationRepository.findPendingReservationsOlderThan(any(LocalDateTime.class)))
+            when(reservationRepository.findPendingReservationsOlderThan(any(LocalDateTime.class), eq(1L), eq(Long.MAX_VALUE)))
                     .thenReturn(Collections.emptyList());
 
             int expiredCount = reservationService.expirePendingReservations(24);
@@ -622,6 +685,23 @@ class ReservationServiceImplTest {
             assertThat(expiredCount).isEqualTo(0);
             verify(reservationRepository, never()).save(any());
         }
+
+        @Test
+        @DisplayName("Should only expire pending reservations of the given id range")
+        void shouldExpirePendingReservationsOfIdRange() {
+            Reservation pendingReservation = Reservation.builder()
+                    .id(1500L)
+                    .status(ReservationStatus.PENDING)
+                    .build();
+
+            when(reservationRepository.findPendingReservationsOlderThan(any(LocalDateTime.class), eq(1001L), eq(2000L)))
+                    .thenReturn(List.of(pendingReservation));
+
+            int expiredCount = reservationService.expirePendingReservations(24, 1001, 2000);
+
+            assertThat(expiredCount).isEqualTo(1);
+            assertThat(pendingReservation.getStatus()).isEqualTo(ReservationStatus.EXPIRED);
+        }
     }
 
     @Nested